@@ -0,0 +1,154 @@
+package com.example.lms.bench;
+
+import com.example.lms.bench.data.DataVolumes;
+import com.example.lms.bench.data.LibraryDataGenerator;
+import com.example.lms.util.MigrationRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local MySQL stand-in for the benchmarks.
+ * Creates the database named by -Dlms.bench.db (default lms_bench) from the application's
+ * database.sql and migrations, fills it once with {@link LibraryDataGenerator} (the small
+ * preset unless -Dlms.data.* says otherwise), and points the application's Database at it.
+ * Generation is deterministic, so runs are comparable.
+ */
+public final class BenchmarkDatabase {
+
+    private static final String SERVER_URL = System.getProperty("lms.bench.server", "jdbc:mysql://localhost:3306/");
+    private static final String DB_NAME = System.getProperty("lms.bench.db", "lms_bench");
+    private static final String USER = System.getProperty("lms.db.user", "root");
+    private static final String DB_PASSWORD = System.getProperty("lms.db.password", "");
+    private static final String PARAMS = "?useSSL=false&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true";
+
+    private static final DataVolumes VOLUMES = DataVolumes.fromSystemProperties();
+
+    private static boolean prepared;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Create and seed the benchmark database if needed and point the application at it.
+     * Must run before the first DAO is created in the benchmark JVM.
+     *
+     * @throws SQLException if the database cannot be prepared
+     */
+    public static synchronized void prepare() throws SQLException {
+        if (prepared) {
+            return;
+        }
+
+        System.setProperty("lms.db.url", SERVER_URL + DB_NAME);
+        System.setProperty("lms.log.level", System.getProperty("lms.log.level", "WARN"));
+
+        try (Connection server = DriverManager.getConnection(SERVER_URL + PARAMS, USER, DB_PASSWORD);
+             Statement stmt = server.createStatement()) {
+            stmt.execute("CREATE DATABASE IF NOT EXISTS " + DB_NAME);
+        }
+
+        try (Connection connection = open()) {
+            if (!tableExists(connection, "books")) {
+                createSchema(connection);
+            }
+            // database.sql lacks the columns and indexes the migrations add
+            MigrationRunner.migrate(connection);
+
+            if (count(connection, "books") < VOLUMES.getBooks()) {
+                new LibraryDataGenerator(VOLUMES).load(BenchmarkDatabase::open);
+            }
+
+            for (String problem : MigrationRunner.checkHotQueries(connection)) {
+                System.out.println("WARNING: hot query does not use its index: " + problem);
+            }
+        }
+
+        prepared = true;
+    }
+
+    /**
+     * Open a connection to the benchmark database
+     *
+     * @return New connection
+     * @throws SQLException if the connection fails
+     */
+    public static Connection open() throws SQLException {
+        return DriverManager.getConnection(SERVER_URL + DB_NAME + PARAMS, USER, DB_PASSWORD);
+    }
+
+    /**
+     * @return Volumes the database was filled with
+     */
+    public static DataVolumes getVolumes() {
+        return VOLUMES;
+    }
+
+    private static void createSchema(Connection connection) throws SQLException {
+        String script;
+        try (InputStream in = BenchmarkDatabase.class.getResourceAsStream("/database.sql")) {
+            if (in == null) {
+                throw new SQLException("database.sql is missing from the benchmark jar");
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Could not read database.sql", e);
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : splitStatements(script)) {
+                // The script creates and selects the lms database itself
+                String upper = sql.toUpperCase();
+                if (upper.startsWith("CREATE DATABASE") || upper.startsWith("USE ")) {
+                    continue;
+                }
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    private static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+
+        for (String line : script.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || (trimmed.startsWith("--") && current.isEmpty())) {
+                continue;
+            }
+            current.append(line).append('\n');
+
+            // Statements end with a semicolon, possibly followed by a comment
+            if (trimmed.replaceAll("\\s*--.*$", "").endsWith(";")) {
+                String sql = current.toString().trim();
+                sql = sql.substring(0, sql.lastIndexOf(';'));
+                statements.add(sql);
+                current.setLength(0);
+            }
+        }
+        return statements;
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        try (ResultSet rs = meta.getTables(DB_NAME, null, table, null)) {
+            return rs.next();
+        }
+    }
+
+    private static int count(Connection connection, String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
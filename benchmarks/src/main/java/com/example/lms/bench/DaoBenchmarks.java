@@ -0,0 +1,138 @@
+package com.example.lms.bench;
+
+import com.example.lms.bench.data.LibraryDataGenerator;
+import com.example.lms.model.Book;
+import com.example.lms.model.BookDAO;
+import com.example.lms.model.Borrowing;
+import com.example.lms.model.BorrowingDAO;
+import com.example.lms.model.FineDAO;
+import com.example.lms.model.User;
+import com.example.lms.model.UserDAO;
+import com.example.lms.util.Database;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the DAO calls behind the busiest screens, end to end through JDBC:
+ * active borrowings, the book list and search, login, and the overdue fines run.
+ * Run with -prof gc to also see allocations per operation; the statements counter
+ * shows how many SQL statements each call needs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Dlms.log.level=WARN", "-Xms1g", "-Xmx1g"})
+public class DaoBenchmarks {
+
+    private BookDAO bookDAO;
+    private BorrowingDAO borrowingDAO;
+    private UserDAO userDAO;
+    private FineDAO fineDAO;
+    private User librarian;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.prepare();
+
+        bookDAO = new BookDAO();
+        borrowingDAO = new BorrowingDAO();
+        userDAO = new UserDAO();
+        fineDAO = new FineDAO();
+        librarian = userDAO.getUserById(1);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        bookDAO.close();
+        borrowingDAO.close();
+        userDAO.close();
+        fineDAO.close();
+    }
+
+    @Benchmark
+    public List<Borrowing> activeBorrowings(StatementCounter counter) throws SQLException {
+        counter.begin();
+        try {
+            return borrowingDAO.getActiveBorrowings();
+        } finally {
+            counter.end();
+        }
+    }
+
+    @Benchmark
+    public List<Book> allBooks(StatementCounter counter) throws SQLException {
+        counter.begin();
+        try {
+            return bookDAO.getAllBooks();
+        } finally {
+            counter.end();
+        }
+    }
+
+    @Benchmark
+    public List<Book> searchBooks(Search search, StatementCounter counter) throws SQLException {
+        counter.begin();
+        try {
+            return bookDAO.searchBooks(LibraryDataGenerator.commonTitleWord(), search.category);
+        } finally {
+            counter.end();
+        }
+    }
+
+    @Benchmark
+    public User authenticate(StatementCounter counter) {
+        int user = ThreadLocalRandom.current().nextInt(BenchmarkDatabase.getVolumes().getUsers());
+        String email = LibraryDataGenerator.userEmail(user);
+        counter.begin();
+        try {
+            return userDAO.authenticate(email, LibraryDataGenerator.PASSWORD);
+        } finally {
+            counter.end();
+        }
+    }
+
+    /**
+     * The fines run writes, so each invocation is rolled back to keep the data unchanged
+     */
+    @Benchmark
+    public int overdueFines(StatementCounter counter) throws SQLException {
+        Connection connection = Database.getConnection();
+        connection.setAutoCommit(false);
+        counter.begin();
+        try {
+            return fineDAO.calculateAndAddOverdueFines(0.5, librarian);
+        } finally {
+            counter.end();
+            connection.rollback();
+            connection.setAutoCommit(true);
+            Database.releaseConnection();
+        }
+    }
+
+    /**
+     * Search by title only, and restricted to a category
+     */
+    @State(Scope.Benchmark)
+    public static class Search {
+        @Param({"", "Fiction"})
+        public String category;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.lms.bench;
+
+import com.example.lms.model.BookCopyDAO;
+import com.example.lms.model.BookDAO;
+import com.example.lms.model.BorrowingDAO;
+import com.example.lms.model.UserDAO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning result rows into model objects.
+ * Each DAO's private row mapper is called over a fixed page of rows cached in memory,
+ * so the query itself is not measured. Mappers that look up related entities
+ * (books, borrowings and copies) still run those lookups; the statements counter shows
+ * how many they cost per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Dlms.log.level=WARN", "-Xms1g", "-Xmx1g"})
+public class RowMapperBenchmarks {
+
+    @Param({"book", "borrowing", "user", "copy"})
+    public String entity;
+
+    @Param({"100"})
+    public int rows;
+
+    private Object dao;
+    private MethodHandle mapper;
+    private CachedRowSet page;
+
+    @Setup
+    public void setUp() throws Throwable {
+        BenchmarkDatabase.prepare();
+
+        String table;
+        String method;
+        Class<?> daoClass;
+        switch (entity) {
+            case "book" -> {
+                daoClass = BookDAO.class;
+                table = "books";
+                method = "extractBookFromResultSet";
+            }
+            case "borrowing" -> {
+                daoClass = BorrowingDAO.class;
+                table = "borrowings";
+                method = "extractBorrowingFromResultSet";
+            }
+            case "user" -> {
+                daoClass = UserDAO.class;
+                table = "users";
+                method = "mapResultSetToUser";
+            }
+            case "copy" -> {
+                daoClass = BookCopyDAO.class;
+                table = "book_copies";
+                method = "extractBookCopyFromResultSet";
+            }
+            default -> throw new IllegalArgumentException("Unknown entity " + entity);
+        }
+
+        dao = daoClass.getConstructor().newInstance();
+        Class<?> returnType = daoClass.getDeclaredMethod(method, ResultSet.class).getReturnType();
+        mapper = MethodHandles.privateLookupIn(daoClass, MethodHandles.lookup())
+                .findVirtual(daoClass, method, MethodType.methodType(returnType, ResultSet.class))
+                .asType(MethodType.methodType(Object.class, Object.class, ResultSet.class));
+
+        try (Connection connection = BenchmarkDatabase.open();
+             PreparedStatement stmt = connection.prepareStatement("SELECT * FROM " + table + " ORDER BY id LIMIT ?")) {
+            stmt.setInt(1, rows);
+            try (ResultSet rs = stmt.executeQuery()) {
+                page = RowSetProvider.newFactory().createCachedRowSet();
+                page.populate(rs);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Throwable {
+        page.close();
+        dao.getClass().getMethod("close").invoke(dao);
+    }
+
+    @Benchmark
+    public void mapPage(StatementCounter counter, Blackhole blackhole) throws Throwable {
+        page.beforeFirst();
+        counter.begin();
+        try {
+            while (page.next()) {
+                blackhole.consume((Object) mapper.invokeExact(dao, (ResultSet) page));
+            }
+        } finally {
+            counter.end();
+        }
+    }
+}
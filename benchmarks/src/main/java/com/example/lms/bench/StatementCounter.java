@@ -0,0 +1,44 @@
+package com.example.lms.bench;
+
+import com.example.lms.util.QueryScope;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the SQL statements each benchmark invocation executes.
+ * JMH reports the total per iteration as the "statements" secondary result; divided by
+ * the number of operations in the iteration, it gives statements per operation, which
+ * shows N+1 regressions independently of database latency.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class StatementCounter {
+
+    public long statements;
+
+    private QueryScope scope;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        statements = 0;
+    }
+
+    /**
+     * Start counting; call at the start of the benchmark method
+     */
+    public void begin() {
+        scope = QueryScope.open("benchmark");
+    }
+
+    /**
+     * Stop counting; call in a finally block at the end of the benchmark method
+     */
+    public void end() {
+        statements += scope.getStatementCount();
+        scope.close();
+        scope = null;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.lms.bench.data;
+
+/**
+ * How much data {@link LibraryDataGenerator} creates.
+ * The preset is chosen with -Dlms.data.preset: small (the default, enough for the JMH
+ * benchmarks) or large (1M books, 3M copies, 500k users, 20M borrowings). Any value can
+ * be overridden with -Dlms.data.books, copiesPerBook, users, borrowings, onLoan (fraction
+ * of copies currently borrowed), historyDays, seed and threads.
+ */
+public final class DataVolumes {
+
+    private final int books;
+    private final int copiesPerBook;
+    private final int users;
+    private final int borrowings;
+    private final double onLoanFraction;
+    private final int historyDays;
+    private final long seed;
+    private final int threads;
+
+    public DataVolumes(int books, int copiesPerBook, int users, int borrowings, double onLoanFraction,
+                       int historyDays, long seed, int threads) {
+        if (books <= 0 || copiesPerBook <= 0 || users <= 0 || borrowings < 0 || historyDays <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Data volumes must be positive");
+        }
+        if (onLoanFraction < 0 || onLoanFraction > 1) {
+            throw new IllegalArgumentException("onLoan must be a fraction between 0 and 1");
+        }
+
+        this.books = books;
+        this.copiesPerBook = copiesPerBook;
+        this.users = users;
+        this.borrowings = borrowings;
+        this.onLoanFraction = onLoanFraction;
+        this.historyDays = historyDays;
+        this.seed = seed;
+        this.threads = threads;
+    }
+
+    /**
+     * @return Enough data for the benchmarks to show per-row costs, loaded in seconds
+     */
+    public static DataVolumes small() {
+        return new DataVolumes(20_000, 3, 5_000, 40_000, 0.05, 730, 42, defaultThreads());
+    }
+
+    /**
+     * @return A large library, for finding scaling problems
+     */
+    public static DataVolumes large() {
+        return new DataVolumes(1_000_000, 3, 500_000, 20_000_000, 0.05, 1825, 42, defaultThreads());
+    }
+
+    /**
+     * Read the preset and overrides from system properties
+     *
+     * @return Configured volumes
+     */
+    public static DataVolumes fromSystemProperties() {
+        String preset = System.getProperty("lms.data.preset", "small");
+        DataVolumes base = switch (preset) {
+            case "small" -> small();
+            case "large" -> large();
+            default -> throw new IllegalArgumentException("Unknown data preset " + preset + ", use small or large");
+        };
+
+        return new DataVolumes(
+                Integer.getInteger("lms.data.books", base.books),
+                Integer.getInteger("lms.data.copiesPerBook", base.copiesPerBook),
+                Integer.getInteger("lms.data.users", base.users),
+                Integer.getInteger("lms.data.borrowings", base.borrowings),
+                Double.parseDouble(System.getProperty("lms.data.onLoan", Double.toString(base.onLoanFraction))),
+                Integer.getInteger("lms.data.historyDays", base.historyDays),
+                Long.getLong("lms.data.seed", base.seed),
+                Integer.getInteger("lms.data.threads", base.threads));
+    }
+
+    private static int defaultThreads() {
+        return Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public int getBooks() {
+        return books;
+    }
+
+    public int getCopiesPerBook() {
+        return copiesPerBook;
+    }
+
+    public long getCopies() {
+        return (long) books * copiesPerBook;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getBorrowings() {
+        return borrowings;
+    }
+
+    public double getOnLoanFraction() {
+        return onLoanFraction;
+    }
+
+    public int getHistoryDays() {
+        return historyDays;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    public String toString() {
+        return books + " books, " + getCopies() + " copies, " + users + " users, " + borrowings +
+                " borrowings over " + historyDays + " days";
+    }
+}
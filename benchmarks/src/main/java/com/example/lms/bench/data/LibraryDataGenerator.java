@@ -0,0 +1,496 @@
+package com.example.lms.bench.data;
+
+import com.example.lms.util.SecurityUtil;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk-loads a synthetic library into the LMS schema.
+ * Popularity is skewed: books and readers are drawn from Zipf distributions, so a few
+ * titles account for most loans and a few readers borrow far more than the rest.
+ * Borrow dates follow the academic year, busiest in September, October and the spring
+ * term, quiet in summer and over Christmas, and on Sundays. Past loans of the same copy
+ * may overlap; only current loans are kept consistent with the copies marked BORROWED.
+ *
+ * Rows are inserted with batched statements from several threads, each on its own
+ * connection, in fixed-size chunks with their own random seed, so the same volumes and
+ * seed produce the same data whatever the thread count. Generated ids continue after
+ * the rows already in the tables; foreign key and unique checks are off while loading.
+ *
+ * Generated readers' emails come from {@link #userEmail(int)} and their password is
+ * {@link #PASSWORD}; the first reader in every thousand is a librarian. Book and reader
+ * popularity is given by {@link Popularity}, so load tests can follow the same skew.
+ *
+ * Run standalone, e.g. for a load test database:
+ * <pre>
+ * java -Dlms.data.preset=large -cp benchmarks.jar com.example.lms.bench.data.LibraryDataGenerator jdbc:mysql://localhost:3306/lms_load
+ * </pre>
+ */
+public class LibraryDataGenerator {
+
+    public static final String PASSWORD = "password";
+
+    private static final int CHUNK_SIZE = 50_000;
+    private static final int BATCH_SIZE = 5_000;
+    private static final int LOAN_DAYS = 14;
+
+    private static final String[] WORDS = {
+            "River", "Shadow", "Garden", "Empire", "Winter", "Code", "Silent", "Glass", "Ocean", "Machine",
+            "History", "Light", "Stone", "Journey", "Secret", "City", "Night", "Fire", "Letters", "Island",
+            "Memory", "Storm", "Kingdom", "Paper", "Silver", "Forest", "Iron", "Dream", "Mountain", "Harbor"
+    };
+
+    // Relative borrowing activity by month, January first
+    private static final double[] MONTH_WEIGHTS = {1.1, 1.2, 1.2, 1.1, 1.0, 0.7, 0.5, 0.5, 1.3, 1.4, 1.2, 0.7};
+
+    /**
+     * Opens a connection to the database being loaded
+     */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * Fills in the parameters for one generated item and adds its rows to the batch
+     */
+    @FunctionalInterface
+    private interface RowWriter {
+        int write(PreparedStatement stmt, int index, SplittableRandom random) throws SQLException;
+    }
+
+    private final DataVolumes volumes;
+    private final LocalDate today = LocalDate.now();
+
+    // Filled in by load()
+    private int firstUser;
+    private int firstBook;
+    private int firstCopy;
+    private int staff;
+    private int[] publisherIds;
+    private int[] categoryIds;
+    private Popularity bookPopularity;
+    private Popularity userActivity;
+    private WeightedSampler authorPopularity;
+    private WeightedSampler borrowDays;
+    private int[] copiesOnLoan;
+
+    public LibraryDataGenerator(DataVolumes volumes) {
+        if (volumes.getCopies() > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Too many copies for INT ids: " + volumes.getCopies());
+        }
+        this.volumes = volumes;
+    }
+
+    /**
+     * @param n Reader number, from 0
+     * @return Email of a generated reader
+     */
+    public static String userEmail(int n) {
+        return "reader" + n + "@bench.lms";
+    }
+
+    /**
+     * @return A word that occurs in many generated titles
+     */
+    public static String commonTitleWord() {
+        return WORDS[0];
+    }
+
+    /**
+     * @param random Source of randomness
+     * @return Two words that occur together in some generated titles
+     */
+    public static String randomTitlePhrase(SplittableRandom random) {
+        return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+    }
+
+    /**
+     * @param n Book number, from 0
+     * @return ISBN of a generated book
+     */
+    public static String isbn(int n) {
+        return String.format("979%010d", n);
+    }
+
+    /**
+     * Generate and insert all rows
+     *
+     * @param source Opens connections to the target database; called once per loading thread
+     * @throws SQLException if loading fails
+     */
+    public void load(ConnectionSource source) throws SQLException {
+        long started = System.nanoTime();
+        System.out.println("Generating " + volumes + " with " + volumes.getThreads() + " threads");
+
+        try (Connection connection = source.open()) {
+            firstUser = maxId(connection, "users") + 1;
+            firstBook = maxId(connection, "books") + 1;
+            firstCopy = maxId(connection, "book_copies") + 1;
+            publisherIds = ids(connection, "publishers");
+            categoryIds = ids(connection, "categories");
+        }
+        if (publisherIds.length == 0 || categoryIds.length == 0) {
+            throw new SQLException("Publishers and categories must exist before generating books");
+        }
+
+        staff = (volumes.getUsers() + 999) / 1000;
+        bookPopularity = Popularity.ofBooks(volumes);
+        userActivity = Popularity.ofUsers(volumes);
+        authorPopularity = WeightedSampler.zipf(Math.max(1, volumes.getBooks() / 4), 0.8);
+        borrowDays = seasonalDays();
+        copiesOnLoan = chooseCopiesOnLoan();
+
+        String passwordHash = SecurityUtil.hashPassword(PASSWORD);
+
+        ExecutorService executor = Executors.newFixedThreadPool(volumes.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "data-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            AtomicLong users = new AtomicLong();
+            AtomicLong books = new AtomicLong();
+            AtomicLong bookCategories = new AtomicLong();
+            AtomicLong copies = new AtomicLong();
+            AtomicLong borrowings = new AtomicLong();
+
+            submit(executor, chunks, source, 1, volumes.getUsers(), users,
+                    "INSERT INTO users (id, name, email, password, role, is_active) VALUES (?, ?, ?, ?, ?, TRUE)",
+                    (stmt, i, random) -> {
+                        stmt.setInt(1, firstUser + i);
+                        stmt.setString(2, "Reader " + i);
+                        stmt.setString(3, userEmail(i));
+                        stmt.setString(4, passwordHash);
+                        stmt.setString(5, i % 1000 == 0 ? "librarian" : "user");
+                        stmt.addBatch();
+                        return 1;
+                    });
+
+            submit(executor, chunks, source, 2, volumes.getBooks(), books,
+                    "INSERT INTO books (id, title, author_name, isbn, publisher_id, publication_year, pages) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    this::writeBook);
+
+            submit(executor, chunks, source, 3, volumes.getBooks(), bookCategories,
+                    "INSERT INTO book_categories (book_id, category_id) VALUES (?, ?)",
+                    this::writeBookCategories);
+
+            BitSet onLoan = new BitSet((int) volumes.getCopies());
+            for (int copy : copiesOnLoan) {
+                onLoan.set(copy);
+            }
+            submit(executor, chunks, source, 4, (int) volumes.getCopies(), copies,
+                    "INSERT INTO book_copies (id, book_id, copy_number, status, acquisition_date, price, shelf_location) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    (stmt, i, random) -> writeCopy(stmt, i, random, onLoan.get(i)));
+
+            String borrowingInsert = "INSERT INTO borrowings " +
+                    "(book_copy_id, user_id, issued_by, returned_to, borrow_date, due_date, return_date, status) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+            submit(executor, chunks, source, 5, Math.max(0, volumes.getBorrowings() - copiesOnLoan.length),
+                    borrowings, borrowingInsert, this::writeReturnedBorrowing);
+            submit(executor, chunks, source, 6, copiesOnLoan.length, borrowings, borrowingInsert,
+                    this::writeActiveBorrowing);
+
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+
+            long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+            long rows = users.get() + books.get() + bookCategories.get() + copies.get() + borrowings.get();
+            System.out.println("Loaded " + users + " users, " + books + " books, " + bookCategories +
+                    " book categories, " + copies + " copies and " + borrowings + " borrowings in " +
+                    seconds + " s (" + rows / seconds + " rows/s)");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Data generation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Data generation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Split a table's rows into chunks and queue one insert task per chunk
+     */
+    private void submit(ExecutorService executor, List<Future<?>> chunks, ConnectionSource source, int table,
+                        int count, AtomicLong inserted, String sql, RowWriter writer) {
+        for (int from = 0; from < count; from += CHUNK_SIZE) {
+            int start = from;
+            int end = Math.min(count, from + CHUNK_SIZE);
+            long chunkSeed = volumes.getSeed() * 31 + table * 1_000_003L + start;
+
+            chunks.add(executor.submit(() -> {
+                insertChunk(source, sql, start, end, new SplittableRandom(chunkSeed), writer, inserted);
+                return null;
+            }));
+        }
+    }
+
+    private void insertChunk(ConnectionSource source, String sql, int from, int to, SplittableRandom random,
+                             RowWriter writer, AtomicLong inserted) throws SQLException {
+        try (Connection connection = source.open()) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("SET SESSION foreign_key_checks = 0, unique_checks = 0");
+            }
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                int batched = 0;
+                for (int i = from; i < to; i++) {
+                    batched += writer.write(stmt, i, random);
+                    if (batched >= BATCH_SIZE) {
+                        stmt.executeBatch();
+                        connection.commit();
+                        inserted.addAndGet(batched);
+                        batched = 0;
+                    }
+                }
+                stmt.executeBatch();
+                connection.commit();
+                inserted.addAndGet(batched);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private int writeBook(PreparedStatement stmt, int i, SplittableRandom random) throws SQLException {
+        String title = randomTitlePhrase(random);
+        if (random.nextInt(4) == 0) {
+            title = "The " + title;
+        }
+
+        stmt.setInt(1, firstBook + i);
+        stmt.setString(2, title + " " + i);
+        stmt.setString(3, "Author " + authorPopularity.sample(random));
+        stmt.setString(4, isbn(i));
+        stmt.setInt(5, publisherIds[random.nextInt(publisherIds.length)]);
+        stmt.setInt(6, 1900 + (int) Math.round(125 * Math.sqrt(random.nextDouble())));
+        stmt.setInt(7, 60 + random.nextInt(900));
+        stmt.addBatch();
+        return 1;
+    }
+
+    /**
+     * One category per book, a second one for a third of them
+     */
+    private int writeBookCategories(PreparedStatement stmt, int i, SplittableRandom random) throws SQLException {
+        int first = random.nextInt(categoryIds.length);
+        stmt.setInt(1, firstBook + i);
+        stmt.setInt(2, categoryIds[first]);
+        stmt.addBatch();
+
+        if (categoryIds.length > 1 && random.nextInt(3) == 0) {
+            int second = (first + 1 + random.nextInt(categoryIds.length - 1)) % categoryIds.length;
+            stmt.setInt(1, firstBook + i);
+            stmt.setInt(2, categoryIds[second]);
+            stmt.addBatch();
+            return 2;
+        }
+        return 1;
+    }
+
+    private int writeCopy(PreparedStatement stmt, int i, SplittableRandom random, boolean onLoan) throws SQLException {
+        String status = "AVAILABLE";
+        if (onLoan) {
+            status = "BORROWED";
+        } else if (random.nextInt(200) == 0) {
+            status = random.nextBoolean() ? "LOST" : "DAMAGED";
+        }
+
+        stmt.setInt(1, firstCopy + i);
+        stmt.setInt(2, firstBook + i / volumes.getCopiesPerBook());
+        stmt.setString(3, String.format("C%03d", i % volumes.getCopiesPerBook() + 1));
+        stmt.setString(4, status);
+        stmt.setDate(5, Date.valueOf(today.minusDays(random.nextInt(3650))));
+        stmt.setBigDecimal(6, BigDecimal.valueOf(500 + random.nextInt(6000), 2));
+        stmt.setString(7, (char) ('A' + random.nextInt(26)) + "-" + (1 + random.nextInt(40)));
+        stmt.addBatch();
+        return 1;
+    }
+
+    /**
+     * A past loan of a popular book; most come back on time, some late
+     */
+    private int writeReturnedBorrowing(PreparedStatement stmt, int i, SplittableRandom random) throws SQLException {
+        LocalDate borrowed = today.minusDays(volumes.getHistoryDays() - borrowDays.sample(random));
+        LocalDate due = borrowed.plusDays(LOAN_DAYS);
+
+        int roll = random.nextInt(100);
+        int kept;
+        if (roll < 75) {
+            kept = 1 + random.nextInt(LOAN_DAYS);
+        } else if (roll < 96) {
+            kept = LOAN_DAYS + 1 + random.nextInt(14);
+        } else {
+            kept = LOAN_DAYS + 15 + random.nextInt(45);
+        }
+
+        // Loans from the last few days that would come back in the future came back yesterday
+        LocalDate returned = borrowed.plusDays(kept);
+        if (!returned.isBefore(today)) {
+            returned = today.minusDays(1);
+        }
+
+        writeBorrowing(stmt, randomCopy(random), random, borrowed, due);
+        stmt.setInt(4, firstUser + 1000 * random.nextInt(staff));
+        stmt.setDate(7, Date.valueOf(returned));
+        stmt.setString(8, "RETURNED");
+        stmt.addBatch();
+        return 1;
+    }
+
+    /**
+     * A current loan of one of the copies marked BORROWED; loans older than
+     * the loan period are overdue
+     */
+    private int writeActiveBorrowing(PreparedStatement stmt, int i, SplittableRandom random) throws SQLException {
+        LocalDate borrowed = today.minusDays(random.nextInt(LOAN_DAYS * 3));
+
+        writeBorrowing(stmt, copiesOnLoan[i], random, borrowed, borrowed.plusDays(LOAN_DAYS));
+        stmt.setNull(4, Types.INTEGER);
+        stmt.setNull(7, Types.DATE);
+        stmt.setString(8, "ACTIVE");
+        stmt.addBatch();
+        return 1;
+    }
+
+    private void writeBorrowing(PreparedStatement stmt, int copy, SplittableRandom random,
+                                LocalDate borrowed, LocalDate due) throws SQLException {
+        stmt.setInt(1, firstCopy + copy);
+        stmt.setInt(2, firstUser + popularUser(random));
+        stmt.setInt(3, firstUser + 1000 * random.nextInt(staff));
+        stmt.setDate(5, Date.valueOf(borrowed));
+        stmt.setDate(6, Date.valueOf(due));
+    }
+
+    /**
+     * Pick distinct copies of mostly popular books to be out on loan now
+     */
+    private int[] chooseCopiesOnLoan() {
+        int wanted = (int) (volumes.getCopies() * volumes.getOnLoanFraction());
+        BitSet taken = new BitSet((int) volumes.getCopies());
+        SplittableRandom random = new SplittableRandom(volumes.getSeed());
+
+        int[] chosen = new int[wanted];
+        int count = 0;
+        for (long attempts = 0; count < wanted && attempts < wanted * 20L; attempts++) {
+            int copy = randomCopy(random);
+            if (!taken.get(copy)) {
+                taken.set(copy);
+                chosen[count++] = copy;
+            }
+        }
+
+        // Popular books run out of copies; fill up with any copy still on the shelf
+        for (int copy = taken.nextClearBit(0); count < wanted; copy = taken.nextClearBit(copy + 1)) {
+            taken.set(copy);
+            chosen[count++] = copy;
+        }
+        return chosen;
+    }
+
+    /**
+     * @return Index of a copy of a book drawn by popularity
+     */
+    private int randomCopy(SplittableRandom random) {
+        int book = bookPopularity.sample(random);
+        return book * volumes.getCopiesPerBook() + random.nextInt(volumes.getCopiesPerBook());
+    }
+
+    private int popularUser(SplittableRandom random) {
+        return userActivity.sample(random);
+    }
+
+    /**
+     * Weight each day of the history window by month and weekday
+     */
+    private WeightedSampler seasonalDays() {
+        double[] weights = new double[volumes.getHistoryDays()];
+        LocalDate start = today.minusDays(volumes.getHistoryDays());
+
+        for (int day = 0; day < weights.length; day++) {
+            LocalDate date = start.plusDays(day);
+            double weight = MONTH_WEIGHTS[date.getMonthValue() - 1];
+            if (date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                weight *= 0.2;
+            } else if (date.getDayOfWeek() == DayOfWeek.SATURDAY) {
+                weight *= 0.8;
+            }
+            if (date.getMonthValue() == 12 && date.getDayOfMonth() >= 24) {
+                weight *= 0.1;
+            }
+            weights[day] = weight;
+        }
+        return new WeightedSampler(weights);
+    }
+
+    private static int maxId(Connection connection, String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static int[] ids(Connection connection, String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM " + table + " ORDER BY id")) {
+            List<Integer> ids = new ArrayList<>();
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+            return ids.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Load data into an existing LMS database
+     *
+     * @param args JDBC URL of the database, e.g. jdbc:mysql://localhost:3306/lms_load;
+     *             -Dlms.db.user and -Dlms.db.password give the credentials
+     * @throws SQLException if loading fails
+     */
+    public static void main(String[] args) throws SQLException {
+        if (args.length != 1) {
+            System.err.println("Usage: LibraryDataGenerator <jdbc-url>");
+            System.exit(2);
+        }
+
+        String url = args[0] + (args[0].contains("?") ? "&" : "?") +
+                "useSSL=false&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true";
+        String user = System.getProperty("lms.db.user", "root");
+        String password = System.getProperty("lms.db.password", "");
+
+        new LibraryDataGenerator(DataVolumes.fromSystemProperties())
+                .load(() -> DriverManager.getConnection(url, user, password));
+    }
+}
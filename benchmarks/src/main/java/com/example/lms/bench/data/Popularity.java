@@ -0,0 +1,56 @@
+package com.example.lms.bench.data;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zipf-distributed choice of a book or reader.
+ * Popularity rank r is mapped to index r * stride mod n, which visits every index once,
+ * so the popular items are spread over the table instead of being its first rows.
+ * The same volumes always give the same mapping, so a load test picks the books and
+ * readers that {@link LibraryDataGenerator} made popular.
+ */
+public final class Popularity {
+
+    private final WeightedSampler ranks;
+    private final int size;
+    private final long stride;
+
+    public Popularity(int size, double exponent) {
+        this.ranks = WeightedSampler.zipf(size, exponent);
+        this.size = size;
+
+        long candidate = 1_000_003L;
+        while (gcd(candidate, size) != 1) {
+            candidate += 2;
+        }
+        this.stride = candidate;
+    }
+
+    /**
+     * @param volumes Generated volumes
+     * @return Popularity of generated books; a few titles account for most loans
+     */
+    public static Popularity ofBooks(DataVolumes volumes) {
+        return new Popularity(volumes.getBooks(), 1.0);
+    }
+
+    /**
+     * @param volumes Generated volumes
+     * @return Activity of generated readers, less skewed than book popularity
+     */
+    public static Popularity ofUsers(DataVolumes volumes) {
+        return new Popularity(volumes.getUsers(), 0.7);
+    }
+
+    /**
+     * @param random Source of randomness
+     * @return Index from 0 to size - 1 of an item drawn by popularity
+     */
+    public int sample(SplittableRandom random) {
+        return (int) (ranks.sample(random) * stride % size);
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.lms.bench.data;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Draws indexes 0..n-1 with probability proportional to fixed weights.
+ * The cumulative distribution is precomputed, so a draw is one binary search;
+ * a million weights take 8 MB.
+ */
+final class WeightedSampler {
+
+    private final double[] cumulative;
+
+    WeightedSampler(double[] weights) {
+        if (weights.length == 0) {
+            throw new IllegalArgumentException("No weights");
+        }
+
+        cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= sum;
+        }
+        cumulative[cumulative.length - 1] = 1.0;
+    }
+
+    /**
+     * Zipf distribution: index k is drawn with weight 1 / (k + 1)^exponent,
+     * so index 0 is the most popular
+     *
+     * @param n Number of items
+     * @param exponent Skew; 0 is uniform, around 1 is typical for book popularity
+     * @return Sampler
+     */
+    static WeightedSampler zipf(int n, double exponent) {
+        double[] weights = new double[n];
+        for (int k = 0; k < n; k++) {
+            weights[k] = 1.0 / Math.pow(k + 1, exponent);
+        }
+        return new WeightedSampler(weights);
+    }
+
+    /**
+     * @param random Source of randomness
+     * @return An index, drawn according to the weights
+     */
+    int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, cumulative.length - 1);
+    }
+
+    int size() {
+        return cumulative.length;
+    }
+}
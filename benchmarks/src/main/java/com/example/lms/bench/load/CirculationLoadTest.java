@@ -0,0 +1,357 @@
+package com.example.lms.bench.load;
+
+import com.example.lms.bench.BenchmarkDatabase;
+import com.example.lms.bench.data.DataVolumes;
+import com.example.lms.bench.data.LibraryDataGenerator;
+import com.example.lms.bench.data.Popularity;
+import com.example.lms.model.Book;
+import com.example.lms.model.BookDAO;
+import com.example.lms.model.Borrowing;
+import com.example.lms.model.BorrowingDAO;
+import com.example.lms.model.Fine;
+import com.example.lms.model.FineDAO;
+import com.example.lms.model.Reservation;
+import com.example.lms.model.ReservationDAO;
+import com.example.lms.model.User;
+import com.example.lms.util.ConnectionPool;
+import com.example.lms.util.QueryStats;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless load generator for the circulation desks.
+ * Each virtual desk is a virtual thread that repeatedly thinks, picks an operation
+ * from the mix and runs it through the real DAOs on a connection from
+ * {@link ConnectionPool}, just as the application's background work does. Patrons ask
+ * for books and come to the desk following the generated data's popularity, so busy
+ * titles see the same contention as in a real library.
+ *
+ * After a warm-up, latency and outcome of every operation are recorded; the report shows
+ * throughput, latency percentiles, conflict and error rates, the time spent waiting for
+ * a pooled connection, InnoDB row lock waits and the slowest SQL shapes.
+ *
+ * Configuration (system properties):
+ * <ul>
+ * <li>lms.load.desks: concurrent desks (default 20)</li>
+ * <li>lms.load.duration, lms.load.warmup: measured and warm-up seconds (default 60 and 10)</li>
+ * <li>lms.load.think: think time, see {@link ThinkTime} (default exp:500)</li>
+ * <li>lms.load.mix: operation mix, see {@link OperationMix}
+ *     (default issue=30,return=25,search=30,reserve=10,pay=5)</li>
+ * <li>lms.db.poolSize: connections shared by the desks (default 10)</li>
+ * </ul>
+ * The database is prepared by {@link BenchmarkDatabase}, so -Dlms.bench.db and
+ * -Dlms.data.* choose and size it:
+ * <pre>
+ * java -Dlms.data.preset=large -Dlms.bench.db=lms_load -Dlms.load.desks=50 -Dlms.db.poolSize=20 \
+ *      -cp benchmarks.jar com.example.lms.bench.load.CirculationLoadTest
+ * </pre>
+ */
+public class CirculationLoadTest {
+
+    private static final int LOAN_DAYS = 14;
+    private static final int PREFETCHED_ROWS = 100_000;
+
+    private final int desks = Integer.getInteger("lms.load.desks", 20);
+    private final long durationNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("lms.load.duration", 60));
+    private final long warmupNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("lms.load.warmup", 10));
+    private final ThinkTime thinkTime = ThinkTime.parse(System.getProperty("lms.load.think", "exp:500"));
+    private final OperationMix mix =
+            OperationMix.parse(System.getProperty("lms.load.mix", "issue=30,return=25,search=30,reserve=10,pay=5"));
+
+    private final DataVolumes volumes = BenchmarkDatabase.getVolumes();
+    private final Popularity bookPopularity = Popularity.ofBooks(volumes);
+    private final Popularity userActivity = Popularity.ofUsers(volumes);
+
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final QueryStats.LatencyHistogram poolWait = new QueryStats.LatencyHistogram();
+
+    // Work the desks hand to each other: loans that can be returned, patrons who owe fines
+    private final ConcurrentLinkedDeque<Integer> openLoans = new ConcurrentLinkedDeque<>();
+    private final ConcurrentLinkedDeque<Integer> finedUsers = new ConcurrentLinkedDeque<>();
+
+    private ConnectionPool pool;
+    private int firstBook;
+    private int firstUser;
+    private volatile boolean measuring;
+
+    public static void main(String[] args) throws Exception {
+        new CirculationLoadTest().run();
+    }
+
+    private void run() throws SQLException, InterruptedException {
+        BenchmarkDatabase.prepare();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+
+        try (Connection connection = BenchmarkDatabase.open()) {
+            firstBook = queryInt(connection, "SELECT id FROM books WHERE isbn = ?", LibraryDataGenerator.isbn(0));
+            firstUser = queryInt(connection, "SELECT id FROM users WHERE email = ?", LibraryDataGenerator.userEmail(0));
+            addOverdueFines(connection);
+            prefetch(connection, "SELECT id FROM borrowings WHERE return_date IS NULL ORDER BY due_date DESC LIMIT ?",
+                    openLoans);
+            prefetch(connection, "SELECT DISTINCT user_id FROM fines WHERE payment_date IS NULL " +
+                    "AND user_id IS NOT NULL LIMIT ?", finedUsers);
+        }
+
+        pool = ConnectionPool.getInstance();
+        System.out.println("Running " + desks + " desks on " + pool.getSize() + " connections for " +
+                TimeUnit.NANOSECONDS.toSeconds(durationNanos) + " s after " +
+                TimeUnit.NANOSECONDS.toSeconds(warmupNanos) + " s warm-up; think " + thinkTime + ", mix " + mix);
+
+        Map<String, Long> locksBefore;
+        long started = System.nanoTime();
+        long measureFrom = started + warmupNanos;
+        long endAt = measureFrom + durationNanos;
+
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("desk-", 0).factory())) {
+            for (int desk = 0; desk < desks; desk++) {
+                SplittableRandom random = new SplittableRandom(volumes.getSeed() * 7919 + desk);
+                User staff = user(firstUser + 1000 * (desk % ((volumes.getUsers() + 999) / 1000)));
+                executor.submit(() -> runDesk(random, staff, endAt));
+            }
+
+            TimeUnit.NANOSECONDS.sleep(warmupNanos);
+            QueryStats.reset();
+            locksBefore = rowLockStatus();
+            measuring = true;
+        }
+
+        measuring = false;
+        report(locksBefore, rowLockStatus());
+        pool.close();
+    }
+
+    private void runDesk(SplittableRandom random, User staff, long endAt) {
+        while (System.nanoTime() < endAt) {
+            try {
+                Thread.sleep(thinkTime.nextMillis(random));
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            Operation operation = mix.next(random);
+            OperationStats operationStats = stats.get(operation);
+            boolean measured = measuring;
+            long start = System.nanoTime();
+            OperationStats.Outcome outcome;
+
+            try {
+                outcome = pool.withConnection(connection -> {
+                    if (measured) {
+                        poolWait.record(System.nanoTime() - start);
+                    }
+                    return perform(operation, random, staff);
+                });
+            } catch (SQLException e) {
+                outcome = isConflict(e) ? OperationStats.Outcome.CONFLICT : OperationStats.Outcome.ERROR;
+                if (outcome == OperationStats.Outcome.ERROR && measured) {
+                    operationStats.recordError(e);
+                }
+            } catch (RuntimeException e) {
+                outcome = OperationStats.Outcome.ERROR;
+                if (measured) {
+                    operationStats.recordError(e);
+                }
+            }
+
+            if (measured) {
+                operationStats.record(System.nanoTime() - start, outcome);
+            }
+        }
+    }
+
+    /**
+     * Run one operation through the DAOs; they pick up the desk's pooled connection
+     */
+    private OperationStats.Outcome perform(Operation operation, SplittableRandom random, User staff)
+            throws SQLException {
+        LocalDate today = LocalDate.now();
+
+        switch (operation) {
+            case ISSUE -> {
+                User patron = user(firstUser + userActivity.sample(random));
+                Borrowing borrowing = new BorrowingDAO().issueAnyCopy(
+                        firstBook + bookPopularity.sample(random), patron, today.plusDays(LOAN_DAYS), staff);
+                if (borrowing == null) {
+                    return OperationStats.Outcome.UNAVAILABLE;
+                }
+                openLoans.addLast(borrowing.getId());
+                return OperationStats.Outcome.OK;
+            }
+            case RETURN -> {
+                Integer borrowingId = random.nextBoolean() ? openLoans.pollFirst() : openLoans.pollLast();
+                if (borrowingId == null) {
+                    return OperationStats.Outcome.UNAVAILABLE;
+                }
+                return new BorrowingDAO().returnBook(borrowingId, today, staff)
+                        ? OperationStats.Outcome.OK : OperationStats.Outcome.CONFLICT;
+            }
+            case SEARCH -> {
+                new BookDAO().searchBooks(LibraryDataGenerator.randomTitlePhrase(random), "");
+                return OperationStats.Outcome.OK;
+            }
+            case RESERVE -> {
+                Book book = new Book();
+                book.setId(firstBook + bookPopularity.sample(random));
+                Reservation reservation = new Reservation();
+                reservation.setBook(book);
+                reservation.setUser(user(firstUser + userActivity.sample(random)));
+                return new ReservationDAO().addReservation(reservation)
+                        ? OperationStats.Outcome.OK : OperationStats.Outcome.UNAVAILABLE;
+            }
+            case PAY_FINE -> {
+                Integer userId = finedUsers.pollFirst();
+                if (userId == null) {
+                    return OperationStats.Outcome.UNAVAILABLE;
+                }
+                FineDAO fineDAO = new FineDAO();
+                List<Fine> fines = fineDAO.getUnpaidFinesByUser(userId);
+                if (fines.isEmpty()) {
+                    return OperationStats.Outcome.UNAVAILABLE;
+                }
+                return fineDAO.payFine(fines.get(0).getId(), today, "CASH", staff)
+                        ? OperationStats.Outcome.OK : OperationStats.Outcome.CONFLICT;
+            }
+            default -> throw new IllegalStateException("Unhandled operation " + operation);
+        }
+    }
+
+    /**
+     * Deadlocks and lock wait timeouts mean two desks wanted the same rows
+     */
+    private static boolean isConflict(SQLException e) {
+        return e instanceof SQLTransactionRollbackException
+                || "40001".equals(e.getSQLState())
+                || e.getErrorCode() == 1205
+                || e.getErrorCode() == 1213;
+    }
+
+    private void report(Map<String, Long> locksBefore, Map<String, Long> locksAfter) {
+        double seconds = durationNanos / 1e9;
+        long totalCount = 0;
+
+        System.out.println();
+        System.out.printf("%-8s %9s %8s %8s %8s %8s %8s %7s %7s %7s%n",
+                "op", "count", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "unavl%", "confl%", "error%");
+        for (Operation operation : Operation.values()) {
+            OperationStats s = stats.get(operation);
+            long count = s.getCount();
+            totalCount += count;
+            if (count == 0) {
+                continue;
+            }
+
+            System.out.printf("%-8s %9d %8.1f %8.2f %8.2f %8.2f %8.2f %7.2f %7.2f %7.2f%n",
+                    operation.getKey(), count, count / seconds,
+                    s.getLatencyMillis(0.5), s.getLatencyMillis(0.95), s.getLatencyMillis(0.99),
+                    s.getLatencyMillis(1.0),
+                    percent(s.getCount(OperationStats.Outcome.UNAVAILABLE), count),
+                    percent(s.getCount(OperationStats.Outcome.CONFLICT), count),
+                    percent(s.getCount(OperationStats.Outcome.ERROR), count));
+        }
+        System.out.printf("total    %9d %8.1f%n", totalCount, totalCount / seconds);
+
+        System.out.printf("%nPool wait: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                poolWait.percentile(0.5) / 1e6, poolWait.percentile(0.99) / 1e6, poolWait.percentile(1.0) / 1e6);
+        if (!locksBefore.isEmpty()) {
+            long waits = locksAfter.getOrDefault("Innodb_row_lock_waits", 0L)
+                    - locksBefore.getOrDefault("Innodb_row_lock_waits", 0L);
+            long waitMillis = locksAfter.getOrDefault("Innodb_row_lock_time", 0L)
+                    - locksBefore.getOrDefault("Innodb_row_lock_time", 0L);
+            System.out.printf("InnoDB row lock waits: %d, %d ms in total%n", waits, waitMillis);
+        }
+
+        for (Operation operation : Operation.values()) {
+            for (String error : stats.get(operation).getErrorSamples()) {
+                System.out.println("Error in " + operation.getKey() + ": " + error);
+            }
+        }
+
+        System.out.println();
+        System.out.println(QueryStats.report(15));
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+
+    /**
+     * Fine every overdue loan that has no fine yet, in one statement, so patrons have fines to pay
+     */
+    private static void addOverdueFines(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            int added = stmt.executeUpdate(
+                    "INSERT INTO fines (borrowing_id, user_id, amount, reason, issue_date) " +
+                    "SELECT b.id, b.user_id, DATEDIFF(CURDATE(), b.due_date) * 0.50, 'LATE_RETURN', CURDATE() " +
+                    "FROM borrowings b LEFT JOIN fines f ON f.borrowing_id = b.id " +
+                    "WHERE b.return_date IS NULL AND b.due_date < CURDATE() AND f.id IS NULL");
+            if (added > 0) {
+                System.out.println("Added " + added + " fines for overdue loans");
+            }
+        }
+    }
+
+    private static void prefetch(Connection connection, String sql, ConcurrentLinkedDeque<Integer> into)
+            throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, PREFETCHED_ROWS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    into.addLast(rs.getInt(1));
+                }
+            }
+        }
+    }
+
+    private static int queryInt(Connection connection, String sql, String parameter) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, parameter);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Generated data not found: " + sql + " with " + parameter);
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Current InnoDB row lock counters, or an empty map if the server does not expose them
+     */
+    private static Map<String, Long> rowLockStatus() {
+        Map<String, Long> status = new HashMap<>();
+        try (Connection connection = BenchmarkDatabase.open();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW GLOBAL STATUS LIKE 'Innodb_row_lock%'")) {
+            while (rs.next()) {
+                status.put(rs.getString(1), rs.getLong(2));
+            }
+        } catch (SQLException e) {
+            System.err.println("Row lock statistics unavailable: " + e.getMessage());
+        }
+        return status;
+    }
+
+    private static User user(int id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.lms.bench.load;
+
+/**
+ * Circulation desk operations the load test performs
+ */
+public enum Operation {
+    ISSUE("issue"),
+    RETURN("return"),
+    SEARCH("search"),
+    RESERVE("reserve"),
+    PAY_FINE("pay");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @return Name used in -Dlms.load.mix and in the report
+     */
+    public String getKey() {
+        return key;
+    }
+
+    static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation " + key);
+    }
+}
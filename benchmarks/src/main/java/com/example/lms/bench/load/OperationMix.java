@@ -0,0 +1,77 @@
+package com.example.lms.bench.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Relative frequency of each operation, written as e.g.
+ * <code>issue=30,return=25,search=30,reserve=10,pay=5</code>
+ */
+final class OperationMix {
+
+    private final Operation[] operations;
+    private final int[] cumulative;
+    private final int total;
+    private final String description;
+
+    private OperationMix(Map<Operation, Integer> weights) {
+        operations = new Operation[weights.size()];
+        cumulative = new int[weights.size()];
+
+        int sum = 0;
+        int i = 0;
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            sum += entry.getValue();
+            operations[i] = entry.getKey();
+            cumulative[i] = sum;
+            i++;
+
+            if (!text.isEmpty()) {
+                text.append(',');
+            }
+            text.append(entry.getKey().getKey()).append('=').append(entry.getValue());
+        }
+
+        if (sum <= 0) {
+            throw new IllegalArgumentException("Operation mix has no operations");
+        }
+        total = sum;
+        description = text.toString();
+    }
+
+    static OperationMix parse(String spec) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight, got " + part);
+            }
+
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight for " + pair[0]);
+            }
+            if (weight > 0) {
+                weights.put(Operation.fromKey(pair[0].trim()), weight);
+            }
+        }
+        return new OperationMix(weights);
+    }
+
+    Operation next(SplittableRandom random) {
+        int roll = random.nextInt(total);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (roll < cumulative[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
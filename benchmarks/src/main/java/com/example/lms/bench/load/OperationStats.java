@@ -0,0 +1,70 @@
+package com.example.lms.bench.load;
+
+import com.example.lms.util.QueryStats;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and outcomes of one operation type, shared by all desks
+ */
+final class OperationStats {
+
+    /**
+     * How an operation ended
+     */
+    enum Outcome {
+        /** Completed */
+        OK,
+        /** Nothing to do: no copy on the shelf, no loan to return, already reserved, no fine */
+        UNAVAILABLE,
+        /** Lost a race with another desk: deadlock, lock wait timeout or a row changed under it */
+        CONFLICT,
+        /** Failed for any other reason */
+        ERROR
+    }
+
+    private static final int MAX_ERROR_SAMPLES = 5;
+
+    private final QueryStats.LatencyHistogram latency = new QueryStats.LatencyHistogram();
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+    private final Map<String, Boolean> errorSamples = new ConcurrentHashMap<>();
+
+    OperationStats() {
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos, Outcome outcome) {
+        latency.record(nanos);
+        outcomes[outcome.ordinal()].increment();
+    }
+
+    void recordError(Throwable error) {
+        if (errorSamples.size() < MAX_ERROR_SAMPLES) {
+            errorSamples.putIfAbsent(String.valueOf(error), Boolean.TRUE);
+        }
+    }
+
+    long getCount() {
+        return latency.getCount();
+    }
+
+    long getCount(Outcome outcome) {
+        return outcomes[outcome.ordinal()].sum();
+    }
+
+    /**
+     * @param percentile Between 0 and 1
+     * @return Latency in milliseconds
+     */
+    double getLatencyMillis(double percentile) {
+        return latency.percentile(percentile) / 1e6;
+    }
+
+    Iterable<String> getErrorSamples() {
+        return errorSamples.keySet();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.lms.bench.load;
+
+import java.util.SplittableRandom;
+
+/**
+ * Pause between a desk's operations, in milliseconds, written as
+ * <code>none</code>, <code>fixed:500</code>, <code>uniform:200-2000</code>
+ * or <code>exp:800</code> (exponential with that mean, like independent arrivals)
+ */
+final class ThinkTime {
+
+    private enum Kind { NONE, FIXED, UNIFORM, EXPONENTIAL }
+
+    private final Kind kind;
+    private final long min;
+    private final long max;
+    private final String description;
+
+    private ThinkTime(Kind kind, long min, long max, String description) {
+        this.kind = kind;
+        this.min = min;
+        this.max = max;
+        this.description = description;
+    }
+
+    static ThinkTime parse(String spec) {
+        String text = spec.trim();
+        if (text.equals("none") || text.equals("0")) {
+            return new ThinkTime(Kind.NONE, 0, 0, "none");
+        }
+
+        int colon = text.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Expected none, fixed:MS, uniform:MIN-MAX or exp:MEAN, got " + spec);
+        }
+        String kind = text.substring(0, colon);
+        String value = text.substring(colon + 1);
+
+        switch (kind) {
+            case "fixed" -> {
+                long millis = Long.parseLong(value);
+                return new ThinkTime(Kind.FIXED, millis, millis, text);
+            }
+            case "uniform" -> {
+                String[] range = value.split("-");
+                long low = Long.parseLong(range[0]);
+                long high = Long.parseLong(range[1]);
+                if (high < low) {
+                    throw new IllegalArgumentException("Empty think time range " + value);
+                }
+                return new ThinkTime(Kind.UNIFORM, low, high, text);
+            }
+            case "exp" -> {
+                return new ThinkTime(Kind.EXPONENTIAL, Long.parseLong(value), 0, text);
+            }
+            default -> throw new IllegalArgumentException("Unknown think time " + kind);
+        }
+    }
+
+    long nextMillis(SplittableRandom random) {
+        return switch (kind) {
+            case NONE -> 0;
+            case FIXED -> min;
+            case UNIFORM -> min + random.nextLong(max - min + 1);
+            case EXPONENTIAL -> Math.round(-min * Math.log(1 - random.nextDouble()));
+        };
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.lms.bench.plan;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The plan MySQL chooses for one statement, read from EXPLAIN FORMAT=JSON.
+ * Keeps each table access with its access type, index and estimated rows per scan,
+ * and each filesort with the rows it sorts.
+ */
+final class ExplainPlan {
+
+    private final String json;
+    private final List<TableAccess> tables = new ArrayList<>();
+    private final List<Double> filesorts = new ArrayList<>();
+
+    /**
+     * One table in the plan
+     */
+    record TableAccess(String table, String accessType, String key, double rows) {
+
+        /**
+         * @return true if every row of the table or of one of its indexes is read
+         */
+        boolean isFullScan() {
+            return "ALL".equals(accessType) || "index".equals(accessType);
+        }
+
+        @Override
+        public String toString() {
+            return table + " " + accessType + (key == null ? "" : " on " + key) + " ~" + (long) rows + " rows";
+        }
+    }
+
+    private ExplainPlan(String json) {
+        this.json = json;
+        walk(Json.parse(json));
+    }
+
+    /**
+     * @param sql Statement as executed
+     * @return true if EXPLAIN can show a plan for the statement; INSERT ... VALUES has none
+     */
+    static boolean isExplainable(String sql) {
+        String upper = sql.trim().toUpperCase(Locale.ROOT);
+        return upper.startsWith("SELECT") || upper.startsWith("WITH")
+                || upper.startsWith("UPDATE") || upper.startsWith("DELETE")
+                || (upper.startsWith("INSERT") && upper.contains("SELECT"));
+    }
+
+    /**
+     * Explain a statement with the parameters it was executed with
+     *
+     * @param connection Connection to the database the statement ran on
+     * @param sql Statement
+     * @param parameters Bound parameters, in order
+     * @return The plan
+     * @throws SQLException if the statement cannot be explained
+     */
+    static ExplainPlan explain(Connection connection, String sql, List<Object> parameters) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("EXPLAIN FORMAT=JSON " + sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                stmt.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("EXPLAIN returned no plan for: " + sql);
+                }
+                return new ExplainPlan(rs.getString(1));
+            }
+        }
+    }
+
+    /**
+     * Find full scans and filesorts over more rows than allowed
+     *
+     * @param maxRows Largest estimated row count a scan or filesort may have
+     * @return One message per problem; empty if the plan is fine
+     */
+    List<String> problems(long maxRows) {
+        List<String> problems = new ArrayList<>();
+        for (TableAccess access : tables) {
+            if (access.isFullScan() && access.rows() > maxRows) {
+                problems.add("full scan: " + access);
+            }
+        }
+        for (double rows : filesorts) {
+            if (rows > maxRows) {
+                problems.add("filesort of ~" + (long) rows + " rows");
+            }
+        }
+        return problems;
+    }
+
+    List<TableAccess> getTables() {
+        return tables;
+    }
+
+    String getJson() {
+        return json;
+    }
+
+    /**
+     * Collect the tables and filesorts anywhere in the plan, including nested loops,
+     * subqueries and derived tables
+     */
+    private void walk(Object node) {
+        if (node instanceof List<?> list) {
+            list.forEach(this::walk);
+            return;
+        }
+        if (!(node instanceof Map<?, ?> map)) {
+            return;
+        }
+
+        if (map.get("table_name") instanceof String table) {
+            tables.add(new TableAccess(table, (String) map.get("access_type"), (String) map.get("key"),
+                    number(map.get("rows_examined_per_scan"))));
+        }
+        if (Boolean.TRUE.equals(map.get("using_filesort"))) {
+            filesorts.add(rowsProduced(map));
+        }
+        map.values().forEach(this::walk);
+    }
+
+    /**
+     * Rows reaching a sort: the most any table below it produces
+     */
+    private static double rowsProduced(Object node) {
+        double rows = 0;
+        if (node instanceof List<?> list) {
+            for (Object item : list) {
+                rows = Math.max(rows, rowsProduced(item));
+            }
+        } else if (node instanceof Map<?, ?> map) {
+            if (map.containsKey("table_name")) {
+                Object produced = map.get("rows_produced_per_join");
+                rows = number(produced != null ? produced : map.get("rows_examined_per_scan"));
+            }
+            for (Object value : map.values()) {
+                rows = Math.max(rows, rowsProduced(value));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Row estimates are numbers in MySQL 8 and strings in some older versions
+     */
+    private static double number(Object value) {
+        if (value instanceof Number n) {
+            return n.doubleValue();
+        }
+        if (value instanceof String s) {
+            try {
+                return Double.parseDouble(s);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.lms.bench.plan;
+
+import com.example.lms.bench.BenchmarkDatabase;
+import com.example.lms.bench.data.LibraryDataGenerator;
+import com.example.lms.model.Book;
+import com.example.lms.model.BookCopy;
+import com.example.lms.model.BookCopyDAO;
+import com.example.lms.model.BookDAO;
+import com.example.lms.model.Borrowing;
+import com.example.lms.model.BorrowingDAO;
+import com.example.lms.model.Reservation;
+import com.example.lms.model.ReservationDAO;
+import com.example.lms.model.User;
+import com.example.lms.model.UserDAO;
+import com.example.lms.util.QueryScope;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Query plan regression check.
+ * Calls every public method of the checked DAOs against the seeded benchmark database,
+ * captures each distinct statement they execute with its bound parameters, and runs
+ * EXPLAIN FORMAT=JSON on it. A statement fails the check when its plan scans a whole
+ * table or index, or sorts with a filesort, above -Dlms.plan.maxRows estimated rows
+ * (default 1000). Calls that read whole tables by design declare why and are reported
+ * without failing.
+ *
+ * A public method of BookDAO, BorrowingDAO or ReservationDAO that is not called here
+ * also fails the check, so new queries cannot skip it. Writes are made on rows the
+ * check creates and removes again, or undone, so the data set stays comparable.
+ *
+ * Exits with status 1 on any failure. -Dlms.plan.verbose=true prints every plan.
+ * <pre>
+ * java -cp benchmarks.jar com.example.lms.bench.plan.QueryPlanCheck
+ * </pre>
+ */
+public class QueryPlanCheck {
+
+    private static final long MAX_ROWS = Long.getLong("lms.plan.maxRows", 1000);
+    private static final boolean VERBOSE = Boolean.getBoolean("lms.plan.verbose");
+
+    private static final List<Class<?>> CHECKED_DAOS = List.of(BookDAO.class, BorrowingDAO.class, ReservationDAO.class);
+
+    private final List<DaoCall> calls = new ArrayList<>();
+
+    private BookDAO bookDAO;
+    private BorrowingDAO borrowingDAO;
+    private ReservationDAO reservationDAO;
+    private BookCopyDAO bookCopyDAO;
+
+    // Sample rows of the seeded data
+    private int bookId;
+    private int userId;
+    private int borrowingId;
+    private int publisherId;
+    private String isbn;
+    private String author;
+    private String category;
+    private User patron;
+    private User librarian;
+
+    // Rows the write calls create
+    private Book newBook;
+    private Borrowing created;
+    private Borrowing issued;
+    private Reservation reservation;
+
+    /**
+     * Work done by one DAO call
+     */
+    @FunctionalInterface
+    private interface Call {
+        void run() throws SQLException;
+    }
+
+    /**
+     * A DAO method and, if it reads whole tables by design, the reason
+     */
+    private record DaoCall(String method, Call call, String scanReason) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkDatabase.prepare();
+        System.exit(new QueryPlanCheck().run() == 0 ? 0 : 1);
+    }
+
+    /**
+     * @return Number of failures
+     */
+    private int run() throws SQLException {
+        loadSamples();
+        defineCalls();
+
+        int failures = 0;
+        for (String missing : uncoveredMethods()) {
+            System.out.println("FAIL " + missing + ": not called by QueryPlanCheck; add it to defineCalls()");
+            failures++;
+        }
+
+        int statements = 0;
+        try (Connection connection = BenchmarkDatabase.open()) {
+            for (DaoCall call : calls) {
+                Map<String, QueryScope.Execution> executions;
+                try (QueryScope scope = QueryScope.open(call.method())) {
+                    call.call().run();
+                    executions = scope.getFirstExecutions();
+                }
+
+                for (QueryScope.Execution execution : executions.values()) {
+                    if (!ExplainPlan.isExplainable(execution.getSql())) {
+                        continue;
+                    }
+                    statements++;
+                    failures += check(connection, call, execution);
+                }
+            }
+        } finally {
+            bookDAO.close();
+            borrowingDAO.close();
+            reservationDAO.close();
+            bookCopyDAO.close();
+        }
+
+        System.out.println();
+        System.out.println(calls.size() + " DAO calls, " + statements + " statements explained, " +
+                failures + " failures (max " + MAX_ROWS + " rows per scan or sort)");
+        return failures;
+    }
+
+    /**
+     * Explain one statement and print the verdict
+     *
+     * @return 1 if the plan fails the check, otherwise 0
+     */
+    private int check(Connection connection, DaoCall call, QueryScope.Execution execution) throws SQLException {
+        ExplainPlan plan = ExplainPlan.explain(connection, execution.getSql(), execution.getParameters());
+        List<String> problems = plan.problems(MAX_ROWS);
+        String label = call.method() + (execution.getCaller().equals(call.method()) ? "" : " > " + execution.getCaller());
+
+        String verdict;
+        if (problems.isEmpty()) {
+            verdict = "ok  ";
+        } else if (call.scanReason() != null) {
+            verdict = "scan";
+        } else {
+            verdict = "FAIL";
+        }
+
+        System.out.println(verdict + " " + label + ": " + plan.getTables());
+        if (!problems.isEmpty()) {
+            System.out.println("       " + String.join("; ", problems) +
+                    (call.scanReason() != null ? " (allowed: " + call.scanReason() + ")" : ""));
+            System.out.println("       " + execution.getSql().replaceAll("\\s+", " "));
+        }
+        if (VERBOSE) {
+            System.out.println(plan.getJson());
+        }
+        return verdict.equals("FAIL") ? 1 : 0;
+    }
+
+    /**
+     * Public methods of the checked DAOs without a call, as Class.method
+     */
+    private List<String> uncoveredMethods() {
+        Set<String> covered = new HashSet<>();
+        calls.forEach(call -> covered.add(call.method()));
+
+        List<String> missing = new ArrayList<>();
+        for (Class<?> dao : CHECKED_DAOS) {
+            for (Method method : dao.getDeclaredMethods()) {
+                String name = dao.getSimpleName() + "." + method.getName();
+                if (Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers())
+                        && !method.getName().equals("close") && !covered.contains(name)) {
+                    missing.add(name);
+                }
+            }
+        }
+        return missing;
+    }
+
+    private void loadSamples() throws SQLException {
+        bookDAO = new BookDAO();
+        borrowingDAO = new BorrowingDAO();
+        reservationDAO = new ReservationDAO();
+        bookCopyDAO = new BookCopyDAO();
+
+        try (Connection connection = BenchmarkDatabase.open()) {
+            // Two copies are issued, so pick a title with at least that many on the shelf
+            bookId = queryInt(connection, "SELECT book_id FROM book_copies WHERE status = 'AVAILABLE' " +
+                    "GROUP BY book_id HAVING COUNT(*) >= 2 LIMIT 1");
+            userId = queryInt(connection, "SELECT id FROM users WHERE email = '" +
+                    LibraryDataGenerator.userEmail(0) + "'");
+            borrowingId = queryInt(connection, "SELECT MAX(id) FROM borrowings");
+            publisherId = queryInt(connection, "SELECT MIN(id) FROM publishers");
+            isbn = LibraryDataGenerator.isbn(0);
+            author = queryString(connection, "SELECT author_name FROM books WHERE id = " + bookId);
+            category = queryString(connection, "SELECT name FROM categories ORDER BY id LIMIT 1");
+        }
+
+        UserDAO userDAO = new UserDAO();
+        try {
+            patron = userDAO.getUserById(userId);
+            librarian = userDAO.getUserById(1);
+        } finally {
+            userDAO.close();
+        }
+    }
+
+    /**
+     * The calls to check, in order; writes create their own rows and remove them again
+     */
+    private void defineCalls() {
+        LocalDate today = LocalDate.now();
+
+        allowScan("BookDAO.getAllBooks", "lists every book", () -> bookDAO.getAllBooks());
+        call("BookDAO.getBookById", () -> bookDAO.getBookById(bookId));
+        call("BookDAO.getBookByISBN", () -> bookDAO.getBookByISBN(isbn));
+        call("BookDAO.getBooksByCategory", () -> bookDAO.getBooksByCategory(category));
+        allowScan("BookDAO.getBooksByAuthor", "substring match on the author", () -> bookDAO.getBooksByAuthor(author));
+        call("BookDAO.getBooksByPublisher", () -> bookDAO.getBooksByPublisher(publisherId));
+        allowScan("BookDAO.getTotalBooks", "counts every book", () -> bookDAO.getTotalBooks());
+        allowScan("BookDAO.searchBooks", "substring match on title, author and ISBN", () -> {
+            bookDAO.searchBooks("history", null);
+            bookDAO.searchBooks("history", category);
+        });
+        allowScan("BookDAO.getBookCountByCategory", "counts the books of every category",
+                () -> bookDAO.getBookCountByCategory());
+        call("BookDAO.addBook", () -> {
+            newBook = new Book("Query plan check", "Plan Checker", "PLANCHECK-" + System.nanoTime(), 0, 2024);
+            newBook.setCategories(new ArrayList<>());
+            bookDAO.addBook(newBook);
+        });
+        call("BookDAO.updateBook", () -> {
+            newBook.setEdition("2nd");
+            bookDAO.updateBook(newBook);
+        });
+        call("BookDAO.deleteBook", () -> bookDAO.deleteBook(newBook.getId()));
+
+        allowScan("BorrowingDAO.getAllBorrowings", "lists every borrowing", () -> borrowingDAO.getAllBorrowings());
+        call("BorrowingDAO.getBorrowingById", () -> borrowingDAO.getBorrowingById(borrowingId));
+        call("BorrowingDAO.getBorrowingsByUser", () -> borrowingDAO.getBorrowingsByUser(userId));
+        call("BorrowingDAO.getActiveBorrowings", () -> borrowingDAO.getActiveBorrowings());
+        call("BorrowingDAO.getCurrentBorrowings", () -> borrowingDAO.getCurrentBorrowings());
+        call("BorrowingDAO.getActiveBorrowingsCount", () -> borrowingDAO.getActiveBorrowingsCount());
+        call("BorrowingDAO.getOverdueBorrowings", () -> borrowingDAO.getOverdueBorrowings());
+        call("BorrowingDAO.getRecentBorrowingActivities", () -> borrowingDAO.getRecentBorrowingActivities(10));
+        allowScan("BorrowingDAO.getMonthlyBorrowingCounts", "statistics over a whole year",
+                () -> borrowingDAO.getMonthlyBorrowingCounts(today.getYear()));
+        allowScan("BorrowingDAO.searchBorrowings", "substring match on patron and title",
+                () -> borrowingDAO.searchBorrowings("smith", null));
+        call("BorrowingDAO.createBorrowing", () -> {
+            BookCopy copy = bookCopyDAO.getAvailableCopiesByBookId(bookId).get(0);
+            created = new Borrowing();
+            created.setBookCopy(copy);
+            created.setUser(patron);
+            created.setBorrowDate(today);
+            created.setDueDate(today.plusDays(14));
+            created.setIssuedBy(librarian);
+            borrowingDAO.createBorrowing(created);
+        });
+        call("BorrowingDAO.updateBorrowing", () -> borrowingDAO.updateBorrowing(created));
+        call("BorrowingDAO.issueAnyCopy", () -> issued = borrowingDAO.issueAnyCopy(
+                bookId, patron, today.plusDays(14), librarian));
+        call("BorrowingDAO.extendDueDate", () -> borrowingDAO.extendDueDate(issued.getId(), today.plusDays(21)));
+        call("BorrowingDAO.returnBook", () -> {
+            borrowingDAO.returnBook(created.getId(), today, librarian);
+            borrowingDAO.returnBook(issued.getId(), today, librarian);
+        });
+
+        allowScan("ReservationDAO.getAllReservations", "lists every reservation",
+                () -> reservationDAO.getAllReservations());
+        call("ReservationDAO.getActiveReservations", () -> reservationDAO.getActiveReservations());
+        call("ReservationDAO.getActiveReservationsForBook", () -> reservationDAO.getActiveReservationsForBook(bookId));
+        call("ReservationDAO.getReservationsByUser", () -> reservationDAO.getReservationsByUser(userId));
+        call("ReservationDAO.getActiveReservationsByUser", () -> reservationDAO.getActiveReservationsByUser(userId));
+        call("ReservationDAO.hasUserReservedBook", () -> reservationDAO.hasUserReservedBook(userId, bookId));
+        call("ReservationDAO.getExpiredReservations", () -> reservationDAO.getExpiredReservations());
+        allowScan("ReservationDAO.getReservationStatistics", "counts every reservation",
+                () -> reservationDAO.getReservationStatistics());
+        call("ReservationDAO.addReservation", () -> {
+            reservation = new Reservation(bookId, userId);
+            reservation.setBook(bookDAO.getBookById(bookId));
+            reservation.setUser(patron);
+            reservationDAO.addReservation(reservation);
+        });
+        call("ReservationDAO.getReservationById", () -> reservationDAO.getReservationById(reservation.getId()));
+        call("ReservationDAO.updateReservationStatus", () -> reservationDAO.updateReservationStatus(
+                reservation.getId(), Reservation.Status.PENDING, null));
+        call("ReservationDAO.markAsNotified", () -> reservationDAO.markAsNotified(reservation.getId(), today));
+        call("ReservationDAO.fulfillReservation", () -> reservationDAO.fulfillReservation(reservation.getId()));
+        call("ReservationDAO.cancelReservation", () -> reservationDAO.cancelReservation(reservation.getId()));
+        call("ReservationDAO.deleteReservation", () -> reservationDAO.deleteReservation(reservation.getId()));
+    }
+
+    private void call(String method, Call call) {
+        calls.add(new DaoCall(method, call, null));
+    }
+
+    private void allowScan(String method, String reason, Call call) {
+        calls.add(new DaoCall(method, call, reason));
+    }
+
+    private static int queryInt(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("The benchmark database has no sample row for: " + sql);
+            }
+            return rs.getInt(1);
+        }
+    }
+
+    private static String queryString(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("The benchmark database has no sample row for: " + sql);
+            }
+            return rs.getString(1);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.lms.bench.startup;
+
+import com.example.lms.util.StartupTimer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cold-start benchmark.
+ * Starts the application in a fresh JVM several times and reads the phases
+ * {@link StartupTimer} logs to the console: time from JVM launch until the login screen is drawn
+ * and, when credentials are given, until the first dashboard is drawn. Each JVM exits
+ * by itself once the last phase is reached.
+ *
+ * With -Dlms.startup.cds=true a training run first writes a dynamic class-data sharing
+ * archive for this class path, and the runs are repeated with it, so both are reported
+ * side by side.
+ *
+ * Configuration (system properties):
+ * <ul>
+ * <li>lms.startup.runs: JVMs started per variant (default 5)</li>
+ * <li>lms.startup.login: EMAIL:PASSWORD to measure up to the dashboard</li>
+ * <li>lms.startup.cds: also measure with a class-data sharing archive (default false)</li>
+ * <li>lms.startup.jvmArgs: extra options for every started JVM, separated by spaces</li>
+ * <li>lms.db.*: passed on to the started JVMs</li>
+ * </ul>
+ * Needs a display and the application's database:
+ * <pre>
+ * java -Dlms.startup.cds=true -Dlms.startup.login=librarian@example.com:secret \
+ *      -cp benchmarks.jar com.example.lms.bench.startup.StartupBenchmark
+ * </pre>
+ */
+public class StartupBenchmark {
+
+    // A phase as LogWriter formats it, e.g. ... Startup phase reached phase=login ms=812
+    private static final Pattern PHASE_LINE = Pattern.compile(
+            Pattern.quote(StartupTimer.PHASE_MESSAGE) + " phase=(\\S+) ms=(\\d+)");
+    private static final long RUN_TIMEOUT_SECONDS = 120;
+
+    private final int runs = Integer.getInteger("lms.startup.runs", 5);
+    private final String login = System.getProperty("lms.startup.login", "");
+    private final boolean cds = Boolean.getBoolean("lms.startup.cds");
+    private final String jvmArgs = System.getProperty("lms.startup.jvmArgs", "").trim();
+
+    public static void main(String[] args) throws Exception {
+        new StartupBenchmark().run();
+    }
+
+    private void run() throws IOException, InterruptedException {
+        String lastPhase = login.isEmpty() ? StartupTimer.LOGIN : StartupTimer.DASHBOARD;
+        System.out.println("Measuring startup up to " + lastPhase + " over " + runs + " runs");
+
+        report("default", measure(lastPhase, List.of()));
+
+        if (cds) {
+            Path archive = Files.createTempDirectory("lms-startup").resolve("lms.jsa");
+            launch(lastPhase, List.of("-XX:ArchiveClassesAtExit=" + archive));
+            if (!Files.exists(archive)) {
+                throw new IOException("The training run did not write " + archive);
+            }
+            report("cds", measure(lastPhase, List.of("-XX:SharedArchiveFile=" + archive)));
+        }
+    }
+
+    /**
+     * Start the application {@code runs} times and collect the milliseconds to each phase
+     */
+    private Map<String, List<Long>> measure(String lastPhase, List<String> options)
+            throws IOException, InterruptedException {
+        Map<String, List<Long>> phases = new LinkedHashMap<>();
+        for (int i = 0; i < runs; i++) {
+            launch(lastPhase, options).forEach((phase, millis) ->
+                    phases.computeIfAbsent(phase, p -> new ArrayList<>()).add(millis));
+        }
+        return phases;
+    }
+
+    /**
+     * Run the application in a new JVM until it reaches the last phase
+     */
+    private Map<String, Long> launch(String lastPhase, List<String> options) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(options);
+        if (!jvmArgs.isEmpty()) {
+            command.addAll(List.of(jvmArgs.split("\\s+")));
+        }
+        command.add("-Dlms.startup.exitAfter=" + lastPhase);
+        if (!login.isEmpty()) {
+            command.add("-Dlms.startup.login=" + login);
+        }
+        // Phases are logged at INFO; print every record to the console to read them
+        command.add("-Dlms.log.level=INFO");
+        command.add("-Dlms.log.console=true");
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("lms.db.")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StartupLauncher.class.getName());
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Map<String, Long> phases = new LinkedHashMap<>();
+
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                Matcher phase = PHASE_LINE.matcher(line);
+                if (phase.find()) {
+                    phases.put(phase.group(1), Long.parseLong(phase.group(2)));
+                } else if (!line.contains(" INFO  [")) {
+                    System.out.println("  | " + line);
+                }
+            }
+        }
+
+        if (!process.waitFor(RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IOException("The application did not exit within " + RUN_TIMEOUT_SECONDS + " s");
+        }
+        if (!phases.containsKey(lastPhase)) {
+            throw new IOException("The application exited with " + process.exitValue() +
+                    " before reaching " + lastPhase + "; check the database and credentials");
+        }
+        return phases;
+    }
+
+    private static void report(String variant, Map<String, List<Long>> phases) {
+        System.out.println();
+        System.out.println(variant);
+        System.out.printf("  %-12s %9s %8s %8s%n", "phase", "median", "min", "max");
+        phases.forEach((phase, samples) -> {
+            List<Long> sorted = new ArrayList<>(samples);
+            Collections.sort(sorted);
+            System.out.printf("  %-12s %6d ms %5d ms %5d ms%n", phase,
+                    sorted.get(sorted.size() / 2), sorted.get(0), sorted.get(sorted.size() - 1));
+        });
+    }
+}
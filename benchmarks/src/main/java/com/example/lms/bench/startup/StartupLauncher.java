@@ -0,0 +1,19 @@
+package com.example.lms.bench.startup;
+
+import com.example.lms.Main;
+import javafx.application.Application;
+
+/**
+ * Starts the application from the benchmark jar's class path.
+ * JavaFX refuses to launch an Application subclass named as the main class when it
+ * is not on the module path, so the startup runs go through this class instead.
+ */
+public final class StartupLauncher {
+
+    private StartupLauncher() {
+    }
+
+    public static void main(String[] args) {
+        Application.launch(Main.class, args);
+    }
+}
@@ -103,7 +103,8 @@ CREATE TABLE IF NOT EXISTS book_copies (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (book_id) REFERENCES books(id) ON DELETE CASCADE,
     UNIQUE KEY (book_id, copy_number),
-    INDEX idx_book_copy_status (status)
+    INDEX idx_book_copy_status (status),
+    INDEX idx_book_copy_book_status (book_id, status, copy_number)
 ) ENGINE=InnoDB;
 
 -- Create borrowings table to track book borrowing history
@@ -124,13 +125,15 @@ CREATE TABLE IF NOT EXISTS borrowings (
     FOREIGN KEY (issued_by) REFERENCES users(id) ON DELETE SET NULL,
     FOREIGN KEY (returned_to) REFERENCES users(id) ON DELETE SET NULL,
     INDEX idx_borrowing_status (status),
-    INDEX idx_borrowing_due_date (due_date)
+    INDEX idx_borrowing_due_date (due_date),
+    INDEX idx_borrowing_open_due (return_date, due_date)
 ) ENGINE=InnoDB;
 
 -- Create reservations table
 CREATE TABLE IF NOT EXISTS reservations (
     id INT AUTO_INCREMENT PRIMARY KEY,
     book_id INT NOT NULL,
+    held_copy_id INT NULL,  -- Copy set aside while the reservation is NOTIFIED
     user_id INT NOT NULL,
     reservation_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     expiry_date TIMESTAMP NULL DEFAULT NULL,
@@ -141,21 +144,30 @@ CREATE TABLE IF NOT EXISTS reservations (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (book_id) REFERENCES books(id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
-    INDEX idx_reservation_status (status)
+    CONSTRAINT fk_reservation_held_copy FOREIGN KEY (held_copy_id) REFERENCES book_copies(id) ON DELETE SET NULL,
+    INDEX idx_reservation_status (status),
+    INDEX idx_reservation_book_status (book_id, status, reservation_date)
 ) ENGINE=InnoDB;
 
 -- Create fines table
 CREATE TABLE IF NOT EXISTS fines (
     id INT AUTO_INCREMENT PRIMARY KEY,
     borrowing_id INT NOT NULL,
+    user_id INT NULL,
     amount DECIMAL(10, 2) NOT NULL,
     reason ENUM('LATE_RETURN', 'DAMAGED', 'LOST') NOT NULL,
     payment_status ENUM('UNPAID', 'PAID', 'WAIVED') DEFAULT 'UNPAID',
     payment_date DATE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    issue_date DATE NULL,
+    issued_by INT NULL,     -- Staff who issued the fine
+    payment_method VARCHAR(50) NULL,
+    received_by INT NULL,   -- Staff who received the payment
     FOREIGN KEY (borrowing_id) REFERENCES borrowings(id) ON DELETE RESTRICT,
-    INDEX idx_fine_payment_status (payment_status)
+    CONSTRAINT fk_fine_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE RESTRICT,
+    INDEX idx_fine_payment_status (payment_status),
+    INDEX idx_fine_user_unpaid (user_id, payment_date, issue_date, amount)
 ) ENGINE=InnoDB;
 
 -- Create library_staff table (for non-user system staff)
@@ -171,6 +183,22 @@ CREATE TABLE IF NOT EXISTS library_staff (
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 ) ENGINE=InnoDB;
 
+-- Create email_outbox table for queued outgoing emails
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body MEDIUMTEXT NOT NULL,
+    status ENUM('PENDING', 'SENDING', 'SENT', 'FAILED') DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NULL DEFAULT NULL,
+    last_error VARCHAR(500) NULL DEFAULT NULL,
+    sent_at TIMESTAMP NULL DEFAULT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_email_outbox_due (status, next_attempt_at)
+) ENGINE=InnoDB;
+
 -- Insert default app settings
 INSERT INTO app_setting (setting_key, setting_value) VALUES 
 ('email_address', ''),
@@ -1,11 +1,27 @@
 package com.example.lms;
 
+import com.example.lms.model.AsyncDao;
+import com.example.lms.model.Daos;
+import com.example.lms.model.ReservationExpirySweeper;
+import com.example.lms.util.ConnectionPool;
+import com.example.lms.util.DaoExecutor;
+import com.example.lms.util.EmailDispatcher;
+import com.example.lms.util.FxStallMonitor;
+import com.example.lms.util.InstrumentedConnection;
+import com.example.lms.util.Log;
+import com.example.lms.util.MigrationRunner;
+import com.example.lms.util.MetricsServer;
+import com.example.lms.util.QueryStats;
+import com.example.lms.util.ServiceRegistry;
+import com.example.lms.util.StartupTimer;
+import com.example.lms.util.ViewLoader;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Main application class for the Library Management System.
@@ -13,15 +29,76 @@ import java.io.IOException;
  */
 public class Main extends Application {
 
+    @Override
+    public void init() {
+        // One instance of each DAO and service, handed to controllers by ViewLoader
+        ServiceRegistry services = ServiceRegistry.getInstance();
+        services.register(ConnectionPool.class, s -> ConnectionPool.getInstance(), ConnectionPool::close);
+        services.register(AsyncDao.class, s -> new AsyncDao(s.get(ConnectionPool.class)), AsyncDao::shutdown);
+        services.register(EmailDispatcher.class, s -> {
+            // The dispatcher borrows pooled connections, so the pool must be stopped after it
+            s.get(ConnectionPool.class);
+            return EmailDispatcher.getInstance();
+        }, EmailDispatcher::stop);
+        services.register(ReservationExpirySweeper.class,
+                s -> new ReservationExpirySweeper(s.get(ConnectionPool.class)), ReservationExpirySweeper::stop);
+        Daos.register(services);
+    }
+
     @Override
     public void start(Stage stage) throws IOException {
+        // Log UI freezes with the controller and DAO call that caused them
+        FxStallMonitor.start();
+
         // Load the login screen first
         FXMLLoader fxmlLoader = new FXMLLoader(Main.class.getResource("views/login.fxml"));
-        Scene scene = new Scene(fxmlLoader.load(), 800, 600);
+        Scene scene = new Scene(ViewLoader.load(fxmlLoader), 800, 600);
         stage.setTitle("Library Management System - Login");
         stage.setScene(scene);
         stage.centerOnScreen();
         stage.show();
+        StartupTimer.markWhenDrawn(StartupTimer.LOGIN);
+        
+        // Bring the schema up to date on a thread of its own
+        CompletableFuture<Void> schemaReady = MigrationRunner.startOnStartup();
+        
+        // Connect and create the shared DAOs while the user types their credentials
+        DaoExecutor.submit(() -> {
+            Daos.warmUp(ServiceRegistry.getInstance());
+            return null;
+        });
+        
+        // The dispatcher needs the outbox tables and the sweeper the held copy column
+        schemaReady.whenComplete((ignored, error) -> {
+            if (error != null) {
+                Log.warn("Email delivery and reservation expiry are off until the schema is migrated");
+                return;
+            }
+            
+            // Deliver queued emails in the background
+            ServiceRegistry.getInstance().get(EmailDispatcher.class).start();
+
+            // Expire overdue holds and pass their copies on to the next patron
+            ServiceRegistry.getInstance().get(ReservationExpirySweeper.class).start();
+        });
+
+        // Serve metrics when -Dlms.metrics.port is set
+        MetricsServer.startIfConfigured();
+    }
+
+    @Override
+    public void stop() {
+        FxStallMonitor.stop();
+        MetricsServer.stop();
+        DaoExecutor.shutdown();
+
+        // Stops the dispatcher, closes the DAOs and releases the shared connection
+        ServiceRegistry.getInstance().shutdown();
+
+        if (InstrumentedConnection.isEnabled()) {
+            Log.info("Query statistics" + System.lineSeparator() + QueryStats.report(20));
+        }
+        Log.shutdown();
     }
 
     public static void main(String[] args) {
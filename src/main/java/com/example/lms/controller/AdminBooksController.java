@@ -1,6 +1,9 @@
 package com.example.lms.controller;
 
 import com.example.lms.model.*;
+import com.example.lms.util.DaoExecutor;
+import com.example.lms.util.ViewCache;
+import com.example.lms.util.ViewLoader;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
@@ -18,8 +21,9 @@ import javafx.util.Callback;
 
 import java.io.IOException;
 
-import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -67,21 +71,26 @@ public class AdminBooksController implements ChildController {
     private TableColumn<Book, Void> actionsColumn;
     
     private User currentUser;
-    private BookDAO bookDAO;
-    private CategoryDAO categoryDAO;
-    private BookCopyDAO bookCopyDAO;
+    private final BookDAO bookDAO;
+    private final CategoryDAO categoryDAO;
+    private final BookCopyDAO bookCopyDAO;
     private ObservableList<Book> books = FXCollections.observableArrayList();
+    private Map<Integer, Integer> availableCopies = new HashMap<>();
+    
+    /**
+     * Create the controller with the DAOs behind the book list and its filters
+     */
+    public AdminBooksController(BookDAO bookDAO, CategoryDAO categoryDAO, BookCopyDAO bookCopyDAO) {
+        this.bookDAO = bookDAO;
+        this.categoryDAO = categoryDAO;
+        this.bookCopyDAO = bookCopyDAO;
+    }
     
     /**
      * Initialize the controller
      */
     @FXML
     private void initialize() {
-        // Initialize DAOs
-        bookDAO = new BookDAO();
-        categoryDAO = new CategoryDAO();
-        bookCopyDAO = new BookCopyDAO();
-        
         // Set up table columns
         idColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
         titleColumn.setCellValueFactory(new PropertyValueFactory<>("title"));
@@ -91,10 +100,10 @@ public class AdminBooksController implements ChildController {
             new SimpleStringProperty(cellData.getValue().getPublisher() != null ? 
                     cellData.getValue().getPublisher().getName() : ""));
         yearColumn.setCellValueFactory(new PropertyValueFactory<>("publicationYear"));
-        copiesColumn.setCellValueFactory(cellData -> {
-            int count = bookCopyDAO.getAvailableCopiesCount(cellData.getValue().getId());
-            return new SimpleObjectProperty<>(count);
-        });
+        // Counts are loaded together with the books, so cells never query
+        copiesColumn.setCellValueFactory(cellData -> 
+            new SimpleObjectProperty<>(availableCopies.getOrDefault(cellData.getValue().getId(), 0)));
+        booksTable.setItems(books);
         
         // Set up action buttons
         setupActionButtons();
@@ -115,6 +124,16 @@ public class AdminBooksController implements ChildController {
         this.currentUser = user;
     }
     
+    /**
+     * Clear the filters and reload when the cached view is shown again
+     */
+    @Override
+    public void reset() {
+        searchField.clear();
+        loadCategoryFilter();
+        loadBooks();
+    }
+    
     /**
      * Set up action buttons in the table
      */
@@ -184,7 +203,7 @@ public class AdminBooksController implements ChildController {
         try {
             // Load the book dialog FXML
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/lms/views/book-dialog.fxml"));
-            DialogPane dialogPane = loader.load();
+            DialogPane dialogPane = ViewLoader.load(loader);
             
             // Create the dialog
             Dialog<ButtonType> dialog = new Dialog<>();
@@ -232,11 +251,14 @@ public class AdminBooksController implements ChildController {
     }
     
     /**
-     * Load categories for the filter dropdown
+     * Load categories for the filter dropdown in the background
      */
     private void loadCategoryFilter() {
-        try {
-            List<Category> categories = categoryDAO.getAllCategories();
+        // Show just "All Categories" until the rest arrive
+        categoryFilter.setItems(FXCollections.observableArrayList("All Categories"));
+        categoryFilter.getSelectionModel().selectFirst();
+        
+        DaoExecutor.load(categoryDAO::getAllCategories, categories -> {
             List<String> categoryNames = categories.stream()
                     .map(Category::getName)
                     .collect(Collectors.toList());
@@ -247,13 +269,7 @@ public class AdminBooksController implements ChildController {
             categoryFilter.setItems(FXCollections.observableArrayList(categoryNames));
             categoryFilter.getSelectionModel().selectFirst();
             
-        } catch (SQLException e) {
-            System.err.println("Error loading categories: " + e.getMessage());
-            
-            // Add a default "All Categories" option
-            categoryFilter.setItems(FXCollections.observableArrayList("All Categories"));
-            categoryFilter.getSelectionModel().selectFirst();
-        }
+        }, error -> System.err.println("Error loading categories: " + error.getMessage()));
     }
     
     /**
@@ -264,13 +280,13 @@ public class AdminBooksController implements ChildController {
     }
     
     /**
-     * Load books with filtering
+     * Load books with filtering in the background, together with their available copy counts
      * 
      * @param searchTerm Term to search by title, author, or ISBN
      * @param categoryName Category to filter by
      */
     private void loadBooks(String searchTerm, String categoryName) {
-        try {
+        DaoExecutor.loadInto(booksTable, () -> {
             List<Book> bookList;
             
             if (searchTerm == null || searchTerm.isEmpty()) {
@@ -283,21 +299,26 @@ public class AdminBooksController implements ChildController {
                 bookList = bookDAO.searchBooks(searchTerm, categoryName);
             }
             
-            books.setAll(bookList);
-            booksTable.setItems(books);
-            
-        } catch (SQLException e) {
-            System.err.println("Error loading books: " + e.getMessage());
+            return new BookPage(bookList, bookCopyDAO.getAvailableCopiesCounts());
             
-            // Show error message
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Error");
-            alert.setHeaderText(null);
-            alert.setContentText("Failed to load books: " + e.getMessage());
-            alert.showAndWait();
+        }, page -> {
+            availableCopies = page.availableCopies;
+            books.setAll(page.books);
+            booksTable.setItems(books);
             
-            // Clear the table
-            books.clear();
+        }, "Failed to load books");
+    }
+    
+    /**
+     * Books and their available copy counts, loaded together
+     */
+    private static final class BookPage {
+        private final List<Book> books;
+        private final Map<Integer, Integer> availableCopies;
+        
+        BookPage(List<Book> books, Map<Integer, Integer> availableCopies) {
+            this.books = books;
+            this.availableCopies = availableCopies;
         }
     }
     
@@ -310,7 +331,7 @@ public class AdminBooksController implements ChildController {
         try {
             // Load the book dialog FXML
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/lms/views/book-dialog.fxml"));
-            DialogPane dialogPane = loader.load();
+            DialogPane dialogPane = ViewLoader.load(loader);
             
             // Create the dialog
             Dialog<ButtonType> dialog = new Dialog<>();
@@ -350,13 +371,13 @@ public class AdminBooksController implements ChildController {
     private void viewBookDetails(Book book) {
         try {
             // Load the book details dialog
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/lms/views/book-details-dialog.fxml"));
+            ViewCache.View<BookDetailsController> details = ViewCache.get("book-details-dialog.fxml");
             Dialog<ButtonType> dialog = new Dialog<>();
-            dialog.setDialogPane((DialogPane) loader.load());
+            dialog.setDialogPane((DialogPane) details.getRoot());
             dialog.setTitle("Book Details");
             
             // Get the controller and set the book
-            BookDetailsController controller = loader.getController();
+            BookDetailsController controller = details.getController();
             controller.setBook(book);
             
             // Show the dialog
@@ -388,12 +409,11 @@ public class AdminBooksController implements ChildController {
             // Load the dialog
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/lms/views/book-copy-dialog.fxml"));
             Dialog<ButtonType> dialog = new Dialog<>();
-            dialog.setDialogPane((DialogPane) loader.load());
+            dialog.setDialogPane((DialogPane) ViewLoader.load(loader));
             dialog.setTitle("Manage Book Copies");
             
-            // Get the controller and set the book and DAO
+            // Get the controller and set the book
             BookCopyDialogController controller = loader.getController();
-            controller.setBookCopyDAO(bookCopyDAO);
             controller.setBook(book);
             
             // Show the dialog
@@ -412,20 +432,9 @@ public class AdminBooksController implements ChildController {
     }
     
     private void saveBook(Book book, boolean isNewBook) {
-        try {
-            boolean success;
-            String successMessage;
-            
-            if (isNewBook) {
-                // Add new book
-                success = bookDAO.addBook(book);
-                successMessage = "Book added successfully!";
-            } else {
-                // Update existing book
-                success = bookDAO.updateBook(book);
-                successMessage = "Book updated successfully!";
-            }
-            
+        String successMessage = isNewBook ? "Book added successfully!" : "Book updated successfully!";
+        
+        DaoExecutor.load(() -> isNewBook ? bookDAO.addBook(book) : bookDAO.updateBook(book), success -> {
             if (success) {
                 // Show success message
                 Alert alert = new Alert(Alert.AlertType.INFORMATION);
@@ -445,18 +454,7 @@ public class AdminBooksController implements ChildController {
                 alert.setContentText("Failed to save book. Please try again.");
                 alert.showAndWait();
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Error saving book: " + e.getMessage());
-            e.printStackTrace();
-            
-            // Show error message with details
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Database Error");
-            alert.setHeaderText("Failed to save book");
-            alert.setContentText("Error: " + e.getMessage());
-            alert.showAndWait();
-        }
+        }, "Failed to save book");
     }
     
     /**
@@ -474,12 +472,18 @@ public class AdminBooksController implements ChildController {
         // Handle user response
         confirmation.showAndWait().ifPresent(response -> {
             if (response == ButtonType.YES) {
-                try {
+                DaoExecutor.load(() -> {
                     // Check if book has copies that are borrowed
                     int copiesCount = bookCopyDAO.getTotalCopiesCount(book.getId());
                     int availableCopiesCount = bookCopyDAO.getAvailableCopiesCount(book.getId());
                     
                     if (copiesCount > availableCopiesCount) {
+                        return null;
+                    }
+                    return bookDAO.deleteBook(book.getId());
+                    
+                }, success -> {
+                    if (success == null) {
                         // Show error - cannot delete book with borrowed copies
                         Alert alert = new Alert(Alert.AlertType.ERROR);
                         alert.setTitle("Cannot Delete");
@@ -487,40 +491,25 @@ public class AdminBooksController implements ChildController {
                         alert.setContentText("This book has copies that are currently borrowed. " +
                                 "All copies must be returned before deletion.");
                         alert.showAndWait();
-                    } else {
-                        // Delete the book
-                        boolean success = bookDAO.deleteBook(book.getId());
+                    } else if (success) {
+                        // Show success message
+                        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                        alert.setTitle("Success");
+                        alert.setHeaderText(null);
+                        alert.setContentText("Book deleted successfully!");
+                        alert.showAndWait();
                         
-                        if (success) {
-                            // Show success message
-                            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                            alert.setTitle("Success");
-                            alert.setHeaderText(null);
-                            alert.setContentText("Book deleted successfully!");
-                            alert.showAndWait();
-                            
-                            // Refresh the book list
-                            loadBooks();
-                        } else {
-                            // Show error message
-                            Alert alert = new Alert(Alert.AlertType.ERROR);
-                            alert.setTitle("Error");
-                            alert.setHeaderText(null);
-                            alert.setContentText("Failed to delete book. Please try again.");
-                            alert.showAndWait();
-                        }
+                        // Refresh the book list
+                        loadBooks();
+                    } else {
+                        // Show error message
+                        Alert alert = new Alert(Alert.AlertType.ERROR);
+                        alert.setTitle("Error");
+                        alert.setHeaderText(null);
+                        alert.setContentText("Failed to delete book. Please try again.");
+                        alert.showAndWait();
                     }
-                } catch (SQLException e) {
-                    System.err.println("Error deleting book: " + e.getMessage());
-                    e.printStackTrace();
-                    
-                    // Show error message with details
-                    Alert alert = new Alert(Alert.AlertType.ERROR);
-                    alert.setTitle("Database Error");
-                    alert.setHeaderText("Failed to delete book");
-                    alert.setContentText("Error: " + e.getMessage());
-                    alert.showAndWait();
-                }
+                }, "Failed to delete book");
             }
         });
     }
@@ -3,9 +3,10 @@ package com.example.lms.controller;
 import com.example.lms.Main;
 import com.example.lms.model.User;
 import com.example.lms.model.AppSettingDAO;
+import com.example.lms.util.ViewCache;
+import com.example.lms.util.ViewLoader;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
@@ -53,7 +54,7 @@ public class AdminDashboardController implements DashboardController {
     private BarChart<String, Number> monthlyChart;
     
     private User currentUser;
-    private AppSettingDAO appSettingDAO;
+    private final AppSettingDAO appSettingDAO;
     
     // Track the currently loaded view
     private String currentView = null;
@@ -61,14 +62,19 @@ public class AdminDashboardController implements DashboardController {
     // Track the current child controller
     private ChildController currentChildController = null;
     
+    /**
+     * Create the controller with the settings DAO
+     */
+    public AdminDashboardController(AppSettingDAO appSettingDAO) {
+        this.appSettingDAO = appSettingDAO;
+    }
+    
     /**
      * Initializes the controller.
      * This method is automatically called after the FXML has been loaded.
      */
     @FXML
     private void initialize() {
-        appSettingDAO = new AppSettingDAO();
-        
         // Initialize charts with dummy data for now
         initializeCharts();
         
@@ -88,6 +94,9 @@ public class AdminDashboardController implements DashboardController {
         
         // Load actual system statistics when an admin logs in
         loadSystemStatistics();
+        
+        // Have the other sections ready by the time they are opened
+        ViewCache.preload("admin-books.fxml", "admin-users.fxml", "admin-settings.fxml");
     }
     
     /**
@@ -112,9 +121,10 @@ public class AdminDashboardController implements DashboardController {
      */
     @FXML
     private void onLogoutClick() {
+        ViewCache.clear();
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/login.fxml"));
-            Scene scene = new Scene(loader.load(), 800, 600);
+            Scene scene = new Scene(ViewLoader.load(loader), 800, 600);
             
             // Get current stage and set the new scene
             Stage stage = (Stage) logoutBtn.getScene().getWindow();
@@ -196,16 +206,19 @@ public class AdminDashboardController implements DashboardController {
                 currentChildController = null;
             }
             
-            FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/" + fxmlFile));
-            Parent view = loader.load();
+            // Sections are cached, so switching back does not parse the FXML again
+            ViewCache.View<Object> view = ViewCache.get(fxmlFile);
             contentArea.getChildren().clear();
-            contentArea.getChildren().add(view);
+            contentArea.getChildren().add(view.getRoot());
             
             // If the loaded view has a controller that implements ChildController
-            Object controller = loader.getController();
+            Object controller = view.getController();
             if (controller instanceof ChildController) {
                 // Save reference to current child controller
                 currentChildController = (ChildController) controller;
+                if (view.isReused()) {
+                    currentChildController.reset();
+                }
                 currentChildController.initData(currentUser);
             }
             
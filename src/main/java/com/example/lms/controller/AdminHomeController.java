@@ -1,10 +1,13 @@
 package com.example.lms.controller;
 
+import com.example.lms.model.AsyncDao;
 import com.example.lms.model.User;
 import com.example.lms.model.BookDAO;
 import com.example.lms.model.BorrowingDAO;
 import com.example.lms.model.FineDAO;
 import com.example.lms.model.UserDAO;
+import com.example.lms.util.DaoExecutor;
+import com.example.lms.util.Log;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -14,7 +17,6 @@ import javafx.scene.chart.XYChart;
 import javafx.scene.control.Label;
 import javafx.scene.layout.VBox;
 
-import java.sql.SQLException;
 import java.text.NumberFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -22,9 +24,12 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller for the admin dashboard home view.
+ * Every widget is loaded concurrently on its own pooled connection and rendered
+ * as soon as its data arrives.
  */
 public class AdminHomeController implements ChildController, AutoCloseable {
 
@@ -50,22 +55,20 @@ public class AdminHomeController implements ChildController, AutoCloseable {
     private VBox recentActivitiesContainer;
     
     private User currentUser;
-    private BookDAO bookDAO;
-    private UserDAO userDAO;
-    private BorrowingDAO borrowingDAO;
-    private FineDAO fineDAO;
+    private final AsyncDao asyncDao;
+    
+    /**
+     * Create the controller with the facade that runs the widget queries in parallel
+     */
+    public AdminHomeController(AsyncDao asyncDao) {
+        this.asyncDao = asyncDao;
+    }
     
     /**
      * Initialize the controller
      */
     @FXML
     private void initialize() {
-        // Initialize DAOs
-        bookDAO = new BookDAO();
-        userDAO = new UserDAO();
-        borrowingDAO = new BorrowingDAO();
-        fineDAO = new FineDAO();
-        
         // Set placeholder data for charts
         initCharts();
     }
@@ -78,74 +81,59 @@ public class AdminHomeController implements ChildController, AutoCloseable {
     public void initData(User user) {
         this.currentUser = user;
         
-        // Load real data
+        // Load real data; all widgets are queried at the same time
         loadDashboardStatistics();
+        loadCategoryChart();
+        loadMonthlyBorrowingChart();
         loadRecentActivities();
     }
     
     /**
-     * Load statistics for the dashboard
+     * Load the statistic labels concurrently; each one is set as soon as its query returns
+     * and errors are isolated per statistic.
+     * 
+     * @return Future that completes when all statistics are loaded
      */
-    private void loadDashboardStatistics() {
-        try {
-            // Load each statistic independently to isolate errors
-            
-            // Book statistics
-            try {
-                int totalBooks = bookDAO.getTotalBooks();
-                totalBooksLabel.setText(String.valueOf(totalBooks));
-            } catch (SQLException e) {
-                System.err.println("Error loading book statistics: " + e.getMessage());
-                totalBooksLabel.setText("0");
-            }
-            
-            // Borrowing statistics
-            try {
-                int borrowedBooks = borrowingDAO.getActiveBorrowingsCount();
-                borrowedBooksLabel.setText(String.valueOf(borrowedBooks));
-            } catch (SQLException e) {
-                System.err.println("Error loading borrowing statistics: " + e.getMessage());
-                borrowedBooksLabel.setText("0");
-            }
-            
-            // User statistics
-            int totalUsers = userDAO.getTotalUsers();
-            totalUsersLabel.setText(String.valueOf(totalUsers));
-
-            // Fine statistics
-            try {
-                double totalFines = fineDAO.getTotalPendingFines();
-                NumberFormat currencyFormat = NumberFormat.getCurrencyInstance();
-                pendingFinesLabel.setText(currencyFormat.format(totalFines));
-            } catch (SQLException e) {
-                System.err.println("Error loading fine statistics: " + e.getMessage());
-                pendingFinesLabel.setText("$0.00");
-            }
-            
-            // Update charts with real data - only if we loaded the basic stats successfully
-            try {
-                loadCategoryChart();
-            } catch (SQLException e) {
-                System.err.println("Error loading category chart: " + e.getMessage());
-                // Keep placeholder chart data
-            }
-            
-            try {
-                loadMonthlyBorrowingChart();
-            } catch (SQLException e) {
-                System.err.println("Error loading monthly borrowing chart: " + e.getMessage());
-                // Keep placeholder chart data
-            }
-            
-        } catch (Exception e) {
-            System.err.println("Unexpected error loading dashboard statistics: " + e.getMessage());
-            e.printStackTrace();
-            // Fallback to placeholder data if database access fails
-            totalBooksLabel.setText("0");
-            borrowedBooksLabel.setText("0");
-            totalUsersLabel.setText("0");
-            pendingFinesLabel.setText("$0.00");
-        }
+    private CompletableFuture<Void> loadDashboardStatistics() {
+        DaoExecutor.showLoading(totalBooksLabel);
+        DaoExecutor.showLoading(borrowedBooksLabel);
+        DaoExecutor.showLoading(totalUsersLabel);
+        DaoExecutor.showLoading(pendingFinesLabel);
+        
+        // Book statistics
+        CompletableFuture<Integer> books = DaoExecutor.deliver(asyncDao.books(BookDAO::getTotalBooks),
+                totalBooks -> totalBooksLabel.setText(String.valueOf(totalBooks)),
+                error -> {
+                    Log.error("Error loading book statistics", error);
+                    totalBooksLabel.setText("0");
+                });
+        
+        // Borrowing statistics
+        CompletableFuture<Integer> borrowed = DaoExecutor.deliver(
+                asyncDao.borrowings(BorrowingDAO::getActiveBorrowingsCount),
+                borrowedBooks -> borrowedBooksLabel.setText(String.valueOf(borrowedBooks)),
+                error -> {
+                    Log.error("Error loading borrowing statistics", error);
+                    borrowedBooksLabel.setText("0");
+                });
+        
+        // User statistics
+        CompletableFuture<Integer> users = DaoExecutor.deliver(asyncDao.users(UserDAO::getTotalUsers),
+                totalUsers -> totalUsersLabel.setText(String.valueOf(totalUsers)),
+                error -> {
+                    Log.error("Error loading user statistics", error);
+                    totalUsersLabel.setText("0");
+                });
+        
+        // Fine statistics
+        CompletableFuture<Double> fines = DaoExecutor.deliver(asyncDao.fines(FineDAO::getTotalPendingFines),
+                totalFines -> pendingFinesLabel.setText(NumberFormat.getCurrencyInstance().format(totalFines)),
+                error -> {
+                    Log.error("Error loading fine statistics", error);
+                    pendingFinesLabel.setText("$0.00");
+                });
+        
+        return CompletableFuture.allOf(books, borrowed, users, fines);
     }
     
     /**
@@ -177,18 +165,12 @@ public class AdminHomeController implements ChildController, AutoCloseable {
     }
     
     /**
-     * Load category chart with real data
-     * @throws SQLException if database access fails
+     * Load category chart with real data on its own connection, keeping the placeholder data on error
+     * 
+     * @return Future that completes when the query is done
      */
-    private void loadCategoryChart() throws SQLException {
-        // Create a fresh DAO instance just for this operation to avoid connection sharing issues
-        BookDAO localBookDAO = null;
-        try {
-            localBookDAO = new BookDAO();
-            
-            // Get category statistics
-            Map<String, Integer> categoryStats = localBookDAO.getBookCountByCategory();
-            
+    private CompletableFuture<Map<String, Integer>> loadCategoryChart() {
+        return DaoExecutor.deliver(asyncDao.books(BookDAO::getBookCountByCategory), categoryStats -> {
             // Create chart data
             ObservableList<PieChart.Data> pieChartData = FXCollections.observableArrayList();
             
@@ -200,34 +182,22 @@ public class AdminHomeController implements ChildController, AutoCloseable {
             // Update chart
             categoryChart.setData(pieChartData);
             
-        } finally {
-            // Always close the local DAO to ensure connection is properly released
-            if (localBookDAO != null) {
-                try {
-                    localBookDAO.close();
-                } catch (SQLException e) {
-                    System.err.println("Error closing local book DAO: " + e.getMessage());
-                }
-            }
-        }
+        }, error -> Log.error("Error loading category chart", error));
     }
     
     /**
-     * Load monthly borrowing chart with real data
-     * @throws SQLException if database access fails
+     * Load monthly borrowing chart with real data on its own connection, keeping the placeholder data on error
+     * 
+     * @return Future that completes when the query is done
      */
-    private void loadMonthlyBorrowingChart() throws SQLException {
-        // Create a fresh DAO instance just for this operation to avoid connection sharing issues
-        BorrowingDAO localBorrowingDAO = null;
-        try {
-            localBorrowingDAO = new BorrowingDAO();
-            
-            // Get current year
-            int currentYear = LocalDate.now().getYear();
-            
-            // Get monthly borrowing counts
-            Map<Integer, Integer> monthlyBorrowings = localBorrowingDAO.getMonthlyBorrowingCounts(currentYear);
-            
+    private CompletableFuture<Map<Integer, Integer>> loadMonthlyBorrowingChart() {
+        // Get current year
+        int currentYear = LocalDate.now().getYear();
+        
+        CompletableFuture<Map<Integer, Integer>> query =
+                asyncDao.borrowings(dao -> dao.getMonthlyBorrowingCounts(currentYear));
+        
+        return DaoExecutor.deliver(query, monthlyBorrowings -> {
             // Create series
             XYChart.Series<String, Number> series = new XYChart.Series<>();
             series.setName("Borrowings " + currentYear);
@@ -246,32 +216,24 @@ public class AdminHomeController implements ChildController, AutoCloseable {
             monthlyChart.getData().clear();
             monthlyChart.getData().add(series);
             
-        } finally {
-            // Always close the local DAO to ensure connection is properly released
-            if (localBorrowingDAO != null) {
-                try {
-                    localBorrowingDAO.close();
-                } catch (SQLException e) {
-                    System.err.println("Error closing local borrowing DAO: " + e.getMessage());
-                }
-            }
-        }
+        }, error -> Log.error("Error loading monthly borrowing chart", error));
     }
     
     /**
-     * Load recent activities for display
+     * Load recent activities for display on their own connection
+     * 
+     * @return Future that completes when the query is done
      */
-    private void loadRecentActivities() {
+    private CompletableFuture<List<Map<String, String>>> loadRecentActivities() {
         recentActivitiesContainer.getChildren().clear();
+        addActivityItem("Loading recent activities...", LocalDateTime.now().toString());
         
-        // Use a separate try-catch block to isolate errors in this method from other parts of the dashboard
-        BorrowingDAO localBorrowingDAO = null;
-        try {
-            // Create a fresh DAO instance just for this operation to avoid connection sharing issues
-            localBorrowingDAO = new BorrowingDAO();
-            
-            // Get recent borrowings (limit to 5)
-            List<Map<String, String>> borrowingActivities = localBorrowingDAO.getRecentBorrowingActivities(5);
+        // Get recent borrowings (limit to 5)
+        CompletableFuture<List<Map<String, String>>> query =
+                asyncDao.borrowings(dao -> dao.getRecentBorrowingActivities(5));
+        
+        return DaoExecutor.deliver(query, borrowingActivities -> {
+            recentActivitiesContainer.getChildren().clear();
             
             // Display each activity
             for (Map<String, String> activity : borrowingActivities) {
@@ -284,22 +246,13 @@ public class AdminHomeController implements ChildController, AutoCloseable {
                 addActivityItem("No recent borrowing activities", LocalDateTime.now().toString());
             }
             
-        } catch (SQLException e) {
-            System.err.println("Error loading recent activities: " + e.getMessage());
-            e.printStackTrace();
+        }, error -> {
+            Log.error("Error loading recent activities", error);
             
             // Add fallback message if database access fails
+            recentActivitiesContainer.getChildren().clear();
             addActivityItem("Could not load recent activities", LocalDateTime.now().toString());
-        } finally {
-            // Always close the local DAO to ensure connection is properly released
-            if (localBorrowingDAO != null) {
-                try {
-                    localBorrowingDAO.close();
-                } catch (SQLException e) {
-                    System.err.println("Error closing local borrowing DAO: " + e.getMessage());
-                }
-            }
-        }
+        });
     }
     
     /**
@@ -316,36 +269,11 @@ public class AdminHomeController implements ChildController, AutoCloseable {
     
     /**
      * Close all resources used by this controller
-     * Called when switching views or closing the application
+     * Called when switching views or closing the application.
+     * Queries run on pooled connections that are returned as each one finishes,
+     * so there is nothing left to release here.
      */
     @Override
     public void close() throws Exception {
-        try {
-            // Close all DAOs
-            if (bookDAO != null) {
-                bookDAO.close();
-                bookDAO = null;
-            }
-            if (userDAO != null) {
-//                userDAO.close();
-                userDAO = null;
-            }
-            if (borrowingDAO != null) {
-                borrowingDAO.close();
-                borrowingDAO = null;
-            }
-            if (fineDAO != null) {
-                try {
-                    fineDAO.close();
-                } catch (SQLException e) {
-                    System.err.println("Error closing FineDAO: " + e.getMessage());
-                }
-                fineDAO = null;
-            }
-            System.out.println("AdminHomeController resources closed successfully");
-        } catch (SQLException e) {
-            System.err.println("Error closing AdminHomeController resources: " + e.getMessage());
-            throw e;
-        }
     }
 }
@@ -3,6 +3,7 @@ package com.example.lms.controller;
 import com.example.lms.model.AppSetting;
 import com.example.lms.model.AppSettingDAO;
 import com.example.lms.model.User;
+import com.example.lms.util.DaoExecutor;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -16,7 +17,6 @@ import javafx.util.Callback;
 import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -46,16 +46,21 @@ public class AdminSettingsController implements ChildController {
     private TableColumn<AppSetting, Void> actionsColumn;
     
     private User currentUser;
-    private AppSettingDAO appSettingDAO;
+    private final AppSettingDAO appSettingDAO;
     private ObservableList<AppSetting> settings = FXCollections.observableArrayList();
     
+    /**
+     * Create the controller with the DAO whose settings it edits
+     */
+    public AdminSettingsController(AppSettingDAO appSettingDAO) {
+        this.appSettingDAO = appSettingDAO;
+    }
+    
     /**
      * Initialize the controller
      */
     @FXML
     private void initialize() {
-        appSettingDAO = new AppSettingDAO();
-        
         // Set up table columns
         settingKeyColumn.setCellValueFactory(new PropertyValueFactory<>("settingKey"));
         settingValueColumn.setCellValueFactory(cellData -> {
@@ -87,6 +92,14 @@ public class AdminSettingsController implements ChildController {
         this.currentUser = user;
     }
     
+    /**
+     * Reload when the cached view is shown again
+     */
+    @Override
+    public void reset() {
+        loadSettings();
+    }
+    
     /**
      * Set up action buttons in the table
      */
@@ -133,12 +146,12 @@ public class AdminSettingsController implements ChildController {
     }
     
     /**
-     * Load settings into the table
+     * Load settings into the table in the background
      */
     private void loadSettings() {
-        List<AppSetting> settingsList = appSettingDAO.getAllAppSettings();
-        settings.setAll(settingsList);
         settingsTable.setItems(settings);
+        DaoExecutor.loadInto(settingsTable, appSettingDAO::getAllAppSettings,
+                settingsList -> settings.setAll(settingsList), "Error Loading Settings");
     }
 
     
@@ -201,9 +214,7 @@ public class AdminSettingsController implements ChildController {
         
         Optional<AppSetting> result = dialog.showAndWait();
         
-        result.ifPresent(setting -> {
-            boolean added = appSettingDAO.addSetting(setting);
-            
+        result.ifPresent(setting -> DaoExecutor.load(() -> appSettingDAO.addSetting(setting), added -> {
             if (added) {
                 // Reload settings
                 loadSettings();
@@ -220,7 +231,7 @@ public class AdminSettingsController implements ChildController {
                 alert.setContentText("Failed to add setting. The key may already exist.");
                 alert.showAndWait();
             }
-        });
+        }, "Failed to add setting"));
     }
     
     /**
@@ -265,24 +276,24 @@ public class AdminSettingsController implements ChildController {
         
         result.ifPresent(value -> {
             setting.setSettingValue(value);
-            boolean updated = appSettingDAO.updateSetting(setting);
-            
-            if (updated) {
-                // Reload settings
-                loadSettings();
-                
-                Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                alert.setTitle("Success");
-                alert.setHeaderText(null);
-                alert.setContentText("Setting updated successfully.");
-                alert.showAndWait();
-            } else {
-                Alert alert = new Alert(Alert.AlertType.ERROR);
-                alert.setTitle("Error");
-                alert.setHeaderText(null);
-                alert.setContentText("Failed to update setting.");
-                alert.showAndWait();
-            }
+            DaoExecutor.load(() -> appSettingDAO.updateSetting(setting), updated -> {
+                if (updated) {
+                    // Reload settings
+                    loadSettings();
+                    
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    alert.setTitle("Success");
+                    alert.setHeaderText(null);
+                    alert.setContentText("Setting updated successfully.");
+                    alert.showAndWait();
+                } else {
+                    Alert alert = new Alert(Alert.AlertType.ERROR);
+                    alert.setTitle("Error");
+                    alert.setHeaderText(null);
+                    alert.setContentText("Failed to update setting.");
+                    alert.showAndWait();
+                }
+            }, "Failed to update setting");
         });
     }
     
@@ -300,23 +311,23 @@ public class AdminSettingsController implements ChildController {
         
         confirmation.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                boolean deleted = appSettingDAO.deleteSetting(setting.getSettingKey());
-                
-                if (deleted) {
-                    settings.remove(setting);
-                    
-                    Alert success = new Alert(Alert.AlertType.INFORMATION);
-                    success.setTitle("Setting Deleted");
-                    success.setHeaderText(null);
-                    success.setContentText("Setting has been successfully deleted.");
-                    success.showAndWait();
-                } else {
-                    Alert error = new Alert(Alert.AlertType.ERROR);
-                    error.setTitle("Error");
-                    error.setHeaderText(null);
-                    error.setContentText("Failed to delete setting.");
-                    error.showAndWait();
-                }
+                DaoExecutor.load(() -> appSettingDAO.deleteSetting(setting.getSettingKey()), deleted -> {
+                    if (deleted) {
+                        settings.remove(setting);
+                        
+                        Alert success = new Alert(Alert.AlertType.INFORMATION);
+                        success.setTitle("Setting Deleted");
+                        success.setHeaderText(null);
+                        success.setContentText("Setting has been successfully deleted.");
+                        success.showAndWait();
+                    } else {
+                        Alert error = new Alert(Alert.AlertType.ERROR);
+                        error.setTitle("Error");
+                        error.setHeaderText(null);
+                        error.setContentText("Failed to delete setting.");
+                        error.showAndWait();
+                    }
+                }, "Failed to delete setting");
             }
         });
     }
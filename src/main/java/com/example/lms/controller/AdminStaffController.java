@@ -3,6 +3,8 @@ package com.example.lms.controller;
 import com.example.lms.model.LibraryStaff;
 import com.example.lms.model.LibraryStaffDAO;
 import com.example.lms.model.User;
+import com.example.lms.util.DaoExecutor;
+import com.example.lms.util.Log;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -11,9 +13,7 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.util.Callback;
 
-import java.sql.SQLException;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 
 /**
  * Controller for the admin staff management view
@@ -57,17 +57,22 @@ public class AdminStaffController implements ChildController {
     private TableColumn<LibraryStaff, Void> actionsColumn;
     
     private User currentUser;
-    private LibraryStaffDAO staffDAO;
+    private final LibraryStaffDAO staffDAO;
     private ObservableList<LibraryStaff> staffList = FXCollections.observableArrayList();
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
     
+    /**
+     * Create the controller with the staff DAO
+     */
+    public AdminStaffController(LibraryStaffDAO staffDAO) {
+        this.staffDAO = staffDAO;
+    }
+    
     /**
      * Initialize the controller
      */
     @FXML
     private void initialize() {
-        staffDAO = new LibraryStaffDAO();
-        
         // Set up table columns
         idColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
         nameColumn.setCellValueFactory(cellData -> 
@@ -145,24 +150,20 @@ public class AdminStaffController implements ChildController {
     }
     
     /**
-     * Load department filter options
+     * Load department filter options in the background
      */
     private void loadDepartmentFilter() {
-        try {
-            List<String> departments = staffDAO.getAllDepartments();
-            
+        // Offer the default option until the departments arrive
+        departmentFilter.setItems(FXCollections.observableArrayList("All Departments"));
+        departmentFilter.getSelectionModel().selectFirst();
+        
+        DaoExecutor.load(staffDAO::getAllDepartments, departments -> {
             // Add "All Departments" option
             departments.add(0, "All Departments");
             
             departmentFilter.setItems(FXCollections.observableArrayList(departments));
             departmentFilter.getSelectionModel().selectFirst();
-        } catch (SQLException e) {
-            System.err.println("Error loading departments: " + e.getMessage());
-            
-            // Add default option
-            departmentFilter.setItems(FXCollections.observableArrayList("All Departments"));
-            departmentFilter.getSelectionModel().selectFirst();
-        }
+        }, error -> Log.error("Error loading departments", error));
     }
     
     /**
@@ -201,41 +202,26 @@ public class AdminStaffController implements ChildController {
     }
     
     /**
-     * Load staff with filtering
+     * Load staff with filtering in the background
      * 
      * @param searchTerm Term to search by name or email
      * @param department Department to filter by
      */
     private void loadStaff(String searchTerm, String department) {
-        try {
-            List<LibraryStaff> staff;
-            
+        DaoExecutor.loadInto(staffTable, () -> {
             if (searchTerm == null || searchTerm.isEmpty()) {
                 if (department == null) {
-                    staff = staffDAO.getAllStaff();
-                } else {
-                    staff = staffDAO.getStaffByDepartment(department);
+                    return staffDAO.getAllStaff();
                 }
-            } else {
-                staff = staffDAO.searchStaff(searchTerm, department);
+                return staffDAO.getStaffByDepartment(department);
             }
+            return staffDAO.searchStaff(searchTerm, department);
             
+        }, staff -> {
             staffList.setAll(staff);
             staffTable.setItems(staffList);
             
-        } catch (SQLException e) {
-            System.err.println("Error loading staff: " + e.getMessage());
-            
-            // Show error message
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Error");
-            alert.setHeaderText(null);
-            alert.setContentText("Failed to load staff: " + e.getMessage());
-            alert.showAndWait();
-            
-            // Clear the table
-            staffList.clear();
-        }
+        }, "Failed to load staff");
     }
     
     /**
@@ -266,8 +252,7 @@ public class AdminStaffController implements ChildController {
         
         confirmation.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                try {
-                    boolean deleted = staffDAO.deleteStaff(staff.getId());
+                DaoExecutor.load(() -> staffDAO.deleteStaff(staff.getId()), deleted -> {
                     if (deleted) {
                         staffList.remove(staff);
                         
@@ -283,15 +268,7 @@ public class AdminStaffController implements ChildController {
                         error.setContentText("Failed to delete staff record. This record may be referenced elsewhere.");
                         error.showAndWait();
                     }
-                } catch (SQLException e) {
-                    System.err.println("Error deleting staff: " + e.getMessage());
-                    
-                    Alert error = new Alert(Alert.AlertType.ERROR);
-                    error.setTitle("Error");
-                    error.setHeaderText(null);
-                    error.setContentText("Failed to delete staff: " + e.getMessage());
-                    error.showAndWait();
-                }
+                }, "Failed to delete staff");
             }
         });
     }
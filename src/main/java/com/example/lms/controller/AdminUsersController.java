@@ -2,6 +2,8 @@ package com.example.lms.controller;
 
 import com.example.lms.model.User;
 import com.example.lms.model.UserDAO;
+import com.example.lms.util.DaoExecutor;
+import com.example.lms.util.ViewLoader;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -16,7 +18,6 @@ import javafx.stage.Stage;
 import javafx.util.Callback;
 
 import java.io.IOException;
-import java.sql.SQLException;
 import java.util.List;
 
 /**
@@ -61,16 +62,21 @@ public class AdminUsersController implements ChildController {
     private TableColumn<User, Void> actionsColumn;
     
     private User currentUser;
-    private UserDAO userDAO;
+    private final UserDAO userDAO;
     private ObservableList<User> users = FXCollections.observableArrayList();
     
+    /**
+     * Create the controller with the DAO for the user list
+     */
+    public AdminUsersController(UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
+    
     /**
      * Initialize the controller
      */
     @FXML
     private void initialize() {
-        userDAO = new UserDAO();
-        
         // Set up role filter options
         roleFilter.setItems(FXCollections.observableArrayList(
                 "All", "Admin", "Librarian", "User"
@@ -85,6 +91,7 @@ public class AdminUsersController implements ChildController {
         roleColumn.setCellValueFactory(new PropertyValueFactory<>("role"));
         statusColumn.setCellValueFactory(cellData -> 
                 new SimpleStringProperty(cellData.getValue().isActive() ? "Active" : "Inactive"));
+        usersTable.setItems(users);
         
         // Set up action buttons
         setupActionButtons();
@@ -102,6 +109,16 @@ public class AdminUsersController implements ChildController {
         this.currentUser = user;
     }
     
+    /**
+     * Clear the filters and reload when the cached view is shown again
+     */
+    @Override
+    public void reset() {
+        searchField.clear();
+        roleFilter.getSelectionModel().select("All");
+        loadUsers();
+    }
+    
     /**
      * Set up action buttons in the table
      */
@@ -156,7 +173,7 @@ public class AdminUsersController implements ChildController {
         try {
             // Load the user dialog FXML
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/lms/views/user-dialog.fxml"));
-            Parent root = loader.load();
+            Parent root = ViewLoader.load(loader);
             
             // Get the controller and set up for add mode
             UserDialogController controller = loader.getController();
@@ -207,41 +224,26 @@ public class AdminUsersController implements ChildController {
     }
     
     /**
-     * Load users with filtering
+     * Load users with filtering in the background
      * 
      * @param searchTerm Term to search by name or email
      * @param role Role to filter by
      */
     private void loadUsers(String searchTerm, String role) {
-        try {
-            List<User> userList;
-            
+        DaoExecutor.loadInto(usersTable, () -> {
             if (searchTerm == null || searchTerm.isEmpty()) {
                 if (role == null) {
-                    userList = userDAO.getAllUsers();
-                } else {
-                    userList = userDAO.getUsersByRole(role);
+                    return userDAO.getAllUsers();
                 }
-            } else {
-                userList = userDAO.searchUsers(searchTerm, role);
+                return userDAO.getUsersByRole(role);
             }
+            return userDAO.searchUsers(searchTerm, role);
             
+        }, userList -> {
             users.setAll(userList);
             usersTable.setItems(users);
             
-        } catch (SQLException e) {
-            System.err.println("Error loading users: " + e.getMessage());
-            
-            // Show error message
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Error");
-            alert.setHeaderText(null);
-            alert.setContentText("Failed to load users: " + e.getMessage());
-            alert.showAndWait();
-            
-            // Clear the table
-            users.clear();
-        }
+        }, "Failed to load users");
     }
     
     /**
@@ -253,7 +255,7 @@ public class AdminUsersController implements ChildController {
         try {
             // Load the user dialog FXML
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/lms/views/user-dialog.fxml"));
-            Parent root = loader.load();
+            Parent root = ViewLoader.load(loader);
             
             // Get the controller and set up for edit mode
             UserDialogController controller = loader.getController();
@@ -309,8 +311,7 @@ public class AdminUsersController implements ChildController {
         
         confirmation.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                try {
-                    boolean deleted = userDAO.deleteUser(user.getId());
+                DaoExecutor.load(() -> userDAO.deleteUser(user.getId()), deleted -> {
                     if (deleted) {
                         users.remove(user);
                         
@@ -326,15 +327,7 @@ public class AdminUsersController implements ChildController {
                         error.setContentText("Failed to delete user. The user may have associated records.");
                         error.showAndWait();
                     }
-                } catch (SQLException e) {
-                    System.err.println("Error deleting user: " + e.getMessage());
-                    
-                    Alert error = new Alert(Alert.AlertType.ERROR);
-                    error.setTitle("Error");
-                    error.setHeaderText(null);
-                    error.setContentText("Failed to delete user: " + e.getMessage());
-                    error.showAndWait();
-                }
+                }, "Failed to delete user");
             }
         });
     }
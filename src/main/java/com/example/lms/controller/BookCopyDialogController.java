@@ -3,6 +3,7 @@ package com.example.lms.controller;
 import com.example.lms.model.Book;
 import com.example.lms.model.BookCopy;
 import com.example.lms.model.BookCopyDAO;
+import com.example.lms.util.DaoExecutor;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -13,7 +14,6 @@ import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 
-import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
@@ -81,9 +81,16 @@ public class BookCopyDialogController {
     private Button addCopyButton;
     
     private Book book;
-    private BookCopyDAO bookCopyDAO;
+    private final BookCopyDAO bookCopyDAO;
     private ObservableList<BookCopy> copiesList;
     
+    /**
+     * Create the controller with the DAO that stores the copies
+     */
+    public BookCopyDialogController(BookCopyDAO bookCopyDAO) {
+        this.bookCopyDAO = bookCopyDAO;
+    }
+    
     /**
      * Initialize the controller
      */
@@ -125,59 +132,60 @@ public class BookCopyDialogController {
     }
     
     /**
-     * Set the book copy DAO
-     * 
-     * @param bookCopyDAO The BookCopyDAO to use
+     * Load book copies and their counts from the database in the background
      */
-    public void setBookCopyDAO(BookCopyDAO bookCopyDAO) {
-        this.bookCopyDAO = bookCopyDAO;
+    private void loadBookCopies() {
+        if (book == null) {
+            return;
+        }
+        int bookId = book.getId();
+        
+        DaoExecutor.loadInto(copiesTableView, () -> new CopyPage(bookCopyDAO.getCopiesByBookId(bookId),
+                bookCopyDAO.getTotalCopiesCount(bookId), bookCopyDAO.getAvailableCopiesCount(bookId)), page -> {
+            copiesList = FXCollections.observableArrayList(page.copies);
+            copiesTableView.setItems(copiesList);
+            
+            // Update summary labels
+            updateSummaryLabels(page.totalCopies, page.availableCopies);
+            
+        }, "Error Loading Copies");
     }
     
     /**
-     * Load book copies from database
+     * Update summary labels with current copy statistics
+     * 
+     * @param totalCopies Number of copies of the book
+     * @param availableCopies Number of copies on the shelf
      */
-    private void loadBookCopies() {
-        try {
-            if (bookCopyDAO != null && book != null) {
-                // Load copies
-                List<BookCopy> copies = bookCopyDAO.getCopiesByBookId(book.getId());
-                copiesList = FXCollections.observableArrayList(copies);
-                copiesTableView.setItems(copiesList);
-                
-                // Update summary labels
-                updateSummaryLabels();
-            }
-        } catch (SQLException e) {
-            showErrorAlert("Error Loading Copies", "Could not load book copies: " + e.getMessage());
+    private void updateSummaryLabels(int totalCopies, int availableCopies) {
+        // Count copies by status
+        Map<BookCopy.Status, Integer> statusCounts = new HashMap<>();
+        for (BookCopy copy : copiesList) {
+            BookCopy.Status status = copy.getStatus();
+            statusCounts.put(status, statusCounts.getOrDefault(status, 0) + 1);
         }
+        
+        // Update labels
+        totalCopiesLabel.setText(String.valueOf(totalCopies));
+        availableCopiesLabel.setText(String.valueOf(availableCopies));
+        checkedOutCopiesLabel.setText(String.valueOf(statusCounts.getOrDefault(BookCopy.Status.DAMAGED, 0)));
+        damagedCopiesLabel.setText(String.valueOf(
+                statusCounts.getOrDefault(BookCopy.Status.DAMAGED, 0) + 
+                statusCounts.getOrDefault(BookCopy.Status.LOST, 0)));
     }
     
     /**
-     * Update summary labels with current copy statistics
+     * A book's copies and their counts, loaded together
      */
-    private void updateSummaryLabels() {
-        try {
-            if (bookCopyDAO != null && book != null) {
-                int totalCopies = bookCopyDAO.getTotalCopiesCount(book.getId());
-                int availableCopies = bookCopyDAO.getAvailableCopiesCount(book.getId());
-                
-                // Count copies by status
-                Map<BookCopy.Status, Integer> statusCounts = new HashMap<>();
-                for (BookCopy copy : copiesList) {
-                    BookCopy.Status status = copy.getStatus();
-                    statusCounts.put(status, statusCounts.getOrDefault(status, 0) + 1);
-                }
-                
-                // Update labels
-                totalCopiesLabel.setText(String.valueOf(totalCopies));
-                availableCopiesLabel.setText(String.valueOf(availableCopies));
-                checkedOutCopiesLabel.setText(String.valueOf(statusCounts.getOrDefault(BookCopy.Status.DAMAGED, 0)));
-                damagedCopiesLabel.setText(String.valueOf(
-                        statusCounts.getOrDefault(BookCopy.Status.DAMAGED, 0) + 
-                        statusCounts.getOrDefault(BookCopy.Status.LOST, 0)));
-            }
-        } catch (Exception e) {
-            System.err.println("Error updating summary labels: " + e.getMessage());
+    private static final class CopyPage {
+        private final List<BookCopy> copies;
+        private final int totalCopies;
+        private final int availableCopies;
+        
+        CopyPage(List<BookCopy> copies, int totalCopies, int availableCopies) {
+            this.copies = copies;
+            this.totalCopies = totalCopies;
+            this.availableCopies = availableCopies;
         }
     }
     
@@ -244,17 +252,18 @@ public class BookCopyDialogController {
      */
     @FXML
     private void handleAddCopy(ActionEvent event) {
-        try {
-            // Create new book copy
-            BookCopy newCopy = new BookCopy();
-            newCopy.setBook(book);
-            newCopy.setStatus(statusComboBox.getValue());
-            newCopy.setLocation(locationField.getText());
-            newCopy.setAcquisitionDate(acquisitionDatePicker.getValue());
-            newCopy.setNotes(notesArea.getText());
-            
-            // Add to database
-            boolean success = bookCopyDAO.addBookCopy(newCopy);
+        // Create new book copy
+        BookCopy newCopy = new BookCopy();
+        newCopy.setBook(book);
+        newCopy.setStatus(statusComboBox.getValue());
+        newCopy.setLocation(locationField.getText());
+        newCopy.setAcquisitionDate(acquisitionDatePicker.getValue());
+        newCopy.setNotes(notesArea.getText());
+        
+        // Add to database in the background; the button stays disabled meanwhile
+        addCopyButton.setDisable(true);
+        DaoExecutor.load(() -> bookCopyDAO.addBookCopy(newCopy), success -> {
+            addCopyButton.setDisable(false);
             
             if (success) {
                 // Clear form fields
@@ -269,9 +278,10 @@ public class BookCopyDialogController {
             } else {
                 showErrorAlert("Error", "Failed to add book copy.");
             }
-        } catch (SQLException e) {
-            showErrorAlert("Database Error", "Could not add book copy: " + e.getMessage());
-        }
+        }, error -> {
+            addCopyButton.setDisable(false);
+            showErrorAlert("Database Error", "Could not add book copy: " + error.getMessage());
+        });
     }
     
     /**
@@ -322,19 +332,16 @@ public class BookCopyDialogController {
             });
             
             // Show the dialog and process the result
-            dialog.showAndWait().ifPresent(result -> {
-                try {
-                    boolean success = bookCopyDAO.updateBookCopy(result);
-                    if (success) {
-                        loadBookCopies();
-                        showInfoAlert("Success", "Book copy updated successfully.");
-                    } else {
-                        showErrorAlert("Error", "Failed to update book copy.");
-                    }
-                } catch (SQLException e) {
-                    showErrorAlert("Database Error", "Could not update book copy: " + e.getMessage());
-                }
-            });
+            dialog.showAndWait().ifPresent(result -> DaoExecutor.load(() -> bookCopyDAO.updateBookCopy(result),
+                    success -> {
+                        if (success) {
+                            loadBookCopies();
+                            showInfoAlert("Success", "Book copy updated successfully.");
+                        } else {
+                            showErrorAlert("Error", "Failed to update book copy.");
+                        }
+                    },
+                    error -> showErrorAlert("Database Error", "Could not update book copy: " + error.getMessage())));
         } catch (Exception e) {
             showErrorAlert("Error", "Could not edit book copy: " + e.getMessage());
         }
@@ -352,18 +359,14 @@ public class BookCopyDialogController {
         
         confirm.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                try {
-                    boolean success = bookCopyDAO.deleteBookCopy(copy.getId());
-                    
+                DaoExecutor.load(() -> bookCopyDAO.deleteBookCopy(copy.getId()), success -> {
                     if (success) {
                         loadBookCopies();
                         showInfoAlert("Success", "Book copy deleted successfully.");
                     } else {
                         showErrorAlert("Error", "Failed to delete book copy. It may be currently checked out.");
                     }
-                } catch (SQLException e) {
-                    showErrorAlert("Database Error", "Could not delete book copy: " + e.getMessage());
-                }
+                }, error -> showErrorAlert("Database Error", "Could not delete book copy: " + error.getMessage()));
             }
         });
     }
@@ -1,6 +1,7 @@
 package com.example.lms.controller;
 
 import com.example.lms.model.*;
+import com.example.lms.util.DaoExecutor;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -16,9 +17,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.UUID;
 
 /**
@@ -43,23 +42,27 @@ public class BookDialogController {
     @FXML private Label imagePathLabel;
 
     private Book book;
-    private PublisherDAO publisherDAO;
-    private CategoryDAO categoryDAO;
+    private final PublisherDAO publisherDAO;
+    private final CategoryDAO categoryDAO;
     private ObservableList<Category> allCategories;
     private ObservableList<Category> selectedCategories;
     private String uploadedImagePath = null;
     private boolean isImageChanged = false;
     private BookDAO bookDAO;
 
+    /**
+     * Create the controller with the DAOs that fill the publisher and category choices
+     */
+    public BookDialogController(PublisherDAO publisherDAO, CategoryDAO categoryDAO) {
+        this.publisherDAO = publisherDAO;
+        this.categoryDAO = categoryDAO;
+    }
+    
     /**
      * Initialize the controller
      */
     @FXML
     private void initialize() {
-        // Initialize DAOs
-        publisherDAO = new PublisherDAO();
-        categoryDAO = new CategoryDAO();
-        
         // Set up category list
         selectedCategories = FXCollections.observableArrayList();
         categoriesListView.setItems(selectedCategories);
@@ -122,13 +125,8 @@ public class BookDialogController {
                 descriptionArea.setText(book.getDescription());
             }
             
-            // Set publisher
-            for (Publisher publisher : publisherComboBox.getItems()) {
-                if (publisher.getId() == book.getPublisherId()) {
-                    publisherComboBox.setValue(publisher);
-                    break;
-                }
-            }
+            // Set publisher; selected again once the publishers have loaded
+            selectBookPublisher();
             
             // Load categories
             selectedCategories.setAll(book.getCategories());
@@ -276,50 +274,49 @@ public class BookDialogController {
      * Handle adding a category to the book
      */
     private void handleAddCategory() {
-        try {
-            // Load all categories if not already loaded
-            if (allCategories == null) {
-                List<Category> categories = categoryDAO.getAllCategories();
+        // Load all categories in the background if not already loaded
+        if (allCategories == null) {
+            DaoExecutor.load(categoryDAO::getAllCategories, categories -> {
                 allCategories = FXCollections.observableArrayList(categories);
-            }
-            
-            // Filter out already selected categories
-            ObservableList<Category> availableCategories = FXCollections.observableArrayList();
-            for (Category category : allCategories) {
-                boolean alreadySelected = false;
-                for (Category selected : selectedCategories) {
-                    if (selected.getId() == category.getId()) {
-                        alreadySelected = true;
-                        break;
-                    }
-                }
-                if (!alreadySelected) {
-                    availableCategories.add(category);
+                chooseCategory();
+            }, "Failed to load categories");
+            return;
+        }
+        
+        chooseCategory();
+    }
+    
+    /**
+     * Let the user pick one of the categories the book does not have yet
+     */
+    private void chooseCategory() {
+        // Filter out already selected categories
+        ObservableList<Category> availableCategories = FXCollections.observableArrayList();
+        for (Category category : allCategories) {
+            boolean alreadySelected = false;
+            for (Category selected : selectedCategories) {
+                if (selected.getId() == category.getId()) {
+                    alreadySelected = true;
+                    break;
                 }
             }
-            
-            // Create a dialog to select a category
-            ChoiceDialog<Category> dialog = new ChoiceDialog<>();
-            dialog.getItems().addAll(availableCategories);
-            dialog.setTitle("Add Category");
-            dialog.setHeaderText("Select a category to add");
-            dialog.setContentText("Category:");
-            
-            dialog.showAndWait().ifPresent(category -> {
-                if (!selectedCategories.contains(category)) {
-                    selectedCategories.add(category);
-                }
-            });
-            
-        } catch (SQLException e) {
-            System.err.println("Error loading categories: " + e.getMessage());
-            
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Error");
-            alert.setHeaderText(null);
-            alert.setContentText("Failed to load categories: " + e.getMessage());
-            alert.showAndWait();
+            if (!alreadySelected) {
+                availableCategories.add(category);
+            }
         }
+        
+        // Create a dialog to select a category
+        ChoiceDialog<Category> dialog = new ChoiceDialog<>();
+        dialog.getItems().addAll(availableCategories);
+        dialog.setTitle("Add Category");
+        dialog.setHeaderText("Select a category to add");
+        dialog.setContentText("Category:");
+        
+        dialog.showAndWait().ifPresent(category -> {
+            if (!selectedCategories.contains(category)) {
+                selectedCategories.add(category);
+            }
+        });
     }
     
     /**
@@ -342,44 +339,51 @@ public class BookDialogController {
      * Load publishers for the combobox
      */
     private void loadPublishers() {
-        try {
-            List<Publisher> publishers = publisherDAO.getAllPublishers();
-            publisherComboBox.setItems(FXCollections.observableArrayList(publishers));
-            
-            // Set cell factory to display publisher name
-            publisherComboBox.setCellFactory(param -> new ListCell<>() {
-                @Override
-                protected void updateItem(Publisher publisher, boolean empty) {
-                    super.updateItem(publisher, empty);
-                    if (empty || publisher == null) {
-                        setText(null);
-                    } else {
-                        setText(publisher.getName());
-                    }
+        // Set cell factory to display publisher name
+        publisherComboBox.setCellFactory(param -> new ListCell<>() {
+            @Override
+            protected void updateItem(Publisher publisher, boolean empty) {
+                super.updateItem(publisher, empty);
+                if (empty || publisher == null) {
+                    setText(null);
+                } else {
+                    setText(publisher.getName());
                 }
-            });
-            
-            // Same for the button cell
-            publisherComboBox.setButtonCell(new ListCell<>() {
-                @Override
-                protected void updateItem(Publisher publisher, boolean empty) {
-                    super.updateItem(publisher, empty);
-                    if (empty || publisher == null) {
-                        setText(null);
-                    } else {
-                        setText(publisher.getName());
-                    }
+            }
+        });
+        
+        // Same for the button cell
+        publisherComboBox.setButtonCell(new ListCell<>() {
+            @Override
+            protected void updateItem(Publisher publisher, boolean empty) {
+                super.updateItem(publisher, empty);
+                if (empty || publisher == null) {
+                    setText(null);
+                } else {
+                    setText(publisher.getName());
                 }
-            });
-            
-        } catch (SQLException e) {
-            System.err.println("Error loading publishers: " + e.getMessage());
-            
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Error");
-            alert.setHeaderText(null);
-            alert.setContentText("Failed to load publishers: " + e.getMessage());
-            alert.showAndWait();
+            }
+        });
+        
+        DaoExecutor.load(publisherDAO::getAllPublishers, publishers -> {
+            publisherComboBox.setItems(FXCollections.observableArrayList(publishers));
+            selectBookPublisher();
+        }, "Failed to load publishers");
+    }
+    
+    /**
+     * Select the edited book's publisher, if it is among the loaded publishers
+     */
+    private void selectBookPublisher() {
+        if (book == null) {
+            return;
+        }
+        
+        for (Publisher publisher : publisherComboBox.getItems()) {
+            if (publisher.getId() == book.getPublisherId()) {
+                publisherComboBox.setValue(publisher);
+                break;
+            }
         }
     }
     
@@ -18,6 +18,15 @@ public interface ChildController extends AutoCloseable {
     void initData(User user);
     
     /**
+     * Called before initData when a cached view is shown again.
+     * Clears what the previous visit left behind and reloads the view's data.
+     */
+    default void reset() {
+        // Views that load everything in initData have nothing to reset
+    }
+    
+    /**
+     * Called when the view is hidden; the view may be shown again after reset().
      * Default implementation of close method to make it optional for subclasses.
      * Controllers that use database resources should override this method.
      */
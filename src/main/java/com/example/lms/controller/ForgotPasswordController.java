@@ -3,7 +3,10 @@ package com.example.lms.controller;
 import com.example.lms.Main;
 import com.example.lms.model.User;
 import com.example.lms.model.UserDAO;
+import com.example.lms.util.DaoExecutor;
 import com.example.lms.util.EmailUtil;
+import com.example.lms.util.Log;
+import com.example.lms.util.ViewLoader;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -26,7 +29,7 @@ public class ForgotPasswordController {
     private TextField emailField;
     
     @FXML
-    private Button sendTokenBtn;
+    private Button sendResetCodeBtn;
     
     @FXML
     private Button backToLoginBtn;
@@ -58,22 +61,25 @@ public class ForgotPasswordController {
     @FXML
     private Button resetPasswordBtn;
     
-    private UserDAO userDAO;
-    private EmailUtil emailUtil;
+    private final UserDAO userDAO;
     
     // Email validation pattern
     private static final Pattern EMAIL_PATTERN = 
         Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
     
+    /**
+     * Create the controller with the DAO that looks up and updates accounts
+     */
+    public ForgotPasswordController(UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
+    
     /**
      * Initialize the controller.
      * This method is automatically called after the FXML has been loaded.
      */
     @FXML
     private void initialize() {
-        userDAO = new UserDAO();
-        emailUtil = new EmailUtil();
-        
         // Initially show only the email form
         emailFormContainer.setVisible(true);
         resetFormContainer.setVisible(false);
@@ -110,44 +116,76 @@ public class ForgotPasswordController {
             return;
         }
         
-        // Check if email exists in database
-        try {
-            if (!userDAO.emailExists(email)) {
-                showError("No account found with this email address.");
-                return;
-            }
-            
-            // Generate and save reset token
-            String resetToken = userDAO.generatePasswordResetToken(email);
+        // Look up the account, save a token and queue the email in the background
+        sendResetCodeBtn.setDisable(true);
+        DaoExecutor.load(() -> requestReset(email), outcome -> {
+            sendResetCodeBtn.setDisable(false);
             
-            if (resetToken != null) {
-                // Get user name for the email
-                User user = userDAO.getUserByEmail(email);
-                if (user == null) {
-                    showError("Error retrieving user information.");
-                    return;
-                }
-                
-                // Send email with reset token and user name
-                boolean emailSent = emailUtil.sendPasswordResetEmail(email, resetToken, user.getName());
-                
-                if (emailSent) {
+            switch (outcome) {
+                case SENT:
                     // Switch to reset password form first
                     emailFormContainer.setVisible(false);
                     resetFormContainer.setVisible(true);
                     
                     // Show success message on the reset form
                     showResetSuccess("Reset code has been sent to your email address. Please check your inbox and enter the code above.");
-                } else {
+                    break;
+                case NO_ACCOUNT:
+                    showError("No account found with this email address.");
+                    break;
+                case NO_TOKEN:
+                    showError("Failed to generate reset token. Please try again later.");
+                    break;
+                case NO_USER:
+                    showError("Error retrieving user information.");
+                    break;
+                case NOT_SENT:
+                default:
                     showError("Failed to send reset email. Please try again later.");
-                }
-            } else {
-                showError("Failed to generate reset token. Please try again later.");
+                    break;
             }
-        } catch (Exception e) {
-            showError("Error: " + e.getMessage());
-            e.printStackTrace();
+        }, error -> {
+            sendResetCodeBtn.setDisable(false);
+            Log.error("Password reset request failed", error);
+            showError("Error: " + error.getMessage());
+        });
+    }
+    
+    /**
+     * Outcome of a password reset request
+     */
+    private enum ResetRequest {
+        SENT, NO_ACCOUNT, NO_TOKEN, NO_USER, NOT_SENT
+    }
+    
+    /**
+     * Save a reset token for the account and queue the email carrying it.
+     * Runs on the DAO worker.
+     * 
+     * @param email Account email
+     * @return What happened
+     */
+    private ResetRequest requestReset(String email) {
+        // Check if email exists in database
+        if (!userDAO.emailExists(email)) {
+            return ResetRequest.NO_ACCOUNT;
+        }
+        
+        // Generate and save reset token
+        String resetToken = userDAO.generatePasswordResetToken(email);
+        if (resetToken == null) {
+            return ResetRequest.NO_TOKEN;
         }
+        
+        // Get user name for the email
+        User user = userDAO.getUserByEmail(email);
+        if (user == null) {
+            return ResetRequest.NO_USER;
+        }
+        
+        // Send email with reset token and user name
+        boolean emailSent = EmailUtil.sendPasswordResetEmail(email, resetToken, user.getName());
+        return emailSent ? ResetRequest.SENT : ResetRequest.NOT_SENT;
     }
     
     /**
@@ -155,16 +193,11 @@ public class ForgotPasswordController {
      */
     @FXML
     private void onResetPasswordClick() {
-        System.out.println("Reset password button clicked");
         String email = emailField.getText().trim();
         String token = resetTokenField.getText().trim();
         String newPassword = newPasswordField.getText();
         String confirmPassword = confirmNewPasswordField.getText();
         
-        System.out.println("Email: " + email);
-        System.out.println("Token: " + token);
-        System.out.println("New password length: " + newPassword.length());
-        
         // Clear previous error messages
         resetStatusLabel.setVisible(false);
         
@@ -184,11 +217,10 @@ public class ForgotPasswordController {
             return;
         }
         
-        // Attempt to reset password
-        try {
-            System.out.println("Attempting to reset password with userDAO");
-            boolean success = userDAO.resetPassword(email, token, newPassword);
-            System.out.println("Reset password result: " + success);
+        // Attempt to reset password in the background
+        resetPasswordBtn.setDisable(true);
+        DaoExecutor.load(() -> userDAO.resetPassword(email, token, newPassword), success -> {
+            resetPasswordBtn.setDisable(false);
             
             if (success) {
                 // Password reset successful
@@ -205,11 +237,11 @@ public class ForgotPasswordController {
             } else {
                 showResetError("Invalid or expired reset code. Please try again.");
             }
-        } catch (Exception e) {
-            System.out.println("Exception during password reset: " + e.getMessage());
-            e.printStackTrace();
-            showResetError("Error during password reset: " + e.getMessage());
-        }
+        }, error -> {
+            resetPasswordBtn.setDisable(false);
+            Log.error("Password reset failed", error);
+            showResetError("Error during password reset: " + error.getMessage());
+        });
     }
     
     /**
@@ -219,7 +251,7 @@ public class ForgotPasswordController {
     private void onBackToLoginClick() {
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/login.fxml"));
-            Scene scene = new Scene(loader.load(), 800, 600);
+            Scene scene = new Scene(ViewLoader.load(loader), 800, 600);
             
             // Get current stage and set the new scene
             Stage stage = (Stage) backToLoginBtn.getScene().getWindow();
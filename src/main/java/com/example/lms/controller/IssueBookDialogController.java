@@ -2,6 +2,8 @@ package com.example.lms.controller;
 
 import com.example.lms.model.*;
 import com.example.lms.util.AppSettings;
+import com.example.lms.util.DaoExecutor;
+import com.example.lms.util.Log;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -13,11 +15,16 @@ import javafx.scene.control.cell.PropertyValueFactory;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controller for the issue book dialog.
- * Allows librarian to search and select a member and book to issue.
+ * Allows librarian to search and select a member and collect one or more books
+ * in a cart, which is then issued in a single checkout. Searches run on the DAO
+ * worker; the checkout transaction runs on a pooled connection of its own.
  */
 public class IssueBookDialogController {
 
@@ -68,30 +75,41 @@ public class IssueBookDialogController {
     
     @FXML
     private Button issueBtn;
+    
+    @FXML
+    private Label cartLabel;
 
-    private UserDAO userDAO;
-    private BookDAO bookDAO;
-    private BookCopyDAO bookCopyDAO;
-    private BorrowingDAO borrowingDAO;
+    private final UserDAO userDAO;
+    private final BookDAO bookDAO;
+    private final BookCopyDAO bookCopyDAO;
+    private final AsyncDao asyncDao;
     
     private User selectedMember;
-    private Book selectedBook;
-    private BookCopy selectedBookCopy;
+    private final List<Book> cartBooks = new ArrayList<>();
     private User currentUser; // The librarian issuing the book
     
     private ObservableList<User> membersData = FXCollections.observableArrayList();
     private ObservableList<Book> booksData = FXCollections.observableArrayList();
+    
+    // Available copies per book, loaded with the book list
+    private Map<Integer, Integer> availableCopies = new HashMap<>();
 
+    /**
+     * Create the controller with the DAOs it searches and issues through
+     */
+    public IssueBookDialogController(UserDAO userDAO, BookDAO bookDAO, BookCopyDAO bookCopyDAO,
+                                     AsyncDao asyncDao) {
+        this.userDAO = userDAO;
+        this.bookDAO = bookDAO;
+        this.bookCopyDAO = bookCopyDAO;
+        this.asyncDao = asyncDao;
+    }
+    
     /**
      * Initialize the controller.
      */
     @FXML
     private void initialize() {
-        userDAO = new UserDAO();
-        bookDAO = new BookDAO();
-        bookCopyDAO = new BookCopyDAO();
-        borrowingDAO = new BorrowingDAO();
-        
         // Set up member table columns
         memberIdColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
         memberNameColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
@@ -122,14 +140,8 @@ public class IssueBookDialogController {
         bookTitleColumn.setCellValueFactory(new PropertyValueFactory<>("title"));
         bookAuthorColumn.setCellValueFactory(new PropertyValueFactory<>("authorName"));
         bookIsbnColumn.setCellValueFactory(new PropertyValueFactory<>("isbn"));
-        bookAvailableColumn.setCellValueFactory(cellData -> {
-            try {
-                int availableCopies = bookCopyDAO.getAvailableCopiesCount(cellData.getValue().getId());
-                return new SimpleObjectProperty<>(availableCopies);
-            } catch (Exception e) {
-                return new SimpleObjectProperty<>(0);
-            }
-        });
+        bookAvailableColumn.setCellValueFactory(cellData ->
+                new SimpleObjectProperty<>(getAvailableCopies(cellData.getValue())));
         bookSelectColumn.setCellFactory(param -> new TableCell<>() {
             private final Button selectButton = new Button("Select");
             
@@ -143,12 +155,7 @@ public class IssueBookDialogController {
                 }
                 
                 Book currentBook = getTableView().getItems().get(getIndex());
-                try {
-                    int availableCopies = bookCopyDAO.getAvailableCopiesCount(currentBook.getId());
-                    selectButton.setDisable(availableCopies <= 0);
-                } catch (Exception e) {
-                    selectButton.setDisable(true);
-                }
+                selectButton.setDisable(getAvailableCopies(currentBook) <= 0);
                 
                 setGraphic(selectButton);
                 selectButton.setOnAction(event -> {
@@ -198,35 +205,32 @@ public class IssueBookDialogController {
     }
     
     /**
-     * Load members matching the search criteria.
+     * Load members matching the search criteria in the background.
      * 
      * @param searchText The search text to filter by
      */
     private void loadMembers(String searchText) {
-        membersData.clear();
-        try {
-            List<User> members;
+        DaoExecutor.loadInto(membersTableView, () -> {
             if (searchText.isEmpty()) {
                 // Only fetch users with role "user"
-                members = userDAO.getUsersByRole("user");
-            } else {
-                // Search users with role "user"
-                members = userDAO.searchUsers(searchText, "user");
+                return userDAO.getUsersByRole("user");
             }
-            membersData.addAll(members);
-        } catch (SQLException e) {
-            showErrorAlert("Database Error", "Error loading members: " + e.getMessage());
-        }
+            // Search users with role "user"
+            return userDAO.searchUsers(searchText, "user");
+        }, members -> {
+            membersData.setAll(members);
+            membersTableView.setItems(membersData);
+        }, "Error Loading Members");
     }
     
     /**
-     * Load books matching the search criteria.
+     * Load books matching the search criteria in the background, with the
+     * available copy counts of all books read in one query.
      * 
      * @param searchText The search text to filter by
      */
     private void loadBooks(String searchText) {
-        booksData.clear();
-        try {
+        DaoExecutor.loadInto(booksTableView, () -> {
             List<Book> books;
             if (searchText.isEmpty()) {
                 books = bookDAO.getAllBooks();
@@ -234,19 +238,41 @@ public class IssueBookDialogController {
                 books = bookDAO.searchBooks(searchText, ""); // Empty string as the second parameter for category
             }
             
-            // Only add books with available copies
-            for (Book book : books) {
-                try {
-                    int availableCopies = bookCopyDAO.getAvailableCopiesCount(book.getId());
-                    if (availableCopies > 0) {
-                        booksData.add(book);
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error checking available copies: " + e.getMessage());
+            return new BookPage(books, bookCopyDAO.getAvailableCopiesCounts());
+            
+        }, page -> {
+            availableCopies = page.availableCopies;
+            
+            // Only show books with available copies
+            List<Book> available = new ArrayList<>();
+            for (Book book : page.books) {
+                if (getAvailableCopies(book) > 0) {
+                    available.add(book);
                 }
             }
-        } catch (SQLException e) {
-            showErrorAlert("Database Error", "Error loading books: " + e.getMessage());
+            booksData.setAll(available);
+            booksTableView.setItems(booksData);
+            
+        }, "Error Loading Books");
+    }
+    
+    /**
+     * Get the available copies of a book as of the last load
+     */
+    private int getAvailableCopies(Book book) {
+        return availableCopies.getOrDefault(book.getId(), 0);
+    }
+    
+    /**
+     * Books and their available copy counts, loaded together
+     */
+    private static final class BookPage {
+        private final List<Book> books;
+        private final Map<Integer, Integer> availableCopies;
+        
+        BookPage(List<Book> books, Map<Integer, Integer> availableCopies) {
+            this.books = books;
+            this.availableCopies = availableCopies;
         }
     }
     
@@ -269,133 +295,174 @@ public class IssueBookDialogController {
     }
     
     /**
-     * Select a book and highlight the row.
+     * Add a book to the checkout cart and highlight the row.
+     * No specific copy is picked here; copies are allocated at checkout.
      * 
-     * @param book The book to select
+     * @param book The book to add
      */
     private void selectBook(Book book) {
-        this.selectedBook = book;
+        // Make sure there is a copy on the shelf for this one too; checkout has the final say
+        long alreadyInCart = cartBooks.stream().filter(b -> b.getId() == book.getId()).count();
         
-        // Get the first available copy of this book
-        try {
-            List<BookCopy> availableCopies = bookCopyDAO.getAvailableCopiesByBookId(book.getId());
-            if (!availableCopies.isEmpty()) {
-                this.selectedBookCopy = availableCopies.get(0);
-                
-                // Highlight the selected row
-                booksTableView.getSelectionModel().select(book);
-                
-                // Show selection in an alert
-                showInfoAlert("Book Selected", "Selected book: " + book.getTitle() + 
-                        "\nAvailable Copy ID: " + selectedBookCopy.getId() + 
-                        "\nShelf Location: " + selectedBookCopy.getShelfLocation());
-                
-                // Enable/disable issue button
-                updateIssueButtonStatus();
-            } else {
-                showErrorAlert("No Copies Available", "There are no available copies of this book.");
-                this.selectedBook = null;
-                this.selectedBookCopy = null;
-            }
-        } catch (SQLException e) {
-            showErrorAlert("Database Error", "Error getting available copies: " + e.getMessage());
-            this.selectedBook = null;
-            this.selectedBookCopy = null;
+        if (getAvailableCopies(book) > alreadyInCart) {
+            cartBooks.add(book);
+            
+            // Highlight the selected row
+            booksTableView.getSelectionModel().select(book);
+            
+            // Enable/disable issue button
+            updateIssueButtonStatus();
+        } else {
+            showErrorAlert("No Copies Available", "There are no more available copies of this book.");
         }
     }
     
     /**
-     * Update the issue button status based on selection.
+     * Remove all books from the checkout cart.
+     */
+    @FXML
+    private void clearCart() {
+        cartBooks.clear();
+        updateIssueButtonStatus();
+    }
+    
+    /**
+     * Update the issue button and cart summary based on selection.
      */
     private void updateIssueButtonStatus() {
-        issueBtn.setDisable(selectedMember == null || selectedBookCopy == null);
+        issueBtn.setDisable(selectedMember == null || cartBooks.isEmpty());
+        
+        if (cartBooks.isEmpty()) {
+            cartLabel.setText("Cart is empty");
+        } else {
+            StringBuilder titles = new StringBuilder();
+            for (Book book : cartBooks) {
+                if (titles.length() > 0) {
+                    titles.append(", ");
+                }
+                titles.append(book.getTitle());
+            }
+            cartLabel.setText("Cart (" + cartBooks.size() + "): " + titles);
+        }
     }
     
     /**
-     * Issue the selected book to the selected member.
+     * Issue every book in the cart to the selected member in one checkout.
      */
     @FXML
     private void issueBook() {
-        // Check if both member and book copy are selected
+        // Check if both member and books are selected
         if (selectedMember == null) {
             showErrorAlert("Error", "Please select a valid member first");
             return;
         }
         
-        if (selectedBookCopy == null) {
-            showErrorAlert("Error", "Please select a valid book first");
+        if (cartBooks.isEmpty()) {
+            showErrorAlert("Error", "Please add at least one book to the cart");
             return;
         }
         
-        try {
+        User member = selectedMember;
+        List<Book> items = new ArrayList<>(cartBooks);
+        User issuedBy = currentUser;
+        issueBtn.setDisable(true);
+        
+        // The cart's DAOs pick up the pooled connection, so the checkout transaction
+        // never shares the connection the DAO worker is using
+        DaoExecutor.deliver(asyncDao.withConnection(connection -> {
             // Get the default borrowing period from settings
-            int borrowingPeriod = AppSettings.getDefaultBorrowingPeriod();
-            
-            // Create a new borrowing record
-            Borrowing borrowing = new Borrowing();
-            borrowing.setBookCopyId(selectedBookCopy.getId());
-            borrowing.setUserId(selectedMember.getId());
-            borrowing.setUser(selectedMember); // Set the full User object, not just ID
-            borrowing.setBookCopy(selectedBookCopy); // Set the full BookCopy object, not just ID
-            borrowing.setBorrowDate(LocalDate.now());
-            borrowing.setDueDate(LocalDate.now().plusDays(borrowingPeriod));
-            borrowing.setIssuedBy(currentUser); // Current librarian as issuer
+            LocalDate dueDate = LocalDate.now().plusDays(AppSettings.getDefaultBorrowingPeriod());
             
-            // Update the book copy status to BORROWED
-            selectedBookCopy.setStatus(BookCopy.Status.BORROWED);
-            boolean copyStatusUpdated = bookCopyDAO.updateCopyStatus(selectedBookCopy.getId(), BookCopy.Status.BORROWED);
+            CheckoutCart cart = new CheckoutCart(member, issuedBy);
+            try {
+                for (Book book : items) {
+                    cart.addBook(book.getId());
+                }
+                return new CheckoutOutcome(dueDate, cart.checkout(dueDate));
+            } finally {
+                try {
+                    cart.close();
+                } catch (SQLException e) {
+                    Log.warn("Error closing checkout cart", e);
+                }
+            }
+        }), outcome -> showCheckoutResults(member, items, outcome), error -> {
+            updateIssueButtonStatus();
+            showErrorAlert("Database Error", "Error issuing books: " + error.getMessage());
+        });
+    }
+    
+    /**
+     * Summarize the outcome of each cart item and reset the dialog if anything was issued
+     */
+    private void showCheckoutResults(User member, List<Book> items, CheckoutOutcome outcome) {
+        List<CheckoutCart.ItemResult> results = outcome.results;
+        
+        StringBuilder summary = new StringBuilder();
+        int issued = 0;
+        for (int i = 0; i < results.size(); i++) {
+            CheckoutCart.ItemResult result = results.get(i);
+            summary.append(items.get(i).getTitle()).append(": ");
             
-            if (!copyStatusUpdated) {
-                showErrorAlert("Error", "Failed to update book copy status.");
-                return;
+            switch (result.getStatus()) {
+                case ISSUED:
+                    issued++;
+                    summary.append("issued (copy ").append(result.getBorrowing().getBookCopy().getId()).append(")");
+                    break;
+                case NO_COPY_AVAILABLE:
+                    summary.append("no copy available");
+                    break;
+                case OVER_LIMIT:
+                    summary.append("over the member's borrowing limit");
+                    break;
+                case UNPAID_FINES:
+                    summary.append("member has unpaid fines");
+                    break;
             }
+            summary.append("\n");
+        }
+        
+        if (issued > 0) {
+            showInfoAlert("Checkout Complete", issued + " of " + results.size() + " book(s) issued to " +
+                    member.getName() + ", due " + outcome.dueDate + ".\n\n" + summary);
             
-            // Save the borrowing record
-            boolean success = borrowingDAO.createBorrowing(borrowing);
+            // Clear the selection and refresh data
+            selectedMember = null;
+            cartBooks.clear();
+            memberSearchField.clear();
+            bookSearchField.clear();
             
-            if (success) {
-                showInfoAlert("Success", "Book issued successfully!\n" +
-                        "Title: " + selectedBook.getTitle() + "\n" +
-                        "Member: " + selectedMember.getName() + "\n" +
-                        "Due Date: " + borrowing.getDueDate());
-                
-                // Clear the selection and refresh data
-                selectedMember = null;
-                selectedBook = null;
-                selectedBookCopy = null;
-                memberSearchField.clear();
-                bookSearchField.clear();
-                
-                // Refresh tables
-                loadMembers("");
-                loadBooks("");
-                
-                // Update button status
-                updateIssueButtonStatus();
-            } else {
-                showErrorAlert("Error", "Failed to issue the book. Please try again.");
-            }
-        } catch (SQLException e) {
-            showErrorAlert("Database Error", "Error issuing book: " + e.getMessage());
-        } catch (NumberFormatException e) {
-            showErrorAlert("Error", "Invalid default borrowing period in settings.");
+            // Refresh tables
+            loadMembers("");
+            loadBooks("");
+        } else {
+            showErrorAlert("Checkout Failed", "No books were issued.\n\n" + summary);
         }
+        
+        // Update button status
+        updateIssueButtonStatus();
     }
     
     /**
-     * Close all database connections.
+     * Due date and per-item results of one checkout
      */
-    public void close() {
-        try {
-            if (userDAO != null) userDAO.close();
-            if (bookDAO != null) bookDAO.close();
-            if (bookCopyDAO != null) bookCopyDAO.close();
-            if (borrowingDAO != null) borrowingDAO.close();
-        } catch (SQLException e) {
-            System.err.println("Error closing DAO resources: " + e.getMessage());
+    private static final class CheckoutOutcome {
+        private final LocalDate dueDate;
+        private final List<CheckoutCart.ItemResult> results;
+        
+        CheckoutOutcome(LocalDate dueDate, List<CheckoutCart.ItemResult> results) {
+            this.dueDate = dueDate;
+            this.results = results;
         }
     }
     
+    /**
+     * Release resources held by the dialog.
+     * The DAOs are shared (see Daos) and stay open.
+     */
+    public void close() {
+    }
+    
     /**
      * Show an error alert.
      */
@@ -9,8 +9,10 @@ import com.example.lms.model.Borrowing;
 import com.example.lms.model.BorrowingDAO;
 import com.example.lms.model.User;
 import com.example.lms.model.UserDAO;
-import com.example.lms.util.Database;
 import com.example.lms.util.AppSettings;
+import com.example.lms.util.DaoExecutor;
+import com.example.lms.util.ViewCache;
+import com.example.lms.util.ViewLoader;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -18,7 +20,6 @@ import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
-import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -36,7 +37,6 @@ import javafx.stage.Stage;
 import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -100,15 +100,26 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
     private BorderPane mainContainer;
     
     private User currentUser;
-    private BookDAO bookDAO;
-    private BookCopyDAO bookCopyDAO;
-    private UserDAO userDAO;
-    private BorrowingDAO borrowingDAO;
+    private final BookDAO bookDAO;
+    private final BookCopyDAO bookCopyDAO;
+    private final UserDAO userDAO;
+    private final BorrowingDAO borrowingDAO;
     
     // Current child controller for view switching
     private ChildController currentChildController;
     private ObservableList<Book> bookList;
     
+    /**
+     * Create the controller with the DAOs it hands to the book dialogs and uses for circulation
+     */
+    public LibrarianDashboardController(BookDAO bookDAO, BookCopyDAO bookCopyDAO, UserDAO userDAO,
+                                        BorrowingDAO borrowingDAO) {
+        this.bookDAO = bookDAO;
+        this.bookCopyDAO = bookCopyDAO;
+        this.userDAO = userDAO;
+        this.borrowingDAO = borrowingDAO;
+    }
+    
     /**
      * Initializes the controller.
      * This method is automatically called after the FXML has been loaded.
@@ -116,12 +127,6 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
     @FXML
     private void initialize() {
         try {
-            // Initialize only necessary DAOs for the librarian dashboard
-            // We don't need to initialize the book-related DAOs here as they will be
-            // managed by the AdminBooksController when loaded
-            userDAO = new UserDAO();
-            borrowingDAO = new BorrowingDAO();
-            
             // Load the Manage Books view initially (which will load admin-books.fxml)
             showManageBooksView();
             
@@ -143,6 +148,9 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
     public void initData(User user) {
         this.currentUser = user;
         userNameLabel.setText("Welcome, " + user.getName());
+        
+        // Have the other section ready by the time it is opened
+        ViewCache.preload("librarian-issue-books.fxml");
     }
     
     /**
@@ -151,9 +159,10 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
      */
     @FXML
     private void onLogoutClick() {
+        ViewCache.clear();
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/login.fxml"));
-            Scene scene = new Scene(loader.load(), 800, 600);
+            Scene scene = new Scene(ViewLoader.load(loader), 800, 600);
             
             // Get current stage and set the new scene
             Stage stage = (Stage) logoutBtn.getScene().getWindow();
@@ -175,15 +184,10 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
      * Loads books from the database and displays them in the table.
      */
     private void loadBooks() {
-        try {
-            List<Book> books = bookDAO.getAllBooks();
+        DaoExecutor.loadInto(bookTableView, bookDAO::getAllBooks, books -> {
             bookList = FXCollections.observableArrayList(books);
             bookTableView.setItems(bookList);
-        } catch (SQLException e) {
-            System.err.println("Error loading books: " + e.getMessage());
-            e.printStackTrace();
-            // showErrorAlert("Error Loading Books", "Could not load books from database: " + e.getMessage());
-        }
+        }, "Error Loading Books");
     }
     
     /**
@@ -243,7 +247,7 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/book-dialog.fxml"));
             Dialog<ButtonType> dialog = new Dialog<>();
-            dialog.setDialogPane((DialogPane) loader.load());
+            dialog.setDialogPane((DialogPane) ViewLoader.load(loader));
             dialog.setTitle("Add New Book");
             
             BookDialogController controller = loader.getController();
@@ -277,13 +281,14 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
     private void viewBookDetails(Book book) {
         try {
             // Load the book details dialog
-            FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/book-details-dialog.fxml"));
+            // The details pane only shows the book it is given, so it is reused
+            ViewCache.View<BookDetailsController> details = ViewCache.get("book-details-dialog.fxml");
             Dialog<ButtonType> dialog = new Dialog<>();
-            dialog.setDialogPane((DialogPane) loader.load());
+            dialog.setDialogPane((DialogPane) details.getRoot());
             dialog.setTitle("Book Details");
             
             // Get the controller and set the book
-            BookDetailsController controller = loader.getController();
+            BookDetailsController controller = details.getController();
             controller.setBook(book);
             
             // Show the dialog
@@ -301,7 +306,7 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/book-dialog.fxml"));
             Dialog<ButtonType> dialog = new Dialog<>();
-            dialog.setDialogPane((DialogPane) loader.load());
+            dialog.setDialogPane((DialogPane) ViewLoader.load(loader));
             dialog.setTitle("Edit Book");
             
             BookDialogController controller = loader.getController();
@@ -338,13 +343,10 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
         confirmation.setTitle("Confirm Delete");
         confirmation.showAndWait().ifPresent(response -> {
             if (response == ButtonType.YES) {
-                try {
-                    bookDAO.deleteBook(book.getId());
+                DaoExecutor.run(() -> bookDAO.deleteBook(book.getId()), () -> {
                     loadBooks(); // Refresh books list
                     showInfoAlert("Success", "Book deleted successfully!");
-                } catch (SQLException e) {
-                    showErrorAlert("Error Deleting Book", e.getMessage());
-                }
+                }, "Error Deleting Book");
             }
         });
     }
@@ -352,15 +354,17 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
     /**
      * Search for books by title, author, or ISBN
      */
-    private void searchBooks(String searchTerm) throws SQLException {
+    private void searchBooks(String searchTerm) {
         if (searchTerm == null || searchTerm.isBlank()) {
             loadBooks(); // If search is empty, load all books
             return;
         }
         
-        List<Book> matchingBooks = bookDAO.searchBooks(searchTerm, ""); // Using empty string as second parameter
-        bookList.clear();
-        bookList.addAll(matchingBooks);
+        // Using empty string as second parameter
+        DaoExecutor.load(() -> bookDAO.searchBooks(searchTerm, ""), matchingBooks -> {
+            bookList.clear();
+            bookList.addAll(matchingBooks);
+        }, "Error Searching Books");
     }
     
     /**
@@ -416,7 +420,7 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
     private void openIssueBookDialog() throws IOException {
         // Load the dialog
         FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/issue-book-dialog.fxml"));
-        DialogPane dialogPane = loader.load();
+        DialogPane dialogPane = ViewLoader.load(loader);
         
         // Create the dialog
         Dialog<ButtonType> dialog = new Dialog<>();
@@ -443,19 +447,21 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
             // First close the current view/controller if applicable
             closeCurrentChildController();
             
-            // Load the Issue Books view
-            FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/librarian-issue-books.fxml"));
-            Node issueBooks = loader.load();
+            // Load the Issue Books view, or reuse it if it was shown or preloaded before
+            ViewCache.View<LibrarianIssueBooksController> issueBooks = ViewCache.get("librarian-issue-books.fxml");
             
             // Set the current child controller
-            currentChildController = loader.getController();
+            LibrarianIssueBooksController controller = issueBooks.getController();
+            currentChildController = controller;
             
             // Set the current user in the controller
-            LibrarianIssueBooksController controller = loader.getController();
+            if (issueBooks.isReused()) {
+                controller.reset();
+            }
             controller.initData(currentUser);
             
             // Set the issue books view in the center of the main container
-            mainContainer.setCenter(issueBooks);
+            mainContainer.setCenter(issueBooks.getRoot());
             
             // Update active sidebar button
             setActiveButton(issueBooksSidebarBtn);
@@ -509,30 +515,32 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
      */
     @FXML
     private void showManageBooksView() {
+        // First close the current child controller if applicable
+        closeCurrentChildController();
+        
+        loadManageBooksView();
+    }
+    
+    /**
+     * Loads admin-books.fxml into the main content area
+     */
+    private void loadManageBooksView() {
         try {
-            // First close the current child controller if applicable
-            closeCurrentChildController();
-            
-            // Reset the database connection pool for a fresh start
-            try {
-                Database.resetConnection();
-            } catch (Exception e) {
-                System.err.println("Error resetting database connection: " + e.getMessage());
-            }
-            
-            // Load the admin books component
-            FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/admin-books.fxml"));
-            Node adminBooksView = loader.load();
+            // Load the admin books component, or reuse it if it was shown before
+            ViewCache.View<AdminBooksController> adminBooksView = ViewCache.get("admin-books.fxml");
             
             // Get the AdminBooksController and initialize it
-            AdminBooksController adminBooksController = loader.getController();
+            AdminBooksController adminBooksController = adminBooksView.getController();
+            if (adminBooksView.isReused()) {
+                adminBooksController.reset();
+            }
             adminBooksController.initData(currentUser);
             
             // Set the controller as the current child controller for proper lifecycle management
             currentChildController = adminBooksController;
             
             // Set the admin books view in the center of the main container
-            mainContainer.setCenter(adminBooksView);
+            mainContainer.setCenter(adminBooksView.getRoot());
             
             // Update active sidebar button
             setActiveButton(manageBooksBtn);
@@ -553,12 +561,11 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
             // Load the dialog
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/book-copy-dialog.fxml"));
             Dialog<ButtonType> dialog = new Dialog<>();
-            dialog.setDialogPane((DialogPane) loader.load());
+            dialog.setDialogPane((DialogPane) ViewLoader.load(loader));
             dialog.setTitle("Manage Book Copies");
             
-            // Get the controller and set the book and DAO
+            // Get the controller and set the book
             BookCopyDialogController controller = loader.getController();
-            controller.setBookCopyDAO(bookCopyDAO);
             controller.setBook(book);
             
             // Show the dialog
@@ -574,36 +581,6 @@ public class LibrarianDashboardController implements DashboardController, AutoCl
     
     @Override
     public void close() throws Exception {
-        if (bookDAO != null) {
-            try {
-                bookDAO.close();
-            } catch (SQLException e) {
-                System.err.println("Error closing BookDAO: " + e.getMessage());
-            }
-        }
-        
-        if (bookCopyDAO != null) {
-            try {
-                bookCopyDAO.close();
-            } catch (SQLException e) {
-                System.err.println("Error closing BookCopyDAO: " + e.getMessage());
-            }
-        }
-        
-        if (userDAO != null) {
-            try {
-                userDAO.close();
-            } catch (SQLException e) {
-                System.err.println("Error closing UserDAO: " + e.getMessage());
-            }
-        }
-        
-        if (borrowingDAO != null) {
-            try {
-                borrowingDAO.close();
-            } catch (SQLException e) {
-                System.err.println("Error closing BorrowingDAO: " + e.getMessage());
-            }
-        }
+        // The DAOs are shared (see Daos) and stay open
     }
 }
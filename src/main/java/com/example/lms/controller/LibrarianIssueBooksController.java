@@ -2,6 +2,14 @@ package com.example.lms.controller;
 
 import com.example.lms.Main;
 import com.example.lms.model.*;
+import com.example.lms.util.DaoExecutor;
+import com.example.lms.util.Log;
+import com.example.lms.util.MigrationRunner;
+import com.example.lms.util.ViewLoader;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.value.ObservableValue;
@@ -10,14 +18,17 @@ import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
+import javafx.util.Duration;
 import java.io.IOException;
-import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * Controller for the librarian issue books view.
+ * Besides single returns, offers a bulk return mode that takes scanned copy IDs
+ * or labels one after another and commits them in small batches. The session's
+ * database work runs on the DAO worker, in scan order, on pooled connections.
  */
 public class LibrarianIssueBooksController implements ChildController {
     
@@ -42,30 +53,48 @@ public class LibrarianIssueBooksController implements ChildController {
     @FXML
     private TableColumn<Borrowing, String> issuedActionsColumn;
     
+    @FXML
+    private ToggleButton bulkReturnToggle;
+    
+    @FXML
+    private HBox bulkReturnBox;
+    
+    @FXML
+    private TextField scanField;
+    
+    @FXML
+    private Label bulkReturnStatusLabel;
+    
+    // Commit a partial batch once the scanner has been idle this long
+    private static final Duration BULK_RETURN_IDLE_FLUSH = Duration.millis(1500);
+    
     private User currentUser;
-    private BookDAO bookDAO;
-    private BookCopyDAO bookCopyDAO;
-    private UserDAO userDAO;
-    private BorrowingDAO borrowingDAO;
+    private final BorrowingDAO borrowingDAO;
+    private final AsyncDao asyncDao;
+    private BulkReturnSession bulkReturnSession;
+    private String lastScanMessage;
+    private final PauseTransition bulkReturnIdleTimer = new PauseTransition(BULK_RETURN_IDLE_FLUSH);
+    
+    // Issuing and returning need the migrated schema, so they stay off until it is ready
+    private final BooleanProperty circulationBlocked = new SimpleBooleanProperty(true);
+    
+    /**
+     * Create the controller with the DAOs for the issued books table
+     */
+    public LibrarianIssueBooksController(BorrowingDAO borrowingDAO, AsyncDao asyncDao) {
+        this.borrowingDAO = borrowingDAO;
+        this.asyncDao = asyncDao;
+    }
     
     /**
      * Initializes the controller
      */
     public void initialize() {
-        // Initialize DAOs
-        bookDAO = new BookDAO();
-        bookCopyDAO = new BookCopyDAO();
-        userDAO = new UserDAO();
-        borrowingDAO = new BorrowingDAO();
-
         // Setup issued books table columns
+        // The copy and its book are loaded with the borrowing, so cells need no queries
         issuedBookTitleColumn.setCellValueFactory(cellData -> {
-            try {
-                Book book = bookDAO.getBookById(bookCopyDAO.getBookCopyById(cellData.getValue().getBookCopy().getId()).getBookId());
-                return new SimpleStringProperty(book != null ? book.getTitle() : "Unknown");
-            } catch (SQLException e) {
-                return new SimpleStringProperty("Error");
-            }
+            BookCopy copy = cellData.getValue().getBookCopy();
+            return new SimpleStringProperty(copy != null ? copy.getBookTitle() : "Unknown");
         });
 
         issuedMemberNameColumn.setCellValueFactory(cellData -> {
@@ -77,12 +106,29 @@ public class LibrarianIssueBooksController implements ChildController {
         dueDateColumn.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().getDueDate()));
 
         setupIssuedActionsColumn();
+        
+        // Bulk return mode is hidden until switched on
+        bulkReturnBox.setVisible(false);
+        bulkReturnBox.setManaged(false);
+        bulkReturnIdleTimer.setOnFinished(event -> flushBulkReturns());
+        
+        issueNewBookBtn.disableProperty().bind(circulationBlocked);
+        bulkReturnToggle.disableProperty().bind(circulationBlocked);
+        waitForSchema();
 
         // Load data
         loadIssuedBooks();
 
     }
     
+    /**
+     * Enable issuing and returning once the startup migration has finished.
+     * If it failed they stay off: writes against a half-migrated schema would fail.
+     */
+    private void waitForSchema() {
+        MigrationRunner.schemaReady().thenRun(() -> Platform.runLater(() -> circulationBlocked.set(false)));
+    }
+    
     /**
      * Sets up the action column for the issued books table
      */
@@ -92,6 +138,7 @@ public class LibrarianIssueBooksController implements ChildController {
             
             {
                 returnButton.getStyleClass().add("button-primary");
+                returnButton.disableProperty().bind(circulationBlocked);
             }
             
             @Override
@@ -120,35 +167,193 @@ public class LibrarianIssueBooksController implements ChildController {
      * @param borrowing The borrowing record to process
      */
     private void handleReturnBook(Borrowing borrowing) {
-        try {
-            // Confirm return
-            Alert confirmAlert = new Alert(Alert.AlertType.CONFIRMATION);
-            confirmAlert.setTitle("Confirm Return");
-            confirmAlert.setHeaderText("Return Book");
-            confirmAlert.setContentText("Are you sure you want to mark this book as returned?");
+        // Confirm return
+        Alert confirmAlert = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmAlert.setTitle("Confirm Return");
+        confirmAlert.setHeaderText("Return Book");
+        confirmAlert.setContentText("Are you sure you want to mark this book as returned?");
+        
+        Optional<ButtonType> result = confirmAlert.showAndWait();
+        if (result.isEmpty() || result.get() != ButtonType.OK) {
+            return;
+        }
+        
+        // returnBook holds the copy for the next patron waiting for the title, if any.
+        // It runs its transaction on a pooled connection, apart from the shared one.
+        LocalDate today = LocalDate.now();
+        DaoExecutor.deliver(asyncDao.borrowings(dao -> dao.returnBook(borrowing.getId(), today, currentUser)),
+                returned -> {
+                    loadIssuedBooks();
+                    if (returned) {
+                        showInfoAlert("Success", "Book has been returned successfully.");
+                    } else {
+                        showErrorAlert("Error", "This book has already been returned.");
+                    }
+                },
+                error -> showErrorAlert("Error", "Error returning book: " + error.getMessage()));
+    }
+    
+    /**
+     * Switches bulk return mode on or off
+     */
+    @FXML
+    private void toggleBulkReturnMode() {
+        if (!bulkReturnToggle.isSelected()) {
+            finishBulkReturns();
+            return;
+        }
+        
+        bulkReturnStatusLabel.setText("Loading checked out books...");
+        DaoExecutor.load(() -> new BulkReturnSession(asyncDao.getPool(), currentUser), session -> {
+            if (!bulkReturnToggle.isSelected()) {
+                // Switched off again while loading, nothing has been scanned
+                return;
+            }
             
-            Optional<ButtonType> result = confirmAlert.showAndWait();
-            if (result.isPresent() && result.get() == ButtonType.OK) {
-                // Update the book copy status to AVAILABLE
-                BookCopy bookCopy = borrowing.getBookCopy();
-                if (bookCopy != null) {
-                    bookCopy.setStatus(BookCopy.Status.AVAILABLE);
-                    bookCopyDAO.updateCopyStatus(bookCopy.getId(), BookCopy.Status.AVAILABLE);
-                }
-                
-                // Update the borrowing record (mark as returned)
-                borrowing.setReturnDate(LocalDate.now());
-                borrowing.setReturnedTo(currentUser); // Set the current librarian as who received the book
-                borrowingDAO.updateBorrowing(borrowing);
-                
-                // Refresh data
-                loadIssuedBooks();
-                
-                showInfoAlert("Success", "Book has been returned successfully.");
+            bulkReturnSession = session;
+            lastScanMessage = null;
+            bulkReturnBox.setVisible(true);
+            bulkReturnBox.setManaged(true);
+            bulkReturnStatusLabel.setText("Scan a copy ID or label to return it");
+            scanField.requestFocus();
+        }, error -> {
+            bulkReturnToggle.setSelected(false);
+            showErrorAlert("Error", "Could not start bulk return mode: " + error.getMessage());
+        });
+    }
+    
+    /**
+     * Handles one scanned copy (the scanner sends Enter after each code)
+     */
+    @FXML
+    private void handleScan() {
+        String code = scanField.getText();
+        scanField.clear();
+        
+        BulkReturnSession session = bulkReturnSession;
+        if (session == null || code == null || code.isBlank()) {
+            return;
+        }
+        
+        DaoExecutor.load(() -> session.scan(code), result -> {
+            BulkReturnSession.ActiveLoan loan = result.getLoan();
+            
+            switch (result.getStatus()) {
+                case QUEUED:
+                    // Drop the row right away instead of reloading the table
+                    issuedBooksTableView.getItems().removeIf(b -> b.getId() == loan.getBorrowingId());
+                    if (result.getCommitted().isEmpty()) {
+                        updateBulkReturnStatus(session,
+                                "Queued: " + loan.getBookTitle() + " (" + loan.getUserName() + ")");
+                    } else {
+                        // This scan filled its batch, which is now committed
+                        updateBulkReturnStatus(session, returnedMessage(result.getCommitted()));
+                    }
+                    break;
+                case ALREADY_SCANNED:
+                    updateBulkReturnStatus(session, "Already scanned: " + loan.getBookTitle());
+                    break;
+                case NOT_CHECKED_OUT:
+                    updateBulkReturnStatus(session, "Not checked out: " + result.getCode());
+                    break;
             }
-        } catch (SQLException e) {
-            showErrorAlert("Error", "Error returning book: " + e.getMessage());
+        }, this::showBatchError);
+        
+        bulkReturnIdleTimer.playFromStart();
+    }
+    
+    /**
+     * Commits and leaves bulk return mode
+     */
+    @FXML
+    private void finishBulkReturns() {
+        bulkReturnIdleTimer.stop();
+        
+        BulkReturnSession session = bulkReturnSession;
+        bulkReturnSession = null;
+        
+        bulkReturnToggle.setSelected(false);
+        bulkReturnBox.setVisible(false);
+        bulkReturnBox.setManaged(false);
+        
+        if (session == null) {
+            loadIssuedBooks();
+            return;
+        }
+        
+        DaoExecutor.load(() -> {
+            session.close();
+            return session.getReturnedCount();
+        }, returned -> {
+            loadIssuedBooks();
+            if (returned > 0) {
+                showInfoAlert("Success", returned + " book(s) have been returned.");
+            }
+        }, error -> {
+            loadIssuedBooks();
+            showErrorAlert("Error", "Error returning books: " + error.getMessage());
+        });
+    }
+    
+    /**
+     * Commits the scans collected so far
+     */
+    private void flushBulkReturns() {
+        BulkReturnSession session = bulkReturnSession;
+        if (session == null) {
+            return;
         }
+        
+        DaoExecutor.load(session::flush, returned -> updateBulkReturnStatus(session, returnedMessage(returned)),
+                this::showBatchError);
+    }
+    
+    /**
+     * Describes a committed batch by its last scan
+     * 
+     * @param batch Loans returned together
+     * @return Message for the status label, or null if the batch was empty
+     */
+    private static String returnedMessage(List<BulkReturnSession.ActiveLoan> batch) {
+        if (batch.isEmpty()) {
+            return null;
+        }
+        
+        BulkReturnSession.ActiveLoan last = batch.get(batch.size() - 1);
+        String message = "Returned: " + last.getBookTitle() + " (" + last.getUserName() + ")";
+        return batch.size() > 1 ? message + " and " + (batch.size() - 1) + " more" : message;
+    }
+    
+    /**
+     * Reports a batch that could not be committed
+     */
+    private void showBatchError(Throwable error) {
+        showErrorAlert("Error", "Error returning books: " + error.getMessage() +
+                "\nThe last batch was not saved, please scan those books again.");
+        loadIssuedBooks();
+    }
+    
+    /**
+     * Shows the last scan and the running totals
+     * 
+     * @param session Session the scan belongs to
+     * @param lastScan Message about the last scan, or null to keep the current one
+     */
+    private void updateBulkReturnStatus(BulkReturnSession session, String lastScan) {
+        if (session != bulkReturnSession) {
+            // Bulk return mode was left in the meantime
+            return;
+        }
+        
+        String status = String.format("%d returned, %d pending (%.1f/s)",
+                session.getReturnedCount(),
+                session.getPendingCount(),
+                session.getReturnsPerSecond());
+        
+        if (lastScan != null) {
+            lastScanMessage = lastScan;
+        }
+        bulkReturnStatusLabel.setText(lastScanMessage != null ? lastScanMessage + " - " + status : status);
     }
     
     /**
@@ -159,7 +364,7 @@ public class LibrarianIssueBooksController implements ChildController {
         try {
             // Load the dialog
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/issue-book-dialog.fxml"));
-            DialogPane dialogPane = loader.load();
+            DialogPane dialogPane = ViewLoader.load(loader);
             
             // Create the dialog
             Dialog<ButtonType> dialog = new Dialog<>();
@@ -182,16 +387,13 @@ public class LibrarianIssueBooksController implements ChildController {
     }
     
     /**
-     * Loads issued books from the database
+     * Loads issued books from the database in the background
      */
     private void loadIssuedBooks() {
-        try {
-            // Get currently borrowed books (not yet returned)
-            List<Borrowing> borrowings = borrowingDAO.getCurrentBorrowings();
-            issuedBooksTableView.setItems(FXCollections.observableArrayList(borrowings));
-        } catch (SQLException e) {
-            showErrorAlert("Error", "Error loading issued books: " + e.getMessage());
-        }
+        // Get currently borrowed books (not yet returned)
+        DaoExecutor.loadInto(issuedBooksTableView, borrowingDAO::getCurrentBorrowings,
+                borrowings -> issuedBooksTableView.setItems(FXCollections.observableArrayList(borrowings)),
+                "Error Loading Issued Books");
     }
     
     /**
@@ -204,6 +406,18 @@ public class LibrarianIssueBooksController implements ChildController {
         this.currentUser = user;
     }
     
+    /**
+     * Leave bulk return mode and reload when the cached view is shown again;
+     * close() has already queued the commit of the scans ahead of the reload
+     */
+    @Override
+    public void reset() {
+        bulkReturnToggle.setSelected(false);
+        bulkReturnBox.setVisible(false);
+        bulkReturnBox.setManaged(false);
+        loadIssuedBooks();
+    }
+    
     /**
      * Set the current user (librarian)
      * 
@@ -246,17 +460,21 @@ public class LibrarianIssueBooksController implements ChildController {
      */
     @Override
     public void close() throws Exception {
-        if (bookDAO != null) {
-            bookDAO.close();
-        }
-        if (bookCopyDAO != null) {
-            bookCopyDAO.close();
-        }
-        if (userDAO != null) {
-            userDAO.close();
-        }
-        if (borrowingDAO != null) {
-            borrowingDAO.close();
+        BulkReturnSession session = bulkReturnSession;
+        if (session != null) {
+            bulkReturnIdleTimer.stop();
+            bulkReturnSession = null;
+            
+            // Commit the last scans behind any still queued on the DAO worker
+            DaoExecutor.submit(() -> {
+                session.close();
+                return null;
+            }).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    Log.error("Could not commit the last bulk returns", error);
+                }
+            });
         }
+        // The DAOs are shared (see Daos) and stay open
     }
 }
@@ -3,6 +3,11 @@ package com.example.lms.controller;
 import com.example.lms.Main;
 import com.example.lms.model.User;
 import com.example.lms.model.UserDAO;
+import com.example.lms.util.DaoExecutor;
+import com.example.lms.util.Log;
+import com.example.lms.util.StartupTimer;
+import com.example.lms.util.ViewLoader;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -43,7 +48,14 @@ public class LoginController {
     @FXML
     private ImageView illustrationImg;
     
-    private UserDAO userDAO;
+    private final UserDAO userDAO;
+    
+    /**
+     * Create the controller with the DAO that authenticates users
+     */
+    public LoginController(UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
     
     /**
      * Initialize the controller.
@@ -51,8 +63,6 @@ public class LoginController {
      */
     @FXML
     private void initialize() {
-        userDAO = new UserDAO();
-        
         // Load SVG image
         try {
             InputStream is = getClass().getResourceAsStream("/com/example/lms/images/library-illustration.svg");
@@ -65,6 +75,14 @@ public class LoginController {
         } catch (Exception e) {
             System.err.println("Error loading illustration: " + e.getMessage());
         }
+        
+        // Startup benchmarks sign in automatically to measure the time to the dashboard
+        String autoLogin = StartupTimer.getAutoLogin();
+        if (autoLogin != null && autoLogin.contains(":")) {
+            emailField.setText(autoLogin.substring(0, autoLogin.indexOf(':')));
+            passwordField.setText(autoLogin.substring(autoLogin.indexOf(':') + 1));
+            Platform.runLater(this::onLoginClick);
+        }
     }
     
     /**
@@ -81,9 +99,10 @@ public class LoginController {
             return;
         }
         
-        // Attempt authentication
-        try {
-            User user = userDAO.authenticate(email, password);
+        // Attempt authentication in the background; the button stays disabled meanwhile
+        loginBtn.setDisable(true);
+        DaoExecutor.load(() -> userDAO.authenticate(email, password), user -> {
+            loginBtn.setDisable(false);
             
             if (user != null) {
                 // Authentication successful
@@ -92,10 +111,11 @@ public class LoginController {
                 // Authentication failed
                 showError("Invalid email or password. Please try again.");
             }
-        } catch (Exception e) {
-            showError("Login failed: " + e.getMessage());
-            e.printStackTrace();
-        }
+        }, error -> {
+            loginBtn.setDisable(false);
+            Log.error("Login failed", error);
+            showError("Login failed: " + error.getMessage());
+        });
     }
     
     /**
@@ -121,7 +141,7 @@ public class LoginController {
             
             // Load the dashboard
             FXMLLoader loader = new FXMLLoader(Main.class.getResource(dashboardPath));
-            Scene scene = new Scene(loader.load(), 1024, 768);
+            Scene scene = new Scene(ViewLoader.load(loader), 1024, 768);
             
             // Get current stage and set the new scene
             Stage stage = (Stage) loginBtn.getScene().getWindow();
@@ -133,6 +153,7 @@ public class LoginController {
             if (controller instanceof DashboardController) {
                 ((DashboardController) controller).initData(user);
             }
+            StartupTimer.markWhenDrawn(StartupTimer.DASHBOARD);
             
         } catch (IOException e) {
             showError("Error loading dashboard: " + e.getMessage());
@@ -147,7 +168,7 @@ public class LoginController {
     private void onForgotPasswordClick() {
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/forgot-password.fxml"));
-            Scene scene = new Scene(loader.load(), 800, 600);
+            Scene scene = new Scene(ViewLoader.load(loader), 800, 600);
             
             // Get current stage and set the new scene
             Stage stage = (Stage) forgotPasswordBtn.getScene().getWindow();
@@ -167,7 +188,7 @@ public class LoginController {
     private void onSignupClick() {
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/signup.fxml"));
-            Scene scene = new Scene(loader.load(), 800, 600);
+            Scene scene = new Scene(ViewLoader.load(loader), 800, 600);
             
             // Get current stage and set the new scene
             Stage stage = (Stage) signupBtn.getScene().getWindow();
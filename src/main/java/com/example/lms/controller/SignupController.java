@@ -3,7 +3,10 @@ package com.example.lms.controller;
 import com.example.lms.Main;
 import com.example.lms.model.User;
 import com.example.lms.model.UserDAO;
+import com.example.lms.util.DaoExecutor;
+import com.example.lms.util.Log;
 import com.example.lms.util.SecurityUtil;
+import com.example.lms.util.ViewLoader;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -48,20 +51,25 @@ public class SignupController {
     @FXML
     private ImageView illustrationImg;
     
-    private UserDAO userDAO;
+    private final UserDAO userDAO;
     
     // Email validation pattern
     private static final Pattern EMAIL_PATTERN = 
         Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
     
+    /**
+     * Create the controller with the DAO that registers new users
+     */
+    public SignupController(UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
+    
     /**
      * Initialize the controller.
      * This method is automatically called after the FXML has been loaded.
      */
     @FXML
     private void initialize() {
-        userDAO = new UserDAO();
-        
         // Populate role dropdown
         roleComboBox.getItems().addAll("user", "librarian", "admin");
         roleComboBox.setValue("user"); // Default selection
@@ -118,15 +126,16 @@ public class SignupController {
         }
         
         // Create user object
-        try {
-            User user = new User();
-            user.setName(name);
-            user.setEmail(email);
-            user.setPassword(password); // The DAO will hash this
-            user.setRole(User.UserRole.valueOf(role));
-            
-            // Attempt to register user
-            boolean success = userDAO.registerUser(user);
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        user.setPassword(password); // The DAO will hash this
+        user.setRole(User.UserRole.valueOf(role));
+        
+        // Attempt to register user in the background; the button stays disabled meanwhile
+        registerBtn.setDisable(true);
+        DaoExecutor.load(() -> userDAO.registerUser(user), success -> {
+            registerBtn.setDisable(false);
             
             if (success) {
                 // Registration successful, show success message and redirect to login
@@ -140,10 +149,11 @@ public class SignupController {
             } else {
                 showError("Registration failed. Email may already be in use.");
             }
-        } catch (Exception e) {
-            showError("Error during registration: " + e.getMessage());
-            e.printStackTrace();
-        }
+        }, error -> {
+            registerBtn.setDisable(false);
+            Log.error("Registration failed", error);
+            showError("Error during registration: " + error.getMessage());
+        });
     }
     
     /**
@@ -153,7 +163,7 @@ public class SignupController {
     private void onLoginClick() {
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/login.fxml"));
-            Scene scene = new Scene(loader.load(), 800, 600);
+            Scene scene = new Scene(ViewLoader.load(loader), 800, 600);
             
             // Get current stage and set the new scene
             Stage stage = (Stage) loginBtn.getScene().getWindow();
@@ -2,6 +2,7 @@ package com.example.lms.controller;
 
 import com.example.lms.Main;
 import com.example.lms.model.User;
+import com.example.lms.util.ViewLoader;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -53,7 +54,7 @@ public class UserDashboardController implements DashboardController {
     private void onLogoutClick() {
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("views/login.fxml"));
-            Scene scene = new Scene(loader.load(), 800, 600);
+            Scene scene = new Scene(ViewLoader.load(loader), 800, 600);
             
             // Get current stage and set the new scene
             Stage stage = (Stage) logoutBtn.getScene().getWindow();
@@ -3,6 +3,7 @@ package com.example.lms.controller;
 import com.example.lms.model.User;
 import com.example.lms.model.User.UserRole;
 import com.example.lms.model.UserDAO;
+import com.example.lms.util.DaoExecutor;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -46,17 +47,22 @@ public class UserDialogController {
     private Button cancelButton;
     
     private User user;
-    private UserDAO userDAO;
+    private final UserDAO userDAO;
     private boolean editMode = false;
     private boolean success = false;
     
+    /**
+     * Create the controller with the DAO that saves the user
+     */
+    public UserDialogController(UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
+    
     /**
      * Initialize the controller
      */
     @FXML
     private void initialize() {
-        userDAO = new UserDAO();
-        
         // Set up role options
         roleComboBox.setItems(FXCollections.observableArrayList(
             "admin", "librarian", "user"
@@ -117,45 +123,75 @@ public class UserDialogController {
             return;
         }
         
-        try {
-            // Populate user object from form fields
-            user.setName(nameField.getText() != null ? nameField.getText().trim() : "");
-            user.setEmail(emailField.getText() != null ? emailField.getText().trim() : "");
-            user.setPhone(phoneField.getText() != null ? phoneField.getText().trim() : "");
-            
-            // Set password only if provided (for edit mode)
-            String password = passwordField.getText() != null ? passwordField.getText() : "";
-            if (!password.isEmpty()) {
-                user.setPassword(password);
-            }
-            
-            // Set role
-            String roleStr = roleComboBox.getValue();
-            user.setRole(UserRole.valueOf(roleStr));
-            
-            // Save to database
-            if (editMode) {
-                success = userDAO.updateUser(user);
-            } else {
-                // For new users, password is required
-                if (password.isEmpty()) {
-                    errorLabel.setText("Password is required for new users");
-                    return;
-                }
-                success = userDAO.registerUser(user);
-            }
+        String password = passwordField.getText() != null ? passwordField.getText() : "";
+        
+        // For new users, password is required
+        if (!editMode && password.isEmpty()) {
+            errorLabel.setText("Password is required for new users");
+            return;
+        }
+        
+        // Populate user object from form fields
+        user.setName(nameField.getText() != null ? nameField.getText().trim() : "");
+        user.setEmail(emailField.getText() != null ? emailField.getText().trim() : "");
+        user.setPhone(phoneField.getText() != null ? phoneField.getText().trim() : "");
+        
+        // Set password only if provided (for edit mode)
+        if (!password.isEmpty()) {
+            user.setPassword(password);
+        }
+        
+        // Set role
+        String roleStr = roleComboBox.getValue();
+        user.setRole(UserRole.valueOf(roleStr));
+        
+        // Save to database in the background; the button stays disabled meanwhile
+        saveButton.setDisable(true);
+        DaoExecutor.load(this::saveUser, result -> {
+            saveButton.setDisable(false);
             
-            if (success) {
-                closeDialog();
-            } else {
-                errorLabel.setText("Failed to save user. Please try again.");
+            switch (result) {
+                case SAVED:
+                    success = true;
+                    closeDialog();
+                    break;
+                case EMAIL_TAKEN:
+                    errorLabel.setText("Email already exists");
+                    break;
+                case FAILED:
+                default:
+                    errorLabel.setText("Failed to save user. Please try again.");
+                    break;
             }
-            
-        } catch (SQLException e) {
-            errorLabel.setText("Database error: " + e.getMessage());
-        } catch (Exception e) {
-            errorLabel.setText("Error: " + e.getMessage());
+        }, error -> {
+            saveButton.setDisable(false);
+            errorLabel.setText("Database error: " + error.getMessage());
+        });
+    }
+    
+    /**
+     * Outcome of saving the user
+     */
+    private enum SaveResult {
+        SAVED, EMAIL_TAKEN, FAILED
+    }
+    
+    /**
+     * Insert or update the user. Runs on the DAO worker.
+     * 
+     * @return What happened
+     * @throws SQLException if database error occurs
+     */
+    private SaveResult saveUser() throws SQLException {
+        if (editMode) {
+            return userDAO.updateUser(user) ? SaveResult.SAVED : SaveResult.FAILED;
         }
+        
+        // Check if email exists (only for new users)
+        if (userDAO.emailExists(user.getEmail())) {
+            return SaveResult.EMAIL_TAKEN;
+        }
+        return userDAO.registerUser(user) ? SaveResult.SAVED : SaveResult.FAILED;
     }
     
     /**
@@ -202,19 +238,6 @@ public class UserDialogController {
             return false;
         }
         
-        // Check if email exists (only for new users)
-        if (!editMode) {
-            try {
-                if (userDAO.emailExists(email)) {
-                    errorLabel.setText("Email already exists");
-                    return false;
-                }
-            } catch (Exception e) {
-                errorLabel.setText("Error checking email: " + e.getMessage());
-                return false;
-            }
-        }
-        
         return true;
     }
     
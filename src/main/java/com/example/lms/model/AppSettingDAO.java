@@ -1,6 +1,7 @@
 package com.example.lms.model;
 
 import com.example.lms.util.Database;
+import com.example.lms.util.Log;
 
 import java.sql.*;
 import java.time.LocalDateTime;
@@ -36,8 +37,7 @@ public class AppSettingDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting all app settings: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting all app settings", e);
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -79,7 +79,7 @@ public class AppSettingDAO {
             if (stmt != null) stmt.close();
             if (conn != null) conn.close();
         } catch (SQLException e) {
-            System.err.println("Error closing resources: " + e.getMessage());
+            Log.error("Error closing resources", e);
         }
     }
     
@@ -113,8 +113,7 @@ public class AppSettingDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error adding setting: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error adding setting", e);
         } finally {
             closeResources(null, stmt, conn);
         }
@@ -156,8 +155,7 @@ public class AppSettingDAO {
             success = (rowsAffected > 0);
             
         } catch (SQLException e) {
-            System.err.println("Error updating setting: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error updating setting", e);
         } finally {
             closeResources(null, stmt, conn);
         }
@@ -186,8 +184,7 @@ public class AppSettingDAO {
             success = (rowsAffected > 0);
             
         } catch (SQLException e) {
-            System.err.println("Error deleting setting: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error deleting setting", e);
         } finally {
             closeResources(null, stmt, conn);
         }
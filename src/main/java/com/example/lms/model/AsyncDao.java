@@ -0,0 +1,134 @@
+package com.example.lms.model;
+
+import com.example.lms.util.ConnectionPool;
+import com.example.lms.util.QueryScope;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade over the DAOs.
+ * Every call runs on its own virtual thread with a connection borrowed from
+ * {@link ConnectionPool}, so any number of calls can be started at once while
+ * at most pool-size queries hit the database concurrently; the rest wait cheaply
+ * for a connection. DAOs are created per call on the borrowed connection.
+ *
+ * <pre>
+ * CompletableFuture&lt;Integer&gt; books = AsyncDao.getInstance().books(BookDAO::getTotalBooks);
+ * </pre>
+ */
+public class AsyncDao {
+
+    private static AsyncDao instance;
+
+    private final ConnectionPool pool;
+    private final ExecutorService executor;
+
+    /**
+     * A query against one DAO
+     */
+    @FunctionalInterface
+    public interface DaoQuery<D, T> {
+        T query(D dao) throws SQLException;
+    }
+
+    /**
+     * Get the application's facade, backed by the shared connection pool
+     *
+     * @return Shared AsyncDao
+     */
+    public static synchronized AsyncDao getInstance() {
+        if (instance == null) {
+            instance = new AsyncDao(ConnectionPool.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Create a facade over the given pool
+     *
+     * @param pool Pool that bounds concurrent queries
+     */
+    public AsyncDao(ConnectionPool pool) {
+        this.pool = pool;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("async-dao-", 0).factory());
+    }
+
+    /**
+     * Run a query against a DAO created on a pooled connection
+     *
+     * @param factory Creates the DAO, e.g. BookDAO::new
+     * @param query The query to run
+     * @return Future with the query result; failures complete it with the SQLException
+     */
+    public <D, T> CompletableFuture<T> with(Supplier<D> factory, DaoQuery<D, T> query) {
+        return withConnection(connection -> query.query(factory.get()));
+    }
+
+    /**
+     * Run work directly on a pooled connection
+     *
+     * @param work The work to run
+     * @return Future with the work's result
+     */
+    public <T> CompletableFuture<T> withConnection(ConnectionPool.ConnectionWork<T> work) {
+        QueryScope.ScopedWork<T> scoped = QueryScope.scopedForCaller(() -> pool.withConnection(work));
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return scoped.run();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    public <T> CompletableFuture<T> books(DaoQuery<BookDAO, T> query) {
+        return with(BookDAO::new, query);
+    }
+
+    public <T> CompletableFuture<T> bookCopies(DaoQuery<BookCopyDAO, T> query) {
+        return with(BookCopyDAO::new, query);
+    }
+
+    public <T> CompletableFuture<T> borrowings(DaoQuery<BorrowingDAO, T> query) {
+        return with(BorrowingDAO::new, query);
+    }
+
+    public <T> CompletableFuture<T> users(DaoQuery<UserDAO, T> query) {
+        return with(UserDAO::new, query);
+    }
+
+    public <T> CompletableFuture<T> fines(DaoQuery<FineDAO, T> query) {
+        return with(FineDAO::new, query);
+    }
+
+    public <T> CompletableFuture<T> categories(DaoQuery<CategoryDAO, T> query) {
+        return with(CategoryDAO::new, query);
+    }
+
+    public <T> CompletableFuture<T> reservations(DaoQuery<ReservationDAO, T> query) {
+        return with(ReservationDAO::new, query);
+    }
+
+    /**
+     * Get the pool that bounds this facade
+     *
+     * @return Connection pool
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Stop accepting work and close the pool's idle connections
+     */
+    public void shutdown() {
+        executor.shutdown();
+        pool.close();
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.lms.model;
 
 import com.example.lms.util.Database;
+import com.example.lms.util.Log;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -24,7 +25,7 @@ public class BookCopyDAO {
             connection = Database.getConnection();
             bookDAO = new BookDAO();
         } catch (SQLException e) {
-            System.err.println("Error initializing BookCopyDAO: " + e.getMessage());
+            Log.error("Error initializing BookCopyDAO", e);
         }
     }
     
@@ -261,6 +262,98 @@ public class BookCopyDAO {
         }
     }
     
+    /**
+     * Claim an available copy by moving it to a new status only if it is still AVAILABLE.
+     * The check and the update happen in one statement, so two desks can never both
+     * claim the same copy.
+     * 
+     * @param copyId Copy ID
+     * @param status New status, e.g. BORROWED
+     * @return true if the copy was claimed, false if it was no longer available
+     *         (the update matched no row)
+     * @throws SQLException if database error occurs
+     */
+    public boolean claimAvailableCopy(int copyId, BookCopy.Status status) throws SQLException {
+        String query = "UPDATE book_copies SET status = ? WHERE id = ? AND status = 'AVAILABLE'";
+        
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setString(1, status.toString());
+            stmt.setInt(2, copyId);
+            
+            int affectedRows = stmt.executeUpdate();
+            return affectedRows == 1;
+        }
+    }
+    
+    /**
+     * Lock one available copy of a book for the current transaction.
+     * Uses SELECT ... FOR UPDATE SKIP LOCKED (MySQL 8+), so concurrent transactions
+     * asking for the same book each get a different copy instead of waiting on each
+     * other. Must be called with auto-commit off; the lock is held until commit.
+     * 
+     * @param bookId Book ID
+     * @return ID of the locked copy, or 0 if no unlocked available copy exists
+     * @throws SQLException if database error occurs
+     */
+    public int lockNextAvailableCopy(int bookId) throws SQLException {
+        List<Integer> ids = lockAvailableCopies(bookId, 1);
+        return ids.isEmpty() ? 0 : ids.get(0);
+    }
+    
+    /**
+     * Lock up to the given number of available copies of a book for the current
+     * transaction, skipping copies locked by other transactions
+     * 
+     * @param bookId Book ID
+     * @param count Number of copies wanted
+     * @return IDs of the locked copies, possibly fewer than requested
+     * @throws SQLException if database error occurs
+     */
+    public List<Integer> lockAvailableCopies(int bookId, int count) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        String query = "SELECT id FROM book_copies WHERE book_id = ? AND status = 'AVAILABLE' " +
+                       "ORDER BY copy_number LIMIT ? FOR UPDATE SKIP LOCKED";
+        
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setInt(1, bookId);
+            stmt.setInt(2, count);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt("id"));
+                }
+            }
+        }
+        
+        return ids;
+    }
+    
+    /**
+     * Get the IDs of available copies of a book without loading the copies
+     * 
+     * @param bookId Book ID
+     * @param limit Maximum number of IDs to return
+     * @return List of available copy IDs
+     * @throws SQLException if database error occurs
+     */
+    public List<Integer> getAvailableCopyIds(int bookId, int limit) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        String query = "SELECT id FROM book_copies WHERE book_id = ? AND status = 'AVAILABLE' ORDER BY copy_number LIMIT ?";
+        
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setInt(1, bookId);
+            stmt.setInt(2, limit);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt("id"));
+                }
+            }
+        }
+        
+        return ids;
+    }
+    
     /**
      * Delete a book copy
      * 
@@ -368,12 +461,32 @@ public class BookCopyDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error getting available copies count: " + e.getMessage());
+            Log.error("Error getting available copies count", e);
         }
         
         return 0;
     }
     
+    /**
+     * Get the count of available copies for every book that has any, with one query
+     * 
+     * @return Map of book ID to available copy count; books without available copies are absent
+     * @throws SQLException if database error occurs
+     */
+    public Map<Integer, Integer> getAvailableCopiesCounts() throws SQLException {
+        Map<Integer, Integer> counts = new HashMap<>();
+        String query = "SELECT book_id, COUNT(*) FROM book_copies WHERE status = 'AVAILABLE' GROUP BY book_id";
+        
+        try (PreparedStatement stmt = connection.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                counts.put(rs.getInt(1), rs.getInt(2));
+            }
+        }
+        
+        return counts;
+    }
+    
     /**
      * Get the total count of copies for a book
      * 
@@ -392,7 +505,7 @@ public class BookCopyDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error getting total copies count: " + e.getMessage());
+            Log.error("Error getting total copies count", e);
         }
         
         return 0;
@@ -432,16 +545,15 @@ public class BookCopyDAO {
      */
     public void close() throws SQLException {
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
+            // Release the connection back to the pool; other DAOs may still be using it
+            Database.releaseConnection();
             
             // Close related DAOs
             if (bookDAO != null) {
                 bookDAO.close();
             }
         } catch (SQLException e) {
-            System.err.println("Error closing BookCopyDAO: " + e.getMessage());
+            Log.error("Error closing BookCopyDAO", e);
             throw e;
         }
     }
@@ -1,6 +1,7 @@
 package com.example.lms.model;
 
 import com.example.lms.util.Database;
+import com.example.lms.util.Log;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -25,7 +26,7 @@ public class BookDAO {
             publisherDAO = new PublisherDAO();
             categoryDAO = new CategoryDAO();
         } catch (SQLException e) {
-            System.err.println("Error initializing BookDAO: " + e.getMessage());
+            Log.error("Error initializing BookDAO", e);
         }
     }
     
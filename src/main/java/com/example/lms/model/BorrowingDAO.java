@@ -1,6 +1,8 @@
 package com.example.lms.model;
 
 import com.example.lms.util.Database;
+import com.example.lms.util.Log;
+import com.example.lms.util.Metrics;
 
 import java.sql.*;
 import java.time.LocalDate;
@@ -15,9 +17,18 @@ import java.util.Map;
  */
 public class BorrowingDAO {
     
+    // Rounds of "pick another available copy" before a checkout gives up
+    private static final int MAX_CHECKOUT_ATTEMPTS = 3;
+    private static final int CHECKOUT_CANDIDATES = 5;
+    
+    private static final Metrics.Counter CHECKOUTS = Metrics.counter("lms_checkouts_total", "Books checked out");
+    private static final Metrics.Counter RETURNS = Metrics.counter("lms_returns_total", "Books returned");
+    
     private Connection connection;
     private BookCopyDAO bookCopyDAO;
     private UserDAO userDAO;
+    private CategoryDAO categoryDAO;
+    private final ReservationQueue reservationQueue = ReservationQueue.getInstance();
     
     /**
      * Constructor that initializes the database connection and related DAOs
@@ -27,8 +38,9 @@ public class BorrowingDAO {
             connection = Database.getConnection();
             bookCopyDAO = new BookCopyDAO();
             userDAO = new UserDAO();
+            categoryDAO = new CategoryDAO();
         } catch (SQLException e) {
-            System.err.println("Error initializing BorrowingDAO: " + e.getMessage());
+            Log.error("Error initializing BorrowingDAO", e);
         }
     }
     
@@ -110,17 +122,41 @@ public class BorrowingDAO {
      */
     public List<Borrowing> getActiveBorrowings() throws SQLException {
         List<Borrowing> borrowings = new ArrayList<>();
-        String query = "SELECT * FROM borrowings WHERE return_date IS NULL ORDER BY due_date ASC";
+        Map<Integer, Book> books = new HashMap<>();
+        
+        // Copy, book, publisher, borrower and issuing staff come with the loan in one query;
+        // the categories of all the books follow in a second one
+        String query = "SELECT b.*, " +
+                       "bc.book_id, bc.copy_number, bc.acquisition_date, bc.status AS copy_status, " +
+                       "bc.shelf_location, bc.notes AS copy_notes, " +
+                       "bk.title, bk.author_name, bk.isbn, bk.publication_year, bk.description, " +
+                       "bk.cover_image_url, bk.publisher_id, " +
+                       "p.name AS publisher_name, p.address AS publisher_address, " +
+                       "p.email AS publisher_email, p.phone AS publisher_phone, p.website AS publisher_website, " +
+                       "u.name AS user_name, u.email AS user_email, u.role AS user_role, u.phone AS user_phone, " +
+                       "s.name AS issuer_name, s.email AS issuer_email, s.role AS issuer_role, s.phone AS issuer_phone " +
+                       "FROM borrowings b " +
+                       "JOIN book_copies bc ON b.book_copy_id = bc.id " +
+                       "JOIN books bk ON bc.book_id = bk.id " +
+                       "LEFT JOIN publishers p ON bk.publisher_id = p.id " +
+                       "JOIN users u ON b.user_id = u.id " +
+                       "LEFT JOIN users s ON b.issued_by = s.id " +
+                       "WHERE b.return_date IS NULL ORDER BY b.due_date ASC";
         
         try (PreparedStatement stmt = connection.prepareStatement(query);
              ResultSet rs = stmt.executeQuery()) {
             
             while (rs.next()) {
-                Borrowing borrowing = extractBorrowingFromResultSet(rs);
+                Borrowing borrowing = extractJoinedBorrowingFromResultSet(rs, books);
                 borrowings.add(borrowing);
             }
         }
         
+        Map<Integer, List<Category>> categories = categoryDAO.getCategoriesByBookIds(books.keySet());
+        for (Book book : books.values()) {
+            book.setCategories(categories.getOrDefault(book.getId(), new ArrayList<>()));
+        }
+        
         return borrowings;
     }
     
@@ -167,53 +203,41 @@ public class BorrowingDAO {
     }
     
     /**
-     * Create a new borrowing record
+     * Create a new borrowing record.
+     * The copy is claimed with a conditional update that only succeeds while it is
+     * still AVAILABLE. If another desk got there first, another available copy of the
+     * same book is tried instead; the borrowing's copy is updated to the one issued.
+     * The transaction runs at READ COMMITTED, so each round of candidates is read
+     * fresh and includes copies other desks claimed or returned since the last round.
      * 
      * @param borrowing Borrowing object
-     * @return true if successful, false otherwise
+     * @return true if successful, false if no copy of the book could be claimed
      * @throws SQLException if database error occurs
      */
     public boolean createBorrowing(Borrowing borrowing) throws SQLException {
+        int isolation = connection.getTransactionIsolation();
+        connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        
         // Begin transaction
         connection.setAutoCommit(false);
         
         try {
-            // Insert borrowing record
-            String insertQuery = "INSERT INTO borrowings (user_id, book_copy_id, borrow_date, due_date, issued_by) " +
-                               "VALUES (?, ?, ?, ?, ?)";
+            int copyId = claimCopyForBorrowing(borrowing.getBookCopy());
+            if (copyId == 0) {
+                // Every candidate copy was taken by someone else
+                connection.rollback();
+                return false;
+            }
             
-            try (PreparedStatement stmt = connection.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS)) {
-                stmt.setInt(1, borrowing.getUser().getId());
-                stmt.setInt(2, borrowing.getBookCopy().getId());
-                stmt.setDate(3, java.sql.Date.valueOf(borrowing.getBorrowDate()));
-                stmt.setDate(4, java.sql.Date.valueOf(borrowing.getDueDate()));
-                
-                if (borrowing.getIssuedBy() != null) {
-                    stmt.setInt(5, borrowing.getIssuedBy().getId());
-                } else {
-                    stmt.setNull(5, Types.INTEGER);
-                }
+            if (insertBorrowing(borrowing, copyId)) {
+                connection.commit();
+                CHECKOUTS.increment();
                 
-                int affectedRows = stmt.executeUpdate();
-                
-                if (affectedRows > 0) {
-                    try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                        if (generatedKeys.next()) {
-                            borrowing.setId(generatedKeys.getInt(1));
-                            
-                            // Update book copy status to BORROWED
-                            boolean statusUpdated = bookCopyDAO.updateCopyStatus(
-                                    borrowing.getBookCopy().getId(), 
-                                    BookCopy.Status.BORROWED
-                            );
-                            
-                            if (statusUpdated) {
-                                connection.commit();
-                                return true;
-                            }
-                        }
-                    }
+                if (copyId != borrowing.getBookCopy().getId()) {
+                    borrowing.setBookCopy(bookCopyDAO.getCopyById(copyId));
                 }
+                borrowing.getBookCopy().setStatus(BookCopy.Status.BORROWED);
+                return true;
             }
             
             // If we got here, something failed
@@ -225,11 +249,130 @@ public class BorrowingDAO {
             throw e;
         } finally {
             connection.setAutoCommit(true);
+            connection.setTransactionIsolation(isolation);
+        }
+    }
+    
+    /**
+     * Issue any available copy of a book.
+     * One copy is locked with SKIP LOCKED, marked BORROWED and recorded in the same
+     * transaction, so desks issuing the same title never block each other or collide.
+     * 
+     * @param bookId Book to issue
+     * @param user Patron borrowing the book
+     * @param dueDate Due date
+     * @param issuedBy Staff issuing the book
+     * @return The new borrowing with its copy loaded, or null if no copy was available
+     * @throws SQLException if database error occurs
+     */
+    public Borrowing issueAnyCopy(int bookId, User user, LocalDate dueDate, User issuedBy) throws SQLException {
+        Borrowing borrowing = new Borrowing();
+        borrowing.setUser(user);
+        borrowing.setBorrowDate(LocalDate.now());
+        borrowing.setDueDate(dueDate);
+        borrowing.setIssuedBy(issuedBy);
+        
+        // Begin transaction
+        connection.setAutoCommit(false);
+        
+        try {
+            int copyId = bookCopyDAO.lockNextAvailableCopy(bookId);
+            
+            if (copyId != 0 
+                    && bookCopyDAO.updateCopyStatus(copyId, BookCopy.Status.BORROWED)
+                    && insertBorrowing(borrowing, copyId)) {
+                connection.commit();
+                CHECKOUTS.increment();
+                
+                BookCopy copy = bookCopyDAO.getCopyById(copyId);
+                borrowing.setBookCopy(copy);
+                return borrowing;
+            }
+            
+            connection.rollback();
+            return null;
+            
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+    
+    /**
+     * Insert the borrowing row for a claimed copy, within the caller's transaction
+     * 
+     * @param borrowing Borrowing to insert; its ID is set on success
+     * @param copyId Copy being issued
+     * @return true if the row was inserted
+     * @throws SQLException if database error occurs
+     */
+    private boolean insertBorrowing(Borrowing borrowing, int copyId) throws SQLException {
+        String insertQuery = "INSERT INTO borrowings (user_id, book_copy_id, borrow_date, due_date, issued_by) " +
+                           "VALUES (?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement stmt = connection.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, borrowing.getUser().getId());
+            stmt.setInt(2, copyId);
+            stmt.setDate(3, java.sql.Date.valueOf(borrowing.getBorrowDate()));
+            stmt.setDate(4, java.sql.Date.valueOf(borrowing.getDueDate()));
+            
+            if (borrowing.getIssuedBy() != null) {
+                stmt.setInt(5, borrowing.getIssuedBy().getId());
+            } else {
+                stmt.setNull(5, Types.INTEGER);
+            }
+            
+            int affectedRows = stmt.executeUpdate();
+            
+            if (affectedRows > 0) {
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        borrowing.setId(generatedKeys.getInt(1));
+                        return true;
+                    }
+                }
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Claim the requested copy, or another available copy of the same book if the
+     * requested one was taken concurrently
+     * 
+     * @param requested Copy chosen at the desk
+     * @return ID of the claimed copy, or 0 if none could be claimed
+     * @throws SQLException if database error occurs
+     */
+    private int claimCopyForBorrowing(BookCopy requested) throws SQLException {
+        if (bookCopyDAO.claimAvailableCopy(requested.getId(), BookCopy.Status.BORROWED)) {
+            return requested.getId();
+        }
+        
+        // Conflict: fall back to other copies of the same title, re-reading them each round
+        for (int attempt = 1; attempt < MAX_CHECKOUT_ATTEMPTS; attempt++) {
+            List<Integer> candidates = bookCopyDAO.getAvailableCopyIds(requested.getBookId(), CHECKOUT_CANDIDATES);
+            if (candidates.isEmpty()) {
+                return 0;
+            }
+            
+            for (int candidateId : candidates) {
+                if (bookCopyDAO.claimAvailableCopy(candidateId, BookCopy.Status.BORROWED)) {
+                    return candidateId;
+                }
+            }
         }
+        
+        return 0;
     }
     
     /**
-     * Record a book return
+     * Record a book return.
+     * If patrons are waiting for the book, the copy is held for the first of them
+     * (status RESERVED) instead of going back on the shelf.
      * 
      * @param borrowingId Borrowing ID
      * @param returnDate Return date
@@ -248,8 +391,9 @@ public class BorrowingDAO {
         connection.setAutoCommit(false);
         
         try {
-            // Update borrowing record
-            String updateQuery = "UPDATE borrowings SET return_date = ?, returned_to = ? WHERE id = ?";
+            // Update borrowing record; a concurrent second return matches no row
+            String updateQuery = "UPDATE borrowings SET return_date = ?, returned_to = ? " +
+                                 "WHERE id = ? AND return_date IS NULL";
             
             try (PreparedStatement stmt = connection.prepareStatement(updateQuery)) {
                 stmt.setDate(1, java.sql.Date.valueOf(returnDate));
@@ -265,14 +409,22 @@ public class BorrowingDAO {
                 int affectedRows = stmt.executeUpdate();
                 
                 if (affectedRows > 0) {
-                    // Update book copy status back to AVAILABLE
-                    boolean statusUpdated = bookCopyDAO.updateCopyStatus(
-                            borrowing.getBookCopy().getId(), 
+                    BookCopy bookCopy = borrowing.getBookCopy();
+                    
+                    // Hand the copy to the next patron waiting for this book, if any
+                    ReservationQueue.Entry hold = reservationQueue.claimNext(
+                            connection, bookCopy.getBookId(), bookCopy.getId());
+                    
+                    // Otherwise update book copy status back to AVAILABLE
+                    boolean statusUpdated = hold != null || bookCopyDAO.updateCopyStatus(
+                            bookCopy.getId(), 
                             BookCopy.Status.AVAILABLE
                     );
                     
                     if (statusUpdated) {
                         connection.commit();
+                        RETURNS.increment();
+                        reservationQueue.confirm(hold);
                         return true;
                     }
                 }
@@ -451,7 +603,95 @@ public class BorrowingDAO {
             // Column doesn't exist in the schema, skip it
         }
         
-        // Get the dates
+        setDatesFromResultSet(borrowing, rs);
+        return borrowing;
+    }
+    
+    /**
+     * Extract a Borrowing from a row of the joined active-borrowings query, without
+     * further lookups; rows of the same book share one Book, collected in books
+     * 
+     * @param rs ResultSet to extract from
+     * @param books Books read so far by ID
+     * @return Borrowing object
+     * @throws SQLException if database error occurs
+     */
+    private Borrowing extractJoinedBorrowingFromResultSet(ResultSet rs, Map<Integer, Book> books) throws SQLException {
+        Borrowing borrowing = new Borrowing();
+        borrowing.setId(rs.getInt("id"));
+        
+        Book book = books.get(rs.getInt("book_id"));
+        if (book == null) {
+            book = new Book();
+            book.setId(rs.getInt("book_id"));
+            book.setTitle(rs.getString("title"));
+            book.setAuthorName(rs.getString("author_name"));
+            book.setIsbn(rs.getString("isbn"));
+            book.setPublicationYear(rs.getInt("publication_year"));
+            book.setDescription(rs.getString("description"));
+            book.setCoverImage(rs.getString("cover_image_url"));
+            
+            int publisherId = rs.getInt("publisher_id");
+            if (!rs.wasNull()) {
+                Publisher publisher = new Publisher();
+                publisher.setId(publisherId);
+                publisher.setName(rs.getString("publisher_name"));
+                publisher.setAddress(rs.getString("publisher_address"));
+                publisher.setEmail(rs.getString("publisher_email"));
+                publisher.setPhone(rs.getString("publisher_phone"));
+                publisher.setWebsite(rs.getString("publisher_website"));
+                book.setPublisher(publisher);
+            }
+            books.put(book.getId(), book);
+        }
+        
+        BookCopy bookCopy = new BookCopy();
+        bookCopy.setId(rs.getInt("book_copy_id"));
+        bookCopy.setCopyNumber(rs.getString("copy_number"));
+        Date acquisitionDate = rs.getDate("acquisition_date");
+        if (acquisitionDate != null) {
+            bookCopy.setAcquisitionDate(acquisitionDate.toLocalDate());
+        }
+        bookCopy.setStatus(BookCopy.Status.valueOf(rs.getString("copy_status")));
+        bookCopy.setLocation(rs.getString("shelf_location"));
+        bookCopy.setNotes(rs.getString("copy_notes"));
+        bookCopy.setBook(book);
+        borrowing.setBookCopy(bookCopy);
+        
+        borrowing.setUser(extractJoinedUser(rs, rs.getInt("user_id"), "user_"));
+        
+        int issuedById = rs.getInt("issued_by");
+        if (!rs.wasNull()) {
+            borrowing.setIssuedBy(extractJoinedUser(rs, issuedById, "issuer_"));
+        }
+        
+        setDatesFromResultSet(borrowing, rs);
+        return borrowing;
+    }
+    
+    /**
+     * Read the public details of a user joined into a borrowing row under a column prefix
+     */
+    private static User extractJoinedUser(ResultSet rs, int userId, String prefix) throws SQLException {
+        String role = rs.getString(prefix + "role");
+        if (role == null) {
+            // Staff account deleted after issuing
+            return null;
+        }
+        
+        User user = new User();
+        user.setId(userId);
+        user.setName(rs.getString(prefix + "name"));
+        user.setEmail(rs.getString(prefix + "email"));
+        user.setRole(User.UserRole.valueOf(role));
+        user.setPhone(rs.getString(prefix + "phone"));
+        return user;
+    }
+    
+    /**
+     * Copy the dates and timestamps of a borrowing row and derive its status
+     */
+    private static void setDatesFromResultSet(Borrowing borrowing, ResultSet rs) throws SQLException {
         Date borrowDate = rs.getDate("borrow_date");
         if (borrowDate != null) {
             borrowing.setBorrowDate(borrowDate.toLocalDate());
@@ -479,10 +719,8 @@ public class BorrowingDAO {
         }
         
         // Update the status based on dates
-    borrowing.updateStatus();
-    
-    return borrowing;
-}
+        borrowing.updateStatus();
+    }
 
 /**
  * Get recent borrowing activities for dashboard
@@ -572,5 +810,8 @@ public void close() throws SQLException {
     if (bookCopyDAO != null) {
         bookCopyDAO.close();
     }
+    if (categoryDAO != null) {
+        categoryDAO.close();
+    }
 }
 }
@@ -0,0 +1,594 @@
+package com.example.lms.model;
+
+import com.example.lms.util.AppSettings;
+import com.example.lms.util.ConnectionPool;
+import com.example.lms.util.Log;
+import com.example.lms.util.Metrics;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Processes a stream of scanned returns, e.g. when the book drop is emptied.
+ * Active loans are loaded once into memory and looked up by copy ID or by the
+ * "bookId-copyNumber" label, returns are group-committed in small batches, and
+ * late fines and reservation holds are handled afterwards on a background thread.
+ *
+ * Every database call borrows a pooled connection, so the session's transactions never
+ * share the application connection. A session is not thread-safe: call it from one
+ * thread at a time, e.g. through DaoExecutor. The counters may be read from any thread.
+ */
+public class BulkReturnSession {
+
+    public static final int DEFAULT_BATCH_SIZE = 10;
+
+    private static final Metrics.Counter RETURNS = Metrics.counter("lms_returns_total", "Books returned");
+
+    private static final String ACTIVE_LOAN_QUERY =
+            "SELECT b.id, b.book_copy_id, b.user_id, b.due_date, bc.book_id, bc.copy_number, bk.title, u.name AS user_name " +
+            "FROM borrowings b " +
+            "JOIN book_copies bc ON b.book_copy_id = bc.id " +
+            "JOIN books bk ON bc.book_id = bk.id " +
+            "JOIN users u ON b.user_id = u.id " +
+            "WHERE b.return_date IS NULL";
+
+    // Fines and holds are not needed at the desk, so one worker catches up behind the scanner
+    private static final ExecutorService FOLLOW_UP = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "bulk-return-follow-up");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Outcome of one scan
+     */
+    public enum ScanStatus {
+        QUEUED,
+        ALREADY_SCANNED,
+        NOT_CHECKED_OUT
+    }
+
+    /**
+     * An active loan as seen by the returns desk
+     */
+    public static final class ActiveLoan {
+        private final int borrowingId;
+        private final int copyId;
+        private final int userId;
+        private final int bookId;
+        private final String copyNumber;
+        private final String bookTitle;
+        private final String userName;
+        private final LocalDate dueDate;
+
+        ActiveLoan(int borrowingId, int copyId, int userId, int bookId, String copyNumber,
+                   String bookTitle, String userName, LocalDate dueDate) {
+            this.borrowingId = borrowingId;
+            this.copyId = copyId;
+            this.userId = userId;
+            this.bookId = bookId;
+            this.copyNumber = copyNumber;
+            this.bookTitle = bookTitle;
+            this.userName = userName;
+            this.dueDate = dueDate;
+        }
+
+        public int getBorrowingId() {
+            return borrowingId;
+        }
+
+        public int getCopyId() {
+            return copyId;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public int getBookId() {
+            return bookId;
+        }
+
+        public String getCopyNumber() {
+            return copyNumber;
+        }
+
+        public String getBookTitle() {
+            return bookTitle;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public LocalDate getDueDate() {
+            return dueDate;
+        }
+
+        /**
+         * @return The label printed on the copy, "bookId-copyNumber"
+         */
+        public String getScanLabel() {
+            return bookId + "-" + copyNumber;
+        }
+    }
+
+    /**
+     * Result of one scan
+     */
+    public static final class ScanResult {
+        private final String code;
+        private final ScanStatus status;
+        private final ActiveLoan loan;
+        private final List<ActiveLoan> committed;
+
+        ScanResult(String code, ScanStatus status, ActiveLoan loan) {
+            this(code, status, loan, List.of());
+        }
+
+        ScanResult(String code, ScanStatus status, ActiveLoan loan, List<ActiveLoan> committed) {
+            this.code = code;
+            this.status = status;
+            this.loan = loan;
+            this.committed = committed;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public ScanStatus getStatus() {
+            return status;
+        }
+
+        /**
+         * @return The loan being returned, or null if nothing was checked out under this code
+         */
+        public ActiveLoan getLoan() {
+            return loan;
+        }
+
+        /**
+         * @return Loans returned because this scan filled its batch, empty if the batch is still open
+         */
+        public List<ActiveLoan> getCommitted() {
+            return committed;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final User returnedTo;
+    private final int batchSize;
+    private final double fineRatePerDay;
+
+    private final Map<Integer, ActiveLoan> loansByCopyId = new HashMap<>();
+    private final Map<String, ActiveLoan> loansByLabel = new HashMap<>();
+    private final Set<Integer> scannedCopyIds = new HashSet<>();
+    private final List<ActiveLoan> pending = new ArrayList<>();
+
+    private volatile int pendingCount;
+    private volatile int returnedCount;
+    private volatile long firstScanNanos;
+
+    /**
+     * Constructor that loads all active loans with one query
+     *
+     * @param pool Pool the session borrows its connections from
+     * @param returnedTo Staff processing the returns
+     * @throws SQLException if database error occurs
+     */
+    public BulkReturnSession(ConnectionPool pool, User returnedTo) throws SQLException {
+        this(pool, returnedTo, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor that loads all active loans with one query
+     *
+     * @param pool Pool the session borrows its connections from
+     * @param returnedTo Staff processing the returns
+     * @param batchSize Number of scans committed together
+     * @throws SQLException if database error occurs
+     */
+    public BulkReturnSession(ConnectionPool pool, User returnedTo, int batchSize) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.pool = pool;
+        this.returnedTo = returnedTo;
+        this.batchSize = batchSize;
+        this.fineRatePerDay = AppSettings.getFineRatePerDay();
+
+        pool.withConnection(connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(ACTIVE_LOAN_QUERY);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    index(extractLoan(rs));
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Register one scanned copy. The return is committed with the rest of its batch;
+     * a full batch is flushed immediately.
+     *
+     * @param code Copy ID or "bookId-copyNumber" label
+     * @return Scan result
+     * @throws SQLException if the batch could not be committed
+     */
+    public ScanResult scan(String code) throws SQLException {
+        String trimmed = code == null ? "" : code.trim();
+        ActiveLoan loan = resolve(trimmed);
+
+        if (loan == null) {
+            return new ScanResult(trimmed, ScanStatus.NOT_CHECKED_OUT, null);
+        }
+        if (!scannedCopyIds.add(loan.getCopyId())) {
+            return new ScanResult(trimmed, ScanStatus.ALREADY_SCANNED, loan);
+        }
+
+        if (firstScanNanos == 0) {
+            firstScanNanos = System.nanoTime();
+        }
+        pending.add(loan);
+        pendingCount = pending.size();
+
+        List<ActiveLoan> committed = pending.size() >= batchSize ? flush() : List.of();
+
+        return new ScanResult(trimmed, ScanStatus.QUEUED, loan, committed);
+    }
+
+    /**
+     * Commit all queued returns in one transaction.
+     * If the commit fails the queued scans are dropped so they can be scanned again.
+     *
+     * @return Loans that were returned
+     * @throws SQLException if database error occurs
+     */
+    public List<ActiveLoan> flush() throws SQLException {
+        if (pending.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<ActiveLoan> batch = new ArrayList<>(pending);
+        pending.clear();
+        pendingCount = 0;
+        LocalDate returnDate = LocalDate.now();
+
+        List<ActiveLoan> returned;
+        try {
+            returned = pool.withConnection(connection -> commitReturns(connection, batch, returnDate));
+        } catch (SQLException e) {
+            for (ActiveLoan loan : batch) {
+                scannedCopyIds.remove(loan.getCopyId());
+            }
+            throw e;
+        }
+
+        for (ActiveLoan loan : batch) {
+            loansByCopyId.remove(loan.getCopyId());
+            loansByLabel.remove(loan.getScanLabel());
+            scannedCopyIds.remove(loan.getCopyId());
+        }
+        returnedCount += returned.size();
+
+        if (!returned.isEmpty()) {
+            ConnectionPool followUpPool = pool;
+            double rate = fineRatePerDay;
+            User issuedBy = returnedTo;
+            FOLLOW_UP.execute(() -> processFollowUp(followUpPool, returned, returnDate, rate, issuedBy));
+        }
+
+        return returned;
+    }
+
+    /**
+     * Mark a batch returned and its copies available in one transaction
+     *
+     * @return Loans that were still open and are now returned
+     */
+    private List<ActiveLoan> commitReturns(Connection connection, List<ActiveLoan> batch, LocalDate returnDate)
+            throws SQLException {
+        List<ActiveLoan> returned = new ArrayList<>();
+
+        // Begin transaction
+        connection.setAutoCommit(false);
+
+        try {
+            String returnQuery = "UPDATE borrowings SET return_date = ?, returned_to = ?, updated_at = NOW() " +
+                                 "WHERE id = ? AND return_date IS NULL";
+
+            try (PreparedStatement stmt = connection.prepareStatement(returnQuery)) {
+                for (ActiveLoan loan : batch) {
+                    stmt.setDate(1, Date.valueOf(returnDate));
+
+                    if (returnedTo != null) {
+                        stmt.setInt(2, returnedTo.getId());
+                    } else {
+                        stmt.setNull(2, Types.INTEGER);
+                    }
+
+                    stmt.setInt(3, loan.getBorrowingId());
+                    stmt.addBatch();
+                }
+
+                int[] counts = stmt.executeBatch();
+                for (int i = 0; i < batch.size(); i++) {
+                    // Zero rows means someone else already returned it
+                    if (i >= counts.length || counts[i] != 0) {
+                        returned.add(batch.get(i));
+                    }
+                }
+            }
+
+            if (!returned.isEmpty()) {
+                String copyQuery = "UPDATE book_copies SET status = 'AVAILABLE' WHERE id = ?";
+
+                try (PreparedStatement stmt = connection.prepareStatement(copyQuery)) {
+                    for (ActiveLoan loan : returned) {
+                        stmt.setInt(1, loan.getCopyId());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+            }
+
+            connection.commit();
+            RETURNS.add(returned.size());
+            return returned;
+
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Get the number of scans waiting for the next commit
+     *
+     * @return Pending scan count
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Get the number of returns committed by this session
+     *
+     * @return Returned count
+     */
+    public int getReturnedCount() {
+        return returnedCount;
+    }
+
+    /**
+     * Get the committed return rate since the first scan
+     *
+     * @return Returns per second
+     */
+    public double getReturnsPerSecond() {
+        if (firstScanNanos == 0) {
+            return 0.0;
+        }
+        double seconds = (System.nanoTime() - firstScanNanos) / 1_000_000_000.0;
+        return seconds > 0 ? returnedCount / seconds : 0.0;
+    }
+
+    /**
+     * Find the active loan for a scanned code, falling back to the database for
+     * loans created after the session started
+     */
+    private ActiveLoan resolve(String code) throws SQLException {
+        if (code.isEmpty()) {
+            return null;
+        }
+
+        int dash = code.indexOf('-');
+        if (dash < 0) {
+            int copyId;
+            try {
+                copyId = Integer.parseInt(code);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+            ActiveLoan loan = loansByCopyId.get(copyId);
+            return loan != null ? loan : lookup(" AND bc.id = ?", copyId, null);
+        }
+
+        ActiveLoan loan = loansByLabel.get(code);
+        if (loan != null) {
+            return loan;
+        }
+
+        try {
+            int bookId = Integer.parseInt(code.substring(0, dash));
+            return lookup(" AND bc.book_id = ? AND bc.copy_number = ?", bookId, code.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Load a single active loan and add it to the index
+     */
+    private ActiveLoan lookup(String condition, int id, String copyNumber) throws SQLException {
+        ActiveLoan loan = pool.withConnection(connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(ACTIVE_LOAN_QUERY + condition)) {
+                stmt.setInt(1, id);
+                if (copyNumber != null) {
+                    stmt.setString(2, copyNumber);
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? extractLoan(rs) : null;
+                }
+            }
+        });
+
+        if (loan != null) {
+            index(loan);
+        }
+        return loan;
+    }
+
+    private void index(ActiveLoan loan) {
+        loansByCopyId.put(loan.getCopyId(), loan);
+        loansByLabel.put(loan.getScanLabel(), loan);
+    }
+
+    private ActiveLoan extractLoan(ResultSet rs) throws SQLException {
+        Date dueDate = rs.getDate("due_date");
+
+        return new ActiveLoan(
+                rs.getInt("id"),
+                rs.getInt("book_copy_id"),
+                rs.getInt("user_id"),
+                rs.getInt("book_id"),
+                rs.getString("copy_number"),
+                rs.getString("title"),
+                rs.getString("user_name"),
+                dueDate != null ? dueDate.toLocalDate() : null
+        );
+    }
+
+    /**
+     * Add late fines and hand returned copies to waiting reservations.
+     * Runs on the follow-up thread with a pooled connection.
+     */
+    private static void processFollowUp(ConnectionPool pool, List<ActiveLoan> returned, LocalDate returnDate,
+                                        double rate, User issuedBy) {
+        try {
+            pool.withConnection(connection -> {
+                addLateFines(connection, returned, returnDate, rate, issuedBy);
+                allocateToReservations(connection, returned);
+                return null;
+            });
+        } catch (SQLException e) {
+            Log.error("Error processing bulk return follow-up", e);
+        }
+    }
+
+    /**
+     * Insert a LATE_RETURN fine for each overdue loan that does not have one yet, as one batch.
+     * Fills the same columns as FineDAO.addFine, so the fine shows up for its user.
+     */
+    private static void addLateFines(Connection conn, List<ActiveLoan> returned, LocalDate returnDate,
+                                     double rate, User issuedBy) throws SQLException {
+        String query = "INSERT INTO fines (user_id, borrowing_id, amount, issue_date, reason, issued_by) " +
+                       "SELECT ?, ?, ?, ?, 'LATE_RETURN', ? FROM DUAL " +
+                       "WHERE NOT EXISTS (SELECT 1 FROM fines WHERE borrowing_id = ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            int overdue = 0;
+
+            for (ActiveLoan loan : returned) {
+                if (loan.getDueDate() == null || !returnDate.isAfter(loan.getDueDate())) {
+                    continue;
+                }
+
+                long daysLate = ChronoUnit.DAYS.between(loan.getDueDate(), returnDate);
+                BigDecimal amount = BigDecimal.valueOf(daysLate * rate).setScale(2, RoundingMode.HALF_UP);
+
+                stmt.setInt(1, loan.getUserId());
+                stmt.setInt(2, loan.getBorrowingId());
+                stmt.setBigDecimal(3, amount);
+                stmt.setDate(4, Date.valueOf(returnDate));
+
+                if (issuedBy != null) {
+                    stmt.setInt(5, issuedBy.getId());
+                } else {
+                    stmt.setNull(5, Types.INTEGER);
+                }
+
+                stmt.setInt(6, loan.getBorrowingId());
+                stmt.addBatch();
+                overdue++;
+            }
+
+            if (overdue > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Offer each returned copy that is still on the shelf to the head of its book's reservation queue
+     */
+    private static void allocateToReservations(Connection conn, List<ActiveLoan> returned) throws SQLException {
+        ReservationQueue reservationQueue = ReservationQueue.getInstance();
+        List<ReservationQueue.Entry> holds = new ArrayList<>();
+
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < returned.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+
+        // Lock the copies so a checkout cannot take one while it is being held
+        String lockQuery = "SELECT id FROM book_copies WHERE id IN (" + placeholders + ") " +
+                           "AND status = 'AVAILABLE' FOR UPDATE";
+
+        // Begin transaction
+        conn.setAutoCommit(false);
+
+        try {
+            Set<Integer> available = new HashSet<>();
+
+            try (PreparedStatement stmt = conn.prepareStatement(lockQuery)) {
+                for (int i = 0; i < returned.size(); i++) {
+                    stmt.setInt(i + 1, returned.get(i).getCopyId());
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        available.add(rs.getInt("id"));
+                    }
+                }
+            }
+
+            for (ActiveLoan loan : returned) {
+                if (available.contains(loan.getCopyId())) {
+                    ReservationQueue.Entry hold = reservationQueue.claimNext(conn, loan.getBookId(), loan.getCopyId());
+                    if (hold != null) {
+                        holds.add(hold);
+                    }
+                }
+            }
+
+            conn.commit();
+
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        for (ReservationQueue.Entry hold : holds) {
+            reservationQueue.confirm(hold);
+        }
+    }
+
+    /**
+     * Commit any remaining scans
+     *
+     * @throws SQLException if database error occurs
+     */
+    public void close() throws SQLException {
+        flush();
+    }
+}
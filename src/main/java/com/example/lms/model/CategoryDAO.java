@@ -1,9 +1,13 @@
 package com.example.lms.model;
 
 import com.example.lms.util.Database;
+import com.example.lms.util.Log;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for Category entities
@@ -19,7 +23,7 @@ public class CategoryDAO {
         try {
             connection = Database.getConnection();
         } catch (SQLException e) {
-            System.err.println("Error initializing CategoryDAO: " + e.getMessage());
+            Log.error("Error initializing CategoryDAO", e);
         }
     }
     
@@ -119,6 +123,45 @@ public class CategoryDAO {
         return categories;
     }
     
+    /**
+     * Get the categories of several books with one query
+     * 
+     * @param bookIds Book IDs
+     * @return Categories per book ID, ordered by name; books without categories are absent
+     * @throws SQLException if database error occurs
+     */
+    public Map<Integer, List<Category>> getCategoriesByBookIds(Collection<Integer> bookIds) throws SQLException {
+        Map<Integer, List<Category>> categories = new HashMap<>();
+        if (bookIds.isEmpty()) {
+            return categories;
+        }
+        
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < bookIds.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        String query = "SELECT bc.book_id, c.* FROM categories c " +
+                       "JOIN book_categories bc ON c.id = bc.category_id " +
+                       "WHERE bc.book_id IN (" + placeholders + ") " +
+                       "ORDER BY c.name";
+        
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            int index = 1;
+            for (int bookId : bookIds) {
+                stmt.setInt(index++, bookId);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    categories.computeIfAbsent(rs.getInt("book_id"), id -> new ArrayList<>())
+                            .add(extractCategoryFromResultSet(rs));
+                }
+            }
+        }
+        
+        return categories;
+    }
+    
     /**
      * Add a new category
      * 
@@ -0,0 +1,341 @@
+package com.example.lms.model;
+
+import com.example.lms.util.AppSettings;
+import com.example.lms.util.Database;
+import com.example.lms.util.Log;
+import com.example.lms.util.Metrics;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checkout of several books to one patron in a single transaction.
+ * Eligibility (borrowing limit and unpaid fines) is checked once for the whole cart,
+ * inside the transaction with the patron's row locked, so two desks checking out to
+ * the same patron at once cannot both pass the limit. Copies are allocated with
+ * SKIP LOCKED, and all copy status changes and borrowing rows are written as two
+ * JDBC batches before one commit.
+ */
+public class CheckoutCart {
+
+    private static final Metrics.Counter CHECKOUTS = Metrics.counter("lms_checkouts_total", "Books checked out");
+
+    /**
+     * Outcome of one cart item
+     */
+    public enum ItemStatus {
+        ISSUED,
+        NO_COPY_AVAILABLE,
+        OVER_LIMIT,
+        UNPAID_FINES
+    }
+
+    /**
+     * Result for one book in the cart
+     */
+    public static final class ItemResult {
+        private final int bookId;
+        private final ItemStatus status;
+        private final Borrowing borrowing;
+
+        ItemResult(int bookId, ItemStatus status, Borrowing borrowing) {
+            this.bookId = bookId;
+            this.status = status;
+            this.borrowing = borrowing;
+        }
+
+        public int getBookId() {
+            return bookId;
+        }
+
+        public ItemStatus getStatus() {
+            return status;
+        }
+
+        /**
+         * @return The created borrowing if the item was issued, null otherwise
+         */
+        public Borrowing getBorrowing() {
+            return borrowing;
+        }
+
+        public boolean isIssued() {
+            return status == ItemStatus.ISSUED;
+        }
+    }
+
+    private final User user;
+    private final User issuedBy;
+    private final List<Integer> bookIds = new ArrayList<>();
+
+    private Connection connection;
+    private BookCopyDAO bookCopyDAO;
+    private FineDAO fineDAO;
+
+    /**
+     * Constructor that initializes the database connection and related DAOs
+     *
+     * @param user Patron borrowing the books
+     * @param issuedBy Staff issuing the books
+     */
+    public CheckoutCart(User user, User issuedBy) {
+        this.user = user;
+        this.issuedBy = issuedBy;
+
+        try {
+            connection = Database.getConnection();
+            bookCopyDAO = new BookCopyDAO();
+            fineDAO = new FineDAO();
+        } catch (SQLException e) {
+            Log.error("Error initializing CheckoutCart", e);
+        }
+    }
+
+    /**
+     * Add a book to the cart; the same book may be added more than once
+     *
+     * @param bookId Book ID
+     */
+    public void addBook(int bookId) {
+        bookIds.add(bookId);
+    }
+
+    /**
+     * Remove one occurrence of a book from the cart
+     *
+     * @param bookId Book ID
+     */
+    public void removeBook(int bookId) {
+        bookIds.remove(Integer.valueOf(bookId));
+    }
+
+    /**
+     * Empty the cart
+     */
+    public void clear() {
+        bookIds.clear();
+    }
+
+    public List<Integer> getBookIds() {
+        return new ArrayList<>(bookIds);
+    }
+
+    public int size() {
+        return bookIds.size();
+    }
+
+    /**
+     * Issue everything in the cart.
+     * Items the patron is not allowed to borrow, or for which no copy is free, are
+     * reported per item; the rest are committed together.
+     *
+     * @param dueDate Due date for all borrowings
+     * @return One result per cart item, in cart order
+     * @throws SQLException if database error occurs
+     */
+    public List<ItemResult> checkout(LocalDate dueDate) throws SQLException {
+        List<ItemResult> results = new ArrayList<>();
+        List<Integer> issuable;
+        List<Borrowing> borrowings = new ArrayList<>();
+
+        // Read outside the transaction, so the settings lookup holds no locks
+        int maxBooks = AppSettings.getMaxBooksPerUser();
+
+        // Begin transaction
+        connection.setAutoCommit(false);
+
+        try {
+            // Concurrent checkouts to this patron wait here until this one commits
+            lockUser();
+
+            // Eligibility is the same for every item, so check it once
+            if (fineDAO.hasUnpaidFines(user.getId())) {
+                connection.rollback();
+                for (int bookId : bookIds) {
+                    results.add(new ItemResult(bookId, ItemStatus.UNPAID_FINES, null));
+                }
+                return results;
+            }
+
+            int allowed = Math.max(0, maxBooks - getActiveBorrowingsCount());
+            issuable = bookIds.subList(0, Math.min(allowed, bookIds.size()));
+
+            // How many copies of each title are needed
+            Map<Integer, Integer> copiesNeeded = new LinkedHashMap<>();
+            for (int bookId : issuable) {
+                copiesNeeded.merge(bookId, 1, Integer::sum);
+            }
+
+            LocalDate today = LocalDate.now();
+            Map<Integer, List<Integer>> lockedCopies = new LinkedHashMap<>();
+
+            for (Map.Entry<Integer, Integer> entry : copiesNeeded.entrySet()) {
+                lockedCopies.put(entry.getKey(),
+                        new ArrayList<>(bookCopyDAO.lockAvailableCopies(entry.getKey(), entry.getValue())));
+            }
+
+            // Pair each issuable item with one of the locked copies
+            for (int bookId : issuable) {
+                List<Integer> copies = lockedCopies.get(bookId);
+                if (copies.isEmpty()) {
+                    borrowings.add(null);
+                    continue;
+                }
+
+                BookCopy copy = new BookCopy(bookId, null);
+                copy.setId(copies.remove(0));
+                copy.setStatus(BookCopy.Status.BORROWED);
+
+                Borrowing borrowing = new Borrowing();
+                borrowing.setUser(user);
+                borrowing.setBookCopy(copy);
+                borrowing.setBorrowDate(today);
+                borrowing.setDueDate(dueDate);
+                borrowing.setIssuedBy(issuedBy);
+                borrowings.add(borrowing);
+            }
+
+            List<Borrowing> toInsert = new ArrayList<>();
+            for (Borrowing borrowing : borrowings) {
+                if (borrowing != null) {
+                    toInsert.add(borrowing);
+                }
+            }
+
+            if (!toInsert.isEmpty()) {
+                markCopiesBorrowed(toInsert);
+                insertBorrowings(toInsert);
+            }
+
+            connection.commit();
+            CHECKOUTS.add(toInsert.size());
+
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        for (int i = 0; i < bookIds.size(); i++) {
+            int bookId = bookIds.get(i);
+
+            if (i >= issuable.size()) {
+                results.add(new ItemResult(bookId, ItemStatus.OVER_LIMIT, null));
+            } else if (borrowings.get(i) == null) {
+                results.add(new ItemResult(bookId, ItemStatus.NO_COPY_AVAILABLE, null));
+            } else {
+                results.add(new ItemResult(bookId, ItemStatus.ISSUED, borrowings.get(i)));
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Lock the patron's row for the rest of the transaction
+     */
+    private void lockUser() throws SQLException {
+        String query = "SELECT id FROM users WHERE id = ? FOR UPDATE";
+
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setInt(1, user.getId());
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("User " + user.getId() + " does not exist");
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of books the patron currently has out
+     */
+    private int getActiveBorrowingsCount() throws SQLException {
+        String query = "SELECT COUNT(*) FROM borrowings WHERE user_id = ? AND return_date IS NULL";
+
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setInt(1, user.getId());
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Mark all allocated copies BORROWED with one batch
+     */
+    private void markCopiesBorrowed(List<Borrowing> borrowings) throws SQLException {
+        String query = "UPDATE book_copies SET status = 'BORROWED' WHERE id = ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            for (Borrowing borrowing : borrowings) {
+                stmt.setInt(1, borrowing.getBookCopy().getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Insert all borrowing rows with one batch and read back their IDs
+     */
+    private void insertBorrowings(List<Borrowing> borrowings) throws SQLException {
+        String query = "INSERT INTO borrowings (user_id, book_copy_id, borrow_date, due_date, issued_by) " +
+                       "VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            for (Borrowing borrowing : borrowings) {
+                stmt.setInt(1, user.getId());
+                stmt.setInt(2, borrowing.getBookCopy().getId());
+                stmt.setDate(3, Date.valueOf(borrowing.getBorrowDate()));
+                stmt.setDate(4, Date.valueOf(borrowing.getDueDate()));
+
+                if (issuedBy != null) {
+                    stmt.setInt(5, issuedBy.getId());
+                } else {
+                    stmt.setNull(5, Types.INTEGER);
+                }
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                for (Borrowing borrowing : borrowings) {
+                    if (!generatedKeys.next()) {
+                        break;
+                    }
+                    borrowing.setId(generatedKeys.getInt(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Close resources and release the database connection
+     *
+     * @throws SQLException if database error occurs
+     */
+    public void close() throws SQLException {
+        // Release the connection back to the pool
+        Database.releaseConnection();
+
+        // Close related DAOs
+        if (bookCopyDAO != null) {
+            bookCopyDAO.close();
+        }
+        if (fineDAO != null) {
+            fineDAO.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.lms.model;
+
+import com.example.lms.util.ConnectionPool;
+import com.example.lms.util.Database;
+import com.example.lms.util.Log;
+import com.example.lms.util.ServiceRegistry;
+
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Registers the shared DAOs with {@link ServiceRegistry}.
+ * Each DAO, with the DAOs it builds on, is created on first use and then reused by
+ * every screen, instead of every controller building its own chain and reconnecting.
+ * They use the shared connection and stay open until the registry shuts down, so
+ * controllers must not close them. {@link #warmUp(ServiceRegistry)} creates them ahead
+ * of time, e.g. in the background while the login screen is shown.
+ */
+public final class Daos {
+
+    private Daos() {
+    }
+
+    /**
+     * Register every DAO; the registry closes them on shutdown, which releases the
+     * shared connection
+     *
+     * @param services Registry to add the DAOs to
+     */
+    public static void register(ServiceRegistry services) {
+        shared(services, UserDAO.class, UserDAO::new, UserDAO::close);
+        shared(services, BookDAO.class, BookDAO::new, BookDAO::close);
+        shared(services, BookCopyDAO.class, BookCopyDAO::new, BookCopyDAO::close);
+        shared(services, BorrowingDAO.class, BorrowingDAO::new, BorrowingDAO::close);
+        shared(services, CategoryDAO.class, CategoryDAO::new, CategoryDAO::close);
+        shared(services, PublisherDAO.class, PublisherDAO::new, PublisherDAO::close);
+        shared(services, FineDAO.class, FineDAO::new, FineDAO::close);
+        shared(services, ReservationDAO.class, ReservationDAO::new, ReservationDAO::close);
+        shared(services, LibraryStaffDAO.class, LibraryStaffDAO::new, LibraryStaffDAO::close);
+        // Connects per call, so there is nothing to close
+        shared(services, AppSettingDAO.class, AppSettingDAO::new, dao -> { });
+    }
+
+    /**
+     * Open the shared connection, create the DAOs the first screens need and open one
+     * pooled connection, so the first query after login does not pay for them.
+     * Call from a background thread.
+     *
+     * @param services Registry the DAOs were registered with
+     */
+    public static void warmUp(ServiceRegistry services) {
+        long start = System.nanoTime();
+
+        // BookDAO holds the shared connection open, so login's per-call UserDAO queries reuse it
+        services.get(BookDAO.class);
+        services.get(UserDAO.class);
+        services.get(BookCopyDAO.class);
+        services.get(BorrowingDAO.class);
+        services.get(CategoryDAO.class);
+        services.get(AppSettingDAO.class);
+
+        try {
+            services.get(ConnectionPool.class).withConnection(connection -> null);
+        } catch (SQLException e) {
+            Log.warn("Connection pool warm-up failed", e);
+        }
+
+        Log.info("DAO warm-up finished", "ms", (System.nanoTime() - start) / 1_000_000,
+                "connected", Database.hasSharedConnection());
+    }
+
+    /**
+     * Register a DAO that is created on the shared connection, even when first asked for
+     * by a thread working on a pooled one. A DAO created while the database is down has no
+     * connection, so it is only kept once the shared connection is open; DAOs that connect
+     * per call are kept once anything has connected.
+     */
+    private static <T> void shared(ServiceRegistry services, Class<T> type, Supplier<T> factory,
+                                   ServiceRegistry.Shutdown<T> close) {
+        services.registerWhenReady(type, s -> Database.withSharedConnection(factory),
+                Database::hasSharedConnection, close);
+    }
+}
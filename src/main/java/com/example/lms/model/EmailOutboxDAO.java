@@ -0,0 +1,278 @@
+package com.example.lms.model;
+
+import com.example.lms.util.Database;
+import com.example.lms.util.Log;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the email outbox
+ */
+public class EmailOutboxDAO {
+
+    private Connection connection;
+    private final boolean sharedConnection;
+
+    /**
+     * Constructor that uses the shared application connection
+     */
+    public EmailOutboxDAO() {
+        sharedConnection = true;
+        try {
+            connection = Database.getConnection();
+        } catch (SQLException e) {
+            Log.error("Error initializing EmailOutboxDAO", e);
+        }
+    }
+
+    /**
+     * Constructor that works on a dedicated connection, e.g. the dispatcher's own
+     *
+     * @param connection Connection owned by the caller
+     */
+    public EmailOutboxDAO(Connection connection) {
+        this.connection = connection;
+        this.sharedConnection = false;
+    }
+
+    /**
+     * Queue an email for delivery
+     *
+     * @param email Email to queue
+     * @return true if successful, false otherwise
+     * @throws SQLException if database error occurs
+     */
+    public boolean enqueue(OutboxEmail email) throws SQLException {
+        String query = "INSERT INTO email_outbox (recipient, subject, body, status, next_attempt_at) " +
+                       "VALUES (?, ?, ?, 'PENDING', NOW())";
+
+        try (PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, email.getRecipient());
+            stmt.setString(2, email.getSubject());
+            stmt.setString(3, email.getBody());
+
+            int affectedRows = stmt.executeUpdate();
+
+            if (affectedRows > 0) {
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        email.setId(generatedKeys.getInt(1));
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Queue several emails with one batched insert
+     *
+     * @param emails Emails to queue
+     * @return Number of emails queued
+     * @throws SQLException if database error occurs
+     */
+    public int enqueueAll(List<OutboxEmail> emails) throws SQLException {
+        if (emails.isEmpty()) {
+            return 0;
+        }
+
+        String query = "INSERT INTO email_outbox (recipient, subject, body, status, next_attempt_at) " +
+                       "VALUES (?, ?, ?, 'PENDING', NOW())";
+        int queued = 0;
+
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            for (OutboxEmail email : emails) {
+                stmt.setString(1, email.getRecipient());
+                stmt.setString(2, email.getSubject());
+                stmt.setString(3, email.getBody());
+                stmt.addBatch();
+            }
+
+            for (int count : stmt.executeBatch()) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    queued++;
+                }
+            }
+        }
+
+        return queued;
+    }
+
+    /**
+     * Claim pending emails whose next attempt is due, oldest first, so no other
+     * dispatcher sends them. Claimed emails are SENDING until marked sent or failed;
+     * if the claimant dies first, the claim lapses and the emails are due again.
+     * Rows another dispatcher is claiming at the same moment are skipped.
+     *
+     * @param limit Maximum number of emails to claim
+     * @param leaseSeconds How long the claim holds
+     * @return List of claimed emails
+     * @throws SQLException if database error occurs
+     */
+    public List<OutboxEmail> claimDueEmails(int limit, long leaseSeconds) throws SQLException {
+        List<OutboxEmail> emails = new ArrayList<>();
+        String selectQuery = "SELECT * FROM email_outbox WHERE status IN ('PENDING', 'SENDING') " +
+                             "AND next_attempt_at <= NOW() ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+        String claimQuery = "UPDATE email_outbox SET status = 'SENDING', " +
+                            "next_attempt_at = NOW() + INTERVAL ? SECOND WHERE id = ?";
+
+        // Begin transaction
+        connection.setAutoCommit(false);
+
+        try {
+            try (PreparedStatement stmt = connection.prepareStatement(selectQuery)) {
+                stmt.setInt(1, limit);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        emails.add(extractEmailFromResultSet(rs));
+                    }
+                }
+            }
+
+            if (!emails.isEmpty()) {
+                try (PreparedStatement stmt = connection.prepareStatement(claimQuery)) {
+                    for (OutboxEmail email : emails) {
+                        stmt.setLong(1, leaseSeconds);
+                        stmt.setInt(2, email.getId());
+                        stmt.addBatch();
+                        email.setStatus(OutboxEmail.Status.SENDING);
+                    }
+                    stmt.executeBatch();
+                }
+            }
+
+            connection.commit();
+            return emails;
+
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Mark a batch of emails as sent
+     *
+     * @param ids IDs of the delivered emails
+     * @throws SQLException if database error occurs
+     */
+    public void markSent(List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        String query = "UPDATE email_outbox SET status = 'SENT', sent_at = NOW(), attempts = attempts + 1, " +
+                       "last_error = NULL WHERE id = ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            for (int id : ids) {
+                stmt.setInt(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Record a failed delivery attempt
+     *
+     * @param id Email ID
+     * @param nextAttemptAt When to try again, or null to give up and mark the email FAILED
+     * @param error Error message from the attempt
+     * @throws SQLException if database error occurs
+     */
+    public void markAttemptFailed(int id, LocalDateTime nextAttemptAt, String error) throws SQLException {
+        String query = "UPDATE email_outbox SET status = ?, attempts = attempts + 1, next_attempt_at = ?, " +
+                       "last_error = ? WHERE id = ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            if (nextAttemptAt != null) {
+                stmt.setString(1, OutboxEmail.Status.PENDING.toString());
+                stmt.setTimestamp(2, Timestamp.valueOf(nextAttemptAt));
+            } else {
+                stmt.setString(1, OutboxEmail.Status.FAILED.toString());
+                stmt.setNull(2, Types.TIMESTAMP);
+            }
+
+            // Keep the error short enough for the column
+            stmt.setString(3, error != null && error.length() > 500 ? error.substring(0, 500) : error);
+            stmt.setInt(4, id);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Get the number of emails still waiting to be delivered, including those being sent
+     *
+     * @return Count of pending emails
+     * @throws SQLException if database error occurs
+     */
+    public int getPendingCount() throws SQLException {
+        String query = "SELECT COUNT(*) FROM email_outbox WHERE status IN ('PENDING', 'SENDING')";
+
+        try (PreparedStatement stmt = connection.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
+
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Helper method to extract an OutboxEmail object from a ResultSet
+     *
+     * @param rs ResultSet containing outbox data
+     * @return OutboxEmail object
+     * @throws SQLException if database error occurs
+     */
+    private OutboxEmail extractEmailFromResultSet(ResultSet rs) throws SQLException {
+        OutboxEmail email = new OutboxEmail();
+        email.setId(rs.getInt("id"));
+        email.setRecipient(rs.getString("recipient"));
+        email.setSubject(rs.getString("subject"));
+        email.setBody(rs.getString("body"));
+        email.setStatus(OutboxEmail.Status.valueOf(rs.getString("status")));
+        email.setAttempts(rs.getInt("attempts"));
+        email.setLastError(rs.getString("last_error"));
+
+        Timestamp nextAttemptAt = rs.getTimestamp("next_attempt_at");
+        if (nextAttemptAt != null) {
+            email.setNextAttemptAt(nextAttemptAt.toLocalDateTime());
+        }
+
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        if (createdAt != null) {
+            email.setCreatedAt(createdAt.toLocalDateTime());
+        }
+
+        Timestamp sentAt = rs.getTimestamp("sent_at");
+        if (sentAt != null) {
+            email.setSentAt(sentAt.toLocalDateTime());
+        }
+
+        return email;
+    }
+
+    /**
+     * Close resources and release the database connection
+     *
+     * @throws SQLException if database error occurs
+     */
+    public void close() throws SQLException {
+        if (sharedConnection) {
+            // Release the connection back to the pool
+            Database.releaseConnection();
+        }
+    }
+}
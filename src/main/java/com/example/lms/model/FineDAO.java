@@ -1,6 +1,7 @@
 package com.example.lms.model;
 
 import com.example.lms.util.Database;
+import com.example.lms.util.Log;
 
 import java.math.BigDecimal;
 import java.sql.*;
@@ -28,7 +29,7 @@ public class FineDAO {
             userDAO = new UserDAO();
             borrowingDAO = new BorrowingDAO();
         } catch (SQLException e) {
-            System.err.println("Error initializing FineDAO: " + e.getMessage());
+            Log.error("Error initializing FineDAO", e);
         }
     }
     
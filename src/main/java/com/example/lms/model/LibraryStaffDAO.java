@@ -1,6 +1,7 @@
 package com.example.lms.model;
 
 import com.example.lms.util.Database;
+import com.example.lms.util.Log;
 
 import java.math.BigDecimal;
 import java.sql.*;
@@ -25,7 +26,7 @@ public class LibraryStaffDAO {
             connection = Database.getConnection();
             userDAO = new UserDAO();
         } catch (SQLException e) {
-            System.err.println("Error initializing LibraryStaffDAO: " + e.getMessage());
+            Log.error("Error initializing LibraryStaffDAO", e);
         }
     }
     
@@ -396,14 +397,13 @@ public class LibraryStaffDAO {
      */
     public void close() {
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
+            // Release the connection back to the pool; other DAOs may still be using it
+            Database.releaseConnection();
             
             // UserDAO handles its own connection, no need to close it here
             
         } catch (SQLException e) {
-            System.err.println("Error closing LibraryStaffDAO: " + e.getMessage());
+            Log.error("Error closing LibraryStaffDAO", e);
         }
     }
 }
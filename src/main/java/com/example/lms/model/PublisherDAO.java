@@ -1,6 +1,7 @@
 package com.example.lms.model;
 
 import com.example.lms.util.Database;
+import com.example.lms.util.Log;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -19,7 +20,7 @@ public class PublisherDAO {
         try {
             connection = Database.getConnection();
         } catch (SQLException e) {
-            System.err.println("Error initializing PublisherDAO: " + e.getMessage());
+            Log.error("Error initializing PublisherDAO", e);
         }
     }
     
@@ -103,6 +103,10 @@ public class Reservation {
         return String.valueOf(reservationDate);
     }
 
+    public LocalDateTime getReservationDateTime() {
+        return reservationDate;
+    }
+
     public void setReservationDate(LocalDateTime reservationDate) {
         this.reservationDate = reservationDate;
     }
@@ -111,6 +115,10 @@ public class Reservation {
         return String.valueOf(expiryDate);
     }
 
+    public LocalDateTime getExpiryDateTime() {
+        return expiryDate;
+    }
+
     public void setExpiryDate(LocalDateTime expiryDate) {
         this.expiryDate = expiryDate;
     }
@@ -1,6 +1,7 @@
 package com.example.lms.model;
 
 import com.example.lms.util.Database;
+import com.example.lms.util.Log;
 
 import java.sql.*;
 import java.time.LocalDate;
@@ -27,7 +28,7 @@ public class ReservationDAO {
             bookDAO = new BookDAO();
             userDAO = new UserDAO();
         } catch (SQLException e) {
-            System.err.println("Error initializing ReservationDAO: " + e.getMessage());
+            Log.error("Error initializing ReservationDAO", e);
         }
     }
     
@@ -84,7 +85,7 @@ public class ReservationDAO {
      */
     public List<Reservation> getActiveReservationsForBook(int bookId) throws SQLException {
         List<Reservation> reservations = new ArrayList<>();
-        String query = "SELECT * FROM reservations WHERE book_id = ? AND status = 'ACTIVE' ORDER BY reservation_date";
+        String query = "SELECT * FROM reservations WHERE book_id = ? AND status = 'PENDING' ORDER BY reservation_date";
         
         try (PreparedStatement stmt = connection.prepareStatement(query)) {
             stmt.setInt(1, bookId);
@@ -217,10 +218,10 @@ public class ReservationDAO {
         try (PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setInt(1, reservation.getUser().getId());
             stmt.setInt(2, reservation.getBook().getId());
-            stmt.setDate(3, Date.valueOf(reservation.getReservationDate()));
+            stmt.setTimestamp(3, Timestamp.valueOf(reservation.getReservationDateTime()));
             
-            if (reservation.getExpiryDate() != null) {
-                stmt.setDate(4, Date.valueOf(reservation.getExpiryDate()));
+            if (reservation.getExpiryDateTime() != null) {
+                stmt.setTimestamp(4, Timestamp.valueOf(reservation.getExpiryDateTime()));
             } else {
                 stmt.setNull(4, Types.DATE);
             }
@@ -234,6 +235,9 @@ public class ReservationDAO {
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         reservation.setId(generatedKeys.getInt(1));
+                        
+                        // Keep the book's hold queue in sync
+                        ReservationQueue.getInstance().add(reservation);
                         return true;
                     }
                 }
@@ -279,7 +283,11 @@ public class ReservationDAO {
      * @throws SQLException if database error occurs
      */
     public boolean cancelReservation(int reservationId) throws SQLException {
-        return updateReservationStatus(reservationId, Reservation.Status.CANCELLED, null);
+        boolean cancelled = updateReservationStatus(reservationId, Reservation.Status.CANCELLED, null);
+        if (cancelled) {
+            ReservationQueue.getInstance().remove(reservationId);
+        }
+        return cancelled;
     }
     
     /**
@@ -290,7 +298,11 @@ public class ReservationDAO {
      * @throws SQLException if database error occurs
      */
     public boolean fulfillReservation(int reservationId) throws SQLException {
-        return updateReservationStatus(reservationId, Reservation.Status.FULFILLED, null);
+        boolean fulfilled = updateReservationStatus(reservationId, Reservation.Status.FULFILLED, null);
+        if (fulfilled) {
+            ReservationQueue.getInstance().remove(reservationId);
+        }
+        return fulfilled;
     }
     
     /**
@@ -0,0 +1,300 @@
+package com.example.lms.model;
+
+import com.example.lms.util.ConnectionPool;
+import com.example.lms.util.Log;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires overdue reservations in bulk.
+ * Works through the backlog in bounded chunks, each chunk being one transaction that
+ * marks the reservations EXPIRED with a single UPDATE and puts the copies held for
+ * them back on the shelf with another. Freed copies of books that still have patrons
+ * waiting are then offered to the head of each book's queue.
+ *
+ * {@link #start()} runs a sweep every -Dlms.reservations.sweepMinutes (default 15)
+ * on a background thread; each sweep borrows a connection from the pool.
+ */
+public class ReservationExpirySweeper {
+
+    /**
+     * Default number of reservations handled per transaction
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private static final long SWEEP_INTERVAL_MINUTES = Long.getLong("lms.reservations.sweepMinutes", 15);
+
+    private final ConnectionPool pool;
+    private final int chunkSize;
+    private final ReservationQueue reservationQueue = ReservationQueue.getInstance();
+
+    private final Object lifecycleLock = new Object();
+    private ScheduledExecutorService executor;
+
+    /**
+     * Create a sweeper with the default chunk size
+     *
+     * @param pool Pool the sweeps borrow their connection from
+     */
+    public ReservationExpirySweeper(ConnectionPool pool) {
+        this(pool, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create a sweeper
+     *
+     * @param pool Pool the sweeps borrow their connection from
+     * @param chunkSize Maximum number of reservations expired per transaction
+     */
+    public ReservationExpirySweeper(ConnectionPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Start sweeping in the background, the first sweep running right away.
+     * Call once the startup migrations have completed, as the sweep relies on the
+     * held copy column.
+     */
+    public void start() {
+        synchronized (lifecycleLock) {
+            if (executor != null) {
+                return;
+            }
+
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "reservation-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::sweepSafely, 0, SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Stop sweeping; a sweep in progress finishes its current chunk
+     */
+    public void stop() {
+        synchronized (lifecycleLock) {
+            if (executor == null) {
+                return;
+            }
+
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    /**
+     * Expire every reservation whose expiry date has passed
+     *
+     * @return IDs of the reservations that were expired, for downstream notification
+     * @throws SQLException if database error occurs
+     */
+    public List<Integer> sweep() throws SQLException {
+        return sweep(LocalDateTime.now());
+    }
+
+    /**
+     * Expire every reservation whose expiry date is before the given cutoff
+     *
+     * @param cutoff Reservations expiring before this moment are expired
+     * @return IDs of the reservations that were expired, for downstream notification
+     * @throws SQLException if database error occurs
+     */
+    public List<Integer> sweep(LocalDateTime cutoff) throws SQLException {
+        return pool.withConnection(connection -> {
+            List<Integer> expiredIds = new ArrayList<>();
+
+            while (true) {
+                List<Integer> chunk = sweepChunk(connection, Timestamp.valueOf(cutoff));
+                expiredIds.addAll(chunk);
+
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+            }
+
+            return expiredIds;
+        });
+    }
+
+    private void sweepSafely() {
+        try {
+            List<Integer> expired = sweep();
+            if (!expired.isEmpty()) {
+                Log.info("Reservations expired", "count", expired.size());
+            }
+        } catch (SQLException | RuntimeException e) {
+            Log.error("Reservation expiry sweep failed", e);
+        }
+    }
+
+    /**
+     * Expire one chunk of reservations in a single transaction
+     *
+     * @param connection Pooled connection
+     * @param cutoff Expiry cutoff
+     * @return IDs expired in this chunk
+     * @throws SQLException if database error occurs
+     */
+    private List<Integer> sweepChunk(Connection connection, Timestamp cutoff) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        // Copies still set aside for holds that were already NOTIFIED, as {book ID, copy ID}
+        List<int[]> heldCopies = new ArrayList<>();
+        List<ReservationQueue.Entry> newHolds = new ArrayList<>();
+
+        // Begin transaction
+        connection.setAutoCommit(false);
+
+        try {
+            // Locks the held copies along with the reservations
+            String selectQuery = "SELECT r.id, r.book_id, r.status, r.held_copy_id, bc.status AS copy_status " +
+                                 "FROM reservations r " +
+                                 "LEFT JOIN book_copies bc ON bc.id = r.held_copy_id " +
+                                 "WHERE r.status IN ('PENDING', 'NOTIFIED') AND r.expiry_date < ? " +
+                                 "ORDER BY r.id LIMIT ? FOR UPDATE";
+
+            try (PreparedStatement stmt = connection.prepareStatement(selectQuery)) {
+                stmt.setTimestamp(1, cutoff);
+                stmt.setInt(2, chunkSize);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt("id"));
+
+                        if (Reservation.Status.NOTIFIED.name().equals(rs.getString("status"))
+                                && "RESERVED".equals(rs.getString("copy_status"))) {
+                            heldCopies.add(new int[] {rs.getInt("book_id"), rs.getInt("held_copy_id")});
+                        }
+                    }
+                }
+            }
+
+            if (ids.isEmpty()) {
+                connection.commit();
+                return ids;
+            }
+
+            String idList = placeholders(ids.size());
+
+            // Expire the whole chunk with one statement
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "UPDATE reservations SET status = 'EXPIRED' WHERE id IN (" + idList + ")")) {
+                bindAll(stmt, ids);
+                stmt.executeUpdate();
+            }
+
+            if (!heldCopies.isEmpty()) {
+                // Put every copy the chunk was holding back on the shelf with one statement
+                String releaseQuery = "UPDATE book_copies bc " +
+                                      "JOIN reservations r ON r.held_copy_id = bc.id " +
+                                      "SET bc.status = 'AVAILABLE' " +
+                                      "WHERE r.id IN (" + idList + ") AND bc.status = 'RESERVED'";
+                try (PreparedStatement stmt = connection.prepareStatement(releaseQuery)) {
+                    bindAll(stmt, ids);
+                    stmt.executeUpdate();
+                }
+
+                // Hand the freed copies to the patrons still waiting for their books
+                Set<Integer> awaited = booksWithWaitingPatrons(connection, heldCopies);
+                for (int[] held : heldCopies) {
+                    if (!awaited.contains(held[0])) {
+                        continue;
+                    }
+
+                    ReservationQueue.Entry hold = reservationQueue.claimNext(connection, held[0], held[1]);
+                    if (hold != null) {
+                        newHolds.add(hold);
+                    } else {
+                        // Queue ran dry, the book's other freed copies stay on the shelf
+                        awaited.remove(held[0]);
+                    }
+                }
+            }
+
+            connection.commit();
+
+            // Expired holds no longer wait in the in-memory queues
+            for (int id : ids) {
+                reservationQueue.remove(id);
+            }
+            for (ReservationQueue.Entry hold : newHolds) {
+                reservationQueue.confirm(hold);
+            }
+            return ids;
+
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Find which of the freed copies' books still have PENDING reservations, so
+     * copies nobody is waiting for are not offered one by one
+     *
+     * @param connection Connection holding the open transaction
+     * @param heldCopies Freed copies as {book ID, copy ID}
+     * @return IDs of the books with patrons waiting
+     * @throws SQLException if database error occurs
+     */
+    private static Set<Integer> booksWithWaitingPatrons(Connection connection, List<int[]> heldCopies)
+            throws SQLException {
+        Set<Integer> distinctBooks = new LinkedHashSet<>();
+        for (int[] held : heldCopies) {
+            distinctBooks.add(held[0]);
+        }
+        List<Integer> bookIds = new ArrayList<>(distinctBooks);
+        Set<Integer> awaited = new HashSet<>();
+
+        String query = "SELECT DISTINCT book_id FROM reservations " +
+                       "WHERE book_id IN (" + placeholders(bookIds.size()) + ") AND status = 'PENDING'";
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            bindAll(stmt, bookIds);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    awaited.add(rs.getInt("book_id"));
+                }
+            }
+        }
+        return awaited;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            list.append(i == 0 ? "?" : ", ?");
+        }
+        return list.toString();
+    }
+
+    private static void bindAll(PreparedStatement stmt, List<Integer> values) throws SQLException {
+        for (int i = 0; i < values.size(); i++) {
+            stmt.setInt(i + 1, values.get(i));
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.lms.model;
+
+import com.example.lms.util.EmailDispatcher;
+import com.example.lms.util.EmailUtil;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory hold queues, one per book, ordered by reservation date.
+ * A queue is rebuilt from the database the first time its book is touched and is then
+ * kept in sync by ReservationDAO, so queue lengths cost no query. Only reservations
+ * made through this process are seen, so handing a returned copy to the next patron
+ * takes the head from the database instead, under a row lock in the return's
+ * transaction.
+ */
+public class ReservationQueue {
+
+    private static final ReservationQueue INSTANCE = new ReservationQueue();
+
+    /**
+     * Waiting reservation as stored in a book's queue
+     */
+    public static final class Entry {
+        private final int reservationId;
+        private final int bookId;
+        private final int userId;
+        private final LocalDateTime reservationDate;
+
+        Entry(int reservationId, int bookId, int userId, LocalDateTime reservationDate) {
+            this.reservationId = reservationId;
+            this.bookId = bookId;
+            this.userId = userId;
+            this.reservationDate = reservationDate != null ? reservationDate : LocalDateTime.MIN;
+        }
+
+        public int getReservationId() {
+            return reservationId;
+        }
+
+        public int getBookId() {
+            return bookId;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public LocalDateTime getReservationDate() {
+            return reservationDate;
+        }
+    }
+
+    // Oldest reservation first, ties broken by insertion order (ID)
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparing(Entry::getReservationDate)
+            .thenComparingInt(Entry::getReservationId);
+
+    private final Map<Integer, BookQueue> queues = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> bookByReservation = new ConcurrentHashMap<>();
+
+    /**
+     * One book's waiting reservations. Each queue is its own lock, held only for
+     * in-memory changes, so returns of different books never wait for each other and
+     * no lock is held across a query.
+     */
+    private static final class BookQueue {
+        private final PriorityQueue<Entry> entries = new PriorityQueue<>(ORDER);
+        // False until the reservations in the database have been merged in
+        private boolean loaded;
+
+        boolean contains(int reservationId) {
+            for (Entry entry : entries) {
+                if (entry.getReservationId() == reservationId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private ReservationQueue() {
+    }
+
+    /**
+     * Get the shared reservation queue
+     *
+     * @return ReservationQueue instance
+     */
+    public static ReservationQueue getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add a newly created reservation to its book's queue
+     *
+     * @param reservation Reservation that was just inserted
+     */
+    public void add(Reservation reservation) {
+        BookQueue queue = queues.get(reservation.getBookId());
+        if (queue == null) {
+            // Not loaded yet, the rebuild will pick it up
+            return;
+        }
+
+        Entry entry = new Entry(reservation.getId(), reservation.getBookId(),
+                reservation.getUserId(), reservation.getReservationDateTime());
+        synchronized (queue) {
+            if (!queue.contains(entry.getReservationId())) {
+                queue.entries.offer(entry);
+            }
+        }
+        bookByReservation.put(entry.getReservationId(), entry.getBookId());
+    }
+
+    /**
+     * Drop a reservation that is no longer waiting (cancelled, fulfilled or expired)
+     *
+     * @param reservationId Reservation ID
+     */
+    public void remove(int reservationId) {
+        Integer bookId = bookByReservation.remove(reservationId);
+        if (bookId == null) {
+            return;
+        }
+
+        BookQueue queue = queues.get(bookId);
+        if (queue != null) {
+            synchronized (queue) {
+                queue.entries.removeIf(entry -> entry.getReservationId() == reservationId);
+            }
+        }
+    }
+
+    /**
+     * Forget a book's queue so it is rebuilt from the database on next use
+     *
+     * @param bookId Book ID
+     */
+    public void invalidate(int bookId) {
+        BookQueue queue = queues.remove(bookId);
+        if (queue != null) {
+            synchronized (queue) {
+                for (Entry entry : queue.entries) {
+                    bookByReservation.remove(entry.getReservationId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of patrons waiting for a book
+     *
+     * @param bookId Book ID
+     * @return Queue length
+     * @throws SQLException if the queue has to be rebuilt and the query fails
+     */
+    public int size(int bookId) throws SQLException {
+        BookQueue queue = queueFor(bookId);
+        synchronized (queue) {
+            return queue.entries.size();
+        }
+    }
+
+    /**
+     * Hold a returned copy for the patron at the head of the book's queue.
+     * Must be called inside the caller's transaction on the same connection. The head
+     * is the oldest PENDING reservation in the database, read with FOR UPDATE, so
+     * reservations placed from another desk count too. It is marked NOTIFIED with the
+     * copy it holds, the copy RESERVED, and a hold-ready notice is queued in the email
+     * outbox. The entry stays in the in-memory queue until {@link #confirm(Entry)} is
+     * called after commit, so a rollback leaves the queue unchanged. Two returns of the
+     * same book meet on the head's row lock: the second then finds the next patron.
+     *
+     * @param connection Connection holding the open transaction
+     * @param bookId Book the copy belongs to
+     * @param copyId Returned copy ID
+     * @return The reservation the copy is now held for, or null if nobody is waiting
+     * @throws SQLException if database error occurs
+     */
+    public Entry claimNext(Connection connection, int bookId, int copyId) throws SQLException {
+        String headQuery = "SELECT id, user_id, reservation_date FROM reservations " +
+                           "WHERE book_id = ? AND status = 'PENDING' " +
+                           "ORDER BY reservation_date, id LIMIT 1 FOR UPDATE";
+        String notifyQuery = "UPDATE reservations SET status = 'NOTIFIED', notification_date = ?, held_copy_id = ? " +
+                             "WHERE id = ?";
+        String holdQuery = "UPDATE book_copies SET status = 'RESERVED' WHERE id = ?";
+
+        Entry head;
+        try (PreparedStatement headStmt = connection.prepareStatement(headQuery)) {
+            headStmt.setInt(1, bookId);
+
+            try (ResultSet rs = headStmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+
+                Timestamp reservationDate = rs.getTimestamp("reservation_date");
+                head = new Entry(rs.getInt("id"), bookId, rs.getInt("user_id"),
+                        reservationDate != null ? reservationDate.toLocalDateTime() : null);
+            }
+        }
+
+        try (PreparedStatement notifyStmt = connection.prepareStatement(notifyQuery)) {
+            notifyStmt.setDate(1, Date.valueOf(LocalDate.now()));
+            notifyStmt.setInt(2, copyId);
+            notifyStmt.setInt(3, head.getReservationId());
+            notifyStmt.executeUpdate();
+        }
+
+        try (PreparedStatement holdStmt = connection.prepareStatement(holdQuery)) {
+            holdStmt.setInt(1, copyId);
+            holdStmt.executeUpdate();
+        }
+
+        queueHoldReadyNotice(connection, head.getReservationId());
+        return head;
+    }
+
+    /**
+     * Remove a claimed entry once the transaction that claimed it has committed
+     *
+     * @param entry Entry returned by claimNext
+     */
+    public void confirm(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+
+        // The claimed entry was read from the database, so drop the queued one by ID
+        remove(entry.getReservationId());
+
+        // The hold-ready notice was committed with the claim
+        EmailDispatcher.getInstance().wakeUp();
+    }
+
+    /**
+     * Queue the email telling the patron their reserved book is waiting, inside the
+     * claiming transaction so a rollback takes the notice with it
+     */
+    private static void queueHoldReadyNotice(Connection connection, int reservationId) throws SQLException {
+        String query = "SELECT u.email, u.name, b.title, r.expiry_date, s.setting_value AS app_name " +
+                       "FROM reservations r " +
+                       "JOIN users u ON r.user_id = u.id " +
+                       "JOIN books b ON r.book_id = b.id " +
+                       "LEFT JOIN app_setting s ON s.setting_key = 'app_name' " +
+                       "WHERE r.id = ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setInt(1, reservationId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return;
+                }
+
+                Timestamp expiry = rs.getTimestamp("expiry_date");
+                String appName = rs.getString("app_name");
+                OutboxEmail notice = EmailUtil.buildHoldReadyNotice(rs.getString("email"), rs.getString("name"),
+                        rs.getString("title"), expiry != null ? expiry.toLocalDateTime().toLocalDate() : null,
+                        appName != null ? appName : "Library Management System");
+                new EmailOutboxDAO(connection).enqueue(notice);
+            }
+        }
+    }
+
+    /**
+     * Get a book's queue, loading it from the database if needed. The query runs
+     * without holding the queue's lock; reservations added meanwhile are kept.
+     *
+     * @param bookId Book ID
+     * @return Queue of waiting reservations
+     * @throws SQLException if database error occurs
+     */
+    private BookQueue queueFor(int bookId) throws SQLException {
+        BookQueue queue = queues.computeIfAbsent(bookId, id -> new BookQueue());
+        synchronized (queue) {
+            if (queue.loaded) {
+                return queue;
+            }
+        }
+
+        // Short-lived DAO, so the queue never holds on to a connection borrowed from the pool
+        List<Reservation> reservations;
+        ReservationDAO reservationDAO = new ReservationDAO();
+        try {
+            reservations = reservationDAO.getActiveReservationsForBook(bookId);
+        } finally {
+            reservationDAO.close();
+        }
+
+        synchronized (queue) {
+            if (!queue.loaded) {
+                for (Reservation reservation : reservations) {
+                    if (!queue.contains(reservation.getId())) {
+                        queue.entries.offer(new Entry(reservation.getId(), bookId,
+                                reservation.getUserId(), reservation.getReservationDateTime()));
+                    }
+                    bookByReservation.put(reservation.getId(), bookId);
+                }
+                queue.loaded = true;
+            }
+        }
+        return queue;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.lms.model;
 
 import com.example.lms.util.Database;
+import com.example.lms.util.Log;
 import com.example.lms.util.SecurityUtil;
 
 import java.sql.*;
@@ -45,8 +46,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error authenticating user: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error authenticating user", e);
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -84,8 +84,7 @@ public class UserDAO {
             success = (rowsAffected > 0);
             
         } catch (SQLException e) {
-            System.err.println("Error registering user: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error registering user", e);
         } finally {
             closeResources(null, stmt, conn);
         }
@@ -107,8 +106,7 @@ public class UserDAO {
             conn = Database.getConnection();
             exists = emailExists(conn, email);
         } catch (SQLException e) {
-            System.err.println("Error checking if email exists: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error checking if email exists", e);
         } finally {
             closeResources(null, null, conn);
         }
@@ -186,8 +184,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error generating reset token: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error generating reset token", e);
             token = null;
         } finally {
             closeResources(null, stmt, conn);
@@ -213,8 +210,7 @@ public class UserDAO {
         try {
             conn = Database.getConnection();
             
-            System.out.println("Attempting to reset password for email: " + email);
-            System.out.println("Token: " + token);
+            Log.info("Password reset attempt");
             
             // Find user with the given email, token and check expiry
             String query = "SELECT * FROM users WHERE email = ? AND reset_token = ? AND reset_token_expiry > ?";
@@ -223,11 +219,9 @@ public class UserDAO {
             stmt.setString(2, token);
             stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
             
-            System.out.println("Executing query: " + query);
             rs = stmt.executeQuery();
             
             if (rs.next()) {
-                System.out.println("Found user with ID: " + rs.getInt("id"));
                 // Update password
                 String updateQuery = "UPDATE users SET password = ?, reset_token = NULL, reset_token_expiry = NULL WHERE id = ?";
                 PreparedStatement updateStmt = conn.prepareStatement(updateQuery);
@@ -236,16 +230,15 @@ public class UserDAO {
                 
                 int rowsAffected = updateStmt.executeUpdate();
                 success = (rowsAffected > 0);
-                System.out.println("Password update success: " + success);
+                Log.info("Password reset", "userId", rs.getInt("id"), "success", success);
                 
                 updateStmt.close();
             } else {
-                System.out.println("No matching user found with the provided email and token");
+                Log.info("Password reset rejected: no user with this email and a valid token");
             }
             
         } catch (SQLException e) {
-            System.err.println("Error resetting password: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error resetting password", e);
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -278,8 +271,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting user by ID: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting user by ID", e);
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -312,8 +304,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting user by email: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting user by email", e);
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -344,8 +335,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting all users: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting all users", e);
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -385,7 +375,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting users by role: " + e.getMessage());
+            Log.error("Error getting users by role", e);
             throw e;
         } finally {
             closeResources(rs, stmt, conn);
@@ -438,7 +428,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error searching users: " + e.getMessage());
+            Log.error("Error searching users", e);
             throw e;
         } finally {
             closeResources(rs, stmt, conn);
@@ -470,8 +460,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting total users count: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting total users count", e);
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -556,7 +545,7 @@ public class UserDAO {
             success = (rowsAffected > 0);
             
         } catch (SQLException e) {
-            System.err.println("Error updating user: " + e.getMessage());
+            Log.error("Error updating user", e);
             throw e;
         } finally {
             closeResources(null, stmt, conn);
@@ -590,7 +579,7 @@ public class UserDAO {
             success = (rowsAffected > 0);
             
         } catch (SQLException e) {
-            System.err.println("Error deleting user: " + e.getMessage());
+            Log.error("Error deleting user", e);
             throw e;
         } finally {
             closeResources(null, stmt, conn);
@@ -608,7 +597,7 @@ public class UserDAO {
             if (stmt != null) stmt.close();
             if (conn != null) Database.releaseConnection(); // Call without parameters as it manages connection internally
         } catch (SQLException e) {
-            System.err.println("Error closing resources: " + e.getMessage());
+            Log.error("Error closing resources", e);
         }
     }
     
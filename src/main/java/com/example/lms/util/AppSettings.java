@@ -30,7 +30,7 @@ public class AppSettings {
                 return Integer.parseInt(rs.getString("value"));
             }
         } catch (SQLException | NumberFormatException e) {
-            System.err.println("Error retrieving default borrowing period: " + e.getMessage());
+            Log.warn("Error retrieving default borrowing period", e);
         } finally {
             // No need to close the connection here, just release it back to the pool
             try {
@@ -38,11 +38,87 @@ public class AppSettings {
                 if (stmt != null) stmt.close();
                 Database.releaseConnection();
             } catch (SQLException e) {
-                System.err.println("Error closing resources: " + e.getMessage());
+                Log.warn("Error closing resources", e);
             }
         }
         
         // Default to 14 days if not found in database
         return 14;
     }
+    
+    /**
+     * Get the maximum number of books a user may have borrowed at once
+     * 
+     * @return int Borrowing limit, defaults to 3 if not found
+     */
+    public static int getMaxBooksPerUser() {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = Database.getConnection();
+            String query = "SELECT setting_value FROM app_setting WHERE setting_key = 'max_books_per_user'";
+            stmt = conn.prepareStatement(query);
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                String value = rs.getString("setting_value");
+                if (value != null) {
+                    return Integer.parseInt(value.trim());
+                }
+            }
+        } catch (SQLException | NumberFormatException e) {
+            Log.warn("Error retrieving max books per user", e);
+        } finally {
+            try {
+                if (rs != null) rs.close();
+                if (stmt != null) stmt.close();
+                Database.releaseConnection();
+            } catch (SQLException e) {
+                Log.warn("Error closing resources", e);
+            }
+        }
+        
+        // Default to 3 books, matching the seeded setting
+        return 3;
+    }
+    
+    /**
+     * Get the fine charged per day a book is returned late
+     * 
+     * @return double Daily fine rate, defaults to 0.50 if not found
+     */
+    public static double getFineRatePerDay() {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = Database.getConnection();
+            String query = "SELECT setting_value FROM app_setting WHERE setting_key = 'fine_rate_per_day'";
+            stmt = conn.prepareStatement(query);
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                String value = rs.getString("setting_value");
+                if (value != null) {
+                    return Double.parseDouble(value.trim());
+                }
+            }
+        } catch (SQLException | NumberFormatException e) {
+            Log.warn("Error retrieving fine rate", e);
+        } finally {
+            try {
+                if (rs != null) rs.close();
+                if (stmt != null) stmt.close();
+                Database.releaseConnection();
+            } catch (SQLException e) {
+                Log.warn("Error closing resources", e);
+            }
+        }
+        
+        // Default to the seeded rate
+        return 0.50;
+    }
 }
@@ -0,0 +1,255 @@
+package com.example.lms.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A small fixed-size pool of database connections for concurrent work.
+ * The number of connections in use never exceeds the pool size; callers beyond
+ * that wait for a connection to be returned. Waiting is cheap on virtual threads,
+ * so the pool size is the only limit on concurrent queries.
+ *
+ * Work run through {@link #withConnection} sees the borrowed connection from
+ * {@link Database#getConnection()}, so existing DAOs can be used unchanged.
+ */
+public class ConnectionPool {
+
+    private static final int DEFAULT_SIZE = 10;
+
+    private static ConnectionPool instance;
+
+    private final int size;
+    private final Semaphore permits;
+    private final Deque<Connection> idle = new ArrayDeque<>();
+    private volatile boolean closed;
+
+    /**
+     * Work that runs with a borrowed connection
+     */
+    @FunctionalInterface
+    public interface ConnectionWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Get the application's pool, sized by -Dlms.db.poolSize (default 10)
+     *
+     * @return Shared ConnectionPool
+     */
+    public static synchronized ConnectionPool getInstance() {
+        if (instance == null) {
+            instance = new ConnectionPool(Integer.getInteger("lms.db.poolSize", DEFAULT_SIZE));
+
+            ConnectionPool pool = instance;
+            Metrics.gauge("lms_db_pool_size", "Maximum pooled connections", pool::getSize);
+            Metrics.gauge("lms_db_pool_in_use", "Pooled connections currently borrowed", pool::getInUseCount);
+            Metrics.gauge("lms_db_pool_waiting", "Threads waiting for a pooled connection", pool::getWaitingCount);
+        }
+        return instance;
+    }
+
+    /**
+     * Create a pool; connections are opened on first use
+     *
+     * @param size Maximum number of connections
+     */
+    public ConnectionPool(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.size = size;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * Run work on a pooled connection. While it runs, DAOs created on this thread
+     * use the same connection, and their close() calls leave it open.
+     *
+     * @param work The work to run
+     * @return The work's result
+     * @throws SQLException if no connection could be opened or the work fails
+     */
+    public <T> T withConnection(ConnectionWork<T> work) throws SQLException {
+        // Nested work keeps using the connection the thread already holds
+        Connection current = Database.getBoundConnection();
+        if (current != null) {
+            return work.run(current);
+        }
+
+        Connection connection = acquire();
+        Database.bind(connection);
+
+        try {
+            return work.run(connection);
+        } finally {
+            Database.unbind();
+            release(connection);
+        }
+    }
+
+    /**
+     * Borrow a connection, waiting until one is free.
+     * The returned connection ignores close(); give it back with {@link #release}.
+     *
+     * @return Pooled connection
+     * @throws SQLException if the pool is closed, the wait is interrupted or a connection cannot be opened
+     */
+    public Connection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            Connection connection;
+            synchronized (idle) {
+                connection = idle.pollFirst();
+            }
+
+            if (connection == null || !connection.isValid(2)) {
+                closeQuietly(connection);
+                connection = keepOpen(Database.openConnection());
+            }
+            return connection;
+
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Give a borrowed connection back to the pool
+     *
+     * @param connection Connection from {@link #acquire}
+     */
+    public void release(Connection connection) {
+        try {
+            if (connection.isClosed() || closed) {
+                closeQuietly(connection);
+                return;
+            }
+
+            // Leave no transaction behind for the next borrower
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+
+            synchronized (idle) {
+                idle.addFirst(connection);
+            }
+        } catch (SQLException e) {
+            Log.error("Discarding pooled connection", e);
+            closeQuietly(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Get the maximum number of connections
+     *
+     * @return Pool size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of connections currently borrowed
+     *
+     * @return Connections in use
+     */
+    public int getInUseCount() {
+        return size - permits.availablePermits();
+    }
+
+    /**
+     * Get the number of threads waiting for a connection
+     *
+     * @return Waiting thread count
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Close idle connections and refuse further borrowing.
+     * Borrowed connections are closed as they are returned.
+     */
+    public void close() {
+        closed = true;
+        synchronized (idle) {
+            Connection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    /**
+     * Wrap a connection so close() from a DAO does not close it
+     */
+    private static Connection keepOpen(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, new PooledConnection(connection));
+    }
+
+    /**
+     * Really close a pooled connection
+     */
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+
+        try {
+            if (Proxy.isProxyClass(connection.getClass())
+                    && Proxy.getInvocationHandler(connection) instanceof PooledConnection) {
+                ((PooledConnection) Proxy.getInvocationHandler(connection)).target.close();
+            } else {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            Log.error("Error closing pooled connection", e);
+        }
+    }
+
+    /**
+     * Forwards everything to the real connection except close()
+     */
+    private static final class PooledConnection implements InvocationHandler {
+        private final Connection target;
+
+        PooledConnection(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                return null;
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.lms.util;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Labeled;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TableView;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs DAO work off the JavaFX Application Thread.
+ * Work is queued on a background worker and its result (or error) is handed back
+ * to the FX thread with Platform.runLater, so controllers never block the window
+ * on a query. The DAOs share one connection, so there is a single worker and
+ * tasks run one after another in submission order.
+ */
+public class DaoExecutor {
+
+    private static final String TABLE_PLACEHOLDER_KEY = "lms.dao.placeholder";
+
+    // Marks "the table had no placeholder" in its properties map, which does not accept null
+    private static final Object NO_PLACEHOLDER = new Object();
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "dao-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A unit of DAO work that produces a result
+     */
+    @FunctionalInterface
+    public interface DaoCall<T> {
+        T call() throws SQLException;
+    }
+
+    /**
+     * A unit of DAO work without a result
+     */
+    @FunctionalInterface
+    public interface DaoAction {
+        void run() throws SQLException;
+    }
+
+    /**
+     * Run DAO work in the background without touching the UI
+     *
+     * @param call The work to run
+     * @return Future completed on the worker thread
+     */
+    public static <T> CompletableFuture<T> submit(DaoCall<T> call) {
+        QueryScope.ScopedWork<T> work = QueryScope.scopedForCaller(call::call);
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return work.run();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Run DAO work in the background and hand the result to the FX thread.
+     * Errors are reported with an error alert titled errorTitle.
+     *
+     * @param call The work to run
+     * @param onSuccess Receives the result on the FX thread
+     * @param errorTitle Title of the alert shown if the work fails
+     * @return Future completed on the worker thread
+     */
+    public static <T> CompletableFuture<T> load(DaoCall<T> call, Consumer<? super T> onSuccess, String errorTitle) {
+        return load(call, onSuccess, error -> showError(errorTitle, error));
+    }
+
+    /**
+     * Run DAO work in the background and hand the result or error to the FX thread
+     *
+     * @param call The work to run
+     * @param onSuccess Receives the result on the FX thread
+     * @param onError Receives the unwrapped error on the FX thread
+     * @return Future completed on the worker thread
+     */
+    public static <T> CompletableFuture<T> load(DaoCall<T> call, Consumer<? super T> onSuccess,
+                                                Consumer<Throwable> onError) {
+        return deliver(submit(call), onSuccess, onError);
+    }
+
+    /**
+     * Hand the outcome of work running elsewhere, e.g. on AsyncDao, to the FX thread
+     *
+     * @param future The running work
+     * @param onSuccess Receives the result on the FX thread
+     * @param onError Receives the unwrapped error on the FX thread
+     * @return The same future
+     */
+    public static <T> CompletableFuture<T> deliver(CompletableFuture<T> future, Consumer<? super T> onSuccess,
+                                                   Consumer<Throwable> onError) {
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                onError.accept(unwrap(error));
+            } else {
+                onSuccess.accept(result);
+            }
+        }));
+
+        return future;
+    }
+
+    /**
+     * Run DAO work without a result in the background, then continue on the FX thread
+     *
+     * @param action The work to run
+     * @param onSuccess Runs on the FX thread once the work is done
+     * @param errorTitle Title of the alert shown if the work fails
+     * @return Future completed on the worker thread
+     */
+    public static CompletableFuture<Void> run(DaoAction action, Runnable onSuccess, String errorTitle) {
+        return load(() -> {
+            action.run();
+            return null;
+        }, ignored -> onSuccess.run(), errorTitle);
+    }
+
+    /**
+     * Load rows into a table in the background, showing a progress indicator
+     * in the table until they arrive. On error the table is cleared and an alert is shown.
+     *
+     * @param table Table to fill
+     * @param call Query returning the rows
+     * @param errorTitle Title of the alert shown if the query fails
+     * @return Future completed on the worker thread
+     */
+    public static <T> CompletableFuture<List<T>> loadInto(TableView<T> table, DaoCall<List<T>> call,
+                                                         String errorTitle) {
+        return loadInto(table, call, rows -> table.getItems().setAll(rows), errorTitle);
+    }
+
+    /**
+     * Load rows for a table in the background, showing a progress indicator
+     * in the table until they arrive.
+     *
+     * @param table Table that shows the loading placeholder
+     * @param call Query returning the rows
+     * @param onSuccess Receives the rows on the FX thread, e.g. to fill a backing list
+     * @param errorTitle Title of the alert shown if the query fails
+     * @return Future completed on the worker thread
+     */
+    public static <T, R> CompletableFuture<R> loadInto(TableView<T> table, DaoCall<R> call,
+                                                      Consumer<? super R> onSuccess, String errorTitle) {
+        showLoading(table);
+
+        return load(call, result -> {
+            hideLoading(table);
+            onSuccess.accept(result);
+        }, error -> {
+            hideLoading(table);
+            table.getItems().clear();
+            showError(errorTitle, error);
+        });
+    }
+
+    /**
+     * Show a progress indicator as the table's placeholder
+     *
+     * @param table Table that is loading
+     */
+    public static void showLoading(TableView<?> table) {
+        if (!table.getProperties().containsKey(TABLE_PLACEHOLDER_KEY)) {
+            Node original = table.getPlaceholder();
+            table.getProperties().put(TABLE_PLACEHOLDER_KEY, original != null ? original : NO_PLACEHOLDER);
+        }
+
+        ProgressIndicator indicator = new ProgressIndicator();
+        indicator.setMaxSize(40, 40);
+        table.setPlaceholder(indicator);
+        table.getItems().clear();
+    }
+
+    /**
+     * Restore the placeholder the table had before loading started
+     *
+     * @param table Table that finished loading
+     */
+    public static void hideLoading(TableView<?> table) {
+        Object original = table.getProperties().remove(TABLE_PLACEHOLDER_KEY);
+        if (original != null) {
+            table.setPlaceholder(original == NO_PLACEHOLDER ? null : (Node) original);
+        }
+    }
+
+    /**
+     * Show a loading text in a label or button until its value arrives
+     *
+     * @param labeled Control to mark as loading
+     */
+    public static void showLoading(Labeled labeled) {
+        labeled.setText("Loading...");
+    }
+
+    /**
+     * Log a failed DAO task and show it to the user
+     *
+     * @param title Alert title
+     * @param error The error
+     */
+    public static void showError(String title, Throwable error) {
+        Log.error(title, error);
+
+        Runnable show = () -> {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle(title);
+            alert.setHeaderText(null);
+            alert.setContentText(error.getMessage());
+            alert.showAndWait();
+        };
+
+        if (Platform.isFxApplicationThread()) {
+            show.run();
+        } else {
+            Platform.runLater(show);
+        }
+    }
+
+    /**
+     * Wait for queued work to finish and stop the worker
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+        try {
+            if (!EXECUTOR.awaitTermination(5, TimeUnit.SECONDS)) {
+                EXECUTOR.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            EXECUTOR.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
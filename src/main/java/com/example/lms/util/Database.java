@@ -4,70 +4,109 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Database utility class for managing database connections
  */
 public class Database {
-    // Database connection parameters
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/lms";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "";
+    // Database connection parameters; -Dlms.db.url etc. point the application at another database
+    private static final String DB_URL = System.getProperty("lms.db.url", "jdbc:mysql://localhost:3306/lms");
+    private static final String DB_USER = System.getProperty("lms.db.user", "root");
+    private static final String DB_PASSWORD = System.getProperty("lms.db.password", "");
     
-    // Connection parameters to enhance stability
-    private static final String CONNECTION_PARAMS = "?autoReconnect=true&useSSL=false&allowPublicKeyRetrieval=true&characterEncoding=UTF-8";
+    // Connection parameters to enhance stability; batched statements are sent as multi-row statements
+    private static final String CONNECTION_PARAMS = "?autoReconnect=true&useSSL=false&allowPublicKeyRetrieval=true&characterEncoding=UTF-8" +
+            "&rewriteBatchedStatements=true";
     
     private static Connection connection;
     private static final AtomicInteger openConnections = new AtomicInteger(0);
     
+    // Connection borrowed from ConnectionPool by the current thread, if any
+    private static final ThreadLocal<Connection> boundConnection = new ThreadLocal<>();
+
+    static {
+        Metrics.gauge("lms_db_shared_connection_users", "DAOs holding the shared connection", openConnections::get);
+    }
+    
     /**
      * Get a database connection
      * 
      * @return Connection object
      * @throws SQLException if connection fails
      */
-    public static synchronized Connection getConnection() throws SQLException {
+    public static Connection getConnection() throws SQLException {
+        // A thread working on a pooled connection keeps all its DAOs on that connection
+        Connection bound = boundConnection.get();
+        if (bound != null) {
+            return bound;
+        }
+        
+        return getSharedConnection();
+    }
+    
+    private static synchronized Connection getSharedConnection() throws SQLException {
         if (connection == null || connection.isClosed()) {
-            try {
-                // Load the MySQL JDBC driver
-                Class.forName("com.mysql.cj.jdbc.Driver");
-                
-                // Create a connection with connection pooling parameters
-                connection = DriverManager.getConnection(
-                    DB_URL + CONNECTION_PARAMS, 
-                    DB_USER, 
-                    DB_PASSWORD
-                );
-                
-                // Add connection validation
-                if (!connection.isValid(2)) { // 2 second timeout
-                    connection = null;
-                    throw new SQLException("Failed to validate connection.");
-                }
-                
-                // Set auto-commit to true (default)
-                connection.setAutoCommit(true);
-                
-                // Reset connection counter when creating a new connection
-                openConnections.set(0);
-                System.out.println("Database connection created successfully.");
-            } catch (ClassNotFoundException e) {
-                throw new SQLException("MySQL JDBC Driver not found", e);
-            }
+            connection = openConnection();
+            
+            // Reset connection counter when creating a new connection
+            openConnections.set(0);
+            Log.info("Database connection created");
         }
         
         int currentCount = openConnections.incrementAndGet();
-        System.out.println("Connection obtained. Active connections: " + currentCount);
+        Log.debug("Connection obtained", "active", currentCount);
         return connection;
     }
     
+    /**
+     * Create an object, typically a DAO, on the shared connection even if the current
+     * thread is working on a pooled one; for objects that outlive the current task
+     * 
+     * @param factory Creates the object
+     * @return The object
+     */
+    public static <T> T withSharedConnection(Supplier<T> factory) {
+        Connection bound = boundConnection.get();
+        if (bound == null) {
+            return factory.get();
+        }
+        
+        boundConnection.remove();
+        try {
+            return factory.get();
+        } finally {
+            boundConnection.set(bound);
+        }
+    }
+    
+    /**
+     * @return true if the shared connection is open
+     */
+    public static synchronized boolean hasSharedConnection() {
+        try {
+            return connection != null && !connection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
     /**
      * Release a connection (decrement usage counter)
      * Only close if no one is using it anymore
      * 
      * @throws SQLException if database error occurs
      */
-    public static synchronized void releaseConnection() throws SQLException {
+    public static void releaseConnection() throws SQLException {
+        // Pooled connections are returned by whoever bound them
+        if (boundConnection.get() != null) {
+            return;
+        }
+        
+        releaseSharedConnection();
+    }
+    
+    private static synchronized void releaseSharedConnection() throws SQLException {
         int currentCount = openConnections.decrementAndGet();
         if (currentCount < 0) {
             // Reset to 0 if it goes negative somehow
@@ -75,13 +114,70 @@ public class Database {
             currentCount = 0;
         }
         
-        System.out.println("Connection released. Active connections: " + currentCount);
+        Log.debug("Connection released", "active", currentCount);
         
         if (currentCount == 0) {
             closeConnection();
         }
     }
     
+    /**
+     * Open a new, validated connection that is not shared
+     * 
+     * @return New connection with auto-commit on
+     * @throws SQLException if connection fails
+     */
+    static Connection openConnection() throws SQLException {
+        try {
+            // Load the MySQL JDBC driver
+            Class.forName("com.mysql.cj.jdbc.Driver");
+            
+            // Create a connection with connection pooling parameters
+            // Statements are timed for QueryStats; in dev mode the connection also reports use from the JavaFX thread
+            Connection newConnection = FxThreadGuard.wrap(InstrumentedConnection.wrap(DriverManager.getConnection(
+                DB_URL + CONNECTION_PARAMS, 
+                DB_USER, 
+                DB_PASSWORD
+            )));
+            
+            // Add connection validation
+            if (!newConnection.isValid(2)) { // 2 second timeout
+                newConnection.close();
+                throw new SQLException("Failed to validate connection.");
+            }
+            
+            // Set auto-commit to true (default)
+            newConnection.setAutoCommit(true);
+            return newConnection;
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("MySQL JDBC Driver not found", e);
+        }
+    }
+    
+    /**
+     * Make getConnection() return the given connection on the current thread,
+     * so DAOs created by this thread use it instead of the shared connection
+     * 
+     * @param pooled Connection borrowed from ConnectionPool
+     */
+    static void bind(Connection pooled) {
+        boundConnection.set(pooled);
+    }
+    
+    /**
+     * @return The pooled connection bound to the current thread, or null
+     */
+    static Connection getBoundConnection() {
+        return boundConnection.get();
+    }
+    
+    /**
+     * Go back to the shared connection on the current thread
+     */
+    static void unbind() {
+        boundConnection.remove();
+    }
+    
     /**
      * Close the database connection
      * This should only be called when the application is shutting down
@@ -93,7 +189,7 @@ public class Database {
         if (connection != null && !connection.isClosed()) {
             connection.close();
             connection = null;
-            System.out.println("Database connection closed.");
+            Log.info("Database connection closed");
         }
     }
     
@@ -109,6 +205,6 @@ public class Database {
             connection.close();
             connection = null;
         }
-        System.out.println("Database connection has been reset.");
+        Log.warn("Database connection has been reset");
     }
 }
@@ -10,9 +10,9 @@ import java.sql.SQLException;
  */
 public class DatabaseConnection {
     // Database credentials
-    private static final String URL = "jdbc:mysql://localhost:3306/lms";
-    private static final String USER = "root";
-    private static final String PASSWORD = ""; // Empty password as specified
+    private static final String URL = System.getProperty("lms.db.url", "jdbc:mysql://localhost:3306/lms");
+    private static final String USER = System.getProperty("lms.db.user", "root");
+    private static final String PASSWORD = System.getProperty("lms.db.password", ""); // Empty password by default
 
     /**
      * Get a connection to the database.
@@ -24,7 +24,7 @@ public class DatabaseConnection {
             // Load the MySQL driver
             Class.forName("com.mysql.cj.jdbc.Driver");
             // Return a connection
-            return DriverManager.getConnection(URL, USER, PASSWORD);
+            return InstrumentedConnection.wrap(DriverManager.getConnection(URL, USER, PASSWORD));
         } catch (ClassNotFoundException e) {
             throw new SQLException("MySQL JDBC driver not found.", e);
         } catch (SQLException e) {
@@ -41,7 +41,7 @@ public class DatabaseConnection {
             try {
                 connection.close();
             } catch (SQLException e) {
-                System.err.println("Error closing database connection: " + e.getMessage());
+                Log.error("Error closing database connection", e);
             }
         }
     }
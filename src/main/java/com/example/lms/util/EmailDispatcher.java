@@ -0,0 +1,409 @@
+package com.example.lms.util;
+
+import com.example.lms.model.EmailOutboxDAO;
+import com.example.lms.model.OutboxEmail;
+
+import javax.mail.*;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background sender for the email outbox.
+ * A single daemon thread drains due messages in batches over one long-lived SMTP
+ * connection, retries failures with exponential backoff and throttles each SMTP
+ * host to a fixed message rate. Callers only insert into the outbox and return.
+ */
+public class EmailDispatcher {
+
+    private static final int BATCH_SIZE = 50;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_SECONDS = 30;
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+    private static final long POLL_INTERVAL_SECONDS = 5;
+    private static final double DEFAULT_MESSAGES_PER_SECOND = 5.0;
+
+    // A claimed batch must be sent well within this, even at the lowest send rate
+    private static final long CLAIM_LEASE_SECONDS = 600;
+
+    // Shared so that several dispatchers never exceed the limit of one host together
+    private static final Map<String, HostRateLimiter> RATE_LIMITERS = new ConcurrentHashMap<>();
+
+    private static EmailDispatcher instance;
+
+    private final boolean settingsFixed;
+    private final double messagesPerSecond;
+    private volatile SmtpSettings settings;
+
+    private final Object lifecycleLock = new Object();
+    private ScheduledExecutorService executor;
+    private Connection connection;
+    private EmailOutboxDAO outboxDAO;
+    private Session session;
+    private Transport transport;
+
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private volatile long startedAtNanos = System.nanoTime();
+
+    /**
+     * Get the application's dispatcher, which reads its SMTP settings from the database
+     *
+     * @return Shared EmailDispatcher
+     */
+    public static synchronized EmailDispatcher getInstance() {
+        if (instance == null) {
+            instance = new EmailDispatcher(null, DEFAULT_MESSAGES_PER_SECOND);
+
+            EmailDispatcher dispatcher = instance;
+            Metrics.functionCounter("lms_email_sent_total", "Emails delivered", dispatcher::getSentCount);
+            Metrics.functionCounter("lms_email_failed_total", "Emails given up on after all retries",
+                    dispatcher::getFailedCount);
+            Metrics.functionCounter("lms_email_retries_total", "Email deliveries rescheduled",
+                    dispatcher::getRetryCount);
+            Metrics.gauge("lms_email_queue_depth", "Emails waiting in the outbox", EmailDispatcher::readQueueDepth);
+        }
+        return instance;
+    }
+
+    /**
+     * Create a dispatcher with fixed SMTP settings, e.g. for a local fake SMTP server
+     *
+     * @param settings SMTP settings, or null to load them from the database
+     * @param messagesPerSecond Maximum send rate per SMTP host
+     */
+    public EmailDispatcher(SmtpSettings settings, double messagesPerSecond) {
+        if (messagesPerSecond <= 0) {
+            throw new IllegalArgumentException("Send rate must be positive");
+        }
+        this.settings = settings;
+        this.settingsFixed = settings != null;
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    /**
+     * Start polling the outbox in the background
+     */
+    public void start() {
+        synchronized (lifecycleLock) {
+            if (executor != null) {
+                return;
+            }
+
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "email-dispatcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            startedAtNanos = System.nanoTime();
+            executor.scheduleWithFixedDelay(this::dispatchSafely, 0, POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Ask the dispatcher to look at the outbox now instead of at the next poll
+     */
+    public void wakeUp() {
+        synchronized (lifecycleLock) {
+            if (executor != null && !executor.isShutdown()) {
+                executor.execute(this::dispatchSafely);
+            }
+        }
+    }
+
+    /**
+     * Stop the dispatcher and close its SMTP and database connections
+     */
+    public void stop() {
+        synchronized (lifecycleLock) {
+            if (executor == null) {
+                return;
+            }
+
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+
+        synchronized (this) {
+            closeTransport();
+            closeConnection();
+        }
+    }
+
+    /**
+     * Forget the cached SMTP settings so they are read again from the database
+     */
+    public synchronized void reloadSettings() {
+        if (!settingsFixed) {
+            settings = null;
+            session = null;
+            closeTransport();
+        }
+    }
+
+    /**
+     * Send every due message in the outbox on the calling thread
+     *
+     * @return Number of messages delivered
+     * @throws SQLException if the outbox cannot be read or updated
+     */
+    public synchronized int dispatchPending() throws SQLException {
+        SmtpSettings smtp = currentSettings();
+        if (smtp == null) {
+            return 0;
+        }
+
+        openOutbox();
+        HostRateLimiter rateLimiter = RATE_LIMITERS.computeIfAbsent(
+                smtp.getHost(), host -> new HostRateLimiter(messagesPerSecond));
+
+        long start = System.nanoTime();
+        int delivered = 0;
+
+        while (true) {
+            List<OutboxEmail> batch = outboxDAO.claimDueEmails(BATCH_SIZE, CLAIM_LEASE_SECONDS);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            List<Integer> sentIds = new ArrayList<>();
+            for (OutboxEmail email : batch) {
+                if (!rateLimiter.acquire()) {
+                    // Interrupted while waiting, keep what was sent and stop
+                    outboxDAO.markSent(sentIds);
+                    sentCount.addAndGet(sentIds.size());
+                    return delivered + sentIds.size();
+                }
+
+                try {
+                    deliver(smtp, email);
+                    sentIds.add(email.getId());
+                } catch (MessagingException e) {
+                    recordFailure(email, e);
+                }
+            }
+
+            outboxDAO.markSent(sentIds);
+            sentCount.addAndGet(sentIds.size());
+            delivered += sentIds.size();
+
+            if (batch.size() < BATCH_SIZE) {
+                break;
+            }
+        }
+
+        if (delivered > 0) {
+            long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            Log.info("Email dispatcher sent messages", "count", delivered, "ms", elapsedMillis,
+                    "perSecond", String.format("%.1f", delivered * 1000.0 / elapsedMillis));
+        }
+
+        return delivered;
+    }
+
+    /**
+     * Get the number of messages delivered since the dispatcher started
+     *
+     * @return Sent message count
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * Get the number of messages that were given up on after all retries
+     *
+     * @return Failed message count
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Get the number of delivery attempts that were rescheduled
+     *
+     * @return Retry count
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * Get the average delivery rate since the dispatcher started
+     *
+     * @return Messages sent per second
+     */
+    public double getThroughputPerSecond() {
+        double seconds = (System.nanoTime() - startedAtNanos) / 1_000_000_000.0;
+        return seconds > 0 ? sentCount.get() / seconds : 0.0;
+    }
+
+    /**
+     * Count pending outbox messages on a pooled connection, for the metrics page
+     */
+    private static double readQueueDepth() {
+        try {
+            return ConnectionPool.getInstance().withConnection(c -> new EmailOutboxDAO(c).getPendingCount());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read the outbox", e);
+        }
+    }
+
+    /**
+     * Run one dispatch pass, logging instead of propagating errors
+     */
+    private synchronized void dispatchSafely() {
+        try {
+            dispatchPending();
+        } catch (Exception e) {
+            Log.error("Email dispatcher error", e);
+            closeTransport();
+            closeConnection();
+        }
+    }
+
+    /**
+     * Send one message over the shared SMTP connection
+     */
+    private void deliver(SmtpSettings smtp, OutboxEmail email) throws MessagingException {
+        Transport connected = openTransport(smtp);
+
+        Message message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(smtp.getFromAddress()));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(email.getRecipient()));
+        message.setSubject(email.getSubject());
+        message.setContent(email.getBody(), "text/html; charset=utf-8");
+        message.saveChanges();
+
+        try {
+            connected.sendMessage(message, message.getAllRecipients());
+        } catch (SendFailedException e) {
+            // Rejected recipient, the connection itself is still usable
+            throw e;
+        } catch (MessagingException e) {
+            closeTransport();
+            throw e;
+        }
+    }
+
+    /**
+     * Reschedule a failed message with exponential backoff, or give up on it
+     */
+    private void recordFailure(OutboxEmail email, MessagingException e) throws SQLException {
+        int attempts = email.getAttempts() + 1;
+
+        if (attempts >= MAX_ATTEMPTS) {
+            outboxDAO.markAttemptFailed(email.getId(), null, e.getMessage());
+            failedCount.incrementAndGet();
+            Log.warn("Giving up on email", "id", email.getId(), "attempts", attempts, "reason", e.getMessage());
+        } else {
+            long backoff = Math.min(MAX_BACKOFF_SECONDS, BASE_BACKOFF_SECONDS << (attempts - 1));
+            outboxDAO.markAttemptFailed(email.getId(), LocalDateTime.now().plusSeconds(backoff), e.getMessage());
+            retryCount.incrementAndGet();
+        }
+    }
+
+    private SmtpSettings currentSettings() throws SQLException {
+        if (settings == null) {
+            settings = SmtpSettings.fromDatabase();
+            if (settings == null) {
+                Log.warn("Email settings not configured in the database");
+            }
+        }
+        return settings;
+    }
+
+    private Transport openTransport(SmtpSettings smtp) throws MessagingException {
+        if (session == null) {
+            session = Session.getInstance(smtp.toMailProperties());
+        }
+
+        if (transport == null || !transport.isConnected()) {
+            transport = session.getTransport("smtp");
+            if (smtp.isAuth()) {
+                transport.connect(smtp.getHost(), smtp.getPort(), smtp.getUsername(), smtp.getPassword());
+            } else {
+                transport.connect(smtp.getHost(), smtp.getPort(), null, null);
+            }
+        }
+
+        return transport;
+    }
+
+    private void openOutbox() throws SQLException {
+        if (connection == null || !connection.isValid(2)) {
+            closeConnection();
+            connection = DatabaseConnection.getConnection();
+            outboxDAO = new EmailOutboxDAO(connection);
+        }
+    }
+
+    private void closeTransport() {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                // Connection is being discarded anyway
+            }
+            transport = null;
+        }
+    }
+
+    private void closeConnection() {
+        DatabaseConnection.closeConnection(connection);
+        connection = null;
+        outboxDAO = null;
+    }
+
+    /**
+     * Spaces sends to one SMTP host evenly at a fixed rate
+     */
+    private static final class HostRateLimiter {
+        private final long intervalNanos;
+        private long nextSlotNanos = System.nanoTime();
+
+        HostRateLimiter(double messagesPerSecond) {
+            this.intervalNanos = (long) (1_000_000_000L / messagesPerSecond);
+        }
+
+        /**
+         * Wait for the next send slot
+         *
+         * @return false if interrupted while waiting
+         */
+        synchronized boolean acquire() {
+            long now = System.nanoTime();
+            long wait = nextSlotNanos - now;
+            nextSlotNanos = Math.max(now, nextSlotNanos) + intervalNanos;
+
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
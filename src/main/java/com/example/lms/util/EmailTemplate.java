@@ -0,0 +1,147 @@
+package com.example.lms.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parsed email template.
+ * Templates use {{name}} for HTML-escaped values and {{&name}} for values that are
+ * already HTML (e.g. rows rendered from another template). Parsing happens once;
+ * rendering just walks the precompiled segments and appends to a StringBuilder.
+ */
+public final class EmailTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    // Per-thread buffer so bulk runs do not allocate a new builder per message
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(4096));
+
+    private final String name;
+    private final String[] literals;      // literals[i] precedes placeholders[i]
+    private final String[] placeholders;
+    private final boolean[] raw;
+    private final int estimatedLength;
+
+    private EmailTemplate(String name, String[] literals, String[] placeholders, boolean[] raw, int estimatedLength) {
+        this.name = name;
+        this.literals = literals;
+        this.placeholders = placeholders;
+        this.raw = raw;
+        this.estimatedLength = estimatedLength;
+    }
+
+    /**
+     * Parse template text
+     *
+     * @param name Template name, used in error messages
+     * @param source Template text
+     * @return Compiled template
+     * @throws IllegalArgumentException if a placeholder is not closed
+     */
+    public static EmailTemplate compile(String name, String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        List<Boolean> raw = new ArrayList<>();
+
+        int pos = 0;
+        while (true) {
+            int open = source.indexOf(OPEN, pos);
+            if (open < 0) {
+                break;
+            }
+
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder in template " + name + " at " + open);
+            }
+
+            String key = source.substring(open + OPEN.length(), close).trim();
+            boolean unescaped = key.startsWith("&");
+            if (unescaped) {
+                key = key.substring(1).trim();
+            }
+
+            literals.add(source.substring(pos, open));
+            placeholders.add(key);
+            raw.add(unescaped);
+            pos = close + CLOSE.length();
+        }
+        // Trailing literal has no placeholder after it
+        literals.add(source.substring(pos));
+
+        boolean[] rawFlags = new boolean[raw.size()];
+        for (int i = 0; i < rawFlags.length; i++) {
+            rawFlags[i] = raw.get(i);
+        }
+
+        return new EmailTemplate(name,
+                literals.toArray(new String[0]),
+                placeholders.toArray(new String[0]),
+                rawFlags,
+                source.length() + 64 * placeholders.size());
+    }
+
+    /**
+     * Render the template to a new string
+     *
+     * @param values Placeholder values; missing values render as empty text
+     * @return Rendered text
+     */
+    public String render(Map<String, ?> values) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        out.ensureCapacity(estimatedLength);
+        renderTo(out, values);
+        return out.toString();
+    }
+
+    /**
+     * Append the rendered template to an existing builder
+     *
+     * @param out Builder to append to
+     * @param values Placeholder values; missing values render as empty text
+     */
+    public void renderTo(StringBuilder out, Map<String, ?> values) {
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+
+            Object value = values.get(placeholders[i]);
+            if (value != null) {
+                if (raw[i]) {
+                    out.append(value);
+                } else {
+                    appendEscaped(out, value.toString());
+                }
+            }
+        }
+        out.append(literals[literals.length - 1]);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Append text with HTML special characters escaped
+     */
+    private static void appendEscaped(StringBuilder out, String text) {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String replacement;
+            switch (text.charAt(i)) {
+                case '&': replacement = "&amp;"; break;
+                case '<': replacement = "&lt;"; break;
+                case '>': replacement = "&gt;"; break;
+                case '"': replacement = "&quot;"; break;
+                case '\'': replacement = "&#39;"; break;
+                default: continue;
+            }
+            out.append(text, start, i).append(replacement);
+            start = i + 1;
+        }
+        out.append(text, start, text.length());
+    }
+}
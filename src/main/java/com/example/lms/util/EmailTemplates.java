@@ -0,0 +1,86 @@
+package com.example.lms.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the application's email templates.
+ * Template bodies live under resources/com/example/lms/templates and are parsed
+ * the first time they are used; after that every lookup hits the cache.
+ */
+public class EmailTemplates {
+
+    public static final String PASSWORD_RESET = "password-reset";
+    public static final String DUE_DATE_REMINDER = "due-date-reminder";
+    public static final String HOLD_READY = "hold-ready";
+    public static final String FINE_STATEMENT = "fine-statement";
+    public static final String FINE_STATEMENT_ROW = "fine-statement-row";
+
+    // Subject lines are short enough to keep in code; they are plain text, so nothing is escaped
+    private static final Map<String, String> SUBJECTS = Map.of(
+            PASSWORD_RESET, "Password Reset Request - {{&appName}}",
+            DUE_DATE_REMINDER, "Reminder: \"{{&bookTitle}}\" is due on {{&dueDate}}",
+            HOLD_READY, "Your reserved book \"{{&bookTitle}}\" is ready for pickup",
+            FINE_STATEMENT, "Your fine statement from {{&appName}}"
+    );
+
+    private static final Map<String, EmailTemplate> BODY_CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, EmailTemplate> SUBJECT_CACHE = new ConcurrentHashMap<>();
+
+    private static final Metrics.Counter LOOKUPS = Metrics.counter(
+            "lms_cache_requests_total", "Cache lookups", "cache", "email_templates");
+    private static final Metrics.Counter MISSES = Metrics.counter(
+            "lms_cache_misses_total", "Cache lookups that had to load the value", "cache", "email_templates");
+
+    /**
+     * Get the compiled body template with the given name
+     *
+     * @param name Template name, e.g. {@link #PASSWORD_RESET}
+     * @return Compiled template
+     */
+    public static EmailTemplate body(String name) {
+        LOOKUPS.increment();
+        return BODY_CACHE.computeIfAbsent(name, key -> {
+            MISSES.increment();
+            return load(key);
+        });
+    }
+
+    /**
+     * Get the compiled subject template for the given template name
+     *
+     * @param name Template name, e.g. {@link #PASSWORD_RESET}
+     * @return Compiled subject template
+     */
+    public static EmailTemplate subject(String name) {
+        LOOKUPS.increment();
+        return SUBJECT_CACHE.computeIfAbsent(name, key -> {
+            MISSES.increment();
+            String source = SUBJECTS.get(key);
+            if (source == null) {
+                throw new IllegalArgumentException("No subject defined for email template " + key);
+            }
+            return EmailTemplate.compile(key + " subject", source);
+        });
+    }
+
+    /**
+     * Read and parse a template resource
+     */
+    private static EmailTemplate load(String name) {
+        String path = "/com/example/lms/templates/" + name + ".html";
+
+        try (InputStream in = EmailTemplates.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Email template not found: " + path);
+            }
+            return EmailTemplate.compile(name, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read email template " + path, e);
+        }
+    }
+}
@@ -1,138 +1,182 @@
 package com.example.lms.util;
 
-import com.example.lms.model.AppSetting;
+import com.example.lms.model.Borrowing;
+import com.example.lms.model.EmailOutboxDAO;
+import com.example.lms.model.Fine;
+import com.example.lms.model.OutboxEmail;
 
-import javax.mail.*;
-import javax.mail.internet.InternetAddress;
-import javax.mail.internet.MimeMessage;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.util.Properties;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Utility class for email operations in the application.
- * This is primarily used for sending password reset emails.
+ * Builds notification emails from the cached templates in {@link EmailTemplates}
+ * and queues them in the outbox for background delivery.
  */
 public class EmailUtil {
 
     /**
      * Send a password reset email to a user.
-     * 
+     * The message is queued in the email outbox and delivered in the background
+     * by {@link EmailDispatcher}, so this returns without waiting for SMTP.
+     *
      * @param recipientEmail The email address of the recipient
      * @param resetToken The password reset token
      * @param userName The name of the user
-     * @return True if email was sent successfully, false otherwise
+     * @return True if email was queued successfully, false otherwise
      */
     public static boolean sendPasswordResetEmail(String recipientEmail, String resetToken, String userName) {
         try {
             // Retrieve email settings from the database
-            Connection connection = DatabaseConnection.getConnection();
-            
-            String emailAddress = getSettingValue(connection, "email_address");
-            String emailPassword = getSettingValue(connection, "email_password");
-            String smtpHost = getSettingValue(connection, "smtp_host");
-            String smtpPort = getSettingValue(connection, "smtp_port");
-            String appName = getSettingValue(connection, "app_name");
-            
-            DatabaseConnection.closeConnection(connection);
-            
+            SmtpSettings settings = SmtpSettings.fromDatabase();
+
             // Check if email settings are configured
-            if (emailAddress == null || emailAddress.isEmpty() || 
-                emailPassword == null || emailPassword.isEmpty()) {
-                System.err.println("Email settings not configured in the database");
+            if (settings == null) {
+                Log.warn("Email settings not configured in the database");
                 return false;
             }
 
-            // Set mail properties
-            Properties props = new Properties();
-            props.put("mail.smtp.auth", "true");
-            props.put("mail.smtp.starttls.enable", "true");
-            props.put("mail.smtp.host", smtpHost);
-            props.put("mail.smtp.port", smtpPort);
-
-            // Create session with authentication
-            Session session = Session.getInstance(props, new Authenticator() {
-                @Override
-                protected PasswordAuthentication getPasswordAuthentication() {
-                    return new PasswordAuthentication(emailAddress, emailPassword);
-                }
-            });
-
-            // Create message
-            Message message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(emailAddress));
-            message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(recipientEmail));
-            
-            // Set subject and content
-            message.setSubject("Password Reset Request - " + appName);
-            
-            // HTML email content
-            String htmlContent = 
-                "<html>" +
-                "<head>" +
-                "<style>" +
-                "body { font-family: Arial, sans-serif; line-height: 1.6; }" +
-                ".container { width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 5px; }" +
-                "h2 { color: #333366; }" +
-                ".button { display: inline-block; padding: 10px 20px; background-color: #4CAF50; color: white; " +
-                "text-decoration: none; border-radius: 5px; font-weight: bold; margin: 20px 0; }" +
-                "footer { margin-top: 20px; font-size: 12px; color: #888; }" +
-                "</style>" +
-                "</head>" +
-                "<body>" +
-                "<div class='container'>" +
-                "<h2>Hello " + userName + ",</h2>" +
-                "<p>We received a request to reset your password for your account at " + appName + ".</p>" +
-                "<p>Your password reset code is: <strong>" + resetToken + "</strong></p>" +
-                "<p>Please use this code in the password reset form to create a new password.</p>" +
-                "<p>If you did not request a password reset, please ignore this email.</p>" +
-                "<p>Thank you,<br>The " + appName + " Team</p>" +
-                "<footer>This is an automated message, please do not reply to this email.</footer>" +
-                "</div>" +
-                "</body>" +
-                "</html>";
-                
-            message.setContent(htmlContent, "text/html; charset=utf-8");
-            
-            // Send message
-            Transport.send(message);
-            
-            System.out.println("Password reset email sent to: " + recipientEmail);
-            return true;
-            
+            Map<String, Object> values = new HashMap<>();
+            values.put("appName", settings.getAppName());
+            values.put("userName", userName);
+            values.put("resetToken", resetToken);
+
+            return queueEmail(build(EmailTemplates.PASSWORD_RESET, recipientEmail, values));
+
         } catch (Exception e) {
-            System.err.println("Failed to send password reset email: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Failed to send password reset email", e);
             return false;
         }
     }
-    
+
+    /**
+     * Build a due-date reminder for a borrowing.
+     *
+     * @param borrowing The active borrowing
+     * @param appName Application name for the signature
+     * @return Email ready to be queued
+     */
+    public static OutboxEmail buildDueDateReminder(Borrowing borrowing, String appName) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("appName", appName);
+        values.put("userName", borrowing.getUser().getName());
+        values.put("bookTitle", borrowing.getBookCopy().getBookTitle());
+        values.put("copyNumber", borrowing.getBookCopy().getCopyNumber());
+        values.put("dueDate", borrowing.getDueDate());
+
+        return build(EmailTemplates.DUE_DATE_REMINDER, borrowing.getUser().getEmail(), values);
+    }
+
+    /**
+     * Build a notice that a reserved book is ready for pickup.
+     *
+     * @param recipientEmail The email address of the recipient
+     * @param userName The name of the user
+     * @param bookTitle Title of the reserved book
+     * @param pickupBy Last day the hold is kept
+     * @param appName Application name for the signature
+     * @return Email ready to be queued
+     */
+    public static OutboxEmail buildHoldReadyNotice(String recipientEmail, String userName, String bookTitle,
+                                                   LocalDate pickupBy, String appName) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("appName", appName);
+        values.put("userName", userName);
+        values.put("bookTitle", bookTitle);
+        values.put("pickupBy", pickupBy);
+
+        return build(EmailTemplates.HOLD_READY, recipientEmail, values);
+    }
+
+    /**
+     * Build a statement listing a user's outstanding fines.
+     *
+     * @param recipientEmail The email address of the recipient
+     * @param userName The name of the user
+     * @param fines The unpaid fines to list
+     * @param appName Application name for the signature
+     * @return Email ready to be queued
+     */
+    public static OutboxEmail buildFineStatement(String recipientEmail, String userName, List<Fine> fines,
+                                                 String appName) {
+        EmailTemplate rowTemplate = EmailTemplates.body(EmailTemplates.FINE_STATEMENT_ROW);
+        StringBuilder rows = new StringBuilder(128 * fines.size());
+        Map<String, Object> rowValues = new HashMap<>();
+        BigDecimal total = BigDecimal.ZERO;
+
+        for (Fine fine : fines) {
+            rowValues.put("issueDate", fine.getIssueDate());
+            Borrowing borrowing = fine.getBorrowing();
+            rowValues.put("bookTitle", borrowing != null && borrowing.getBookCopy() != null
+                    ? borrowing.getBookCopy().getBookTitle() : "");
+            rowValues.put("reason", fine.getReason());
+            rowValues.put("amount", fine.getAmount());
+            rowTemplate.renderTo(rows, rowValues);
+
+            if (fine.getAmount() != null) {
+                total = total.add(fine.getAmount());
+            }
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("appName", appName);
+        values.put("userName", userName);
+        values.put("rows", rows);
+        values.put("total", total.setScale(2, RoundingMode.HALF_UP));
+
+        return build(EmailTemplates.FINE_STATEMENT, recipientEmail, values);
+    }
+
+    /**
+     * Queue an email in the outbox and wake the dispatcher.
+     *
+     * @param email The email to queue
+     * @return True if email was queued successfully, false otherwise
+     */
+    public static boolean queueEmail(OutboxEmail email) {
+        return queueEmails(List.of(email)) == 1;
+    }
+
     /**
-     * Get a setting value from the app_setting table.
-     * 
-     * @param connection The database connection
-     * @param key The setting key to retrieve
-     * @return The setting value or null if not found
+     * Queue a batch of emails in the outbox with one batched insert and wake the dispatcher.
+     *
+     * @param emails The emails to queue
+     * @return Number of emails queued
      */
-    private static String getSettingValue(Connection connection, String key) {
+    public static int queueEmails(List<OutboxEmail> emails) {
+        EmailOutboxDAO outboxDAO = new EmailOutboxDAO();
         try {
-            String query = "SELECT setting_value FROM app_setting WHERE setting_key = ?";
-            PreparedStatement stmt = connection.prepareStatement(query);
-            stmt.setString(1, key);
-            
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getString("setting_value");
+            int queued = outboxDAO.enqueueAll(emails);
+
+            if (queued > 0) {
+                EmailDispatcher.getInstance().wakeUp();
+                Log.debug("Emails queued", "count", queued);
+            }
+            return queued;
+
+        } catch (SQLException e) {
+            Log.error("Failed to queue email", e);
+            return 0;
+        } finally {
+            try {
+                outboxDAO.close();
+            } catch (SQLException e) {
+                Log.warn("Error closing resources", e);
             }
-            
-            rs.close();
-            stmt.close();
-            
-        } catch (Exception e) {
-            System.err.println("Error retrieving setting: " + key + " - " + e.getMessage());
         }
-        
-        return null;
+    }
+
+    /**
+     * Render subject and body of a template into an outbox email
+     */
+    private static OutboxEmail build(String templateName, String recipientEmail, Map<String, Object> values) {
+        String subject = EmailTemplates.subject(templateName).render(values);
+        String body = EmailTemplates.body(templateName).render(values);
+        return new OutboxEmail(recipientEmail, subject, body);
     }
 }
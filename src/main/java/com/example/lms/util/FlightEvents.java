@@ -0,0 +1,82 @@
+package com.example.lms.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events emitted by the application.
+ * They cost next to nothing unless a recording is running, e.g.
+ *
+ * <pre>
+ * jcmd &lt;pid&gt; JFR.start name=desk duration=10m filename=desk.jfr
+ * </pre>
+ *
+ * and show up in JDK Mission Control under "Library Management System".
+ */
+public final class FlightEvents {
+
+    private FlightEvents() {
+    }
+
+    /**
+     * One statement executed by a DAO, from execute until its rows have been read
+     */
+    @Name("com.example.lms.DaoCall")
+    @Label("DAO Call")
+    @Category({"Library Management System", "Database"})
+    @Description("A statement executed by a DAO method")
+    @StackTrace(false)
+    public static class DaoCall extends Event {
+        @Label("DAO Method")
+        String method;
+
+        @Label("Entity")
+        @Description("Table the statement reads or writes")
+        String entity;
+
+        @Label("SQL")
+        String sql;
+
+        @Label("Rows")
+        @Description("Rows read, or rows changed by an update")
+        long rows;
+    }
+
+    /**
+     * One database transaction, from setAutoCommit(false) until commit or rollback
+     */
+    @Name("com.example.lms.Transaction")
+    @Label("Transaction")
+    @Category({"Library Management System", "Database"})
+    @StackTrace(false)
+    public static class Transaction extends Event {
+        @Label("Operation")
+        @Description("Method that started the transaction")
+        String operation;
+
+        @Label("Outcome")
+        String outcome;
+
+        @Label("Statements")
+        int statements;
+    }
+
+    /**
+     * One FXML view load, including the controller's initialize()
+     */
+    @Name("com.example.lms.ViewLoad")
+    @Label("View Load")
+    @Category({"Library Management System", "UI"})
+    @StackTrace(false)
+    public static class ViewLoad extends Event {
+        @Label("View")
+        String view;
+
+        @Label("Controller")
+        String controller;
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.lms.util;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Watches the JavaFX Application Thread for stalls.
+ * A watchdog thread keeps one heartbeat queued on the FX thread and measures how long
+ * it waits; when it waits longer than -Dlms.ui.stallMs (default 250), the FX thread's
+ * stack is captured, and when the thread catches up the stall is logged with the
+ * controller and DAO method that were running. The time between pulses is sampled too,
+ * so frame times and stalls are both exported through {@link Metrics}.
+ * Frame sampling keeps pulses running; -Dlms.ui.sampleFrames=false turns it off.
+ */
+public class FxStallMonitor {
+
+    private static final long STALL_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("lms.ui.stallMs", 250));
+    private static final long CHECK_INTERVAL_NANOS = Math.max(TimeUnit.MILLISECONDS.toNanos(10), STALL_NANOS / 5);
+    private static final boolean SAMPLE_FRAMES =
+            Boolean.parseBoolean(System.getProperty("lms.ui.sampleFrames", "true"));
+    private static final int RECENT_STALLS = 50;
+
+    private static final QueryStats.LatencyHistogram FRAME_TIMES = new QueryStats.LatencyHistogram();
+    private static final QueryStats.LatencyHistogram HEARTBEAT_DELAYS = new QueryStats.LatencyHistogram();
+    private static final Deque<Stall> STALLS = new ArrayDeque<>();
+
+    private static final Metrics.Counter STALL_COUNT =
+            Metrics.counter("lms_ui_stalls_total", "Times the JavaFX thread did not respond within the stall threshold");
+    private static final Metrics.Counter STALL_TIME =
+            Metrics.counter("lms_ui_stall_milliseconds_total", "Time the JavaFX thread spent stalled");
+
+    private static final Object LOCK = new Object();
+
+    private static Thread fxThread;
+    private static Thread watchdog;
+    private static AnimationTimer frameSampler;
+    private static volatile boolean running;
+
+    // Guarded by LOCK
+    private static long heartbeatSentAt;
+    private static StackTraceElement[] stallStack;
+
+    static {
+        Metrics.collector(FxStallMonitor::writeMetrics);
+    }
+
+    /**
+     * Start monitoring; must be called on the FX thread
+     */
+    public static synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (!Platform.isFxApplicationThread()) {
+            throw new IllegalStateException("FxStallMonitor must be started on the JavaFX Application Thread");
+        }
+
+        fxThread = Thread.currentThread();
+        running = true;
+
+        watchdog = new Thread(FxStallMonitor::watch, "fx-stall-monitor");
+        watchdog.setDaemon(true);
+        watchdog.start();
+
+        if (SAMPLE_FRAMES) {
+            frameSampler = new AnimationTimer() {
+                private long lastPulse;
+
+                @Override
+                public void handle(long now) {
+                    if (lastPulse != 0) {
+                        FRAME_TIMES.record(now - lastPulse);
+                    }
+                    lastPulse = now;
+                }
+            };
+            frameSampler.start();
+        }
+    }
+
+    /**
+     * Stop monitoring
+     */
+    public static synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(watchdog);
+
+        if (frameSampler != null) {
+            AnimationTimer sampler = frameSampler;
+            frameSampler = null;
+            if (Platform.isFxApplicationThread()) {
+                sampler.stop();
+            } else {
+                Platform.runLater(sampler::stop);
+            }
+        }
+    }
+
+    /**
+     * Get the most recent stalls, oldest first
+     *
+     * @return Recent stalls
+     */
+    public static List<Stall> getRecentStalls() {
+        synchronized (STALLS) {
+            return new ArrayList<>(STALLS);
+        }
+    }
+
+    /**
+     * Keep a heartbeat queued on the FX thread and capture its stack when it stops answering
+     */
+    private static void watch() {
+        while (running) {
+            long now = System.nanoTime();
+            boolean send = false;
+
+            synchronized (LOCK) {
+                if (heartbeatSentAt == 0) {
+                    heartbeatSentAt = now;
+                    send = true;
+                } else if (stallStack == null && now - heartbeatSentAt >= STALL_NANOS) {
+                    // Capture what the FX thread is doing while it is still stuck
+                    stallStack = fxThread.getStackTrace();
+                }
+            }
+
+            if (send) {
+                Platform.runLater(FxStallMonitor::heartbeat);
+            }
+            LockSupport.parkNanos(CHECK_INTERVAL_NANOS);
+        }
+    }
+
+    /**
+     * Runs on the FX thread once it has worked through everything queued before it
+     */
+    private static void heartbeat() {
+        long delay;
+        StackTraceElement[] stack;
+
+        synchronized (LOCK) {
+            delay = System.nanoTime() - heartbeatSentAt;
+            stack = stallStack;
+            heartbeatSentAt = 0;
+            stallStack = null;
+        }
+
+        HEARTBEAT_DELAYS.record(delay);
+        if (stack != null) {
+            recordStall(TimeUnit.NANOSECONDS.toMillis(delay), stack);
+        }
+    }
+
+    private static void recordStall(long millis, StackTraceElement[] stack) {
+        Stall stall = new Stall(LocalDateTime.now(), millis,
+                findFrame(stack, "com.example.lms.controller."), findFrame(stack, "com.example.lms.model."), stack);
+
+        STALL_COUNT.increment();
+        STALL_TIME.add(millis);
+        synchronized (STALLS) {
+            if (STALLS.size() >= RECENT_STALLS) {
+                STALLS.pollFirst();
+            }
+            STALLS.addLast(stall);
+        }
+
+        Throwable trace = new Throwable("JavaFX Application Thread stack during the stall");
+        trace.setStackTrace(stack);
+        Log.warn("UI stall", trace, "ms", millis, "controller", stall.getController(), "dao", stall.getDaoCall());
+    }
+
+    /**
+     * Name the innermost frame from a package, e.g. the running controller method
+     */
+    private static String findFrame(StackTraceElement[] stack, String packagePrefix) {
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(packagePrefix)) {
+                String className = frame.getClassName();
+                return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+            }
+        }
+        return "";
+    }
+
+    private static void writeMetrics(StringBuilder out) {
+        Metrics.header(out, "lms_ui_frame_interval_seconds", "Time between JavaFX pulses", "summary");
+        for (double quantile : new double[] {0.5, 0.99, 0.999}) {
+            Metrics.sample(out, "lms_ui_frame_interval_seconds",
+                    Metrics.labels("quantile", Double.toString(quantile)), FRAME_TIMES.percentile(quantile) / 1e9);
+        }
+
+        Metrics.header(out, "lms_ui_event_delay_seconds",
+                "Time a task queued on the JavaFX thread waited before it ran", "summary");
+        for (double quantile : new double[] {0.5, 0.99, 0.999}) {
+            Metrics.sample(out, "lms_ui_event_delay_seconds",
+                    Metrics.labels("quantile", Double.toString(quantile)), HEARTBEAT_DELAYS.percentile(quantile) / 1e9);
+        }
+    }
+
+    /**
+     * One period in which the FX thread did not respond
+     */
+    public static final class Stall {
+        private final LocalDateTime time;
+        private final long millis;
+        private final String controller;
+        private final String daoCall;
+        private final StackTraceElement[] stack;
+
+        Stall(LocalDateTime time, long millis, String controller, String daoCall, StackTraceElement[] stack) {
+            this.time = time;
+            this.millis = millis;
+            this.controller = controller;
+            this.daoCall = daoCall;
+            this.stack = stack;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * @return Controller method on the FX thread's stack, or an empty string
+         */
+        public String getController() {
+            return controller;
+        }
+
+        /**
+         * @return DAO method on the FX thread's stack, or an empty string
+         */
+        public String getDaoCall() {
+            return daoCall;
+        }
+
+        public StackTraceElement[] getStack() {
+            return stack.clone();
+        }
+
+        @Override
+        public String toString() {
+            return millis + " ms in " + (controller.isEmpty() ? "?" : controller) +
+                    (daoCall.isEmpty() ? "" : " via " + daoCall);
+        }
+    }
+}
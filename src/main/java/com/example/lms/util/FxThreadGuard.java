@@ -0,0 +1,99 @@
+package com.example.lms.util;
+
+import javafx.application.Platform;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Development check that warns when JDBC is used on the JavaFX Application Thread.
+ * Enabled with -Dlms.dev=true; the shared connection is then wrapped so that every
+ * statement, commit and rollback checks the calling thread. Each offending call
+ * site is reported once.
+ */
+public class FxThreadGuard {
+
+    private static final boolean ENABLED = Boolean.getBoolean("lms.dev");
+
+    private static final Set<String> REPORTED = ConcurrentHashMap.newKeySet();
+
+    private static final Set<String> GUARDED_METHODS = Set.of(
+            "createStatement", "prepareStatement", "prepareCall", "commit", "rollback");
+
+    /**
+     * @return true if the development checks are on
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Wrap a connection so JDBC calls on the FX thread are reported.
+     * Returns the connection unchanged when the checks are off.
+     *
+     * @param connection Connection to guard
+     * @return Guarded connection
+     */
+    public static Connection wrap(Connection connection) {
+        if (!ENABLED || connection == null) {
+            return connection;
+        }
+
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (GUARDED_METHODS.contains(method.getName())) {
+                check(method.getName());
+            }
+
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, handler);
+    }
+
+    /**
+     * Report the caller if this is the FX thread
+     *
+     * @param operation What is being done, e.g. "prepareStatement"
+     */
+    public static void check(String operation) {
+        if (!ENABLED || !Platform.isFxApplicationThread()) {
+            return;
+        }
+
+        String caller = findCaller();
+        if (REPORTED.add(caller)) {
+            Log.warn("JDBC call on the JavaFX Application Thread, move it to DaoExecutor",
+                    "operation", operation, "caller", caller);
+        }
+    }
+
+    /**
+     * Find the controller that triggered the call, or else the first application frame
+     */
+    private static String findCaller() {
+        String firstAppFrame = null;
+
+        for (StackTraceElement frame : Thread.currentThread().getStackTrace()) {
+            String className = frame.getClassName();
+            if (!className.startsWith("com.example.lms.") || className.equals(FxThreadGuard.class.getName())) {
+                continue;
+            }
+            if (className.startsWith("com.example.lms.controller.")) {
+                return firstAppFrame != null ? frame + " via " + firstAppFrame : frame.toString();
+            }
+            if (firstAppFrame == null) {
+                firstAppFrame = frame.toString();
+            }
+        }
+        return firstAppFrame != null ? firstAppFrame : "unknown caller";
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.lms.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Connection wrapper that times every statement execution and feeds {@link QueryStats}.
+ * Statements and their result sets are wrapped too, so row counts and bound parameters
+ * are known per execution. Statements and transactions are also reported as
+ * {@link FlightEvents}. On by default; -Dlms.db.instrument=false turns it off.
+ */
+public class InstrumentedConnection {
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("lms.db.instrument", "true"));
+
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    private static final Pattern TABLE = Pattern.compile("(?i)\\b(?:FROM|INTO|UPDATE)\\s+`?(\\w+)");
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    /**
+     * @return true if statements are instrumented
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Wrap a connection; returns it unchanged when instrumentation is off
+     *
+     * @param connection Connection to instrument
+     * @return Instrumented connection
+     * @throws SQLException if the connection's auto-commit mode cannot be read
+     */
+    public static Connection wrap(Connection connection) throws SQLException {
+        if (!ENABLED || connection == null) {
+            return connection;
+        }
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, new ConnectionHandler(connection));
+    }
+
+    /**
+     * Find the DAO method that created the statement
+     */
+    private static String findCaller() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith("com.example.lms.")
+                        && !frame.getClassName().startsWith("com.example.lms.util."))
+                .findFirst()
+                .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName())
+                .orElse("unknown"));
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private static String tableOf(String sql) {
+        Matcher matcher = TABLE.matcher(sql == null ? "" : sql);
+        return matcher.find() ? matcher.group(1) : "";
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Wraps statements and follows the transaction boundaries of one connection
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private boolean autoCommit;
+        private FlightEvents.Transaction transaction;
+
+        ConnectionHandler(Connection target) throws SQLException {
+            this.target = target;
+            this.autoCommit = target.getAutoCommit();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            Object result;
+            try {
+                result = InstrumentedConnection.invoke(target, method, args);
+            } catch (SQLException e) {
+                if (name.equals("commit")) {
+                    endTransaction("commit failed", false);
+                }
+                throw e;
+            }
+
+            if (STATEMENT_FACTORIES.contains(name) && result instanceof Statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] {method.getReturnType()},
+                        new StatementHandler(this, (Statement) result, sql, findCaller()));
+            }
+
+            switch (name) {
+                case "setAutoCommit" -> {
+                    boolean enable = (Boolean) args[0];
+                    if (enable && !autoCommit) {
+                        // Switching auto-commit back on commits the open transaction
+                        endTransaction("commit", true);
+                    } else if (!enable && autoCommit) {
+                        beginTransaction();
+                    }
+                    autoCommit = enable;
+                }
+                case "commit" -> endTransaction("commit", false);
+                case "rollback" -> {
+                    if (args == null) {
+                        endTransaction("rollback", false);
+                    }
+                }
+                case "close" -> transaction = null;
+                default -> {
+                }
+            }
+            return result;
+        }
+
+        void statementExecuted() {
+            if (transaction != null) {
+                transaction.statements++;
+            }
+        }
+
+        private void beginTransaction() {
+            transaction = new FlightEvents.Transaction();
+            transaction.operation = findCaller();
+            transaction.begin();
+        }
+
+        /**
+         * Report the open transaction; a new one starts if auto-commit stays off
+         */
+        private void endTransaction(String outcome, boolean autoCommitRestored) {
+            FlightEvents.Transaction ended = transaction;
+            transaction = null;
+
+            // A commit with nothing done is only the end of an empty transaction
+            if (ended != null && (ended.statements > 0 || !outcome.equals("commit"))) {
+                ended.end();
+                if (ended.shouldCommit()) {
+                    ended.outcome = outcome;
+                    ended.commit();
+                }
+            }
+
+            if (!autoCommit && !autoCommitRestored) {
+                beginTransaction();
+            }
+        }
+    }
+
+    /**
+     * Times executions of one statement and remembers its parameters
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final ConnectionHandler connection;
+        private final Statement target;
+        private final String caller;
+        private String sql;
+        private Object[] parameters = new Object[8];
+        private int parameterCount;
+        private int batchSize;
+        private ResultSetHandler openResult;
+
+        StatementHandler(ConnectionHandler connection, Statement target, String sql, String caller) {
+            this.connection = connection;
+            this.target = target;
+            this.sql = sql;
+            this.caller = caller;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                rememberParameter((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+                if (args != null && args.length == 1 && args[0] instanceof String) {
+                    sql = (String) args[0];
+                }
+            } else if (name.equals("clearParameters")) {
+                parameterCount = 0;
+            } else if (name.equals("close")) {
+                finishResult();
+            }
+
+            if (!name.startsWith("execute")) {
+                Object result = InstrumentedConnection.invoke(target, method, args);
+                if (name.equals("getResultSet") && result instanceof ResultSet) {
+                    return openResult((ResultSet) result, QueryStats.forSql(sql), null);
+                }
+                return result;
+            }
+
+            finishResult();
+
+            // Plain Statement passes the SQL to execute
+            String executedSql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            QueryStats.QueryStat stat = QueryStats.forSql(executedSql);
+
+            FlightEvents.DaoCall event = new FlightEvents.DaoCall();
+            event.begin();
+
+            long start = System.nanoTime();
+            Object result = InstrumentedConnection.invoke(target, method, args);
+            long elapsed = System.nanoTime() - start;
+
+            List<Object> bound = new ArrayList<>(Arrays.asList(parameters).subList(0, parameterCount));
+            QueryScope.record(stat.getShape(), caller, executedSql, bound);
+            if (batchSize > 0) {
+                bound.add("batch of " + batchSize);
+                batchSize = 0;
+            }
+            QueryStats.record(stat, caller, elapsed, executedSql, bound);
+            connection.statementExecuted();
+
+            if (result instanceof ResultSet) {
+                return openResult((ResultSet) result, stat, event);
+            }
+
+            long rows = 0;
+            if (result instanceof Integer) {
+                rows = Math.max(0, (Integer) result);
+            } else if (result instanceof Long) {
+                rows = Math.max(0, (Long) result);
+            } else if (result instanceof int[]) {
+                for (int n : (int[]) result) {
+                    rows += Math.max(0, n);
+                }
+            }
+            stat.addRows(rows);
+            commitEvent(event, stat, rows);
+            return result;
+        }
+
+        private void rememberParameter(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        private ResultSet openResult(ResultSet resultSet, QueryStats.QueryStat stat, FlightEvents.DaoCall event) {
+            openResult = new ResultSetHandler(this, resultSet, stat, event);
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[] {ResultSet.class}, openResult);
+        }
+
+        /**
+         * The result set is closed implicitly with its statement or by the next execution
+         */
+        private void finishResult() {
+            if (openResult != null) {
+                openResult.finish();
+                openResult = null;
+            }
+        }
+
+        void commitEvent(FlightEvents.DaoCall event, QueryStats.QueryStat stat, long rows) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = caller;
+                event.entity = tableOf(stat.getShape());
+                event.sql = stat.getShape();
+                event.rows = rows;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Counts the rows read from one result set
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final StatementHandler statement;
+        private final ResultSet target;
+        private final QueryStats.QueryStat stat;
+        private final FlightEvents.DaoCall event;
+        private long rows;
+        private boolean finished;
+
+        ResultSetHandler(StatementHandler statement, ResultSet target, QueryStats.QueryStat stat,
+                         FlightEvents.DaoCall event) {
+            this.statement = statement;
+            this.target = target;
+            this.stat = stat;
+            this.event = event;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedConnection.invoke(target, method, args);
+
+            if (method.getName().equals("next")) {
+                if (Boolean.TRUE.equals(result)) {
+                    stat.addRows(1);
+                    rows++;
+                } else {
+                    finish();
+                }
+            } else if (method.getName().equals("close")) {
+                finish();
+            }
+            return result;
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                if (event != null) {
+                    statement.commitEvent(event, stat, rows);
+                }
+            }
+        }
+    }
+}
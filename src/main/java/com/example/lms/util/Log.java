@@ -0,0 +1,131 @@
+package com.example.lms.util;
+
+/**
+ * Application log with levels and key/value fields.
+ * A log call only checks the level and puts a record into {@link LogWriter}'s
+ * lock-free ring buffer; formatting and file or console I/O happen on the writer's
+ * background thread. A call below the level costs one field read and a compare.
+ *
+ * <pre>
+ * Log.debug("Connection obtained", "active", count);
+ * Log.error("Error getting user by ID", e, "userId", id);
+ * </pre>
+ *
+ * The level is set with -Dlms.log.level (TRACE, DEBUG, INFO, WARN or ERROR; default INFO).
+ */
+public final class Log {
+
+    /**
+     * Log levels, least severe first
+     */
+    public enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR
+    }
+
+    private static volatile int threshold = parseLevel(System.getProperty("lms.log.level", "INFO")).ordinal();
+
+    private Log() {
+    }
+
+    /**
+     * Change the level at runtime
+     *
+     * @param level Least severe level that is written
+     */
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    /**
+     * @param level Level to check
+     * @return true if records of this level are written
+     */
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public static boolean isDebugEnabled() {
+        return Level.DEBUG.ordinal() >= threshold;
+    }
+
+    public static void trace(String message, Object... fields) {
+        if (Level.TRACE.ordinal() >= threshold) {
+            LogWriter.append(Level.TRACE, message, null, fields);
+        }
+    }
+
+    public static void debug(String message) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            LogWriter.append(Level.DEBUG, message, null, null);
+        }
+    }
+
+    public static void debug(String message, String key, Object value) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            LogWriter.append(Level.DEBUG, message, null, new Object[] {key, value});
+        }
+    }
+
+    public static void debug(String message, Object... fields) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            LogWriter.append(Level.DEBUG, message, null, fields);
+        }
+    }
+
+    public static void info(String message) {
+        if (Level.INFO.ordinal() >= threshold) {
+            LogWriter.append(Level.INFO, message, null, null);
+        }
+    }
+
+    public static void info(String message, String key, Object value) {
+        if (Level.INFO.ordinal() >= threshold) {
+            LogWriter.append(Level.INFO, message, null, new Object[] {key, value});
+        }
+    }
+
+    public static void info(String message, Object... fields) {
+        if (Level.INFO.ordinal() >= threshold) {
+            LogWriter.append(Level.INFO, message, null, fields);
+        }
+    }
+
+    public static void warn(String message, Object... fields) {
+        if (Level.WARN.ordinal() >= threshold) {
+            LogWriter.append(Level.WARN, message, null, fields);
+        }
+    }
+
+    public static void warn(String message, Throwable error, Object... fields) {
+        if (Level.WARN.ordinal() >= threshold) {
+            LogWriter.append(Level.WARN, message, error, fields);
+        }
+    }
+
+    public static void error(String message, Object... fields) {
+        if (Level.ERROR.ordinal() >= threshold) {
+            LogWriter.append(Level.ERROR, message, null, fields);
+        }
+    }
+
+    public static void error(String message, Throwable error, Object... fields) {
+        if (Level.ERROR.ordinal() >= threshold) {
+            LogWriter.append(Level.ERROR, message, error, fields);
+        }
+    }
+
+    /**
+     * Write out everything logged so far and stop the writer
+     */
+    public static void shutdown() {
+        LogWriter.shutdown();
+    }
+
+    private static Level parseLevel(String name) {
+        try {
+            return Level.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+}
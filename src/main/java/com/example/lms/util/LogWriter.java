@@ -0,0 +1,301 @@
+package com.example.lms.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background writer behind {@link Log}.
+ * Log calls put records into a bounded lock-free ring buffer; one daemon thread
+ * drains it, formats each record as a logfmt line and writes it to a rotating file.
+ * WARN and ERROR records are also printed to the console. When the buffer is full,
+ * new records are dropped and counted, so logging never blocks the caller.
+ *
+ * Configuration:
+ * -Dlms.log.file (default logs/lms.log), -Dlms.log.maxBytes (default 10 MB),
+ * -Dlms.log.maxFiles (rotated files kept, default 5), -Dlms.log.bufferSize (default 8192)
+ * and -Dlms.log.console=true to print every record to the console.
+ */
+final class LogWriter {
+
+    private static final Path FILE = Paths.get(System.getProperty("lms.log.file", "logs/lms.log"));
+    private static final long MAX_BYTES = Long.getLong("lms.log.maxBytes", 10L * 1024 * 1024);
+    private static final int MAX_FILES = Integer.getInteger("lms.log.maxFiles", 5);
+    private static final boolean CONSOLE_ALL = Boolean.getBoolean("lms.log.console");
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(2, Integer.getInteger("lms.log.bufferSize", 8192)));
+    private static final int MASK = CAPACITY - 1;
+
+    private static final AtomicReferenceArray<Record> SLOTS = new AtomicReferenceArray<>(CAPACITY);
+
+    // Next sequence to claim, and next sequence the writer will read
+    private static final AtomicLong HEAD = new AtomicLong();
+    private static final AtomicLong TAIL = new AtomicLong();
+
+    private static final LongAdder DROPPED = new LongAdder();
+
+    private static final Thread THREAD;
+    private static volatile boolean running = true;
+
+    private static Writer fileWriter;
+    private static long fileBytes;
+
+    static {
+        THREAD = new Thread(LogWriter::run, "log-writer");
+        THREAD.setDaemon(true);
+        THREAD.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(LogWriter::shutdown, "log-writer-shutdown"));
+        Metrics.functionCounter("lms_log_dropped_total", "Log records dropped because the buffer was full",
+                DROPPED::sum);
+    }
+
+    private LogWriter() {
+    }
+
+    /**
+     * One log call
+     */
+    private record Record(long time, Log.Level level, String thread, String message, Throwable error,
+                          Object[] fields) {
+    }
+
+    /**
+     * Queue a record; drops it if the buffer is full
+     */
+    static void append(Log.Level level, String message, Throwable error, Object[] fields) {
+        Record record = new Record(System.currentTimeMillis(), level, Thread.currentThread().getName(),
+                message, error, fields);
+
+        while (true) {
+            long head = HEAD.get();
+            if (head - TAIL.get() >= CAPACITY) {
+                DROPPED.increment();
+                return;
+            }
+            if (HEAD.compareAndSet(head, head + 1)) {
+                SLOTS.set((int) (head & MASK), record);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write out everything queued so far and stop the writer thread
+     */
+    static void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(THREAD);
+
+        try {
+            THREAD.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void run() {
+        openFile();
+        StringBuilder line = new StringBuilder(256);
+        long reportedDrops = 0;
+
+        while (true) {
+            long tail = TAIL.get();
+
+            if (tail == HEAD.get()) {
+                flush();
+
+                long dropped = DROPPED.sum();
+                if (dropped > reportedDrops) {
+                    System.err.println("Log buffer full, dropped " + (dropped - reportedDrops) + " records");
+                    reportedDrops = dropped;
+                }
+
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            // The slot is claimed but its producer may not have stored the record yet
+            int index = (int) (tail & MASK);
+            Record record = SLOTS.get(index);
+            if (record == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            SLOTS.set(index, null);
+            TAIL.lazySet(tail + 1);
+
+            line.setLength(0);
+            format(record, line);
+            write(record, line);
+        }
+
+        closeFile();
+    }
+
+    private static void format(Record record, StringBuilder out) {
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(record.time()), out);
+        out.append(' ').append(record.level());
+        if (record.level().name().length() == 4) {
+            out.append(' ');
+        }
+        out.append(" [").append(record.thread()).append("] ").append(record.message());
+
+        Object[] fields = record.fields();
+        if (fields != null) {
+            for (int i = 0; i + 1 < fields.length; i += 2) {
+                out.append(' ').append(fields[i]).append('=');
+                appendValue(out, fields[i + 1]);
+            }
+        }
+
+        Throwable error = record.error();
+        if (error != null) {
+            out.append(" error=");
+            appendValue(out, error.toString());
+
+            StringWriter trace = new StringWriter();
+            error.printStackTrace(new PrintWriter(trace));
+            out.append(System.lineSeparator()).append(trace.toString().stripTrailing());
+        }
+        out.append(System.lineSeparator());
+    }
+
+    /**
+     * Quote values that would otherwise break the key=value format
+     */
+    private static void appendValue(StringBuilder out, Object value) {
+        String text = String.valueOf(value);
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=';
+        }
+
+        if (!quote) {
+            out.append(text);
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    private static void write(Record record, CharSequence line) {
+        if (CONSOLE_ALL || record.level().compareTo(Log.Level.WARN) >= 0 || fileWriter == null) {
+            (record.level().compareTo(Log.Level.WARN) >= 0 ? System.err : System.out).print(line);
+        }
+
+        if (fileWriter == null) {
+            return;
+        }
+
+        try {
+            fileWriter.append(line);
+            fileBytes += line.length();
+            if (fileBytes >= MAX_BYTES) {
+                rotate();
+            }
+        } catch (IOException e) {
+            System.err.println("Log file write failed, logging to the console only: " + e.getMessage());
+            closeFile();
+        }
+    }
+
+    private static void openFile() {
+        try {
+            if (FILE.getParent() != null) {
+                Files.createDirectories(FILE.getParent());
+            }
+            fileBytes = Files.exists(FILE) ? Files.size(FILE) : 0;
+            fileWriter = new BufferedWriter(Files.newBufferedWriter(FILE, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+        } catch (IOException e) {
+            System.err.println("Cannot open log file " + FILE + ", logging to the console only: " + e.getMessage());
+            fileWriter = null;
+        }
+    }
+
+    /**
+     * Shift lms.log.N to lms.log.N+1, dropping the oldest, and start a new file
+     */
+    private static void rotate() throws IOException {
+        closeFile();
+
+        for (int i = MAX_FILES - 1; i >= 1; i--) {
+            Path from = rotated(i);
+            if (Files.exists(from)) {
+                Files.move(from, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (MAX_FILES > 0) {
+            Files.move(FILE, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(FILE);
+        }
+
+        openFile();
+    }
+
+    private static Path rotated(int n) {
+        return FILE.resolveSibling(FILE.getFileName() + "." + n);
+    }
+
+    private static void flush() {
+        if (fileWriter != null) {
+            try {
+                fileWriter.flush();
+            } catch (IOException e) {
+                System.err.println("Log file flush failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void closeFile() {
+        if (fileWriter != null) {
+            try {
+                fileWriter.close();
+            } catch (IOException e) {
+                System.err.println("Error closing log file: " + e.getMessage());
+            }
+            fileWriter = null;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.lms.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Central registry of application metrics, rendered in the Prometheus text format
+ * by {@link MetricsServer}. Counters are LongAdders, so incrementing one on a hot
+ * path costs no more than an uncontended add; gauges are read only when scraped.
+ *
+ * <pre>
+ * private static final Metrics.Counter CHECKOUTS =
+ *         Metrics.counter("lms_checkouts_total", "Books checked out");
+ * ...
+ * CHECKOUTS.increment();
+ * </pre>
+ */
+public class Metrics {
+
+    private static final Map<String, Family> FAMILIES = new ConcurrentSkipListMap<>();
+    private static final List<Collector> COLLECTORS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Writes metrics that are computed at scrape time, e.g. from {@link QueryStats}
+     */
+    @FunctionalInterface
+    public interface Collector {
+        void collect(StringBuilder out);
+    }
+
+    /**
+     * Get or create a counter
+     *
+     * @param name Metric name, ending in _total
+     * @param help Description shown in the HELP line
+     * @return Counter
+     */
+    public static Counter counter(String name, String help) {
+        return counter(name, help, null, null);
+    }
+
+    /**
+     * Get or create a counter with one label
+     *
+     * @param name Metric name, ending in _total
+     * @param help Description shown in the HELP line
+     * @param label Label name, e.g. "cache"
+     * @param value Label value, e.g. "email_templates"
+     * @return Counter
+     */
+    public static Counter counter(String name, String help, String label, String value) {
+        Family family = FAMILIES.computeIfAbsent(name, key -> new Family(key, help, "counter"));
+        return (Counter) family.samples.computeIfAbsent(labels(label, value), key -> new Counter());
+    }
+
+    /**
+     * Register a counter whose value is kept elsewhere, e.g. in an AtomicLong
+     *
+     * @param name Metric name, ending in _total
+     * @param help Description shown in the HELP line
+     * @param value Read when metrics are scraped
+     */
+    public static void functionCounter(String name, String help, DoubleSupplier value) {
+        Family family = FAMILIES.computeIfAbsent(name, key -> new Family(key, help, "counter"));
+        family.samples.put("", new Gauge(value));
+    }
+
+    /**
+     * Register a gauge, replacing any earlier gauge with the same name and label
+     *
+     * @param name Metric name
+     * @param help Description shown in the HELP line
+     * @param value Read when metrics are scraped
+     */
+    public static void gauge(String name, String help, DoubleSupplier value) {
+        gauge(name, help, null, null, value);
+    }
+
+    /**
+     * Register a gauge with one label
+     *
+     * @param name Metric name
+     * @param help Description shown in the HELP line
+     * @param label Label name
+     * @param labelValue Label value
+     * @param value Read when metrics are scraped
+     */
+    public static void gauge(String name, String help, String label, String labelValue, DoubleSupplier value) {
+        Family family = FAMILIES.computeIfAbsent(name, key -> new Family(key, help, "gauge"));
+        family.samples.put(labels(label, labelValue), new Gauge(value));
+    }
+
+    /**
+     * Register a collector that writes its own metric families
+     *
+     * @param collector Collector called on every scrape
+     */
+    public static void collector(Collector collector) {
+        COLLECTORS.add(collector);
+    }
+
+    /**
+     * Render all metrics in the Prometheus text exposition format
+     *
+     * @return Metrics page
+     */
+    public static String render() {
+        StringBuilder out = new StringBuilder();
+
+        for (Family family : FAMILIES.values()) {
+            header(out, family.name, family.help, family.type);
+            for (Map.Entry<String, Sample> sample : family.samples.entrySet()) {
+                double value;
+                try {
+                    value = sample.getValue().value();
+                } catch (RuntimeException e) {
+                    // A gauge whose source is unavailable is left out of this scrape
+                    continue;
+                }
+                sample(out, family.name, sample.getKey(), value);
+            }
+        }
+
+        for (Collector collector : COLLECTORS) {
+            try {
+                collector.collect(out);
+            } catch (RuntimeException e) {
+                Log.warn("Metrics collector failed", e);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write the HELP and TYPE lines of a metric family
+     */
+    public static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n"))
+                .append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Write one sample line
+     *
+     * @param labels Rendered labels such as {cache="x"}, or an empty string
+     */
+    public static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(String.format(Locale.ROOT, "%.6g", value));
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Render label pairs, escaping the values
+     *
+     * @param pairs Alternating label names and values
+     * @return Rendered labels, or an empty string if there are none
+     */
+    public static String labels(String... pairs) {
+        List<String> rendered = new ArrayList<>();
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            if (pairs[i] != null) {
+                String value = pairs[i + 1] == null ? "" : pairs[i + 1];
+                rendered.add(pairs[i] + "=\"" +
+                        value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"");
+            }
+        }
+        return rendered.isEmpty() ? "" : "{" + String.join(",", rendered) + "}";
+    }
+
+    private interface Sample {
+        double value();
+    }
+
+    /**
+     * A monotonically increasing count
+     */
+    public static final class Counter implements Sample {
+        private final LongAdder count = new LongAdder();
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long n) {
+            count.add(n);
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+        @Override
+        public double value() {
+            return count.sum();
+        }
+    }
+
+    private static final class Gauge implements Sample {
+        private final DoubleSupplier supplier;
+
+        Gauge(DoubleSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public double value() {
+            return supplier.getAsDouble();
+        }
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final Map<String, Sample> samples = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.lms.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Optional embedded HTTP server that serves {@link Metrics} at /metrics.
+ * Started only when -Dlms.metrics.port is set; it listens on localhost unless
+ * -Dlms.metrics.host says otherwise.
+ */
+public class MetricsServer {
+
+    private static HttpServer server;
+    private static ExecutorService executor;
+
+    /**
+     * Start the server if a metrics port is configured
+     */
+    public static synchronized void startIfConfigured() {
+        Integer port = Integer.getInteger("lms.metrics.port");
+        if (port == null || server != null) {
+            return;
+        }
+
+        String host = System.getProperty("lms.metrics.host", "127.0.0.1");
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), 0);
+            server.createContext("/metrics", MetricsServer::handle);
+
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+            server.setExecutor(executor);
+            server.start();
+            Log.info("Metrics available", "url", "http://" + host + ":" + port + "/metrics");
+        } catch (IOException e) {
+            Log.error("Could not start metrics server", e, "port", port);
+            server = null;
+        }
+    }
+
+    /**
+     * Stop the server if it is running
+     */
+    public static synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            executor = null;
+        }
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = Metrics.render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
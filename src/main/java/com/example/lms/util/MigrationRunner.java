@@ -0,0 +1,341 @@
+package com.example.lms.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Brings the database schema up to date with the SQL scripts under
+ * /com/example/lms/migrations/, applied in version order on top of database.sql.
+ * Applied versions are recorded in schema_migrations with a checksum of their script.
+ * The runner holds a MySQL named lock while it works, so several instances starting
+ * at once apply each script only once.
+ *
+ * MySQL commits DDL immediately, so a script that fails halfway is not rolled back.
+ * Statements adding a column, index or foreign key that already exists are skipped,
+ * which lets a failed script run again and lets databases patched by hand catch up.
+ *
+ * Runs at startup unless -Dlms.db.migrate=false; -Dlms.db.migrationLockSeconds
+ * (default 60) limits the wait for another instance. Services and screens that need
+ * the migrated schema wait for {@link #schemaReady()}.
+ */
+public final class MigrationRunner {
+
+    private static final String LOCATION = "/com/example/lms/migrations/";
+
+    // Applied in this order; add new scripts at the end and never edit applied ones
+    private static final List<String> MIGRATIONS = List.of(
+            "V1__fine_user_columns.sql",
+            "V2__hot_query_indexes.sql",
+            "V3__email_outbox.sql",
+            "V4__reservation_held_copy.sql",
+            "V5__email_outbox_sending.sql"
+    );
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("lms.db.migrate", "true"));
+    private static final boolean CHECK_PLANS = Boolean.getBoolean("lms.db.checkPlans");
+    private static final int LOCK_TIMEOUT_SECONDS = Integer.getInteger("lms.db.migrationLockSeconds", 60);
+
+    // Lock names are server-wide, so the lock is per database
+    private static final String LOCK_NAME = "CONCAT('lms.migrations.', DATABASE())";
+
+    // Duplicate column, duplicate key name, duplicate foreign key constraint name
+    private static final Set<Integer> ALREADY_APPLIED = Set.of(1060, 1061, 1826);
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    // Completed once the startup migration has finished, exceptionally if it failed
+    private static final CompletableFuture<Void> SCHEMA_READY = new CompletableFuture<>();
+
+    /**
+     * Hot queries and the index each is expected to use
+     */
+    private static final List<HotQuery> HOT_QUERIES = List.of(
+            new HotQuery("overdue borrowings", "borrowings", "idx_borrowing_open_due",
+                    "SELECT * FROM borrowings WHERE return_date IS NULL AND due_date < CURDATE() ORDER BY due_date",
+                    null),
+            new HotQuery("reservation queue", "reservations", "idx_reservation_book_status",
+                    "SELECT * FROM reservations WHERE book_id = ? AND status = 'PENDING' ORDER BY reservation_date",
+                    "SELECT book_id FROM reservations WHERE status = 'PENDING' LIMIT 1"),
+            new HotQuery("available copies", "book_copies", "idx_book_copy_book_status",
+                    "SELECT * FROM book_copies WHERE book_id = ? AND status = 'AVAILABLE' ORDER BY copy_number",
+                    "SELECT book_id FROM book_copies WHERE status = 'AVAILABLE' LIMIT 1"),
+            new HotQuery("unpaid fines", "fines", "idx_fine_user_unpaid",
+                    "SELECT * FROM fines WHERE user_id = ? AND payment_date IS NULL ORDER BY issue_date",
+                    "SELECT user_id FROM fines WHERE payment_date IS NULL AND user_id IS NOT NULL LIMIT 1"),
+            new HotQuery("unpaid fines total", "fines", "idx_fine_user_unpaid",
+                    "SELECT SUM(amount) FROM fines WHERE user_id = ? AND payment_date IS NULL",
+                    "SELECT user_id FROM fines WHERE payment_date IS NULL AND user_id IS NOT NULL LIMIT 1")
+    );
+
+    private MigrationRunner() {
+    }
+
+    /**
+     * Apply pending migrations on a background thread of their own, so a wait for
+     * another instance's lock does not hold up the DAO worker and the screens
+     *
+     * @return {@link #schemaReady()}
+     */
+    public static CompletableFuture<Void> startOnStartup() {
+        if (!ENABLED) {
+            SCHEMA_READY.complete(null);
+        } else {
+            Thread.ofPlatform().name("schema-migration").daemon().start(MigrationRunner::migrateOnStartup);
+        }
+        return SCHEMA_READY;
+    }
+
+    /**
+     * Apply pending migrations on a connection of its own and complete
+     * {@link #schemaReady()}. Failures are logged; the application keeps starting,
+     * but whatever waits for the schema stays off.
+     * After a migration, or with -Dlms.db.checkPlans=true, the hot queries are checked
+     * and any that do not use their index are logged.
+     */
+    public static void migrateOnStartup() {
+        if (!ENABLED) {
+            SCHEMA_READY.complete(null);
+            return;
+        }
+
+        try (Connection connection = Database.openConnection()) {
+            int applied = migrate(connection);
+            SCHEMA_READY.complete(null);
+
+            if (applied > 0 || CHECK_PLANS) {
+                for (String problem : checkHotQueries(connection)) {
+                    Log.warn("Hot query does not use its index", "problem", problem);
+                }
+            }
+        } catch (SQLException e) {
+            Log.error("Schema migration failed", e);
+            SCHEMA_READY.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @return Future completed once the startup migration has brought the schema up
+     *         to date, or exceptionally if it failed
+     */
+    public static CompletableFuture<Void> schemaReady() {
+        return SCHEMA_READY;
+    }
+
+    /**
+     * Apply the migrations that have not been applied to the connection's database
+     *
+     * @param connection Connection with auto-commit on
+     * @return Number of migrations applied
+     * @throws SQLException if the lock cannot be taken or a migration fails
+     */
+    public static int migrate(Connection connection) throws SQLException {
+        acquireLock(connection);
+        try {
+            createHistoryTable(connection);
+            Map<Integer, Long> applied = appliedVersions(connection);
+
+            int count = 0;
+            for (String name : MIGRATIONS) {
+                Migration migration = load(name);
+                Long checksum = applied.get(migration.version());
+                if (checksum == null) {
+                    apply(connection, migration);
+                    count++;
+                } else if (checksum != migration.checksum()) {
+                    Log.warn("Applied migration was changed afterwards", "version", migration.version(),
+                            "script", name);
+                }
+            }
+            return count;
+        } finally {
+            releaseLock(connection);
+        }
+    }
+
+    /**
+     * Run EXPLAIN on each hot query and compare the index it uses with the one a
+     * migration created for it. Parameters are taken from existing rows. On nearly
+     * empty tables MySQL may rightly prefer a table scan, so check realistic data.
+     *
+     * @param connection Connection to the migrated database
+     * @return One message per query that does not use its index; empty if all do
+     * @throws SQLException if a query cannot be explained
+     */
+    public static List<String> checkHotQueries(Connection connection) throws SQLException {
+        List<String> problems = new ArrayList<>();
+
+        for (HotQuery query : HOT_QUERIES) {
+            try (PreparedStatement stmt = connection.prepareStatement("EXPLAIN " + query.sql())) {
+                if (query.sampleSql() != null) {
+                    stmt.setInt(1, sampleParameter(connection, query.sampleSql()));
+                }
+
+                String key = null;
+                String type = null;
+                String extra = null;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (query.table().equals(rs.getString("table"))) {
+                            key = rs.getString("key");
+                            type = rs.getString("type");
+                            extra = rs.getString("Extra");
+                        }
+                    }
+                }
+
+                if (!query.index().equals(key)) {
+                    problems.add(query.name() + " uses " + (key == null ? "no index" : key) +
+                            " instead of " + query.index() + " (type " + type + ", " + extra + ")");
+                }
+            }
+        }
+        return problems;
+    }
+
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        Log.info("Applying migration", "version", migration.version(), "description", migration.description());
+
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : splitStatements(migration.script())) {
+                try {
+                    stmt.execute(sql);
+                } catch (SQLException e) {
+                    if (!ALREADY_APPLIED.contains(e.getErrorCode())) {
+                        throw new SQLException("Migration " + migration.version() + " failed at: " + sql, e);
+                    }
+                    Log.info("Migration statement already applied", "version", migration.version(),
+                            "reason", e.getMessage());
+                }
+            }
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "INSERT INTO schema_migrations (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)")) {
+            stmt.setInt(1, migration.version());
+            stmt.setString(2, migration.description());
+            stmt.setLong(3, migration.checksum());
+            stmt.setLong(4, millis);
+            stmt.executeUpdate();
+        }
+        Log.info("Migration applied", "version", migration.version(), "ms", millis);
+    }
+
+    private static void acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT GET_LOCK(" + LOCK_NAME + ", ?)")) {
+            stmt.setInt(1, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out after " + LOCK_TIMEOUT_SECONDS +
+                            " s waiting for another instance to finish migrating");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection) {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("SELECT RELEASE_LOCK(" + LOCK_NAME + ")");
+        } catch (SQLException e) {
+            // The lock goes away with the connection anyway
+            Log.warn("Could not release the migration lock", e);
+        }
+    }
+
+    private static void createHistoryTable(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_migrations (" +
+                    "version INT PRIMARY KEY, " +
+                    "description VARCHAR(200) NOT NULL, " +
+                    "checksum BIGINT NOT NULL, " +
+                    "execution_ms BIGINT NOT NULL, " +
+                    "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                    ") ENGINE=InnoDB");
+        }
+    }
+
+    private static Map<Integer, Long> appliedVersions(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private static int sampleParameter(Connection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static Migration load(String name) throws SQLException {
+        Matcher matcher = FILE_NAME.matcher(name);
+        if (!matcher.matches()) {
+            throw new SQLException("Migration file name must look like V1__description.sql: " + name);
+        }
+
+        String script;
+        try (InputStream in = MigrationRunner.class.getResourceAsStream(LOCATION + name)) {
+            if (in == null) {
+                throw new SQLException("Migration not found: " + LOCATION + name);
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Could not read migration " + name, e);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(script.getBytes(StandardCharsets.UTF_8));
+        return new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '),
+                script, crc.getValue());
+    }
+
+    /**
+     * Split a script into statements ending with a semicolon, dropping comment lines
+     */
+    private static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+
+        for (String line : script.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+
+            if (trimmed.endsWith(";")) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - 1));
+                current.setLength(0);
+            }
+        }
+        return statements;
+    }
+
+    private record Migration(int version, String description, String script, long checksum) {
+    }
+
+    private record HotQuery(String name, String table, String index, String sql, String sampleSql) {
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.lms.util;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts the statements executed during one logical operation and detects N+1 patterns.
+ * A scope is opened on the current thread; every statement run by {@link InstrumentedConnection}
+ * on that thread is counted in it, and in any scopes around it, by SQL shape. When the
+ * scope closes, a shape repeated at least -Dlms.db.nPlusOneThreshold times (default 5) is
+ * reported as a likely query-in-a-loop. With -Dlms.db.failOnNPlusOne=true the report
+ * becomes an exception, so a test run fails instead of logging.
+ *
+ * Statement budgets let tests pin the number of statements an operation may use:
+ *
+ * <pre>
+ * List&lt;Borrowing&gt; rows = QueryScope.withBudget("getActiveBorrowings", 2, dao::getActiveBorrowings);
+ * </pre>
+ *
+ * The first execution of each shape is kept with its SQL and bound parameters, so a
+ * scope also shows exactly which statements an operation ran, e.g. to EXPLAIN them.
+ *
+ * In dev mode (-Dlms.dev=true) every DaoExecutor task and AsyncDao call runs in a scope
+ * named after the code that submitted it.
+ */
+public class QueryScope implements AutoCloseable {
+
+    private static final boolean FAIL_ON_N_PLUS_ONE = Boolean.getBoolean("lms.db.failOnNPlusOne");
+    private static final int N_PLUS_ONE_THRESHOLD = Integer.getInteger("lms.db.nPlusOneThreshold", 5);
+
+    private static final ThreadLocal<Deque<QueryScope>> SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    // Repeated shapes are reported once per operation and shape
+    private static final Set<String> REPORTED = ConcurrentHashMap.newKeySet();
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final String operation;
+    private final Map<String, Integer> shapeCounts = new LinkedHashMap<>();
+    private final Map<String, Execution> firstExecutions = new LinkedHashMap<>();
+    private int statementCount;
+    private boolean closed;
+
+    /**
+     * One executed statement: the DAO method that issued it, its SQL and bound parameters
+     */
+    public static final class Execution {
+        private final String caller;
+        private final String sql;
+        private final List<Object> parameters;
+
+        private Execution(String caller, String sql, List<Object> parameters) {
+            this.caller = caller;
+            this.sql = sql;
+            this.parameters = Collections.unmodifiableList(new ArrayList<>(parameters));
+        }
+
+        public String getCaller() {
+            return caller;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<Object> getParameters() {
+            return parameters;
+        }
+    }
+
+    /**
+     * Work that is counted in a scope
+     */
+    @FunctionalInterface
+    public interface ScopedWork<T> {
+        T run() throws SQLException;
+    }
+
+    private QueryScope(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Start counting statements on this thread
+     *
+     * @param operation Name of the logical operation, used in reports
+     * @return Scope to close when the operation ends
+     */
+    public static QueryScope open(String operation) {
+        QueryScope scope = new QueryScope(operation);
+        SCOPES.get().push(scope);
+        return scope;
+    }
+
+    /**
+     * Run work and fail if it executes more statements than allowed
+     *
+     * @param operation Name of the operation, used in the failure message
+     * @param maxStatements Statement budget
+     * @param work The work to run
+     * @return The work's result
+     * @throws SQLException if the work fails
+     * @throws IllegalStateException if the budget is exceeded
+     */
+    public static <T> T withBudget(String operation, int maxStatements, ScopedWork<T> work) throws SQLException {
+        T result;
+        int executed;
+        String summary;
+
+        try (QueryScope scope = open(operation)) {
+            result = work.run();
+            executed = scope.getStatementCount();
+            summary = scope.summary();
+        }
+
+        if (executed > maxStatements) {
+            throw new IllegalStateException(operation + " executed " + executed +
+                    " statements, budget is " + maxStatements + ": " + summary);
+        }
+        return result;
+    }
+
+    /**
+     * Run work in a scope named after the code that submitted it, when dev checks are on
+     *
+     * @param work The work to run
+     * @return Work that counts its statements in dev mode, otherwise the work itself
+     */
+    public static <T> ScopedWork<T> scopedForCaller(ScopedWork<T> work) {
+        if (!FxThreadGuard.isEnabled()) {
+            return work;
+        }
+
+        String operation = findCaller();
+        return () -> {
+            try (QueryScope ignored = open(operation)) {
+                return work.run();
+            }
+        };
+    }
+
+    /**
+     * Count one executed statement in every open scope of this thread
+     *
+     * @param shape SQL shape of the statement
+     * @param caller DAO method that issued it
+     * @param sql SQL text as executed
+     * @param parameters Bound parameters, copied only for a shape's first execution
+     */
+    static void record(String shape, String caller, String sql, List<Object> parameters) {
+        Deque<QueryScope> scopes = SCOPES.get();
+        if (scopes.isEmpty()) {
+            return;
+        }
+
+        for (QueryScope scope : scopes) {
+            scope.statementCount++;
+            if (scope.shapeCounts.merge(shape, 1, Integer::sum) == 1) {
+                scope.firstExecutions.put(shape, new Execution(caller, sql, parameters));
+            }
+        }
+    }
+
+    /**
+     * Get the number of statements executed so far
+     *
+     * @return Statement count
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * Get how often each SQL shape was executed so far, in order of first use
+     *
+     * @return Count per shape
+     */
+    public Map<String, Integer> getShapeCounts() {
+        return new LinkedHashMap<>(shapeCounts);
+    }
+
+    /**
+     * Get the first execution of each SQL shape so far, in order of first use
+     *
+     * @return Execution per shape
+     */
+    public Map<String, Execution> getFirstExecutions() {
+        return new LinkedHashMap<>(firstExecutions);
+    }
+
+    /**
+     * Get the shapes executed often enough to be reported as a likely N+1, with their counts
+     *
+     * @return Count per repeated shape, in order of first use
+     */
+    public Map<String, Integer> getRepeatedShapes() {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        shapeCounts.forEach((shape, count) -> {
+            if (count >= N_PLUS_ONE_THRESHOLD) {
+                repeated.put(shape, count);
+            }
+        });
+        return repeated;
+    }
+
+    /**
+     * Stop counting and report repeated shapes
+     *
+     * @throws IllegalStateException if -Dlms.db.failOnNPlusOne=true and a shape repeated
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        SCOPES.get().remove(this);
+
+        for (Map.Entry<String, Integer> entry : getRepeatedShapes().entrySet()) {
+            String message = "Possible N+1 in " + operation + ": executed " + entry.getValue() +
+                    " times: " + entry.getKey();
+            if (FAIL_ON_N_PLUS_ONE) {
+                throw new IllegalStateException(message);
+            }
+            if (REPORTED.add(operation + '\n' + entry.getKey())) {
+                Log.warn("Possible N+1 query", "operation", operation, "count", entry.getValue(),
+                        "sql", entry.getKey());
+            }
+        }
+    }
+
+    private String summary() {
+        StringBuilder out = new StringBuilder();
+        shapeCounts.forEach((shape, count) -> out.append("\n  ").append(count).append(" x ").append(shape));
+        return out.toString();
+    }
+
+    /**
+     * Find the first application frame outside the executors
+     */
+    private static String findCaller() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith("com.example.lms.")
+                        && !frame.getClassName().startsWith("com.example.lms.util.")
+                        && !frame.getClassName().equals("com.example.lms.model.AsyncDao"))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1) +
+                        "." + frame.getMethodName())
+                .orElse("unknown"));
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.lms.util;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Per-query statistics collected by {@link InstrumentedConnection}.
+ * Queries are grouped by SQL shape (literals and IN lists collapsed), and each shape
+ * keeps a call count, a latency histogram, the rows it returned or changed and the
+ * DAO methods that issued it. Executions slower than -Dlms.db.slowQueryMs (default 200)
+ * are kept, with their bound parameters, in a bounded slow-query log.
+ */
+public class QueryStats {
+
+    private static final long SLOW_QUERY_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("lms.db.slowQueryMs", 200));
+    private static final int SLOW_LOG_SIZE = Integer.getInteger("lms.db.slowQueryLogSize", 100);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+    private static final Map<String, QueryStat> STATS = new ConcurrentHashMap<>();
+    private static final Map<String, String> SHAPES = new ConcurrentHashMap<>();
+    private static final Deque<SlowQuery> SLOW_LOG = new ArrayDeque<>();
+
+    private static final int METRICS_SHAPE_LIMIT = 50;
+
+    private static final Metrics.Counter SLOW_QUERIES =
+            Metrics.counter("lms_db_slow_queries_total", "Statements slower than the slow-query threshold");
+    private static final Metrics.Counter SHAPE_LOOKUPS =
+            Metrics.counter("lms_cache_requests_total", "Cache lookups", "cache", "sql_shapes");
+    private static final Metrics.Counter SHAPE_MISSES =
+            Metrics.counter("lms_cache_misses_total", "Cache lookups that had to load the value", "cache", "sql_shapes");
+
+    static {
+        Metrics.collector(QueryStats::writeMetrics);
+    }
+
+    /**
+     * Get the statistics for a SQL shape, creating them on first use
+     *
+     * @param sql SQL as passed to prepareStatement or execute
+     * @return Statistics for the shape of this SQL
+     */
+    public static QueryStat forSql(String sql) {
+        String shape = shapeOf(sql);
+        return STATS.computeIfAbsent(shape, QueryStat::new);
+    }
+
+    /**
+     * Record one execution
+     *
+     * @param stat Statistics of the SQL shape
+     * @param caller DAO method that issued the query
+     * @param nanos Execution time
+     * @param sql SQL text, for the slow-query log
+     * @param parameters Bound parameters, for the slow-query log
+     */
+    static void record(QueryStat stat, String caller, long nanos, String sql, List<Object> parameters) {
+        stat.record(caller, nanos);
+
+        if (nanos >= SLOW_QUERY_NANOS) {
+            SLOW_QUERIES.increment();
+            SlowQuery slow = new SlowQuery(LocalDateTime.now(), TimeUnit.NANOSECONDS.toMillis(nanos),
+                    caller, sql, parameters);
+            synchronized (SLOW_LOG) {
+                if (SLOW_LOG.size() >= SLOW_LOG_SIZE) {
+                    SLOW_LOG.pollFirst();
+                }
+                SLOW_LOG.addLast(slow);
+            }
+            // Parameters stay in the in-memory log; they may hold personal data
+            Log.warn("Slow query", "ms", slow.getMillis(), "caller", caller, "sql", shapeOf(sql));
+        }
+    }
+
+    /**
+     * Get all shapes' statistics, most total time first
+     *
+     * @return Statistics snapshot
+     */
+    public static List<QueryStat> getStats() {
+        List<QueryStat> stats = new ArrayList<>(STATS.values());
+        stats.sort(Comparator.comparingLong(QueryStat::getTotalNanos).reversed());
+        return stats;
+    }
+
+    /**
+     * Get the slow-query log, oldest first
+     *
+     * @return Slow queries
+     */
+    public static List<SlowQuery> getSlowQueries() {
+        synchronized (SLOW_LOG) {
+            return new ArrayList<>(SLOW_LOG);
+        }
+    }
+
+    /**
+     * Forget everything recorded so far
+     */
+    public static void reset() {
+        STATS.clear();
+        synchronized (SLOW_LOG) {
+            SLOW_LOG.clear();
+        }
+    }
+
+    /**
+     * Format the top query shapes as a table
+     *
+     * @param limit Maximum number of shapes
+     * @return Report text
+     */
+    public static String report(int limit) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%8s %10s %8s %8s %8s %8s  %s%n",
+                "calls", "total ms", "p50 ms", "p99 ms", "max ms", "rows", "query / callers"));
+
+        List<QueryStat> stats = getStats();
+        for (QueryStat stat : stats.subList(0, Math.min(limit, stats.size()))) {
+            out.append(String.format("%8d %10.1f %8.2f %8.2f %8.2f %8d  %s%n",
+                    stat.getCount(),
+                    stat.getTotalNanos() / 1e6,
+                    stat.getPercentileNanos(0.50) / 1e6,
+                    stat.getPercentileNanos(0.99) / 1e6,
+                    stat.getMaxNanos() / 1e6,
+                    stat.getRows(),
+                    stat.getShape()));
+            out.append(String.format("%57s%s%n", "", stat.getCallers().keySet()));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write the busiest shapes as a Prometheus summary
+     */
+    private static void writeMetrics(StringBuilder out) {
+        List<QueryStat> stats = getStats();
+        stats = stats.subList(0, Math.min(METRICS_SHAPE_LIMIT, stats.size()));
+
+        Metrics.header(out, "lms_query_duration_seconds", "Statement latency by SQL shape", "summary");
+        for (QueryStat stat : stats) {
+            for (double quantile : new double[] {0.5, 0.99}) {
+                Metrics.sample(out, "lms_query_duration_seconds",
+                        Metrics.labels("query", stat.getShape(), "quantile", Double.toString(quantile)),
+                        stat.getPercentileNanos(quantile) / 1e9);
+            }
+            String labels = Metrics.labels("query", stat.getShape());
+            Metrics.sample(out, "lms_query_duration_seconds_sum", labels, stat.getTotalNanos() / 1e9);
+            Metrics.sample(out, "lms_query_duration_seconds_count", labels, stat.getCount());
+        }
+
+        Metrics.header(out, "lms_query_rows_total", "Rows read or changed by SQL shape", "counter");
+        for (QueryStat stat : stats) {
+            Metrics.sample(out, "lms_query_rows_total", Metrics.labels("query", stat.getShape()), stat.getRows());
+        }
+    }
+
+    /**
+     * Reduce SQL to its shape so that the same query with different literals is counted once
+     */
+    static String shapeOf(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        SHAPE_LOOKUPS.increment();
+        return SHAPES.computeIfAbsent(sql, text -> {
+            SHAPE_MISSES.increment();
+            String shape = WHITESPACE.matcher(text.trim()).replaceAll(" ");
+            shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+            shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+            return IN_LIST.matcher(shape).replaceAll("IN (?...)");
+        });
+    }
+
+    /**
+     * Statistics for one SQL shape
+     */
+    public static final class QueryStat {
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final Map<String, LongAdder> callers = new ConcurrentHashMap<>();
+
+        QueryStat(String shape) {
+            this.shape = shape;
+        }
+
+        void record(String caller, long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            histogram.record(nanos);
+            callers.computeIfAbsent(caller, key -> new LongAdder()).increment();
+        }
+
+        void addRows(long n) {
+            rows.add(n);
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @return Rows read from result sets plus rows changed by updates
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+        /**
+         * @param percentile Between 0 and 1, e.g. 0.99
+         * @return Approximate latency at that percentile
+         */
+        public long getPercentileNanos(double percentile) {
+            return Math.min(histogram.percentile(percentile), getMaxNanos());
+        }
+
+        /**
+         * @return Calls per issuing DAO method
+         */
+        public Map<String, Long> getCallers() {
+            Map<String, Long> snapshot = new TreeMap<>();
+            callers.forEach((caller, n) -> snapshot.put(caller, n.sum()));
+            return snapshot;
+        }
+    }
+
+    /**
+     * One entry of the slow-query log
+     */
+    public static final class SlowQuery {
+        private final LocalDateTime time;
+        private final long millis;
+        private final String caller;
+        private final String sql;
+        private final List<Object> parameters;
+
+        SlowQuery(LocalDateTime time, long millis, String caller, String sql, List<Object> parameters) {
+            this.time = time;
+            this.millis = millis;
+            this.caller = caller;
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public String getCaller() {
+            return caller;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<Object> getParameters() {
+            return parameters;
+        }
+
+        @Override
+        public String toString() {
+            return millis + " ms [" + caller + "] " + shapeOf(sql) + " params=" + parameters;
+        }
+    }
+
+    /**
+     * Lock-free log-linear histogram: each power of two is split into 8 buckets,
+     * which keeps the relative error of a percentile under 12.5%
+     */
+    public static final class LatencyHistogram {
+        private static final int SUB_BUCKETS = 8;
+        private static final int SUB_BITS = 3;
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+
+        public void record(long nanos) {
+            buckets.incrementAndGet(indexOf(Math.max(1, nanos)));
+        }
+
+        public long percentile(double percentile) {
+            long total = getCount();
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= Math.max(1, rank)) {
+                    return upperBoundOf(i);
+                }
+            }
+            return upperBoundOf(buckets.length() - 1);
+        }
+
+        public long getCount() {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                total += buckets.get(i);
+            }
+            return total;
+        }
+
+        private static int indexOf(long value) {
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            if (exponent < SUB_BITS) {
+                return (int) value;
+            }
+            int sub = (int) ((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBoundOf(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+            int sub = index % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        }
+    }
+}
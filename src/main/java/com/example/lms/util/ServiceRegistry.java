@@ -0,0 +1,249 @@
+package com.example.lms.util;
+
+import javafx.util.Callback;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Owns the application's DAOs and services.
+ * Each registered type gets one instance, created on first use, which is handed to
+ * every caller and to controllers through {@link #controllerFactory()}: a controller
+ * declares what it needs as constructor parameters. {@link #shutdown()} stops the
+ * instances in reverse order of creation; a factory that gets another service from
+ * the registry creates it first, so services are stopped before what they use.
+ *
+ * <pre>
+ * services.register(ConnectionPool.class, s -&gt; ConnectionPool.getInstance(), ConnectionPool::close);
+ * services.register(AsyncDao.class, s -&gt; new AsyncDao(s.get(ConnectionPool.class)), AsyncDao::shutdown);
+ * </pre>
+ */
+public final class ServiceRegistry {
+
+    private static final ServiceRegistry INSTANCE = new ServiceRegistry();
+
+    private final Map<Class<?>, Entry<?>> entries = new ConcurrentHashMap<>();
+
+    // Guarded by itself; entries whose instance is kept, oldest first
+    private final List<Entry<?>> created = new ArrayList<>();
+
+    // Types being created by the current thread, to report dependency cycles
+    private final ThreadLocal<Set<Class<?>>> creating = ThreadLocal.withInitial(HashSet::new);
+
+    /**
+     * Stops a service when the application shuts down
+     */
+    @FunctionalInterface
+    public interface Shutdown<T> {
+        void shutdown(T service) throws Exception;
+    }
+
+    /**
+     * @return The application's registry
+     */
+    public static ServiceRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register a service that is closed on shutdown if it is AutoCloseable
+     *
+     * @param type Type callers ask for
+     * @param factory Creates the instance; may get other services from the registry
+     */
+    public <T> void register(Class<T> type, Function<ServiceRegistry, ? extends T> factory) {
+        register(type, factory, ServiceRegistry::closeIfCloseable);
+    }
+
+    /**
+     * Register a service
+     *
+     * @param type Type callers ask for
+     * @param factory Creates the instance; may get other services from the registry
+     * @param shutdown Stops the instance on shutdown
+     */
+    public <T> void register(Class<T> type, Function<ServiceRegistry, ? extends T> factory,
+                             Shutdown<? super T> shutdown) {
+        registerWhenReady(type, factory, () -> true, shutdown);
+    }
+
+    /**
+     * Register a service whose instance is only kept once it is ready. Until then every
+     * caller gets a new instance, e.g. DAOs created while the database is unreachable,
+     * which would otherwise stay without a connection.
+     *
+     * @param type Type callers ask for
+     * @param factory Creates the instance; may get other services from the registry
+     * @param ready Checked after creating an instance; true keeps it
+     * @param shutdown Stops the kept instance on shutdown
+     */
+    public <T> void registerWhenReady(Class<T> type, Function<ServiceRegistry, ? extends T> factory,
+                                      BooleanSupplier ready, Shutdown<? super T> shutdown) {
+        if (entries.putIfAbsent(type, new Entry<>(type, factory, ready, shutdown)) != null) {
+            throw new IllegalStateException(type.getName() + " is already registered");
+        }
+    }
+
+    /**
+     * @param type Type to check
+     * @return true if the type can be got from the registry
+     */
+    public boolean isRegistered(Class<?> type) {
+        return entries.containsKey(type);
+    }
+
+    /**
+     * Get the instance of a registered type, creating it on first use
+     *
+     * @param type Registered type
+     * @return The instance
+     * @throws IllegalStateException if the type is not registered or its dependencies form a cycle
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Class<T> type) {
+        Entry<T> entry = (Entry<T>) entries.get(type);
+        if (entry == null) {
+            throw new IllegalStateException(type.getName() + " is not registered");
+        }
+        return entry.get();
+    }
+
+    /**
+     * Controller factory for FXMLLoader. Controllers are built with their public
+     * constructor whose parameters are all registered; the one with the most parameters
+     * wins, and a no-argument constructor is used when none of them fits.
+     *
+     * @return Factory that creates controllers with their services
+     */
+    public Callback<Class<?>, Object> controllerFactory() {
+        return this::createController;
+    }
+
+    /**
+     * Stop the kept instances, newest first. Failures are logged and do not keep
+     * the other services from stopping.
+     */
+    public void shutdown() {
+        Deque<Entry<?>> toStop = new ArrayDeque<>();
+        synchronized (created) {
+            created.forEach(toStop::push);
+            created.clear();
+        }
+
+        for (Entry<?> entry : toStop) {
+            entry.shutdown();
+        }
+    }
+
+    private Object createController(Class<?> type) {
+        Constructor<?> best = null;
+        for (Constructor<?> constructor : type.getConstructors()) {
+            boolean resolvable = true;
+            for (Class<?> parameter : constructor.getParameterTypes()) {
+                resolvable &= isRegistered(parameter);
+            }
+            if (resolvable && (best == null || constructor.getParameterCount() > best.getParameterCount())) {
+                best = constructor;
+            }
+        }
+        if (best == null) {
+            throw new IllegalStateException("No public constructor of " + type.getName() +
+                    " takes only registered services");
+        }
+
+        Class<?>[] parameters = best.getParameterTypes();
+        Object[] args = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            args[i] = get(parameters[i]);
+        }
+
+        try {
+            return best.newInstance(args);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Could not create " + type.getName(), e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create " + type.getName(), e);
+        }
+    }
+
+    private static void closeIfCloseable(Object service) throws Exception {
+        if (service instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    /**
+     * One registered type and its instance
+     */
+    private final class Entry<T> {
+        private final Class<T> type;
+        private final Function<ServiceRegistry, ? extends T> factory;
+        private final BooleanSupplier ready;
+        private final Shutdown<? super T> shutdown;
+        private volatile T instance;
+
+        Entry(Class<T> type, Function<ServiceRegistry, ? extends T> factory, BooleanSupplier ready,
+              Shutdown<? super T> shutdown) {
+            this.type = type;
+            this.factory = factory;
+            this.ready = ready;
+            this.shutdown = shutdown;
+        }
+
+        T get() {
+            T current = instance;
+            if (current != null) {
+                return current;
+            }
+
+            Set<Class<?>> inProgress = creating.get();
+            if (!inProgress.add(type)) {
+                throw new IllegalStateException("Dependency cycle while creating " + type.getName());
+            }
+            try {
+                synchronized (this) {
+                    current = instance;
+                    if (current == null) {
+                        current = factory.apply(ServiceRegistry.this);
+                        if (ready.getAsBoolean()) {
+                            instance = current;
+                            synchronized (created) {
+                                created.add(this);
+                            }
+                        }
+                    }
+                    return current;
+                }
+            } finally {
+                inProgress.remove(type);
+            }
+        }
+
+        void shutdown() {
+            T current;
+            synchronized (this) {
+                current = instance;
+                instance = null;
+            }
+            if (current == null) {
+                return;
+            }
+
+            try {
+                shutdown.shutdown(current);
+            } catch (Exception e) {
+                Log.warn("Error shutting down service", e, "service", type.getSimpleName());
+            }
+        }
+    }
+}
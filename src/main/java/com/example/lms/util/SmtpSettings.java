@@ -0,0 +1,139 @@
+package com.example.lms.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * SMTP connection settings used for outgoing mail.
+ * Loaded from the app_setting table in one query, or built directly (e.g. to point
+ * the dispatcher at a local fake SMTP server).
+ */
+public class SmtpSettings {
+
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final String fromAddress;
+    private final String appName;
+    private final boolean auth;
+    private final boolean startTls;
+
+    /**
+     * Create SMTP settings
+     *
+     * @param host SMTP host
+     * @param port SMTP port
+     * @param username Login user, or null for an unauthenticated server
+     * @param password Login password
+     * @param fromAddress Sender address
+     * @param appName Application name used in subjects and signatures
+     * @param startTls Whether to upgrade the connection with STARTTLS
+     */
+    public SmtpSettings(String host, int port, String username, String password,
+                        String fromAddress, String appName, boolean startTls) {
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.fromAddress = fromAddress;
+        this.appName = appName != null ? appName : "Library Management System";
+        this.auth = username != null && !username.isEmpty();
+        this.startTls = startTls;
+    }
+
+    /**
+     * Load the SMTP settings from the database
+     *
+     * @return SmtpSettings, or null if the email account is not configured
+     * @throws SQLException if database error occurs
+     */
+    public static SmtpSettings fromDatabase() throws SQLException {
+        Map<String, String> values = new HashMap<>();
+        String query = "SELECT setting_key, setting_value FROM app_setting WHERE setting_key IN " +
+                       "('email_address', 'email_password', 'smtp_host', 'smtp_port', 'app_name')";
+
+        Connection connection = DatabaseConnection.getConnection();
+        try (PreparedStatement stmt = connection.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                values.put(rs.getString("setting_key"), rs.getString("setting_value"));
+            }
+        } finally {
+            DatabaseConnection.closeConnection(connection);
+        }
+
+        String emailAddress = values.get("email_address");
+        String emailPassword = values.get("email_password");
+
+        // Check if email settings are configured
+        if (emailAddress == null || emailAddress.isEmpty() ||
+            emailPassword == null || emailPassword.isEmpty()) {
+            return null;
+        }
+
+        int port;
+        try {
+            port = Integer.parseInt(values.getOrDefault("smtp_port", "587"));
+        } catch (NumberFormatException e) {
+            port = 587;
+        }
+
+        return new SmtpSettings(values.getOrDefault("smtp_host", "smtp.gmail.com"), port,
+                emailAddress, emailPassword, emailAddress, values.get("app_name"), true);
+    }
+
+    /**
+     * Build the JavaMail session properties for these settings
+     *
+     * @return Properties for Session.getInstance
+     */
+    public Properties toMailProperties() {
+        Properties props = new Properties();
+        props.put("mail.smtp.auth", String.valueOf(auth));
+        props.put("mail.smtp.starttls.enable", String.valueOf(startTls));
+        props.put("mail.smtp.host", host);
+        props.put("mail.smtp.port", String.valueOf(port));
+        props.put("mail.smtp.connectiontimeout", "10000");
+        props.put("mail.smtp.timeout", "30000");
+        return props;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getFromAddress() {
+        return fromAddress;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public boolean isAuth() {
+        return auth;
+    }
+
+    public boolean isStartTls() {
+        return startTls;
+    }
+}
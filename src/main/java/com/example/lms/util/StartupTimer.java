@@ -0,0 +1,114 @@
+package com.example.lms.util;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures startup phases from JVM launch: "login" when the login screen has been
+ * drawn and accepts input, "dashboard" when the first dashboard has been drawn.
+ * Each phase is logged once and exported as lms_startup_seconds.
+ *
+ * For startup benchmarks and class-data sharing training runs:
+ * -Dlms.startup.exitAfter=PHASE exits once that phase is reached and
+ * -Dlms.startup.login=EMAIL:PASSWORD signs in automatically so the dashboard is reached.
+ */
+public final class StartupTimer {
+
+    public static final String LOGIN = "login";
+    public static final String DASHBOARD = "dashboard";
+
+    /**
+     * Log message of each phase, with the fields phase and ms
+     */
+    public static final String PHASE_MESSAGE = "Startup phase reached";
+
+    private static final Instant JVM_START = ProcessHandle.current().info().startInstant().orElseGet(Instant::now);
+    private static final String EXIT_AFTER = System.getProperty("lms.startup.exitAfter", "");
+
+    // Guarded by the class lock
+    private static final Map<String, Long> PHASES = new LinkedHashMap<>();
+
+    static {
+        Metrics.collector(StartupTimer::writeMetrics);
+    }
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Record a phase once the current scene has been drawn; call on the FX thread
+     * after the scene is shown. JavaFX draws a frame at the end of each pulse, so the
+     * second pulse after this call starts once the new scene is on screen.
+     *
+     * @param phase Phase name
+     */
+    public static void markWhenDrawn(String phase) {
+        new AnimationTimer() {
+            private int pulses;
+
+            @Override
+            public void handle(long now) {
+                if (++pulses == 2) {
+                    stop();
+                    mark(phase);
+                }
+            }
+        }.start();
+    }
+
+    /**
+     * Record a phase now; only the first time a phase is reached counts
+     *
+     * @param phase Phase name
+     */
+    public static void mark(String phase) {
+        long millis = Duration.between(JVM_START, Instant.now()).toMillis();
+        synchronized (StartupTimer.class) {
+            if (PHASES.putIfAbsent(phase, millis) != null) {
+                return;
+            }
+        }
+
+        Log.info(PHASE_MESSAGE, "phase", phase, "ms", millis);
+        if (phase.equals(EXIT_AFTER)) {
+            Platform.exit();
+        }
+    }
+
+    /**
+     * @return Credentials for signing in automatically, as EMAIL:PASSWORD, or null
+     */
+    public static String getAutoLogin() {
+        return System.getProperty("lms.startup.login");
+    }
+
+    /**
+     * @return true if the application should exit once a startup phase is reached
+     */
+    public static boolean isExitRequested() {
+        return !EXIT_AFTER.isEmpty();
+    }
+
+    /**
+     * @return Milliseconds from JVM launch to each phase reached so far
+     */
+    public static synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(PHASES);
+    }
+
+    private static void writeMetrics(StringBuilder out) {
+        Map<String, Long> phases = getPhases();
+        if (phases.isEmpty()) {
+            return;
+        }
+
+        Metrics.header(out, "lms_startup_seconds", "Time from JVM launch to a startup phase", "gauge");
+        phases.forEach((phase, millis) ->
+                Metrics.sample(out, "lms_startup_seconds", Metrics.labels("phase", phase), millis / 1000.0));
+    }
+}
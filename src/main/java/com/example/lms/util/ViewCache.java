@@ -0,0 +1,148 @@
+package com.example.lms.util;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps loaded FXML views so that switching back to a screen does not parse its
+ * FXML and build its controller again.
+ * A view is loaded the first time it is asked for, or earlier by {@link #preload},
+ * and then handed out with the same root and controller until {@link #clear()}.
+ * Callers reset the controller when {@link View#isReused()} says the view has been
+ * shown or preloaded before.
+ *
+ * Views are loaded on the FX thread because controllers set up their nodes and start
+ * DAO work in initialize(). Preloading queues one view per event, so the window keeps
+ * responding between loads. Only use this for views that can be shown again after a
+ * reset; dialogs that wire state per dialog still need a fresh FXMLLoader.
+ */
+public final class ViewCache {
+
+    private static final String VIEWS = "/com/example/lms/views/";
+
+    // Only touched on the FX thread
+    private static final Map<String, View<?>> VIEWS_BY_NAME = new HashMap<>();
+    private static final Deque<String> PRELOAD_QUEUE = new ArrayDeque<>();
+
+    private ViewCache() {
+    }
+
+    /**
+     * A loaded view and its controller
+     */
+    public static final class View<C> {
+        private final Parent root;
+        private final C controller;
+        private int shows;
+
+        private View(Parent root, C controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+
+        public Parent getRoot() {
+            return root;
+        }
+
+        public C getController() {
+            return controller;
+        }
+
+        /**
+         * @return true if the view was shown or preloaded before and may hold stale state
+         */
+        public boolean isReused() {
+            return shows > 1;
+        }
+    }
+
+    /**
+     * Get a view, loading it if it is not cached yet; call on the FX thread
+     *
+     * @param name File name of the view, e.g. admin-books.fxml
+     * @return The view
+     * @throws IOException if the view cannot be loaded
+     */
+    @SuppressWarnings("unchecked")
+    public static <C> View<C> get(String name) throws IOException {
+        View<C> view = (View<C>) VIEWS_BY_NAME.get(name);
+        if (view == null) {
+            view = load(name);
+        } else {
+            Metrics.counter("lms_view_cache_hits_total", "FXML views served from the view cache", "view", name)
+                    .increment();
+        }
+        view.shows++;
+        return view;
+    }
+
+    /**
+     * Load views that are likely to be shown next while the FX thread is idle
+     *
+     * @param names File names of the views
+     */
+    public static void preload(String... names) {
+        Runnable start = () -> {
+            boolean idle = PRELOAD_QUEUE.isEmpty();
+            for (String name : names) {
+                if (!VIEWS_BY_NAME.containsKey(name) && !PRELOAD_QUEUE.contains(name)) {
+                    PRELOAD_QUEUE.addLast(name);
+                }
+            }
+            if (idle && !PRELOAD_QUEUE.isEmpty()) {
+                Platform.runLater(ViewCache::preloadNext);
+            }
+        };
+
+        if (Platform.isFxApplicationThread()) {
+            start.run();
+        } else {
+            Platform.runLater(start);
+        }
+    }
+
+    /**
+     * Drop all cached views, e.g. on logout; call on the FX thread
+     */
+    public static void clear() {
+        VIEWS_BY_NAME.clear();
+        PRELOAD_QUEUE.clear();
+    }
+
+    private static void preloadNext() {
+        String name = PRELOAD_QUEUE.pollFirst();
+        if (name == null) {
+            return;
+        }
+
+        if (!VIEWS_BY_NAME.containsKey(name)) {
+            long start = System.nanoTime();
+            try {
+                // Its data is loaded now, so it is reset like a reused view when shown
+                load(name).shows++;
+                Log.debug("View preloaded", "view", name, "ms", (System.nanoTime() - start) / 1_000_000);
+            } catch (IOException e) {
+                Log.warn("Could not preload view", e, "view", name);
+            }
+        }
+
+        if (!PRELOAD_QUEUE.isEmpty()) {
+            Platform.runLater(ViewCache::preloadNext);
+        }
+    }
+
+    private static <C> View<C> load(String name) throws IOException {
+        FXMLLoader loader = new FXMLLoader(ViewCache.class.getResource(VIEWS + name));
+        Parent root = ViewLoader.load(loader);
+        View<C> view = new View<>(root, loader.getController());
+        VIEWS_BY_NAME.put(name, view);
+        return view;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.lms.util;
+
+import javafx.fxml.FXMLLoader;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Loads FXML views and reports each load, including the controller's initialize(),
+ * as a {@link FlightEvents.ViewLoad} event. Controllers are created by
+ * {@link ServiceRegistry}, which passes them the DAOs their constructors ask for.
+ */
+public class ViewLoader {
+
+    /**
+     * Load the loader's view
+     *
+     * @param loader Loader with its location set
+     * @return Root node of the view
+     * @throws IOException if the view cannot be loaded
+     */
+    public static <T> T load(FXMLLoader loader) throws IOException {
+        if (loader.getControllerFactory() == null) {
+            loader.setControllerFactory(ServiceRegistry.getInstance().controllerFactory());
+        }
+
+        FlightEvents.ViewLoad event = new FlightEvents.ViewLoad();
+        event.begin();
+
+        T root = loader.load();
+        Metrics.counter("lms_view_loads_total", "FXML views loaded", "view", viewName(loader.getLocation()))
+                .increment();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.view = viewName(loader.getLocation());
+            Object controller = loader.getController();
+            event.controller = controller != null ? controller.getClass().getSimpleName() : "";
+            event.commit();
+        }
+        return root;
+    }
+
+    private static String viewName(URL location) {
+        if (location == null) {
+            return "";
+        }
+        String path = location.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
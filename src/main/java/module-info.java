@@ -3,6 +3,8 @@ module com.example.lms {
     requires javafx.fxml;
     requires java.sql;
     requires java.mail;
+    requires jdk.jfr;
+    requires jdk.httpserver;
 
     // Open main package
     opens com.example.lms to javafx.fxml;
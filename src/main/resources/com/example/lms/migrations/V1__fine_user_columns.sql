@@ -0,0 +1,17 @@
+-- FineDAO reads and writes these columns, but the original schema did not define them.
+-- Databases where they were added by hand skip the statements that already ran.
+ALTER TABLE fines ADD COLUMN user_id INT NULL AFTER borrowing_id;
+ALTER TABLE fines ADD COLUMN issue_date DATE NULL;
+ALTER TABLE fines ADD COLUMN issued_by INT NULL;
+ALTER TABLE fines ADD COLUMN payment_method VARCHAR(50) NULL;
+ALTER TABLE fines ADD COLUMN received_by INT NULL;
+
+-- Fill the new columns of existing fines from their borrowing
+UPDATE fines f
+JOIN borrowings b ON b.id = f.borrowing_id
+SET f.user_id = b.user_id
+WHERE f.user_id IS NULL;
+
+UPDATE fines SET issue_date = DATE(created_at) WHERE issue_date IS NULL;
+
+ALTER TABLE fines ADD CONSTRAINT fk_fine_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE RESTRICT;
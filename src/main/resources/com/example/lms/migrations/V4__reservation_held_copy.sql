@@ -0,0 +1,6 @@
+-- The copy set aside for a NOTIFIED reservation, so expiring the reservation can
+-- release exactly that copy
+ALTER TABLE reservations ADD COLUMN held_copy_id INT NULL AFTER book_id;
+
+ALTER TABLE reservations ADD CONSTRAINT fk_reservation_held_copy
+    FOREIGN KEY (held_copy_id) REFERENCES book_copies(id) ON DELETE SET NULL;
@@ -0,0 +1,3 @@
+-- SENDING marks an email claimed by one dispatcher; next_attempt_at then holds the
+-- time the claim lapses, after which another dispatcher may take the email over
+ALTER TABLE email_outbox MODIFY COLUMN status ENUM('PENDING', 'SENDING', 'SENT', 'FAILED') DEFAULT 'PENDING';
@@ -0,0 +1,181 @@
+package com.example.lms.util;
+
+import com.example.lms.model.Book;
+import com.example.lms.model.Borrowing;
+import com.example.lms.model.BorrowingDAO;
+import com.example.lms.model.UserDAO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Statement budgets and N+1 reports, counted on an instrumented in-memory connection
+ * that answers each query with canned rows chosen by the table it reads from.
+ */
+class QueryScopeTest {
+
+    private final Map<String, List<Map<String, Object>>> rowsByTable = new LinkedHashMap<>();
+
+    @BeforeEach
+    void bindFakeConnection() throws SQLException {
+        LocalDate today = LocalDate.now();
+
+        rowsByTable.put("FROM borrowings", List.of(
+                loan(1, 11, 101, "Dune", today.plusDays(1)),
+                loan(2, 21, 102, "Emma", today.plusDays(2)),
+                loan(3, 12, 101, "Dune", today.plusDays(3))));
+        rowsByTable.put("FROM categories", List.of(
+                row("book_id", 101, "id", 1, "name", "Fiction"),
+                row("book_id", 102, "id", 1, "name", "Fiction"),
+                row("book_id", 102, "id", 2, "name", "Classics")));
+        rowsByTable.put("FROM users", List.of(
+                row("id", 7, "name", "Ada", "email", "ada@example.com", "role", "user")));
+
+        Database.bind(InstrumentedConnection.wrap(fakeConnection()));
+    }
+
+    @AfterEach
+    void unbindFakeConnection() {
+        Database.unbind();
+    }
+
+    @Test
+    void activeBorrowingsStayWithinTwoStatements() throws SQLException {
+        BorrowingDAO borrowingDAO = new BorrowingDAO();
+
+        List<Borrowing> loans = QueryScope.withBudget("getActiveBorrowings", 2, borrowingDAO::getActiveBorrowings);
+
+        assertEquals(3, loans.size());
+        Book dune = loans.get(0).getBookCopy().getBook();
+        assertEquals("Dune", dune.getTitle());
+        assertSame(dune, loans.get(2).getBookCopy().getBook());
+        assertEquals(1, dune.getCategories().size());
+        assertEquals(2, loans.get(1).getBookCopy().getBook().getCategories().size());
+        assertEquals("Reader 101", loans.get(0).getUser().getName());
+    }
+
+    @Test
+    void repeatedShapeIsReported() {
+        UserDAO userDAO = new UserDAO();
+
+        try (QueryScope scope = QueryScope.open("loadUsersOneByOne")) {
+            for (int id = 1; id <= 5; id++) {
+                userDAO.getUserById(id);
+            }
+
+            Map<String, Integer> repeated = scope.getRepeatedShapes();
+            assertEquals(1, repeated.size());
+            Map.Entry<String, Integer> shape = repeated.entrySet().iterator().next();
+            assertTrue(shape.getKey().contains("users"), shape.getKey());
+            assertEquals(5, shape.getValue());
+        }
+    }
+
+    @Test
+    void exceededBudgetFails() {
+        UserDAO userDAO = new UserDAO();
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () ->
+                QueryScope.withBudget("loadUsersOneByOne", 2, () -> {
+                    for (int id = 1; id <= 3; id++) {
+                        userDAO.getUserById(id);
+                    }
+                    return null;
+                }));
+        assertTrue(error.getMessage().contains("executed 3 statements, budget is 2"), error.getMessage());
+    }
+
+    private static Map<String, Object> loan(int id, int copyId, int bookId, String title, LocalDate dueDate) {
+        Map<String, Object> row = row("id", id, "book_copy_id", copyId, "user_id", bookId, "issued_by", 1,
+                "borrow_date", Date.valueOf(dueDate.minusDays(14)), "due_date", Date.valueOf(dueDate));
+        row.putAll(row("book_id", bookId, "copy_number", "C" + copyId, "copy_status", "BORROWED",
+                "title", title, "author_name", "Author " + bookId, "isbn", "isbn-" + bookId));
+        row.putAll(row("user_name", "Reader " + bookId, "user_email", bookId + "@example.com", "user_role", "user",
+                "issuer_name", "Librarian", "issuer_email", "desk@example.com", "issuer_role", "librarian"));
+        return row;
+    }
+
+    private static Map<String, Object> row(Object... keyValues) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            row.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return row;
+    }
+
+    private Connection fakeConnection() {
+        return proxy(Connection.class, (proxy, method, args) -> switch (method.getName()) {
+            case "prepareStatement" -> fakeStatement((String) args[0]);
+            case "getAutoCommit" -> true;
+            default -> defaultValue(method);
+        });
+    }
+
+    private PreparedStatement fakeStatement(String sql) {
+        List<Map<String, Object>> rows = rowsByTable.entrySet().stream()
+                .filter(entry -> sql.contains(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(List.of());
+
+        return proxy(PreparedStatement.class, (proxy, method, args) ->
+                method.getName().equals("executeQuery") ? fakeResultSet(rows) : defaultValue(method));
+    }
+
+    private static ResultSet fakeResultSet(List<Map<String, Object>> rows) {
+        int[] position = {-1};
+        boolean[] lastWasNull = {false};
+
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++position[0] < rows.size();
+                case "wasNull":
+                    return lastWasNull[0];
+                case "getInt", "getString", "getDate", "getTimestamp", "getObject":
+                    Object value = rows.get(position[0]).get((String) args[0]);
+                    lastWasNull[0] = value == null;
+                    return value != null ? value : defaultValue(method);
+                default:
+                    return defaultValue(method);
+            }
+        });
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+}